@@ -3,6 +3,9 @@ package com.snortstudios.masterflasher;
 import android.os.Bundle;
 import com.getcapacitor.BridgeActivity;
 import com.snortstudios.masterflasher.plugins.AnkiDroidPlugin;
+import com.snortstudios.masterflasher.plugins.BackupPlugin;
+import com.snortstudios.masterflasher.plugins.DiagnosticsPlugin;
+import com.snortstudios.masterflasher.plugins.GenerationPlugin;
 import com.snortstudios.masterflasher.plugins.InboxPlugin;
 import com.snortstudios.masterflasher.plugins.SettingsPlugin;
 import com.snortstudios.masterflasher.plugins.ShareReceiverPlugin;
@@ -18,6 +21,9 @@ public class MainActivity extends BridgeActivity {
         registerPlugin(ShareReceiverPlugin.class);
         registerPlugin(WebClipperPlugin.class);
         registerPlugin(CameraOCRPlugin.class);
+        registerPlugin(GenerationPlugin.class);
+        registerPlugin(DiagnosticsPlugin.class);
+        registerPlugin(BackupPlugin.class);
         super.onCreate(savedInstanceState);
     }
 }
@@ -0,0 +1,42 @@
+package com.snortstudios.masterflasher;
+
+import android.app.Application;
+import android.util.Log;
+
+import com.snortstudios.masterflasher.db.AppDatabase;
+import com.snortstudios.masterflasher.db.SettingsCache;
+import com.snortstudios.masterflasher.diagnostics.Diagnostics;
+
+/**
+ * Application for every process start (launcher, share sheet, background generation).
+ *
+ * Opens the database on a background thread as soon as the process starts, so the
+ * schema open, migrations, first page reads and the settings cache are done by the time
+ * the WebView asks for the inbox instead of on its first plugin call.
+ */
+public class MasterFlasherApplication extends Application {
+
+    private static final String TAG = "MasterFlasherApp";
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        Thread warmUp = new Thread(this::warmDatabase, "DatabaseWarmUp");
+        warmUp.setPriority(Thread.NORM_PRIORITY - 1);
+        warmUp.start();
+    }
+
+    private void warmDatabase() {
+        try (Diagnostics.Scope scope = Diagnostics.enter("App.warmDatabase")) {
+            AppDatabase database = AppDatabase.getInstance(this);
+            database.getOpenHelper().getWritableDatabase();
+            // Page in what the inbox list reads first
+            database.inboxDao().getAllEntrySummaries();
+            // Settings are read from memory from now on
+            SettingsCache.getInstance(database.inboxDao()).load();
+        } catch (Exception e) {
+            // The first plugin call opens the database instead
+            Log.w(TAG, "Database warm-up failed: " + e.getMessage());
+        }
+    }
+}
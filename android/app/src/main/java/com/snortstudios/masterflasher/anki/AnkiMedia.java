@@ -0,0 +1,68 @@
+package com.snortstudios.masterflasher.anki;
+
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+
+import com.ichi2.anki.api.AddContentApi;
+import com.snortstudios.masterflasher.db.ExportedImage;
+import com.snortstudios.masterflasher.db.InboxDao;
+import com.snortstudios.masterflasher.media.SourceImages;
+
+import java.io.File;
+
+/**
+ * Source images of cards as AnkiDroid media, shared by AnkiDroidPlugin and AnkiOutbox.
+ *
+ * Images are named by content hash (see SourceImages), and each one is added to AnkiDroid
+ * once: the field value AnkiDroid returns is kept in anki_media and reused for every later
+ * card showing the same image.
+ */
+public final class AnkiMedia {
+
+    private AnkiMedia() {
+    }
+
+    /**
+     * Back field with the source image appended, or the back unchanged when there is no
+     * image or its file is gone. Throws when AnkiDroid refuses the image, so the note is
+     * retried instead of being exported without it.
+     */
+    public static String backWithImage(Context context, AddContentApi api, InboxDao dao,
+                                       String back, String sourceImage) {
+        String image = imageField(context, api, dao, sourceImage);
+        return image != null ? appendImage(back, image) : back;
+    }
+
+    static String appendImage(String back, String image) {
+        return back == null || back.isEmpty() ? image : back + "<br>" + image;
+    }
+
+    /**
+     * Field value showing the image, adding it to AnkiDroid's media on first use
+     */
+    private static String imageField(Context context, AddContentApi api, InboxDao dao, String sourceImage) {
+        File file = SourceImages.file(context, sourceImage);
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+        String fieldValue = dao.getExportedImageField(sourceImage);
+        if (fieldValue != null) {
+            return fieldValue;
+        }
+
+        Uri uri = SourceImages.contentUri(context, file);
+        String ankiPackage = AddContentApi.getAnkiDroidPackageName(context);
+        if (ankiPackage != null) {
+            context.grantUriPermission(ankiPackage, uri, Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        }
+        // The preferred name is a hint, AnkiDroid may add a suffix to keep it unique
+        String preferredName = sourceImage.substring(0, sourceImage.lastIndexOf('.'));
+        fieldValue = api.addMediaFromUri(uri, preferredName, "image");
+        if (fieldValue == null) {
+            throw new IllegalStateException("AnkiDroid did not add image " + sourceImage);
+        }
+        dao.insertExportedImage(ExportedImage.create(sourceImage, fieldValue));
+        return fieldValue;
+    }
+}
@@ -0,0 +1,54 @@
+package com.snortstudios.masterflasher.anki;
+
+import com.ichi2.anki.api.AddContentApi;
+
+import java.util.Map;
+
+/**
+ * Deck and note type lookups shared by AnkiDroidPlugin and AnkiOutbox
+ */
+public final class AnkiNotes {
+
+    public static final String DEFAULT_MODEL_KEY = "com.snortstudios.masterflasher.basic";
+
+    private AnkiNotes() {
+    }
+
+    /**
+     * Id of the deck with this name, created when missing; null if AnkiDroid refused
+     */
+    public static Long getDeckId(AddContentApi api, String name) {
+        Map<Long, String> deckList = api.getDeckList();
+        if (deckList != null) {
+            for (Map.Entry<Long, String> entry : deckList.entrySet()) {
+                if (name.equals(entry.getValue())) {
+                    return entry.getKey();
+                }
+            }
+        }
+        return api.addNewDeck(name);
+    }
+
+    /**
+     * Id of the basic note type with this name, created when missing; null if AnkiDroid refused
+     */
+    public static Long getModelId(AddContentApi api, String name) {
+        Long modelId = findModelId(api, name);
+        return modelId != null ? modelId : api.addNewBasicModel(name);
+    }
+
+    /**
+     * Id of the note type with this name, null when it does not exist
+     */
+    public static Long findModelId(AddContentApi api, String name) {
+        Map<Long, String> modelList = api.getModelList();
+        if (modelList != null) {
+            for (Map.Entry<Long, String> entry : modelList.entrySet()) {
+                if (name.equals(entry.getValue())) {
+                    return entry.getKey();
+                }
+            }
+        }
+        return null;
+    }
+}
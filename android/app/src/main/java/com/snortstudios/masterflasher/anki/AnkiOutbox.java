@@ -0,0 +1,397 @@
+package com.snortstudios.masterflasher.anki;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.util.Log;
+import android.util.SparseArray;
+
+import androidx.core.content.ContextCompat;
+
+import com.ichi2.anki.api.AddContentApi;
+import com.ichi2.anki.api.NoteInfo;
+import com.snortstudios.masterflasher.db.AnkiOutboxItem;
+import com.snortstudios.masterflasher.db.AppDatabase;
+import com.snortstudios.masterflasher.db.DuplicateCardIndex;
+import com.snortstudios.masterflasher.db.GeneratedCard;
+import com.snortstudios.masterflasher.db.InboxDao;
+import com.snortstudios.masterflasher.db.InboxEvents;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Durable queue of cards waiting to be exported to AnkiDroid.
+ *
+ * Cards are queued in the anki_outbox table (see AnkiOutboxItem), so they survive AnkiDroid
+ * being missing, the permission being denied, or the process dying. A flush drains the due
+ * rows in batches: one addNotes call per deck and note type, then one findDuplicateNotes
+ * call to learn which notes were created and their ids. Failed rows are retried with
+ * exponential backoff and given up on (card status 'error') after MAX_ATTEMPTS.
+ *
+ * Flushes run one at a time on a single background thread. AnkiDroidPlugin requests one
+ * whenever its availability or permission check succeeds; retries schedule themselves
+ * while the process is alive.
+ */
+public final class AnkiOutbox {
+
+    private static final String TAG = "AnkiOutbox";
+
+    static final int BATCH_SIZE = 50;
+    static final int MAX_ATTEMPTS = 8;
+    static final long BASE_BACKOFF_MS = 30_000;
+    static final long MAX_BACKOFF_MS = TimeUnit.HOURS.toMillis(6);
+
+    /**
+     * Receives flush summaries; called on the outbox thread
+     */
+    public interface Listener {
+        void onFlushed(FlushSummary summary);
+    }
+
+    /**
+     * Outcome of one flush
+     */
+    public static final class FlushSummary {
+        /**
+         * Cards exported as new notes
+         */
+        public final List<String> addedCardIds = new ArrayList<>();
+
+        /**
+         * Cards whose front was already a note, marked added without a new note
+         */
+        public final List<String> duplicateCardIds = new ArrayList<>();
+
+        /**
+         * Cards that failed and will be retried
+         */
+        public int failed;
+
+        /**
+         * Cards that failed MAX_ATTEMPTS times and were marked 'error'
+         */
+        public final List<String> gaveUpCardIds = new ArrayList<>();
+
+        /**
+         * Cards still in the outbox afterwards
+         */
+        public int remaining;
+
+        /**
+         * Time of the next scheduled retry, null when nothing is waiting
+         */
+        public Long nextAttemptAt;
+
+        public String lastError;
+        public long durationMs;
+
+        public boolean isEmpty() {
+            return addedCardIds.isEmpty() && duplicateCardIds.isEmpty() && failed == 0 && gaveUpCardIds.isEmpty();
+        }
+    }
+
+    private static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "AnkiOutbox");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    private static final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    // Coalesces flush requests made while one is already waiting to run
+    private static final AtomicBoolean flushQueued = new AtomicBoolean();
+
+    // Confined to the outbox thread
+    private static ScheduledFuture<?> retry;
+
+    private AnkiOutbox() {
+    }
+
+    public static void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Queue cards for export and request a flush. Cards already added are skipped.
+     *
+     * @return Ids of the cards that were queued
+     */
+    public static List<String> enqueue(Context context, List<String> cardIds, String deckName, String modelKey) {
+        InboxDao dao = AppDatabase.getInstance(context).inboxDao();
+        List<String> queued = dao.enqueueOutbox(cardIds, deckName, modelKey, System.currentTimeMillis());
+        requestFlush(context);
+        return queued;
+    }
+
+    /**
+     * Flush the due cards soon, on the outbox thread. Does nothing while AnkiDroid is
+     * missing or the permission is not granted.
+     */
+    public static void requestFlush(Context context) {
+        Context appContext = context.getApplicationContext();
+        if (flushQueued.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                flushQueued.set(false);
+                flush(appContext);
+            });
+        }
+    }
+
+    /**
+     * Whether AnkiDroid is installed and the app may write to it
+     */
+    public static boolean isReady(Context context) {
+        return AddContentApi.getAnkiDroidPackageName(context) != null
+            && ContextCompat.checkSelfPermission(context, AddContentApi.READ_WRITE_PERMISSION)
+                == PackageManager.PERMISSION_GRANTED;
+    }
+
+    /**
+     * Delay before the attempt after the given number of failures: 30 s doubling per failure, at most 6 h
+     */
+    static long backoffMs(int attempts) {
+        int doublings = Math.min(Math.max(attempts - 1, 0), 20);
+        return Math.min(BASE_BACKOFF_MS << doublings, MAX_BACKOFF_MS);
+    }
+
+    // ==================== Flush ====================
+
+    private static void flush(Context context) {
+        if (retry != null) {
+            retry.cancel(false);
+            retry = null;
+        }
+        if (!isReady(context)) {
+            return;
+        }
+
+        long startNanos = System.nanoTime();
+        InboxDao dao = AppDatabase.getInstance(context).inboxDao();
+        DuplicateCardIndex duplicateIndex = DuplicateCardIndex.getInstance(dao);
+        FlushSummary summary = new FlushSummary();
+        boolean aborted = false;
+        try {
+            AddContentApi api = new AddContentApi(context);
+            Map<String, Long> deckIds = new HashMap<>();
+            Map<String, Long> modelIds = new HashMap<>();
+            List<AnkiOutboxItem> items;
+            while (!(items = dao.getDueOutboxItems(System.currentTimeMillis(), BATCH_SIZE)).isEmpty()) {
+                flushBatch(context, api, dao, duplicateIndex, items, deckIds, modelIds, summary);
+            }
+        } catch (Exception e) {
+            // AnkiDroid went away mid-flush; the rows stay due for the next request
+            Log.w(TAG, "Flush aborted", e);
+            summary.lastError = e.getMessage();
+            aborted = true;
+        }
+
+        summary.remaining = dao.getOutboxCount();
+        summary.nextAttemptAt = summary.remaining > 0 ? dao.getNextOutboxAttemptAt() : null;
+        summary.durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        if (summary.nextAttemptAt != null) {
+            // Rows left due by an aborted flush wait one base backoff, not a busy loop
+            long delayMs = Math.max(summary.nextAttemptAt - System.currentTimeMillis(), aborted ? BASE_BACKOFF_MS : 0);
+            retry = executor.schedule(() -> requestFlush(context), delayMs, TimeUnit.MILLISECONDS);
+        }
+
+        if (!summary.isEmpty()) {
+            Log.i(TAG, "Flushed " + summary.addedCardIds.size() + " added, " + summary.duplicateCardIds.size()
+                + " duplicates, " + summary.failed + " failed, " + summary.gaveUpCardIds.size() + " given up, "
+                + summary.remaining + " remaining in " + summary.durationMs + " ms");
+            for (Listener listener : listeners) {
+                listener.onFlushed(summary);
+            }
+        }
+    }
+
+    /**
+     * Export one batch of due rows and record the outcome in one transaction
+     */
+    private static void flushBatch(Context context, AddContentApi api, InboxDao dao, DuplicateCardIndex duplicateIndex,
+                                   List<AnkiOutboxItem> items, Map<String, Long> deckIds,
+                                   Map<String, Long> modelIds, FlushSummary summary) {
+        List<String> cardIds = new ArrayList<>(items.size());
+        for (AnkiOutboxItem item : items) {
+            cardIds.add(item.cardId);
+        }
+        Map<String, GeneratedCard> cards = new HashMap<>();
+        for (GeneratedCard card : dao.getCards(cardIds)) {
+            cards.put(card.id, card);
+        }
+
+        // One addNotes call per deck and note type
+        Map<String, List<AnkiOutboxItem>> groups = new LinkedHashMap<>();
+        for (AnkiOutboxItem item : items) {
+            String modelKey = item.modelKey != null ? item.modelKey : AnkiNotes.DEFAULT_MODEL_KEY;
+            groups.computeIfAbsent(item.deckName + '\n' + modelKey, k -> new ArrayList<>()).add(item);
+        }
+
+        List<GeneratedCard> added = new ArrayList<>();
+        List<AnkiOutboxItem> retried = new ArrayList<>();
+        List<String> gaveUp = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (List<AnkiOutboxItem> group : groups.values()) {
+            AnkiOutboxItem first = group.get(0);
+            String deckName = first.deckName != null ? first.deckName : "MasterFlasher";
+            String modelKey = first.modelKey != null ? first.modelKey : AnkiNotes.DEFAULT_MODEL_KEY;
+            Set<String> failedIds = new HashSet<>();
+            String error = null;
+            try {
+                Long deckId = deckIds.get(deckName);
+                if (deckId == null) {
+                    deckId = AnkiNotes.getDeckId(api, deckName);
+                    deckIds.put(deckName, deckId);
+                }
+                Long modelId = modelIds.get(modelKey);
+                if (modelId == null) {
+                    modelId = AnkiNotes.getModelId(api, modelKey);
+                    modelIds.put(modelKey, modelId);
+                }
+                if (deckId == null || modelId == null) {
+                    throw new IllegalStateException("Could not create or find deck " + deckName + " or model " + modelKey);
+                }
+
+                List<GeneratedCard> toAdd = new ArrayList<>();
+                for (AnkiOutboxItem item : group) {
+                    GeneratedCard card = cards.get(item.cardId);
+                    if (card == null || "added".equals(card.status)) {
+                        // Exported from the review screen in the meantime
+                        continue;
+                    }
+                    if (duplicateIndex.contains(card.front)) {
+                        card.status = "added";
+                        card.noteId = duplicateIndex.getNoteId(card.front);
+                        added.add(card);
+                        summary.duplicateCardIds.add(card.id);
+                    } else {
+                        toAdd.add(card);
+                    }
+                }
+                if (!toAdd.isEmpty()) {
+                    addNotes(context, api, dao, modelId, deckId, toAdd, added, failedIds, summary);
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "Export to " + deckName + " failed", e);
+                error = e.getMessage();
+                for (AnkiOutboxItem item : group) {
+                    failedIds.add(item.cardId);
+                }
+            }
+
+            for (AnkiOutboxItem item : group) {
+                if (!failedIds.contains(item.cardId)) {
+                    continue;
+                }
+                item.attempts++;
+                item.lastError = error != null ? error : "AnkiDroid did not add the note";
+                summary.lastError = item.lastError;
+                if (item.attempts >= MAX_ATTEMPTS) {
+                    gaveUp.add(item.cardId);
+                } else {
+                    item.nextAttemptAt = now + backoffMs(item.attempts);
+                    retried.add(item);
+                    summary.failed++;
+                }
+            }
+        }
+
+        // Rows whose card is gone or already added are simply dropped
+        List<String> handled = new ArrayList<>(added.size());
+        for (GeneratedCard card : added) {
+            handled.add(card.id);
+        }
+        for (AnkiOutboxItem item : retried) {
+            handled.add(item.cardId);
+        }
+        handled.addAll(gaveUp);
+        List<String> stale = new ArrayList<>(cardIds);
+        stale.removeAll(handled);
+
+        dao.completeOutboxBatch(added, retried, gaveUp);
+        if (!stale.isEmpty()) {
+            dao.deleteOutboxItems(stale);
+        }
+        summary.gaveUpCardIds.addAll(gaveUp);
+
+        List<String> fronts = new ArrayList<>(added.size());
+        List<Long> noteIds = new ArrayList<>(added.size());
+        for (GeneratedCard card : added) {
+            fronts.add(card.front);
+            noteIds.add(card.noteId);
+        }
+        duplicateIndex.addAll(fronts, noteIds);
+
+        publishChanges(added, gaveUp, cards);
+    }
+
+    /**
+     * Add notes with one addNotes call, then match fronts back to note ids with one
+     * findDuplicateNotes call; addNotes only reports how many notes it created. Source
+     * images are added to AnkiDroid's media first (see AnkiMedia).
+     */
+    private static void addNotes(Context context, AddContentApi api, InboxDao dao, long modelId, long deckId,
+                                 List<GeneratedCard> toAdd, List<GeneratedCard> added, Set<String> failedIds,
+                                 FlushSummary summary) {
+        List<String[]> fields = new ArrayList<>(toAdd.size());
+        List<Set<String>> tags = new ArrayList<>(toAdd.size());
+        List<String> fronts = new ArrayList<>(toAdd.size());
+        for (GeneratedCard card : toAdd) {
+            String back = AnkiMedia.backWithImage(context, api, dao, card.back, card.sourceImage);
+            fields.add(new String[]{card.front, back});
+            tags.add(new HashSet<>(card.tags));
+            fronts.add(card.front);
+        }
+        api.addNotes(modelId, deckId, fields, tags);
+
+        SparseArray<List<NoteInfo>> notes = api.findDuplicateNotes(modelId, fronts);
+        for (int i = 0; i < toAdd.size(); i++) {
+            GeneratedCard card = toAdd.get(i);
+            List<NoteInfo> matches = notes != null ? notes.get(i) : null;
+            if (matches == null || matches.isEmpty()) {
+                failedIds.add(card.id);
+                continue;
+            }
+            // Note ids are creation timestamps, the newest match is the note just added
+            long noteId = matches.get(0).getId();
+            for (NoteInfo match : matches) {
+                noteId = Math.max(noteId, match.getId());
+            }
+            card.status = "added";
+            card.noteId = noteId;
+            added.add(card);
+            summary.addedCardIds.add(card.id);
+        }
+    }
+
+    /**
+     * Announce changed cards per entry, like updateCardStatus does for a single card
+     */
+    private static void publishChanges(List<GeneratedCard> added, List<String> gaveUp, Map<String, GeneratedCard> cards) {
+        Map<String, List<String>> byEntry = new LinkedHashMap<>();
+        for (GeneratedCard card : added) {
+            byEntry.computeIfAbsent(card.entryId, k -> new ArrayList<>()).add(card.id);
+        }
+        for (String cardId : gaveUp) {
+            GeneratedCard card = cards.get(cardId);
+            if (card != null) {
+                byEntry.computeIfAbsent(card.entryId, k -> new ArrayList<>()).add(cardId);
+            }
+        }
+        for (Map.Entry<String, List<String>> entry : byEntry.entrySet()) {
+            InboxEvents.publishCardsChanged(entry.getKey(), entry.getValue());
+        }
+    }
+}
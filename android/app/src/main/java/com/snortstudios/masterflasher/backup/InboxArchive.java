@@ -0,0 +1,230 @@
+package com.snortstudios.masterflasher.backup;
+
+import com.snortstudios.masterflasher.db.AppSetting;
+import com.snortstudios.masterflasher.db.GeneratedCard;
+import com.snortstudios.masterflasher.db.InboxEntry;
+import com.snortstudios.masterflasher.db.InboxJson;
+import com.snortstudios.masterflasher.db.PdfPage;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+
+/**
+ * Layout of an inbox backup: a zip archive with one JSON Lines file per table, followed
+ * by the extracted texts, PDF files and source images of the entries.
+ *
+ * Entries are written in a fixed order, so InboxImporter reads the archive front to back
+ * from a stream, without random access or temporary files:
+ *
+ *   manifest.json      { format, formatVersion, schemaVersion, exportedAt }
+ *   settings.jsonl     { key, value } per line
+ *   entries.jsonl      one inbox entry per line, all columns
+ *   cards.jsonl        one card per line, with its tags
+ *   pdf_pages.jsonl    { entryId, pageNo, text } per line
+ *   texts/<id>.txt     extracted text of each entry that keeps it in a file (see EntryTextStore)
+ *   files/<name>       PDF of each entry whose content points into the pdfs directory
+ *   images/<name>      source image of each entry or card that has one (see SourceImages)
+ *
+ * Each line holds one row, so memory is bounded by the largest row rather than the inbox.
+ */
+public final class InboxArchive {
+
+    public static final String FORMAT = "masterflasher-inbox";
+    public static final int FORMAT_VERSION = 1;
+
+    static final String MANIFEST = "manifest.json";
+    static final String SETTINGS = "settings.jsonl";
+    static final String ENTRIES = "entries.jsonl";
+    static final String CARDS = "cards.jsonl";
+    static final String PDF_PAGES = "pdf_pages.jsonl";
+    static final String FILES_PREFIX = "files/";
+    static final String IMAGES_PREFIX = "images/";
+    static final String TEXTS_PREFIX = "texts/";
+
+    // Directory under getFilesDir() holding shared PDFs (see ShareReceiverActivity)
+    static final String PDF_DIR = "pdfs";
+    // Directory under getFilesDir() holding OCR source images, named by content hash
+    static final String IMAGE_DIR = "images";
+    static final String CAPACITOR_FILE_PREFIX = "capacitor://localhost/_capacitor_file_";
+
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private InboxArchive() {
+    }
+
+    /**
+     * Counts and throughput of one export or import
+     */
+    public static final class Stats {
+        public int entries;
+        public int cards;
+        public int pdfPages;
+        public int settings;
+        public int files;
+
+        /**
+         * Entries that already existed and were skipped (import only)
+         */
+        public int skippedEntries;
+
+        /**
+         * Size of the archive in bytes
+         */
+        public long bytes;
+        public long durationMs;
+
+        public double megabytesPerSecond() {
+            return durationMs > 0 ? bytes / 1048576.0 / (durationMs / 1000.0) : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                "%d entries, %d cards, %d pages, %d settings, %d files, %d skipped; %d bytes in %d ms (%.1f MB/s)",
+                entries, cards, pdfPages, settings, files, skippedEntries, bytes, durationMs, megabytesPerSecond());
+        }
+    }
+
+    /**
+     * Counts the compressed bytes written, for Stats.bytes
+     */
+    static final class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    /**
+     * Counts the compressed bytes read, for Stats.bytes
+     */
+    static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+
+    // ==================== Row Mapping ====================
+
+    static JSONObject entryToJson(InboxEntry entry) throws JSONException {
+        JSONObject obj = InboxJson.entryToJson(entry, null, new JSONObject());
+        // Derived from the text on import
+        obj.remove("contentLength");
+        obj.remove("extractedTextLength");
+        if (entry.extractedTextFileLength != null) {
+            obj.put("extractedTextFileLength", entry.extractedTextFileLength);
+        }
+        return obj;
+    }
+
+    static InboxEntry jsonToEntry(JSONObject obj) throws JSONException {
+        InboxEntry entry = InboxJson.jsonToEntry(obj);
+        entry.pageCount = obj.optInt("pageCount", 0);
+        entry.pageRangeStart = obj.isNull("pageRangeStart") ? null : obj.getInt("pageRangeStart");
+        entry.pageRangeEnd = obj.isNull("pageRangeEnd") ? null : obj.getInt("pageRangeEnd");
+        entry.extractedTextFileLength = obj.isNull("extractedTextFileLength")
+            ? null : obj.getInt("extractedTextFileLength");
+        return entry;
+    }
+
+    static JSONObject cardToJson(GeneratedCard card) throws JSONException {
+        JSONObject obj = new JSONObject();
+        obj.put("id", card.id);
+        obj.put("entryId", card.entryId);
+        obj.put("front", card.front);
+        obj.put("back", card.back);
+        obj.put("status", card.status);
+        obj.put("tags", new JSONArray(card.tags));
+        if (card.noteId != null) {
+            obj.put("noteId", card.noteId);
+        }
+        if (card.sourceImage != null) {
+            obj.put("sourceImage", card.sourceImage);
+        }
+        return obj;
+    }
+
+    static GeneratedCard jsonToCard(JSONObject obj) throws JSONException {
+        return InboxJson.jsonToCard(obj, obj.getString("entryId"));
+    }
+
+    static JSONObject pageToJson(PdfPage page) throws JSONException {
+        JSONObject obj = new JSONObject();
+        obj.put("entryId", page.entryId);
+        obj.put("pageNo", page.pageNo);
+        obj.put("text", page.text);
+        return obj;
+    }
+
+    static PdfPage jsonToPage(JSONObject obj) throws JSONException {
+        return PdfPage.create(obj.getString("entryId"), obj.getInt("pageNo"), obj.optString("text", ""));
+    }
+
+    static JSONObject settingToJson(AppSetting setting) throws JSONException {
+        JSONObject obj = new JSONObject();
+        obj.put("key", setting.key);
+        obj.put("value", setting.value != null ? setting.value : JSONObject.NULL);
+        return obj;
+    }
+
+    /**
+     * File name of a PDF entry's document, null when its content is not a local PDF URL
+     */
+    static String pdfFileName(InboxEntry entry) {
+        if (!"pdf".equals(entry.contentType) || entry.content == null
+                || !entry.content.startsWith(CAPACITOR_FILE_PREFIX)) {
+            return null;
+        }
+        String name = entry.content.substring(entry.content.lastIndexOf('/') + 1);
+        return name.isEmpty() ? null : name;
+    }
+
+    /**
+     * Whether a file name from an archive is safe to create in the pdfs directory
+     */
+    static boolean isSafeFileName(String name) {
+        return !name.isEmpty() && !name.equals(".") && !name.equals("..")
+            && name.indexOf('/') < 0 && name.indexOf('\\') < 0;
+    }
+}
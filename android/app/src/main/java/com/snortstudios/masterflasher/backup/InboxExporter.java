@@ -0,0 +1,214 @@
+package com.snortstudios.masterflasher.backup;
+
+import com.snortstudios.masterflasher.db.AppDatabase;
+import com.snortstudios.masterflasher.db.AppSetting;
+import com.snortstudios.masterflasher.db.GeneratedCard;
+import com.snortstudios.masterflasher.db.InboxDao;
+import com.snortstudios.masterflasher.db.InboxEntry;
+import com.snortstudios.masterflasher.db.PdfPage;
+import com.snortstudios.masterflasher.text.EntryTextStore;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes the whole inbox into an InboxArchive.
+ *
+ * Tables are read in keyset pages ordered by primary key, so at most one page of rows is
+ * in memory however large the inbox is, and each page is a short read that never blocks
+ * writers for long. The pages are not one snapshot: rows written during an export may or
+ * may not be included, and InboxImporter drops cards and pages of entries it did not see.
+ */
+public final class InboxExporter {
+
+    // Entries can hold megabytes of text each, the other rows are small
+    static final int ENTRY_PAGE_SIZE = 16;
+    static final int CARD_PAGE_SIZE = InboxDao.MAX_BOUND_IDS;
+    static final int PDF_PAGE_PAGE_SIZE = 64;
+
+    private final AppDatabase database;
+    private final InboxDao dao;
+    private final File pdfDir;
+    private final File imageDir;
+    private final EntryTextStore textStore;
+
+    public InboxExporter(AppDatabase database, File filesDir) {
+        this.database = database;
+        this.dao = database.inboxDao();
+        this.pdfDir = new File(filesDir, InboxArchive.PDF_DIR);
+        this.imageDir = new File(filesDir, InboxArchive.IMAGE_DIR);
+        this.textStore = new EntryTextStore(filesDir);
+    }
+
+    /**
+     * Write the archive to a stream. The stream is finished but left open for the caller to close.
+     */
+    public InboxArchive.Stats export(OutputStream out) throws IOException {
+        long startNanos = System.nanoTime();
+        InboxArchive.Stats stats = new InboxArchive.Stats();
+        InboxArchive.CountingOutputStream counting =
+            new InboxArchive.CountingOutputStream(new BufferedOutputStream(out, InboxArchive.BUFFER_SIZE));
+        ZipOutputStream zip = new ZipOutputStream(counting);
+        zip.setLevel(Deflater.BEST_SPEED);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), InboxArchive.BUFFER_SIZE);
+
+        try {
+            beginEntry(zip, InboxArchive.MANIFEST);
+            JSONObject manifest = new JSONObject();
+            manifest.put("format", InboxArchive.FORMAT);
+            manifest.put("formatVersion", InboxArchive.FORMAT_VERSION);
+            manifest.put("schemaVersion", database.getOpenHelper().getReadableDatabase().getVersion());
+            manifest.put("exportedAt", System.currentTimeMillis());
+            writer.write(manifest.toString());
+            endEntry(zip, writer);
+
+            beginEntry(zip, InboxArchive.SETTINGS);
+            for (AppSetting setting : dao.getAllSettings()) {
+                writeLine(writer, InboxArchive.settingToJson(setting));
+                stats.settings++;
+            }
+            endEntry(zip, writer);
+
+            // Names of the PDFs to copy after the tables, one per PDF entry
+            Set<String> pdfNames = new LinkedHashSet<>();
+            // Names of the source images to copy after the PDFs, shared by many cards
+            Set<String> imageNames = new LinkedHashSet<>();
+            // Entries whose extracted text is kept in a file
+            Set<String> textIds = new LinkedHashSet<>();
+            beginEntry(zip, InboxArchive.ENTRIES);
+            String afterId = "";
+            List<InboxEntry> entries;
+            do {
+                entries = dao.getEntriesAfter(afterId, ENTRY_PAGE_SIZE);
+                for (InboxEntry entry : entries) {
+                    writeLine(writer, InboxArchive.entryToJson(entry));
+                    String pdfName = InboxArchive.pdfFileName(entry);
+                    if (pdfName != null) {
+                        pdfNames.add(pdfName);
+                    }
+                    if (entry.sourceImage != null) {
+                        imageNames.add(entry.sourceImage);
+                    }
+                    if (entry.extractedTextFileLength != null && EntryTextStore.isSafeId(entry.id)) {
+                        textIds.add(entry.id);
+                    }
+                    afterId = entry.id;
+                }
+                stats.entries += entries.size();
+            } while (entries.size() == ENTRY_PAGE_SIZE);
+            endEntry(zip, writer);
+
+            beginEntry(zip, InboxArchive.CARDS);
+            afterId = "";
+            List<GeneratedCard> cards;
+            do {
+                cards = dao.getCardsAfter(afterId, CARD_PAGE_SIZE);
+                for (GeneratedCard card : cards) {
+                    writeLine(writer, InboxArchive.cardToJson(card));
+                    if (card.sourceImage != null) {
+                        imageNames.add(card.sourceImage);
+                    }
+                    afterId = card.id;
+                }
+                stats.cards += cards.size();
+            } while (cards.size() == CARD_PAGE_SIZE);
+            endEntry(zip, writer);
+
+            beginEntry(zip, InboxArchive.PDF_PAGES);
+            String afterEntryId = "";
+            int afterPageNo = 0;
+            List<PdfPage> pages;
+            do {
+                pages = dao.getPdfPagesAfter(afterEntryId, afterPageNo, PDF_PAGE_PAGE_SIZE);
+                for (PdfPage page : pages) {
+                    writeLine(writer, InboxArchive.pageToJson(page));
+                    afterEntryId = page.entryId;
+                    afterPageNo = page.pageNo;
+                }
+                stats.pdfPages += pages.size();
+            } while (pages.size() == PDF_PAGE_PAGE_SIZE);
+            endEntry(zip, writer);
+
+            byte[] buffer = new byte[InboxArchive.BUFFER_SIZE];
+            for (String entryId : textIds) {
+                copyFile(zip, textStore.file(entryId),
+                    InboxArchive.TEXTS_PREFIX + entryId + EntryTextStore.EXTENSION, buffer, stats);
+            }
+
+            // PDF streams and WebP images are compressed already, deflating them again costs time for nothing
+            zip.setLevel(Deflater.NO_COMPRESSION);
+            for (String pdfName : pdfNames) {
+                copyFile(zip, new File(pdfDir, pdfName), InboxArchive.FILES_PREFIX + pdfName, buffer, stats);
+            }
+            for (String imageName : imageNames) {
+                copyFile(zip, new File(imageDir, imageName), InboxArchive.IMAGES_PREFIX + imageName, buffer, stats);
+            }
+
+            zip.finish();
+            counting.flush();
+        } catch (JSONException e) {
+            throw new IOException("Failed to encode backup row: " + e.getMessage(), e);
+        }
+
+        stats.bytes = counting.count;
+        stats.durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        return stats;
+    }
+
+    /**
+     * Copy a file into its own zip entry, skipping files that are gone
+     */
+    private static void copyFile(ZipOutputStream zip, File file, String name, byte[] buffer,
+                                 InboxArchive.Stats stats) throws IOException {
+        if (!file.isFile()) {
+            return;
+        }
+        beginEntry(zip, name);
+        try (InputStream in = new FileInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                zip.write(buffer, 0, read);
+            }
+        }
+        zip.closeEntry();
+        stats.files++;
+    }
+
+    private static void beginEntry(ZipOutputStream zip, String name) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+    }
+
+    /**
+     * Flush buffered text into the current zip entry, then close it
+     */
+    private static void endEntry(ZipOutputStream zip, Writer writer) throws IOException {
+        writer.flush();
+        zip.closeEntry();
+    }
+
+    /**
+     * One row per line; JSON escapes line breaks inside strings
+     */
+    private static void writeLine(Writer writer, JSONObject row) throws IOException {
+        writer.write(row.toString());
+        writer.write('\n');
+    }
+}
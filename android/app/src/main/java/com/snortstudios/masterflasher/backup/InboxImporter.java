@@ -0,0 +1,344 @@
+package com.snortstudios.masterflasher.backup;
+
+import com.snortstudios.masterflasher.db.AppDatabase;
+import com.snortstudios.masterflasher.db.DuplicateCardIndex;
+import com.snortstudios.masterflasher.db.GeneratedCard;
+import com.snortstudios.masterflasher.db.InboxDao;
+import com.snortstudios.masterflasher.db.InboxEntry;
+import com.snortstudios.masterflasher.db.InboxEvents;
+import com.snortstudios.masterflasher.db.PdfPage;
+import com.snortstudios.masterflasher.db.SettingsCache;
+import com.snortstudios.masterflasher.media.SourceImages;
+import com.snortstudios.masterflasher.text.EntryTextStore;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Reads an InboxArchive back into the database.
+ *
+ * The archive is read front to back from a stream. Rows are collected into small batches,
+ * each inserted in its own transaction, so memory stays bounded and a large import never
+ * holds the database lock for long. An interrupted import keeps the batches it committed;
+ * importing the same archive again completes it.
+ *
+ * Entry ids that already exist are skipped or replaced (see OnConflict). Cards and PDF pages
+ * are only imported for the entries this import wrote, so a skipped entry keeps its own cards.
+ */
+public final class InboxImporter {
+
+    /**
+     * What to do with an entry whose id already exists
+     */
+    public enum OnConflict {
+        /**
+         * Keep the existing entry, its cards and pages; existing settings are kept too
+         */
+        SKIP,
+
+        /**
+         * Overwrite the entry and the cards and pages in the archive. Cards of the entry
+         * that are not in the archive are kept.
+         */
+        REPLACE
+    }
+
+    static final int ENTRY_BATCH_SIZE = InboxExporter.ENTRY_PAGE_SIZE;
+    static final int CARD_BATCH_SIZE = InboxDao.MAX_BOUND_IDS;
+    static final int PDF_PAGE_BATCH_SIZE = InboxExporter.PDF_PAGE_PAGE_SIZE;
+
+    private final AppDatabase database;
+    private final InboxDao dao;
+    private final File pdfDir;
+    private final File imageDir;
+    private final File textDir;
+
+    public InboxImporter(AppDatabase database, File filesDir) {
+        this.database = database;
+        this.dao = database.inboxDao();
+        this.pdfDir = new File(filesDir, InboxArchive.PDF_DIR);
+        this.imageDir = new File(filesDir, InboxArchive.IMAGE_DIR);
+        this.textDir = new File(filesDir, EntryTextStore.TEXT_DIR);
+    }
+
+    /**
+     * Import an archive from a stream, which is left open for the caller to close
+     */
+    public InboxArchive.Stats importFrom(InputStream in, OnConflict onConflict) throws IOException {
+        long startNanos = System.nanoTime();
+        InboxArchive.Stats stats = new InboxArchive.Stats();
+        InboxArchive.CountingInputStream counting =
+            new InboxArchive.CountingInputStream(new BufferedInputStream(in, InboxArchive.BUFFER_SIZE));
+        ZipInputStream zip = new ZipInputStream(counting);
+
+        // Entries written by this import, in archive order
+        Set<String> importedIds = new LinkedHashSet<>();
+        // PDF files referenced by those entries
+        Set<String> pdfNames = new HashSet<>();
+        // Source images referenced by those entries and their cards
+        Set<String> imageNames = new HashSet<>();
+        // Those entries whose extracted text is kept in a file
+        Set<String> textIds = new HashSet<>();
+
+        try {
+            BufferedReader reader = openEntry(zip, InboxArchive.MANIFEST);
+            StringBuilder manifestText = new StringBuilder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                manifestText.append(line);
+            }
+            JSONObject manifest = new JSONObject(manifestText.toString());
+            if (!InboxArchive.FORMAT.equals(manifest.optString("format"))) {
+                throw new IOException("Not an inbox backup");
+            }
+            int formatVersion = manifest.optInt("formatVersion", 0);
+            if (formatVersion < 1 || formatVersion > InboxArchive.FORMAT_VERSION) {
+                throw new IOException("Unsupported backup format version " + formatVersion);
+            }
+
+            reader = openEntry(zip, InboxArchive.SETTINGS);
+            SettingsCache settings = SettingsCache.getInstance(dao);
+            Map<String, String> existingSettings = settings.getAll();
+            while ((line = reader.readLine()) != null) {
+                JSONObject row = new JSONObject(line);
+                String key = row.getString("key");
+                if (onConflict == OnConflict.SKIP && existingSettings.containsKey(key)) {
+                    continue;
+                }
+                settings.set(key, row.isNull("value") ? null : row.getString("value"));
+                stats.settings++;
+            }
+
+            reader = openEntry(zip, InboxArchive.ENTRIES);
+            List<InboxEntry> entries = new ArrayList<>(ENTRY_BATCH_SIZE);
+            while ((line = reader.readLine()) != null) {
+                entries.add(InboxArchive.jsonToEntry(new JSONObject(line)));
+                if (entries.size() == ENTRY_BATCH_SIZE) {
+                    importEntries(entries, onConflict, importedIds, pdfNames, imageNames, textIds, stats);
+                    entries.clear();
+                }
+            }
+            importEntries(entries, onConflict, importedIds, pdfNames, imageNames, textIds, stats);
+
+            reader = openEntry(zip, InboxArchive.CARDS);
+            List<GeneratedCard> cards = new ArrayList<>(CARD_BATCH_SIZE);
+            while ((line = reader.readLine()) != null) {
+                GeneratedCard card = InboxArchive.jsonToCard(new JSONObject(line));
+                if (!importedIds.contains(card.entryId)) {
+                    continue;
+                }
+                if (card.sourceImage != null) {
+                    imageNames.add(card.sourceImage);
+                }
+                cards.add(card);
+                if (cards.size() == CARD_BATCH_SIZE) {
+                    importCards(cards, onConflict, stats);
+                    cards.clear();
+                }
+            }
+            importCards(cards, onConflict, stats);
+
+            reader = openEntry(zip, InboxArchive.PDF_PAGES);
+            List<PdfPage> pages = new ArrayList<>(PDF_PAGE_BATCH_SIZE);
+            while ((line = reader.readLine()) != null) {
+                PdfPage page = InboxArchive.jsonToPage(new JSONObject(line));
+                if (!importedIds.contains(page.entryId)) {
+                    continue;
+                }
+                pages.add(page);
+                if (pages.size() == PDF_PAGE_BATCH_SIZE) {
+                    dao.insertPdfPages(pages);
+                    stats.pdfPages += pages.size();
+                    pages.clear();
+                }
+            }
+            if (!pages.isEmpty()) {
+                dao.insertPdfPages(pages);
+                stats.pdfPages += pages.size();
+            }
+
+            byte[] buffer = new byte[InboxArchive.BUFFER_SIZE];
+            ZipEntry zipEntry;
+            while ((zipEntry = zip.getNextEntry()) != null) {
+                String name = zipEntry.getName();
+                if (name.startsWith(InboxArchive.FILES_PREFIX)) {
+                    String pdfName = name.substring(InboxArchive.FILES_PREFIX.length());
+                    if (pdfNames.contains(pdfName)) {
+                        writeFile(zip, pdfDir, pdfName, buffer);
+                        stats.files++;
+                    }
+                } else if (name.startsWith(InboxArchive.IMAGES_PREFIX)) {
+                    String imageName = name.substring(InboxArchive.IMAGES_PREFIX.length());
+                    // Named by content hash, an existing file already holds these bytes
+                    if (imageNames.contains(imageName) && SourceImages.isValidName(imageName)
+                            && !new File(imageDir, imageName).isFile()) {
+                        writeFile(zip, imageDir, imageName, buffer);
+                        stats.files++;
+                    }
+                } else if (name.startsWith(InboxArchive.TEXTS_PREFIX) && name.endsWith(EntryTextStore.EXTENSION)) {
+                    String entryId = name.substring(InboxArchive.TEXTS_PREFIX.length(),
+                        name.length() - EntryTextStore.EXTENSION.length());
+                    if (textIds.contains(entryId)) {
+                        writeFile(zip, textDir, entryId + EntryTextStore.EXTENSION, buffer);
+                        stats.files++;
+                    }
+                }
+            }
+        } catch (JSONException e) {
+            throw new IOException("Invalid backup row: " + e.getMessage(), e);
+        } finally {
+            // Announce what was committed, also when a later batch failed
+            InboxEvents.publishEntriesAdded(new ArrayList<>(importedIds));
+        }
+
+        stats.bytes = counting.count;
+        stats.durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        return stats;
+    }
+
+    /**
+     * Insert one batch of entries in a transaction, skipping or replacing existing ids
+     */
+    private void importEntries(List<InboxEntry> entries, OnConflict onConflict, Set<String> importedIds,
+                               Set<String> pdfNames, Set<String> imageNames, Set<String> textIds,
+                               InboxArchive.Stats stats) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        List<String> ids = new ArrayList<>(entries.size());
+        for (InboxEntry entry : entries) {
+            ids.add(entry.id);
+        }
+        database.runInTransaction(() -> {
+            Set<String> existing = new HashSet<>(dao.getExistingEntryIds(ids));
+            for (InboxEntry entry : entries) {
+                boolean exists = existing.contains(entry.id);
+                if (exists && onConflict == OnConflict.SKIP) {
+                    stats.skippedEntries++;
+                    continue;
+                }
+                String pdfName = InboxArchive.pdfFileName(entry);
+                if (pdfName != null && InboxArchive.isSafeFileName(pdfName)) {
+                    // Point at this device's files directory
+                    entry.content = InboxArchive.CAPACITOR_FILE_PREFIX + new File(pdfDir, pdfName).getAbsolutePath();
+                    pdfNames.add(pdfName);
+                }
+                if (entry.extractedTextFileLength != null && !EntryTextStore.isSafeId(entry.id)) {
+                    // Its text file could not be written, the entry keeps its PDF pages
+                    entry.extractedTextFileLength = null;
+                }
+                if (exists) {
+                    // An insert with REPLACE would delete the row and cascade to its cards and pages
+                    dao.updateEntry(entry);
+                } else {
+                    dao.insertEntry(entry);
+                }
+                if (entry.sourceImage != null) {
+                    imageNames.add(entry.sourceImage);
+                }
+                if (entry.extractedTextFileLength != null) {
+                    textIds.add(entry.id);
+                }
+                importedIds.add(entry.id);
+                stats.entries++;
+            }
+        });
+    }
+
+    /**
+     * Insert one batch of cards (at most MAX_BOUND_IDS) in a transaction
+     */
+    private void importCards(List<GeneratedCard> cards, OnConflict onConflict, InboxArchive.Stats stats) {
+        if (cards.isEmpty()) {
+            return;
+        }
+        List<GeneratedCard> toInsert = cards;
+        if (onConflict == OnConflict.SKIP) {
+            List<String> ids = new ArrayList<>(cards.size());
+            for (GeneratedCard card : cards) {
+                ids.add(card.id);
+            }
+            Set<String> existing = new HashSet<>(dao.getExistingCardIds(ids));
+            if (!existing.isEmpty()) {
+                toInsert = new ArrayList<>(cards.size());
+                for (GeneratedCard card : cards) {
+                    if (!existing.contains(card.id)) {
+                        toInsert.add(card);
+                    }
+                }
+            }
+        }
+        if (toInsert.isEmpty()) {
+            return;
+        }
+        dao.insertCards(toInsert);
+        stats.cards += toInsert.size();
+
+        // Cards already in AnkiDroid, so the duplicate check knows their fronts on this device
+        List<String> fronts = new ArrayList<>();
+        List<Long> noteIds = new ArrayList<>();
+        for (GeneratedCard card : toInsert) {
+            if ("added".equals(card.status)) {
+                fronts.add(card.front);
+                noteIds.add(card.noteId);
+            }
+        }
+        if (!fronts.isEmpty()) {
+            DuplicateCardIndex.getInstance(dao).addAll(fronts, noteIds);
+        }
+    }
+
+    /**
+     * Copy the current zip entry into a directory, through a temporary file so a failed
+     * import never leaves a truncated PDF, image or text behind
+     */
+    private static void writeFile(ZipInputStream zip, File dir, String fileName, byte[] buffer) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Could not create " + dir);
+        }
+        File target = new File(dir, fileName);
+        File partial = new File(dir, fileName + ".part");
+        try (OutputStream out = new FileOutputStream(partial)) {
+            int read;
+            while ((read = zip.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+        }
+        if (!partial.renameTo(target)) {
+            partial.delete();
+            throw new IOException("Could not write " + target);
+        }
+    }
+
+    /**
+     * Advance to the next zip entry, which must have the given name. The returned reader
+     * ends with the entry; it is never closed, that would close the archive.
+     */
+    private static BufferedReader openEntry(ZipInputStream zip, String name) throws IOException {
+        ZipEntry zipEntry = zip.getNextEntry();
+        if (zipEntry == null || !name.equals(zipEntry.getName())) {
+            throw new IOException("Invalid backup: expected " + name
+                + (zipEntry != null ? " but found " + zipEntry.getName() : ""));
+        }
+        return new BufferedReader(new InputStreamReader(zip, StandardCharsets.UTF_8), InboxArchive.BUFFER_SIZE);
+    }
+}
@@ -0,0 +1,69 @@
+package com.snortstudios.masterflasher.db;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Room entity queuing a card for export to AnkiDroid (see AnkiOutbox).
+ *
+ * Only the target and retry state live here; front, back and tags are read from the card
+ * when the row is flushed, so edits made while it waits are exported. Cascade-deleted
+ * with its card.
+ */
+@Entity(
+    tableName = "anki_outbox",
+    foreignKeys = @ForeignKey(
+        entity = GeneratedCard.class,
+        parentColumns = "id",
+        childColumns = "cardId",
+        onDelete = ForeignKey.CASCADE
+    ),
+    indices = @Index("nextAttemptAt")
+)
+public class AnkiOutboxItem {
+
+    @PrimaryKey
+    @NonNull
+    public String cardId;
+
+    public String deckName;
+
+    /**
+     * AnkiDroid note type name
+     */
+    public String modelKey;
+
+    /**
+     * Failed export attempts so far
+     */
+    public int attempts;
+
+    /**
+     * Earliest time of the next attempt, backed off after each failure
+     */
+    public long nextAttemptAt;
+
+    /**
+     * Error of the last failed attempt
+     */
+    public String lastError;
+
+    public long enqueuedAt;
+
+    public AnkiOutboxItem() {
+        this.cardId = "";
+    }
+
+    public static AnkiOutboxItem create(@NonNull String cardId, String deckName, String modelKey, long now) {
+        AnkiOutboxItem item = new AnkiOutboxItem();
+        item.cardId = cardId;
+        item.deckName = deckName;
+        item.modelKey = modelKey;
+        item.nextAttemptAt = now;
+        item.enqueuedAt = now;
+        return item;
+    }
+}
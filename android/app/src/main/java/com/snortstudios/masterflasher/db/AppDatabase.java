@@ -1,6 +1,7 @@
 package com.snortstudios.masterflasher.db;
 
 import android.content.Context;
+import android.database.Cursor;
 
 import androidx.annotation.NonNull;
 import androidx.room.Database;
@@ -9,18 +10,39 @@ import androidx.room.RoomDatabase;
 import androidx.room.migration.Migration;
 import androidx.sqlite.db.SupportSQLiteDatabase;
 
+import com.snortstudios.masterflasher.diagnostics.Diagnostics;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import java.util.ArrayList;
+import java.util.List;
+
 /**
- * Room database for MasterFlasher inbox entries, generated cards, and app settings.
+ * Room database for MasterFlasher inbox entries, generated cards, app settings,
+ * and native generation state.
  *
  * Uses singleton pattern to ensure only one database instance exists.
  *
  * Version History:
  * - v1: Initial schema with inbox_entries and generated_cards tables
  * - v2: Added app_settings table for custom prompts and other settings
+ * - v3: Added pdf_pages table and page count/range columns on inbox_entries
+ * - v4: Added response_cache table for Gemini responses
+ * - v5: Added exported_notes table for duplicate detection against AnkiDroid
+ * - v6: Added generation_runs, run_chunks and run_facts tables for resumable generation
+ * - v7: Added call_metrics table for per-request token and latency accounting
+ * - v8: Moved card tags from a JSON column of generated_cards into the card_tags table
+ * - v9: Added anki_outbox table for cards waiting to be exported to AnkiDroid
+ * - v10: Added sourceImage columns for OCR crops and anki_media table for exported images
+ * - v11: Added extractedTextFileLength column for PDF text kept in files (see EntryTextStore)
  */
 @Database(
-    entities = {InboxEntry.class, GeneratedCard.class, AppSetting.class},
-    version = 2,
+    entities = {InboxEntry.class, GeneratedCard.class, AppSetting.class, PdfPage.class,
+                ResponseCacheEntry.class, ExportedNote.class, GenerationRun.class, RunChunk.class,
+                RunFact.class, CallMetric.class, CardTag.class, AnkiOutboxItem.class,
+                ExportedImage.class},
+    version = 11,
     exportSchema = false
 )
 public abstract class AppDatabase extends RoomDatabase {
@@ -34,6 +56,11 @@ public abstract class AppDatabase extends RoomDatabase {
      */
     public abstract InboxDao inboxDao();
     
+    /**
+     * Get the DAO for native generation state
+     */
+    public abstract GenerationDao generationDao();
+    
     /**
      * Migration from version 1 to 2: adds app_settings table
      */
@@ -48,6 +75,265 @@ public abstract class AppDatabase extends RoomDatabase {
         }
     };
     
+    /**
+     * Migration from version 2 to 3: adds per-page PDF storage and page range selection
+     */
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL(
+                "CREATE TABLE IF NOT EXISTS pdf_pages (" +
+                "entryId TEXT NOT NULL, " +
+                "pageNo INTEGER NOT NULL, " +
+                "text TEXT, " +
+                "charCount INTEGER NOT NULL, " +
+                "PRIMARY KEY(entryId, pageNo), " +
+                "FOREIGN KEY(entryId) REFERENCES inbox_entries(id) ON UPDATE NO ACTION ON DELETE CASCADE)"
+            );
+            database.execSQL("ALTER TABLE inbox_entries ADD COLUMN pageCount INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("ALTER TABLE inbox_entries ADD COLUMN pageRangeStart INTEGER");
+            database.execSQL("ALTER TABLE inbox_entries ADD COLUMN pageRangeEnd INTEGER");
+        }
+    };
+    
+    /**
+     * Migration from version 3 to 4: adds the Gemini response cache
+     */
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL(
+                "CREATE TABLE IF NOT EXISTS response_cache (" +
+                "key TEXT PRIMARY KEY NOT NULL, " +
+                "stage TEXT, " +
+                "model TEXT, " +
+                "response TEXT, " +
+                "sizeBytes INTEGER NOT NULL, " +
+                "createdAt INTEGER NOT NULL, " +
+                "lastAccessedAt INTEGER NOT NULL, " +
+                "hitCount INTEGER NOT NULL)"
+            );
+            database.execSQL(
+                "CREATE INDEX IF NOT EXISTS index_response_cache_lastAccessedAt " +
+                "ON response_cache (lastAccessedAt)"
+            );
+        }
+    };
+    
+    /**
+     * Migration from version 4 to 5: adds the exported note index. Existing added cards
+     * are picked up by DuplicateCardIndex when it loads, the hash is not computable in SQL.
+     */
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL(
+                "CREATE TABLE IF NOT EXISTS exported_notes (" +
+                "frontHash INTEGER PRIMARY KEY NOT NULL, " +
+                "noteId INTEGER, " +
+                "front TEXT, " +
+                "addedAt INTEGER NOT NULL)"
+            );
+        }
+    };
+    
+    /**
+     * Migration from version 5 to 6: adds generation run checkpoints
+     */
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL(
+                "CREATE TABLE IF NOT EXISTS generation_runs (" +
+                "entryId TEXT PRIMARY KEY NOT NULL, " +
+                "state TEXT, " +
+                "inputHash TEXT, " +
+                "chunkCount INTEGER NOT NULL, " +
+                "factsExtracted INTEGER NOT NULL, " +
+                "factsDuplicate INTEGER NOT NULL, " +
+                "tokensSaved INTEGER NOT NULL, " +
+                "error TEXT, " +
+                "startedAt INTEGER NOT NULL, " +
+                "updatedAt INTEGER NOT NULL, " +
+                "FOREIGN KEY(entryId) REFERENCES inbox_entries(id) ON UPDATE NO ACTION ON DELETE CASCADE)"
+            );
+            database.execSQL(
+                "CREATE TABLE IF NOT EXISTS run_chunks (" +
+                "entryId TEXT NOT NULL, " +
+                "chunkIndex INTEGER NOT NULL, " +
+                "factCount INTEGER NOT NULL, " +
+                "completedAt INTEGER NOT NULL, " +
+                "PRIMARY KEY(entryId, chunkIndex), " +
+                "FOREIGN KEY(entryId) REFERENCES inbox_entries(id) ON UPDATE NO ACTION ON DELETE CASCADE)"
+            );
+            database.execSQL(
+                "CREATE TABLE IF NOT EXISTS run_facts (" +
+                "entryId TEXT NOT NULL, " +
+                "factId TEXT NOT NULL, " +
+                "seq INTEGER NOT NULL, " +
+                "chunkIndex INTEGER NOT NULL, " +
+                "text TEXT, " +
+                "scored INTEGER NOT NULL, " +
+                "score REAL, " +
+                "passed INTEGER NOT NULL, " +
+                "cardBatch INTEGER, " +
+                "PRIMARY KEY(entryId, factId), " +
+                "FOREIGN KEY(entryId) REFERENCES inbox_entries(id) ON UPDATE NO ACTION ON DELETE CASCADE)"
+            );
+        }
+    };
+    
+    /**
+     * Migration from version 6 to 7: adds per-call usage metrics
+     */
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL(
+                "CREATE TABLE IF NOT EXISTS call_metrics (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+                "entryId TEXT, " +
+                "stage TEXT, " +
+                "model TEXT, " +
+                "promptHash TEXT, " +
+                "promptTokens INTEGER NOT NULL, " +
+                "outputTokens INTEGER NOT NULL, " +
+                "latencyMs INTEGER NOT NULL, " +
+                "waitMs INTEGER NOT NULL, " +
+                "retries INTEGER NOT NULL, " +
+                "cacheHit INTEGER NOT NULL, " +
+                "success INTEGER NOT NULL, " +
+                "createdAt INTEGER NOT NULL, " +
+                "FOREIGN KEY(entryId) REFERENCES inbox_entries(id) ON UPDATE NO ACTION ON DELETE SET NULL)"
+            );
+            database.execSQL(
+                "CREATE INDEX IF NOT EXISTS index_call_metrics_entryId " +
+                "ON call_metrics (entryId)"
+            );
+            database.execSQL(
+                "CREATE INDEX IF NOT EXISTS index_call_metrics_createdAt " +
+                "ON call_metrics (createdAt)"
+            );
+        }
+    };
+    
+    /**
+     * Migration from version 7 to 8: moves card tags into card_tags. The JSON column is
+     * read first and generated_cards rebuilt without it before card_tags exists, so the
+     * rebuild cannot cascade into the new rows. Unparseable tags are dropped.
+     */
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            List<Object[]> tagRows = new ArrayList<>();
+            try (Cursor cursor = database.query("SELECT id, tags FROM generated_cards WHERE tags IS NOT NULL")) {
+                while (cursor.moveToNext()) {
+                    String cardId = cursor.getString(0);
+                    try {
+                        JSONArray tags = new JSONArray(cursor.getString(1));
+                        for (int i = 0; i < tags.length(); i++) {
+                            tagRows.add(new Object[]{cardId, tags.optString(i), i});
+                        }
+                    } catch (JSONException e) {
+                        // Keep the card without its tags
+                    }
+                }
+            }
+            
+            database.execSQL(
+                "CREATE TABLE IF NOT EXISTS generated_cards_new (" +
+                "id TEXT NOT NULL, " +
+                "entryId TEXT, " +
+                "front TEXT, " +
+                "back TEXT, " +
+                "status TEXT, " +
+                "noteId INTEGER, " +
+                "PRIMARY KEY(id), " +
+                "FOREIGN KEY(entryId) REFERENCES inbox_entries(id) ON UPDATE NO ACTION ON DELETE CASCADE)"
+            );
+            database.execSQL(
+                "INSERT INTO generated_cards_new (id, entryId, front, back, status, noteId) " +
+                "SELECT id, entryId, front, back, status, noteId FROM generated_cards"
+            );
+            database.execSQL("DROP TABLE generated_cards");
+            database.execSQL("ALTER TABLE generated_cards_new RENAME TO generated_cards");
+            database.execSQL(
+                "CREATE INDEX IF NOT EXISTS index_generated_cards_entryId " +
+                "ON generated_cards (entryId)"
+            );
+            
+            database.execSQL(
+                "CREATE TABLE IF NOT EXISTS card_tags (" +
+                "cardId TEXT NOT NULL, " +
+                "tag TEXT NOT NULL, " +
+                "position INTEGER NOT NULL, " +
+                "PRIMARY KEY(cardId, tag), " +
+                "FOREIGN KEY(cardId) REFERENCES generated_cards(id) ON UPDATE NO ACTION ON DELETE CASCADE)"
+            );
+            database.execSQL(
+                "CREATE INDEX IF NOT EXISTS index_card_tags_tag " +
+                "ON card_tags (tag)"
+            );
+            for (Object[] row : tagRows) {
+                database.execSQL("INSERT OR IGNORE INTO card_tags (cardId, tag, position) VALUES (?, ?, ?)", row);
+            }
+        }
+    };
+    
+    /**
+     * Migration from version 8 to 9: adds the AnkiDroid export outbox
+     */
+    static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL(
+                "CREATE TABLE IF NOT EXISTS anki_outbox (" +
+                "cardId TEXT NOT NULL, " +
+                "deckName TEXT, " +
+                "modelKey TEXT, " +
+                "attempts INTEGER NOT NULL, " +
+                "nextAttemptAt INTEGER NOT NULL, " +
+                "lastError TEXT, " +
+                "enqueuedAt INTEGER NOT NULL, " +
+                "PRIMARY KEY(cardId), " +
+                "FOREIGN KEY(cardId) REFERENCES generated_cards(id) ON UPDATE NO ACTION ON DELETE CASCADE)"
+            );
+            database.execSQL(
+                "CREATE INDEX IF NOT EXISTS index_anki_outbox_nextAttemptAt " +
+                "ON anki_outbox (nextAttemptAt)"
+            );
+        }
+    };
+    
+    /**
+     * Migration from version 9 to 10: adds source image references and exported media
+     */
+    static final Migration MIGRATION_9_10 = new Migration(9, 10) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE inbox_entries ADD COLUMN sourceImage TEXT");
+            database.execSQL("ALTER TABLE generated_cards ADD COLUMN sourceImage TEXT");
+            database.execSQL(
+                "CREATE TABLE IF NOT EXISTS anki_media (" +
+                "name TEXT NOT NULL, " +
+                "fieldValue TEXT, " +
+                "addedAt INTEGER NOT NULL, " +
+                "PRIMARY KEY(name))"
+            );
+        }
+    };
+    
+    /**
+     * Migration from version 10 to 11: extracted text can be kept in a file.
+     * Existing PDF text stays in its column until the page range is set again.
+     */
+    static final Migration MIGRATION_10_11 = new Migration(10, 11) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE inbox_entries ADD COLUMN extractedTextFileLength INTEGER");
+        }
+    };
+    
     /**
      * Get the singleton database instance
      */
@@ -64,7 +350,11 @@ public abstract class AppDatabase extends RoomDatabase {
                     // In a production app, consider using background threads
                     .allowMainThreadQueries()
                     // Add migrations to preserve user data across schema changes
-                    .addMigrations(MIGRATION_1_2)
+                    .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6,
+                                   MIGRATION_6_7, MIGRATION_7_8, MIGRATION_8_9, MIGRATION_9_10,
+                                   MIGRATION_10_11)
+                    // Run on the querying thread so Diagnostics can attribute SQL to plugin calls
+                    .setQueryCallback((sql, bindArgs) -> Diagnostics.onQuery(sql), Runnable::run)
                     .build();
                 }
             }
@@ -0,0 +1,89 @@
+package com.snortstudios.masterflasher.db;
+
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Room entity recording the usage of one Gemini request (see CallRecord).
+ *
+ * Linked to the inbox entry it was made for. Deleting the entry keeps its rows with a
+ * null entryId, so totals per stage, model and prompt still include them.
+ */
+@Entity(
+    tableName = "call_metrics",
+    foreignKeys = @ForeignKey(
+        entity = InboxEntry.class,
+        parentColumns = "id",
+        childColumns = "entryId",
+        onDelete = ForeignKey.SET_NULL
+    ),
+    indices = {@Index("entryId"), @Index("createdAt")}
+)
+public class CallMetric {
+
+    @PrimaryKey(autoGenerate = true)
+    public long id;
+
+    /**
+     * Entry the request was made for, null outside entry generation or after a delete
+     */
+    public String entryId;
+
+    /**
+     * Pipeline stage (FACTS, SCORING, CARDS)
+     */
+    public String stage;
+
+    public String model;
+
+    /**
+     * Short hash of the stage instruction
+     */
+    public String promptHash;
+
+    public int promptTokens;
+
+    public int outputTokens;
+
+    /**
+     * Wall time including rate limiter waits and retries
+     */
+    public long latencyMs;
+
+    /**
+     * Part of latencyMs spent waiting for the rate limiter or a retry backoff
+     */
+    public long waitMs;
+
+    public int retries;
+
+    public boolean cacheHit;
+
+    public boolean success;
+
+    /**
+     * Unix timestamp when the request finished
+     */
+    public long createdAt;
+
+    public static CallMetric create(String entryId, String stage, String model, String promptHash,
+                                    int promptTokens, int outputTokens, long latencyMs, long waitMs,
+                                    int retries, boolean cacheHit, boolean success) {
+        CallMetric metric = new CallMetric();
+        metric.entryId = entryId;
+        metric.stage = stage;
+        metric.model = model;
+        metric.promptHash = promptHash;
+        metric.promptTokens = promptTokens;
+        metric.outputTokens = outputTokens;
+        metric.latencyMs = latencyMs;
+        metric.waitMs = waitMs;
+        metric.retries = retries;
+        metric.cacheHit = cacheHit;
+        metric.success = success;
+        metric.createdAt = System.currentTimeMillis();
+        return metric;
+    }
+}
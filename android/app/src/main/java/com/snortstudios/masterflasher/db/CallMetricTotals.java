@@ -0,0 +1,33 @@
+package com.snortstudios.masterflasher.db;
+
+/**
+ * Aggregate of call_metrics rows for one group (stage, model, prompt, entry or source).
+ */
+public class CallMetricTotals {
+
+    /**
+     * Value grouped by, null for the overall totals
+     */
+    public String groupKey;
+
+    /**
+     * Readable name of the group where there is one (entry title, stage of a prompt)
+     */
+    public String label;
+
+    public int calls;
+
+    public long promptTokens;
+
+    public long outputTokens;
+
+    public long latencyMs;
+
+    public long waitMs;
+
+    public int retries;
+
+    public int cacheHits;
+
+    public int failures;
+}
@@ -0,0 +1,100 @@
+package com.snortstudios.masterflasher.db;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Index;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Room entity linking a generated card to one of its tags.
+ *
+ * Replaces the JSON tags column of generated_cards, so tags are read as rows instead of
+ * being parsed per card, and cards with a tag are found through the tag index.
+ * Cascade-deleted with their card.
+ */
+@Entity(
+    tableName = "card_tags",
+    primaryKeys = {"cardId", "tag"},
+    foreignKeys = @ForeignKey(
+        entity = GeneratedCard.class,
+        parentColumns = "id",
+        childColumns = "cardId",
+        onDelete = ForeignKey.CASCADE
+    ),
+    indices = @Index("tag")
+)
+public class CardTag {
+
+    @NonNull
+    public String cardId;
+
+    @NonNull
+    public String tag;
+
+    /**
+     * Index of the tag on its card, to keep the order the tags were given in
+     */
+    public int position;
+
+    public CardTag() {
+        this.cardId = "";
+        this.tag = "";
+    }
+
+    public static CardTag create(@NonNull String cardId, @NonNull String tag, int position) {
+        CardTag cardTag = new CardTag();
+        cardTag.cardId = cardId;
+        cardTag.tag = tag;
+        cardTag.position = position;
+        return cardTag;
+    }
+
+    /**
+     * Rows for the tags of the given cards
+     */
+    static List<CardTag> forCards(List<GeneratedCard> cards) {
+        List<CardTag> rows = new ArrayList<>();
+        for (GeneratedCard card : cards) {
+            for (int i = 0; i < card.tags.size(); i++) {
+                rows.add(create(card.id, card.tags.get(i), i));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Fill the tags of loaded cards from their rows, ordered by cardId and position
+     */
+    static List<GeneratedCard> attach(List<GeneratedCard> cards, List<CardTag> rows) {
+        if (rows.isEmpty()) {
+            return cards;
+        }
+        Map<String, GeneratedCard> byId = new HashMap<>(cards.size() * 2);
+        for (GeneratedCard card : cards) {
+            byId.put(card.id, card);
+        }
+        for (CardTag row : rows) {
+            GeneratedCard card = byId.get(row.cardId);
+            if (card != null) {
+                card.tags.add(row.tag);
+            }
+        }
+        return cards;
+    }
+
+    /**
+     * Ids of the given cards, for tag lookups
+     */
+    static List<String> cardIds(List<GeneratedCard> cards) {
+        List<String> ids = new ArrayList<>(cards.size());
+        for (GeneratedCard card : cards) {
+            ids.add(card.id);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,137 @@
+package com.snortstudios.masterflasher.db;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of card fronts that are already notes in AnkiDroid.
+ *
+ * Backed by the exported_notes table (write-through) and, for cards exported before that
+ * table existed, by generated cards with status 'added'. Loaded once on first use, after
+ * which a duplicate check is one hash lookup instead of an AnkiDroid IPC call per note.
+ *
+ * Fronts are compared after CardFronts.normalize, so {@code "What is <b>ATP</b>?"} and
+ * {@code "what is ATP"} are the same card.
+ */
+public class DuplicateCardIndex implements DuplicateLookup {
+
+    // Stored for fronts whose note ID is unknown; AnkiDroid note IDs are creation timestamps
+    private static final long UNKNOWN_NOTE_ID = 0L;
+
+    private static volatile DuplicateCardIndex INSTANCE;
+
+    private final InboxDao dao;
+    private final Map<Long, Long> noteIds = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    DuplicateCardIndex(InboxDao dao) {
+        this.dao = dao;
+    }
+
+    public static DuplicateCardIndex getInstance(InboxDao dao) {
+        if (INSTANCE == null) {
+            synchronized (DuplicateCardIndex.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new DuplicateCardIndex(dao);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    @Override
+    public boolean contains(String front) {
+        ensureLoaded();
+        return front != null && noteIds.containsKey(CardFronts.hash(front));
+    }
+
+    @Override
+    public Long getNoteId(String front) {
+        ensureLoaded();
+        if (front == null) {
+            return null;
+        }
+        Long noteId = noteIds.get(CardFronts.hash(front));
+        return noteId == null || noteId == UNKNOWN_NOTE_ID ? null : noteId;
+    }
+
+    /**
+     * Record an exported front
+     */
+    public void add(String front, Long noteId) {
+        List<String> fronts = new ArrayList<>(1);
+        List<Long> ids = new ArrayList<>(1);
+        fronts.add(front);
+        ids.add(noteId);
+        addAll(fronts, ids);
+    }
+
+    /**
+     * Record exported fronts in one transaction
+     *
+     * @param ids Note per front, same order; entries may be null when unknown
+     */
+    public void addAll(List<String> fronts, List<Long> ids) {
+        ensureLoaded();
+        List<ExportedNote> notes = new ArrayList<>(fronts.size());
+        for (int i = 0; i < fronts.size(); i++) {
+            String front = fronts.get(i);
+            if (front == null) {
+                continue;
+            }
+            long hash = CardFronts.hash(front);
+            Long noteId = ids.get(i);
+            if (noteId == null) {
+                // Keep a note ID that is already known
+                Long known = noteIds.get(hash);
+                noteId = known == null || known == UNKNOWN_NOTE_ID ? null : known;
+            }
+            notes.add(ExportedNote.create(hash, noteId, front));
+        }
+        if (notes.isEmpty()) {
+            return;
+        }
+        dao.insertExportedNotes(notes);
+        for (ExportedNote note : notes) {
+            put(note.frontHash, note.noteId);
+        }
+    }
+
+    public int size() {
+        ensureLoaded();
+        return noteIds.size();
+    }
+
+    // ==================== Helper Methods ====================
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            for (GeneratedCard card : dao.getAddedCards()) {
+                if (card.front != null) {
+                    put(CardFronts.hash(card.front), card.noteId);
+                }
+            }
+            for (ExportedNote note : dao.getExportedNotes()) {
+                put(note.frontHash, note.noteId);
+            }
+            loaded = true;
+        }
+    }
+
+    private void put(long frontHash, Long noteId) {
+        if (noteId != null) {
+            noteIds.put(frontHash, noteId);
+        } else {
+            // Never overwrite a known note with an unknown one
+            noteIds.putIfAbsent(frontHash, UNKNOWN_NOTE_ID);
+        }
+    }
+}
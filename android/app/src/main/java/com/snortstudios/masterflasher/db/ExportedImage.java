@@ -0,0 +1,42 @@
+package com.snortstudios.masterflasher.db;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * Room entity recording a source image that is already in AnkiDroid's media collection.
+ *
+ * Keyed by the image's file name, which is its content hash (see SourceImages), so each
+ * distinct image is added once however many cards show it. Not linked to inbox entries,
+ * the media stays in AnkiDroid when the entry is deleted.
+ */
+@Entity(tableName = "anki_media")
+public class ExportedImage {
+
+    /**
+     * Source image file name, "<sha-256>.webp"
+     */
+    @PrimaryKey
+    @NonNull
+    public String name;
+
+    /**
+     * Field value AnkiDroid returned for the image, an &lt;img&gt; tag
+     */
+    public String fieldValue;
+
+    public long addedAt;
+
+    public ExportedImage() {
+        this.name = "";
+    }
+
+    public static ExportedImage create(@NonNull String name, String fieldValue) {
+        ExportedImage image = new ExportedImage();
+        image.name = name;
+        image.fieldValue = fieldValue;
+        image.addedAt = System.currentTimeMillis();
+        return image;
+    }
+}
@@ -0,0 +1,45 @@
+package com.snortstudios.masterflasher.db;
+
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * Room entity recording a card front that is already a note in AnkiDroid.
+ *
+ * Keyed by CardFronts.hash, so rewordings that only differ in case,
+ * whitespace, markup or trailing punctuation share a row. Not linked to inbox entries:
+ * exported cards are usually deleted with their entry, but must still count as duplicates.
+ */
+@Entity(tableName = "exported_notes")
+public class ExportedNote {
+
+    /**
+     * Hash of the normalized front
+     */
+    @PrimaryKey
+    public long frontHash;
+
+    /**
+     * AnkiDroid note ID, null when unknown
+     */
+    public Long noteId;
+
+    /**
+     * Front as it was exported, for inspection
+     */
+    public String front;
+
+    public long addedAt;
+
+    public ExportedNote() {
+    }
+
+    public static ExportedNote create(long frontHash, Long noteId, String front) {
+        ExportedNote note = new ExportedNote();
+        note.frontHash = frontHash;
+        note.noteId = noteId;
+        note.front = front;
+        note.addedAt = System.currentTimeMillis();
+        return note;
+    }
+}
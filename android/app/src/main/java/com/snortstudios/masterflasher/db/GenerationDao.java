@@ -0,0 +1,155 @@
+package com.snortstudios.masterflasher.db;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+/**
+ * Data Access Object for native generation state: the Gemini response cache and
+ * per-call usage metrics.
+ *
+ * Kept separate from InboxDao because none of this is user content.
+ */
+@Dao
+public interface GenerationDao {
+
+    // Aggregate columns of CallMetricTotals, shared by the grouped metric queries
+    String METRIC_TOTALS =
+        "COUNT(*) AS calls, " +
+        "COALESCE(SUM(m.promptTokens), 0) AS promptTokens, " +
+        "COALESCE(SUM(m.outputTokens), 0) AS outputTokens, " +
+        "COALESCE(SUM(m.latencyMs), 0) AS latencyMs, " +
+        "COALESCE(SUM(m.waitMs), 0) AS waitMs, " +
+        "COALESCE(SUM(m.retries), 0) AS retries, " +
+        "COALESCE(SUM(m.cacheHit), 0) AS cacheHits, " +
+        "COALESCE(SUM(1 - m.success), 0) AS failures ";
+
+    // Optional entry filter (null for all calls) and time window of the metric queries
+    String METRIC_FILTER = "WHERE (:entryId IS NULL OR m.entryId = :entryId) AND m.createdAt >= :since ";
+
+    // ==================== Response Cache Operations ====================
+
+    /**
+     * Get a cached response by key
+     */
+    @Query("SELECT * FROM response_cache WHERE key = :key")
+    ResponseCacheEntry getCacheEntry(String key);
+
+    /**
+     * Insert or replace a cached response
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertCacheEntry(ResponseCacheEntry entry);
+
+    /**
+     * Record a cache hit
+     */
+    @Query("UPDATE response_cache SET lastAccessedAt = :accessedAt, hitCount = hitCount + 1 WHERE key = :key")
+    void touchCacheEntry(String key, long accessedAt);
+
+    /**
+     * Get number of cached responses
+     */
+    @Query("SELECT COUNT(*) FROM response_cache")
+    int getCacheEntryCount();
+
+    /**
+     * Get total size of cached responses in bytes
+     */
+    @Query("SELECT COALESCE(SUM(sizeBytes), 0) FROM response_cache")
+    long getCacheSizeBytes();
+
+    /**
+     * Delete responses not accessed since the cutoff
+     */
+    @Query("DELETE FROM response_cache WHERE lastAccessedAt < :cutoff")
+    int deleteCacheEntriesOlderThan(long cutoff);
+
+    /**
+     * Delete the least recently used responses
+     */
+    @Query("DELETE FROM response_cache WHERE key IN " +
+           "(SELECT key FROM response_cache ORDER BY lastAccessedAt ASC LIMIT :count)")
+    int deleteLeastRecentlyUsedCacheEntries(int count);
+
+    /**
+     * Delete all cached responses
+     */
+    @Query("DELETE FROM response_cache")
+    void clearCache();
+
+    // ==================== Call Metric Operations ====================
+
+    /**
+     * Record the usage of one Gemini request
+     */
+    @Insert
+    void insertCallMetric(CallMetric metric);
+
+    /**
+     * Delete metrics recorded before the cutoff
+     */
+    @Query("DELETE FROM call_metrics WHERE createdAt < :cutoff")
+    int deleteCallMetricsOlderThan(long cutoff);
+
+    /**
+     * Delete all metrics
+     */
+    @Query("DELETE FROM call_metrics")
+    void clearCallMetrics();
+
+    /**
+     * Totals over all matching calls
+     *
+     * @param entryId Only calls for this entry, null for all calls
+     * @param since Only calls recorded at or after this Unix timestamp
+     */
+    @Query("SELECT NULL AS groupKey, NULL AS label, " + METRIC_TOTALS +
+           "FROM call_metrics m " + METRIC_FILTER)
+    CallMetricTotals getMetricTotals(String entryId, long since);
+
+    /**
+     * Totals per stage
+     */
+    @Query("SELECT m.stage AS groupKey, NULL AS label, " + METRIC_TOTALS +
+           "FROM call_metrics m " + METRIC_FILTER +
+           "GROUP BY m.stage ORDER BY m.stage")
+    List<CallMetricTotals> getMetricTotalsByStage(String entryId, long since);
+
+    /**
+     * Totals per model
+     */
+    @Query("SELECT m.model AS groupKey, NULL AS label, " + METRIC_TOTALS +
+           "FROM call_metrics m " + METRIC_FILTER +
+           "GROUP BY m.model ORDER BY SUM(m.promptTokens + m.outputTokens) DESC")
+    List<CallMetricTotals> getMetricTotalsByModel(String entryId, long since);
+
+    /**
+     * Totals per prompt version, most expensive first; the label is the prompt's stage
+     */
+    @Query("SELECT m.promptHash AS groupKey, m.stage AS label, " + METRIC_TOTALS +
+           "FROM call_metrics m " + METRIC_FILTER +
+           "GROUP BY m.stage, m.promptHash ORDER BY SUM(m.promptTokens + m.outputTokens) DESC")
+    List<CallMetricTotals> getMetricTotalsByPrompt(String entryId, long since);
+
+    /**
+     * Totals per entry, most expensive first; the label is the entry title.
+     * Calls of deleted entries and calls outside entry generation are left out.
+     */
+    @Query("SELECT m.entryId AS groupKey, e.title AS label, " + METRIC_TOTALS +
+           "FROM call_metrics m LEFT JOIN inbox_entries e ON e.id = m.entryId " + METRIC_FILTER +
+           "AND m.entryId IS NOT NULL " +
+           "GROUP BY m.entryId ORDER BY SUM(m.promptTokens + m.outputTokens) DESC LIMIT :limit")
+    List<CallMetricTotals> getMetricTotalsByEntry(String entryId, long since, int limit);
+
+    /**
+     * Totals per source content type (text, url, pdf), most expensive first
+     */
+    @Query("SELECT e.contentType AS groupKey, NULL AS label, " + METRIC_TOTALS +
+           "FROM call_metrics m JOIN inbox_entries e ON e.id = m.entryId " + METRIC_FILTER +
+           "GROUP BY e.contentType ORDER BY SUM(m.promptTokens + m.outputTokens) DESC")
+    List<CallMetricTotals> getMetricTotalsBySource(String entryId, long since);
+}
@@ -0,0 +1,83 @@
+package com.snortstudios.masterflasher.db;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.PrimaryKey;
+
+/**
+ * Room entity holding the checkpoint state of an entry's generation run.
+ *
+ * State machine:
+ * - running: a run is in progress, or the process died during one (found on the next start)
+ * - failed / cancelled: the run stopped; its completed chunks, facts, scores and card
+ *   batches are kept so the next run resumes instead of repeating the API calls
+ * - completed runs delete their checkpoint together with locking the entry
+ *
+ * A checkpoint is only resumed when inputHash (text, prompts and chunking) still matches.
+ * Cascade-deleted with the entry, like its RunChunk and RunFact rows.
+ */
+@Entity(
+    tableName = "generation_runs",
+    foreignKeys = @ForeignKey(
+        entity = InboxEntry.class,
+        parentColumns = "id",
+        childColumns = "entryId",
+        onDelete = ForeignKey.CASCADE
+    )
+)
+public class GenerationRun {
+
+    public static final String STATE_RUNNING = "running";
+    public static final String STATE_FAILED = "failed";
+    public static final String STATE_CANCELLED = "cancelled";
+
+    @PrimaryKey
+    @NonNull
+    public String entryId;
+
+    /**
+     * One of the STATE_ constants
+     */
+    public String state;
+
+    /**
+     * SHA-256 of the inputs the checkpoint was computed from
+     */
+    public String inputHash;
+
+    public int chunkCount;
+
+    /**
+     * Counters that cannot be recomputed from the stored facts (duplicates are not stored)
+     */
+    public int factsExtracted;
+    public int factsDuplicate;
+    public int tokensSaved;
+
+    /**
+     * Error of the last failed run
+     */
+    public String error;
+
+    public long startedAt;
+    public long updatedAt;
+
+    public GenerationRun() {
+        this.entryId = "";
+    }
+
+    /**
+     * Factory method for a fresh run
+     */
+    public static GenerationRun create(@NonNull String entryId, String inputHash, int chunkCount) {
+        GenerationRun run = new GenerationRun();
+        run.entryId = entryId;
+        run.state = STATE_RUNNING;
+        run.inputHash = inputHash;
+        run.chunkCount = chunkCount;
+        run.startedAt = System.currentTimeMillis();
+        run.updatedAt = run.startedAt;
+        return run;
+    }
+}
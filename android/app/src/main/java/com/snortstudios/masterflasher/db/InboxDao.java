@@ -4,16 +4,42 @@ import androidx.room.Dao;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import androidx.room.Update;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
- * Data Access Object for inbox entries, generated cards, and app settings.
+ * Data Access Object for inbox entries, generated cards, PDF pages, and app settings.
  */
 @Dao
 public interface InboxDao {
     
+    // Bound ids per IN (...) list, below SQLite's limit of 999 variables before Android 11
+    int MAX_BOUND_IDS = 500;
+    
+    // Columns of RemovedEntry, the PDF URL and text file without the text of other entries
+    String REMOVED_ENTRY_COLUMNS = "id, CASE WHEN contentType = 'pdf' THEN content END AS pdfUrl, " +
+        "extractedTextFileLength IS NOT NULL AS hasTextFile";
+    
+    // Columns of EntrySummary: every inbox_entries column except the text, plus its lengths
+    String ENTRY_SUMMARY_COLUMNS =
+        "id, contentType, preview, title, deckName, isLocked, createdAt, pageCount, " +
+        "pageRangeStart, pageRangeEnd, " +
+        "COALESCE(length(content), 0) AS contentLength, " +
+        "COALESCE(extractedTextFileLength, length(extractedText), 0) AS extractedTextLength, " +
+        "extractedTextFileLength IS NOT NULL AS extractedTextInFile";
+    
+    // Criteria of deleteEntriesWhere, each skipped when null
+    String ENTRY_FILTER =
+        "(:contentType IS NULL OR contentType = :contentType) " +
+        "AND (:isLocked IS NULL OR isLocked = :isLocked) " +
+        "AND (:createdBefore IS NULL OR createdAt < :createdBefore)";
+    
     // ==================== Settings Operations ====================
     
     /**
@@ -22,6 +48,12 @@ public interface InboxDao {
     @Query("SELECT * FROM app_settings WHERE key = :key")
     AppSetting getSetting(String key);
     
+    /**
+     * Get all settings (read once by SettingsCache)
+     */
+    @Query("SELECT * FROM app_settings")
+    List<AppSetting> getAllSettings();
+    
     /**
      * Insert or update a setting
      */
@@ -48,6 +80,35 @@ public interface InboxDao {
     @Query("SELECT * FROM inbox_entries WHERE id = :id")
     InboxEntry getEntry(String id);
     
+    /**
+     * Get all entries without their text, sorted by creation date (newest first)
+     */
+    @Query("SELECT " + ENTRY_SUMMARY_COLUMNS + " FROM inbox_entries ORDER BY createdAt DESC")
+    List<EntrySummary> getAllEntrySummaries();
+    
+    /**
+     * Get a single entry without its text
+     */
+    @Query("SELECT " + ENTRY_SUMMARY_COLUMNS + " FROM inbox_entries WHERE id = :id")
+    EntrySummary getEntrySummary(String id);
+    
+    /**
+     * Read part of an entry's content without loading the rest
+     *
+     * @param start 1-based first character (SQLite substr)
+     */
+    @Query("SELECT substr(content, :start, :length) FROM inbox_entries WHERE id = :id")
+    String getContentRange(String id, int start, int length);
+    
+    /**
+     * Read part of an entry's extracted text without loading the rest. Only for text kept
+     * in the row, see EntryTextStore for text kept in a file.
+     *
+     * @param start 1-based first character (SQLite substr)
+     */
+    @Query("SELECT substr(extractedText, :start, :length) FROM inbox_entries WHERE id = :id")
+    String getExtractedTextRange(String id, int start, int length);
+    
     /**
      * Insert or replace an entry
      */
@@ -60,43 +121,183 @@ public interface InboxDao {
     @Update
     void updateEntry(InboxEntry entry);
     
+    /**
+     * Save an entry from the web layer: insert it, or update the existing row in place. An
+     * insert with REPLACE would delete the row and cascade to its cards, pages, run and
+     * outbox rows. Columns the web layer does not send (page count and range, text file
+     * length) keep their stored values, and so does sourceImage when the entry has none.
+     *
+     * @return true if the entry already existed
+     */
+    @Transaction
+    default boolean saveEntry(InboxEntry entry) {
+        EntrySummary stored = getEntrySummary(entry.id);
+        if (stored == null) {
+            insertEntry(entry);
+            return false;
+        }
+        entry.pageCount = stored.pageCount;
+        entry.pageRangeStart = stored.pageRangeStart;
+        entry.pageRangeEnd = stored.pageRangeEnd;
+        entry.extractedTextFileLength = stored.extractedTextInFile ? stored.extractedTextLength : null;
+        if (entry.sourceImage == null) {
+            entry.sourceImage = getEntrySourceImage(entry.id);
+        }
+        updateEntry(entry);
+        return true;
+    }
+    
+    /**
+     * Select a PDF entry's page range and point its extracted text at the entry's text
+     * file (EntryTextStore), without loading or rewriting the other columns
+     *
+     * @param length Code points in the file, null when the range has no text
+     */
+    @Query("UPDATE inbox_entries SET pageRangeStart = :pageRangeStart, pageRangeEnd = :pageRangeEnd, " +
+           "extractedText = NULL, extractedTextFileLength = :length WHERE id = :id")
+    void setPdfText(String id, Integer pageRangeStart, Integer pageRangeEnd, Integer length);
+    
     /**
      * Delete an entry by ID (cascade deletes its cards)
      */
     @Query("DELETE FROM inbox_entries WHERE id = :id")
     void deleteEntry(String id);
     
+    /**
+     * Delete entries by ID in one transaction (cascade deletes their cards, pages and runs)
+     *
+     * @return The entries that existed, with the PDF files left to remove
+     */
+    @Transaction
+    default List<RemovedEntry> deleteEntries(List<String> ids) {
+        List<RemovedEntry> removed = new ArrayList<>();
+        for (int start = 0; start < ids.size(); start += MAX_BOUND_IDS) {
+            List<String> batch = ids.subList(start, Math.min(start + MAX_BOUND_IDS, ids.size()));
+            removed.addAll(getRemovedEntries(batch));
+            deleteEntryRows(batch);
+        }
+        return removed;
+    }
+    
+    /**
+     * Delete the entries matching a filter in one transaction. Null criteria match any entry,
+     * so all nulls clear the inbox.
+     *
+     * @param createdBefore Only entries created before this time (exclusive)
+     * @return The deleted entries, with the PDF files left to remove
+     */
+    @Transaction
+    default List<RemovedEntry> deleteEntriesWhere(String contentType, Boolean isLocked, Long createdBefore) {
+        List<RemovedEntry> removed = getRemovedEntriesWhere(contentType, isLocked, createdBefore);
+        deleteEntriesRowsWhere(contentType, isLocked, createdBefore);
+        return removed;
+    }
+    
+    @Query("SELECT " + REMOVED_ENTRY_COLUMNS + " FROM inbox_entries WHERE id IN (:ids)")
+    List<RemovedEntry> getRemovedEntries(List<String> ids);
+    
+    @Query("DELETE FROM inbox_entries WHERE id IN (:ids)")
+    void deleteEntryRows(List<String> ids);
+    
+    @Query("SELECT " + REMOVED_ENTRY_COLUMNS + " FROM inbox_entries WHERE " + ENTRY_FILTER)
+    List<RemovedEntry> getRemovedEntriesWhere(String contentType, Boolean isLocked, Long createdBefore);
+    
+    @Query("DELETE FROM inbox_entries WHERE " + ENTRY_FILTER)
+    void deleteEntriesRowsWhere(String contentType, Boolean isLocked, Long createdBefore);
+    
+    /**
+     * Mark an entry as processed (cards generated)
+     */
+    @Query("UPDATE inbox_entries SET isLocked = 1 WHERE id = :id")
+    void lockEntry(String id);
+    
+    /**
+     * Ids among the given ones whose entries are locked
+     */
+    @Query("SELECT id FROM inbox_entries WHERE isLocked = 1 AND id IN (:ids)")
+    List<String> getLockedEntryIds(List<String> ids);
+    
     // ==================== Card Operations ====================
     
     /**
-     * Get all cards for a specific entry
+     * Get all cards for a specific entry, with their tags
      */
+    @Transaction
+    default List<GeneratedCard> getCardsForEntry(String entryId) {
+        return CardTag.attach(getCardRowsForEntry(entryId), getTagsForEntry(entryId));
+    }
+    
     @Query("SELECT * FROM generated_cards WHERE entryId = :entryId")
-    List<GeneratedCard> getCardsForEntry(String entryId);
+    List<GeneratedCard> getCardRowsForEntry(String entryId);
     
     /**
-     * Insert a single card
+     * Insert a single card with its tags
      */
-    @Insert(onConflict = OnConflictStrategy.REPLACE)
-    void insertCard(GeneratedCard card);
+    default void insertCard(GeneratedCard card) {
+        insertCards(Collections.singletonList(card));
+    }
     
     /**
-     * Insert multiple cards at once
+     * Insert multiple cards at once, replacing the tags of cards that already exist
      */
+    @Transaction
+    default void insertCards(List<GeneratedCard> cards) {
+        inheritSourceImages(cards);
+        insertCardRows(cards);
+        deleteTagsForCards(CardTag.cardIds(cards));
+        insertCardTags(CardTag.forCards(cards));
+    }
+    
     @Insert(onConflict = OnConflictStrategy.REPLACE)
-    void insertCards(List<GeneratedCard> cards);
+    void insertCardRows(List<GeneratedCard> cards);
     
     /**
-     * Update an existing card
+     * Give cards without a source image the one of their entry, so cards generated from
+     * an OCR entry carry its crop
+     */
+    default void inheritSourceImages(List<GeneratedCard> cards) {
+        Map<String, String> images = new HashMap<>();
+        for (GeneratedCard card : cards) {
+            if (card.sourceImage != null) {
+                continue;
+            }
+            if (!images.containsKey(card.entryId)) {
+                images.put(card.entryId, getEntrySourceImage(card.entryId));
+            }
+            card.sourceImage = images.get(card.entryId);
+        }
+    }
+    
+    @Query("SELECT sourceImage FROM inbox_entries WHERE id = :entryId")
+    String getEntrySourceImage(String entryId);
+    
+    /**
+     * Every image name an entry or card still refers to, for sweeping unreferenced files
+     */
+    @Query("SELECT sourceImage FROM inbox_entries WHERE sourceImage IS NOT NULL " +
+           "UNION SELECT sourceImage FROM generated_cards WHERE sourceImage IS NOT NULL")
+    List<String> getReferencedSourceImages();
+    
+    /**
+     * Update an existing card's fields. Its tags are left as stored.
      */
     @Update
     void updateCard(GeneratedCard card);
     
     /**
-     * Get a single card by ID
+     * Get a single card by ID, with its tags
      */
+    @Transaction
+    default GeneratedCard getCard(String id) {
+        GeneratedCard card = getCardRow(id);
+        if (card != null) {
+            CardTag.attach(Collections.singletonList(card), getTagsForCards(Collections.singletonList(id)));
+        }
+        return card;
+    }
+    
     @Query("SELECT * FROM generated_cards WHERE id = :id")
-    GeneratedCard getCard(String id);
+    GeneratedCard getCardRow(String id);
     
     /**
      * Count cards that haven't been added to Anki yet for an entry
@@ -115,4 +316,362 @@ public interface InboxDao {
      */
     @Query("DELETE FROM generated_cards WHERE entryId = :entryId")
     void deleteCardsForEntry(String entryId);
+    
+    // ==================== Tag Operations ====================
+    
+    /**
+     * Get the cards carrying a tag, across all entries, with all their tags
+     */
+    @Transaction
+    default List<GeneratedCard> getCardsWithTag(String tag) {
+        List<GeneratedCard> cards = getCardRowsWithTag(tag);
+        if (cards.isEmpty()) {
+            return cards;
+        }
+        return CardTag.attach(cards, getTagsForCardsWithTag(tag));
+    }
+    
+    @Query("SELECT c.* FROM generated_cards c JOIN card_tags t ON t.cardId = c.id " +
+           "WHERE t.tag = :tag ORDER BY c.entryId, c.id")
+    List<GeneratedCard> getCardRowsWithTag(String tag);
+    
+    @Query("SELECT * FROM card_tags WHERE cardId IN (SELECT cardId FROM card_tags WHERE tag = :tag) " +
+           "ORDER BY cardId, position")
+    List<CardTag> getTagsForCardsWithTag(String tag);
+    
+    @Query("SELECT t.* FROM card_tags t JOIN generated_cards c ON c.id = t.cardId " +
+           "WHERE c.entryId = :entryId ORDER BY t.cardId, t.position")
+    List<CardTag> getTagsForEntry(String entryId);
+    
+    @Query("SELECT * FROM card_tags WHERE cardId IN (:cardIds) ORDER BY cardId, position")
+    List<CardTag> getTagsForCards(List<String> cardIds);
+    
+    /**
+     * Insert tag rows; a tag repeated on one card is stored once
+     */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertCardTags(List<CardTag> tags);
+    
+    @Query("DELETE FROM card_tags WHERE cardId IN (:cardIds)")
+    void deleteTagsForCards(List<String> cardIds);
+    
+    // ==================== Generation Run Operations ====================
+    
+    /**
+     * Get the checkpointed run of an entry, null if there is none
+     */
+    @Query("SELECT * FROM generation_runs WHERE entryId = :entryId")
+    GenerationRun getRun(String entryId);
+    
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertRun(GenerationRun run);
+    
+    @Update
+    void updateRun(GenerationRun run);
+    
+    /**
+     * Get the chunks of a run whose facts are stored
+     */
+    @Query("SELECT * FROM run_chunks WHERE entryId = :entryId")
+    List<RunChunk> getRunChunks(String entryId);
+    
+    @Query("SELECT COUNT(*) FROM run_chunks WHERE entryId = :entryId")
+    int getRunChunkCount(String entryId);
+    
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertRunChunk(RunChunk chunk);
+    
+    /**
+     * Get the stored facts of a run in arrival order
+     */
+    @Query("SELECT * FROM run_facts WHERE entryId = :entryId ORDER BY seq")
+    List<RunFact> getRunFacts(String entryId);
+    
+    @Query("SELECT COUNT(*) FROM run_facts WHERE entryId = :entryId")
+    int getRunFactCount(String entryId);
+    
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertRunFacts(List<RunFact> facts);
+    
+    @Update
+    void updateRunFacts(List<RunFact> facts);
+    
+    @Query("DELETE FROM run_facts WHERE entryId = :entryId AND factId IN (:factIds)")
+    void deleteRunFacts(String entryId, List<String> factIds);
+    
+    @Query("DELETE FROM generation_runs WHERE entryId = :entryId")
+    void deleteRun(String entryId);
+    
+    @Query("DELETE FROM run_chunks WHERE entryId = :entryId")
+    void deleteRunChunks(String entryId);
+    
+    @Query("DELETE FROM run_facts WHERE entryId = :entryId")
+    void deleteAllRunFacts(String entryId);
+    
+    /**
+     * Start a fresh run: drop any earlier checkpoint and the cards it produced
+     */
+    @Transaction
+    default void startRun(GenerationRun run) {
+        clearRun(run.entryId);
+        deleteCardsForEntry(run.entryId);
+        insertRun(run);
+    }
+    
+    /**
+     * Store a completed chunk: its new facts, the facts they replaced as near-duplicates,
+     * and the run counters
+     */
+    @Transaction
+    default void saveRunChunk(GenerationRun run, RunChunk chunk, List<RunFact> added, List<String> removedFactIds) {
+        updateRun(run);
+        insertRunChunk(chunk);
+        if (!removedFactIds.isEmpty()) {
+            deleteRunFacts(run.entryId, removedFactIds);
+        }
+        if (!added.isEmpty()) {
+            insertRunFacts(added);
+        }
+    }
+    
+    /**
+     * Append a card batch of a checkpointed run together with marking the facts it was made from
+     *
+     * @return false if the entry was deleted in the meantime (nothing is written)
+     */
+    @Transaction
+    default boolean appendRunCards(String entryId, List<GeneratedCard> cards, List<RunFact> facts) {
+        if (getEntry(entryId) == null) {
+            return false;
+        }
+        insertCards(cards);
+        updateRunFacts(facts);
+        return true;
+    }
+    
+    /**
+     * Lock the entry and drop its checkpoint once every batch is stored
+     */
+    @Transaction
+    default void completeRun(String entryId) {
+        lockEntry(entryId);
+        clearRun(entryId);
+    }
+    
+    @Transaction
+    default void clearRun(String entryId) {
+        deleteAllRunFacts(entryId);
+        deleteRunChunks(entryId);
+        deleteRun(entryId);
+    }
+    
+    // ==================== PDF Page Operations ====================
+    
+    /**
+     * Insert or replace the text of a single PDF page
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertPdfPage(PdfPage page);
+    
+    /**
+     * Insert or replace several pages in one statement batch
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertPdfPages(List<PdfPage> pages);
+    
+    /**
+     * Get page numbers and sizes of the extracted pages of a PDF entry (no text)
+     */
+    @Query("SELECT pageNo, charCount FROM pdf_pages WHERE entryId = :entryId ORDER BY pageNo")
+    List<PdfPageStat> getPdfPageStats(String entryId);
+    
+    /**
+     * A window of the extracted pages up to endPage, in page order
+     *
+     * @param afterPageNo Last page of the previous window, startPage - 1 for the first one
+     */
+    @Query("SELECT * FROM pdf_pages WHERE entryId = :entryId AND pageNo > :afterPageNo AND pageNo <= :endPage " +
+           "ORDER BY pageNo LIMIT :limit")
+    List<PdfPage> getPdfPagesInRangeAfter(String entryId, int afterPageNo, int endPage, int limit);
+    
+    // ==================== Exported Note Operations ====================
+    
+    /**
+     * Get all card fronts recorded as AnkiDroid notes
+     */
+    @Query("SELECT * FROM exported_notes")
+    List<ExportedNote> getExportedNotes();
+    
+    /**
+     * Record card fronts as AnkiDroid notes
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertExportedNotes(List<ExportedNote> notes);
+    
+    /**
+     * Get cards that have been added to Anki
+     */
+    @Query("SELECT * FROM generated_cards WHERE status = 'added'")
+    List<GeneratedCard> getAddedCards();
+    
+    /**
+     * Get cards that have not been added to Anki yet, across all entries
+     */
+    @Query("SELECT * FROM generated_cards WHERE status != 'added'")
+    List<GeneratedCard> getUnexportedCards();
+    
+    // ==================== Anki Outbox Operations ====================
+    
+    /**
+     * Queue cards for export to AnkiDroid and mark them 'queued'. Cards already added are
+     * skipped; cards already queued are queued again with a fresh attempt count.
+     *
+     * @return Ids of the cards that were queued
+     */
+    @Transaction
+    default List<String> enqueueOutbox(List<String> cardIds, String deckName, String modelKey, long now) {
+        List<String> queued = new ArrayList<>();
+        for (int start = 0; start < cardIds.size(); start += MAX_BOUND_IDS) {
+            List<String> batch = getUnaddedCardIds(cardIds.subList(start, Math.min(start + MAX_BOUND_IDS, cardIds.size())));
+            List<AnkiOutboxItem> items = new ArrayList<>(batch.size());
+            for (String cardId : batch) {
+                items.add(AnkiOutboxItem.create(cardId, deckName, modelKey, now));
+            }
+            insertOutboxItems(items);
+            setCardStatus(batch, "queued");
+            queued.addAll(batch);
+        }
+        return queued;
+    }
+    
+    @Query("SELECT id FROM generated_cards WHERE id IN (:ids) AND status != 'added'")
+    List<String> getUnaddedCardIds(List<String> ids);
+    
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertOutboxItems(List<AnkiOutboxItem> items);
+    
+    @Query("UPDATE generated_cards SET status = :status WHERE id IN (:ids)")
+    void setCardStatus(List<String> ids, String status);
+    
+    /**
+     * Outbox rows whose next attempt is due, oldest first
+     */
+    @Query("SELECT * FROM anki_outbox WHERE nextAttemptAt <= :now ORDER BY nextAttemptAt, enqueuedAt LIMIT :limit")
+    List<AnkiOutboxItem> getDueOutboxItems(long now, int limit);
+    
+    /**
+     * Cards by id, with their tags
+     *
+     * @param ids At most MAX_BOUND_IDS
+     */
+    @Transaction
+    default List<GeneratedCard> getCards(List<String> ids) {
+        List<GeneratedCard> cards = getCardRows(ids);
+        if (cards.isEmpty()) {
+            return cards;
+        }
+        return CardTag.attach(cards, getTagsForCards(ids));
+    }
+    
+    @Query("SELECT * FROM generated_cards WHERE id IN (:ids)")
+    List<GeneratedCard> getCardRows(List<String> ids);
+    
+    /**
+     * Record the outcome of one flushed batch in one transaction: exported cards become
+     * 'added' with their note, failed rows keep their new retry state, and rows given up
+     * on are removed with their card marked 'error'
+     */
+    @Transaction
+    default void completeOutboxBatch(List<GeneratedCard> added, List<AnkiOutboxItem> retried, List<String> gaveUp) {
+        List<String> done = new ArrayList<>(added.size() + gaveUp.size());
+        for (GeneratedCard card : added) {
+            updateCard(card);
+            done.add(card.id);
+        }
+        updateOutboxItems(retried);
+        if (!gaveUp.isEmpty()) {
+            setCardStatus(gaveUp, "error");
+            done.addAll(gaveUp);
+        }
+        if (!done.isEmpty()) {
+            deleteOutboxItems(done);
+        }
+    }
+    
+    @Update
+    void updateOutboxItems(List<AnkiOutboxItem> items);
+    
+    @Query("DELETE FROM anki_outbox WHERE cardId IN (:cardIds)")
+    void deleteOutboxItems(List<String> cardIds);
+    
+    /**
+     * Cards waiting in the outbox
+     */
+    @Query("SELECT COUNT(*) FROM anki_outbox")
+    int getOutboxCount();
+    
+    /**
+     * Earliest next attempt in the outbox, null when it is empty
+     */
+    @Query("SELECT MIN(nextAttemptAt) FROM anki_outbox")
+    Long getNextOutboxAttemptAt();
+    
+    // ==================== Anki Media Operations ====================
+    
+    /**
+     * Field value of a source image already added to AnkiDroid, null if it was not
+     */
+    @Query("SELECT fieldValue FROM anki_media WHERE name = :name")
+    String getExportedImageField(String name);
+    
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertExportedImage(ExportedImage image);
+    
+    // ==================== Backup Operations ====================
+    
+    /**
+     * A page of entries in id order, for streaming exports (keyset pagination)
+     *
+     * @param afterId Last id of the previous page, "" for the first page
+     */
+    @Query("SELECT * FROM inbox_entries WHERE id > :afterId ORDER BY id LIMIT :limit")
+    List<InboxEntry> getEntriesAfter(String afterId, int limit);
+    
+    /**
+     * A page of cards in id order, with their tags
+     *
+     * @param afterId Last id of the previous page, "" for the first page
+     * @param limit At most MAX_BOUND_IDS, the tags are read by id
+     */
+    @Transaction
+    default List<GeneratedCard> getCardsAfter(String afterId, int limit) {
+        List<GeneratedCard> cards = getCardRowsAfter(afterId, limit);
+        if (cards.isEmpty()) {
+            return cards;
+        }
+        return CardTag.attach(cards, getTagsForCards(CardTag.cardIds(cards)));
+    }
+    
+    @Query("SELECT * FROM generated_cards WHERE id > :afterId ORDER BY id LIMIT :limit")
+    List<GeneratedCard> getCardRowsAfter(String afterId, int limit);
+    
+    /**
+     * A page of PDF pages in (entryId, pageNo) order
+     */
+    @Query("SELECT * FROM pdf_pages WHERE entryId > :afterEntryId " +
+           "OR (entryId = :afterEntryId AND pageNo > :afterPageNo) " +
+           "ORDER BY entryId, pageNo LIMIT :limit")
+    List<PdfPage> getPdfPagesAfter(String afterEntryId, int afterPageNo, int limit);
+    
+    /**
+     * Which of these entries exist
+     */
+    @Query("SELECT id FROM inbox_entries WHERE id IN (:ids)")
+    List<String> getExistingEntryIds(List<String> ids);
+    
+    /**
+     * Which of these cards exist
+     */
+    @Query("SELECT id FROM generated_cards WHERE id IN (:ids)")
+    List<String> getExistingCardIds(List<String> ids);
 }
@@ -0,0 +1,144 @@
+package com.snortstudios.masterflasher.db;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Process-wide change log of the inbox tables, so InboxPlugin can push every write to
+ * the UI no matter where it was made (Inbox plugin, share receiver, background runner,
+ * generation engine). Each event carries the ids of what changed; listeners read the
+ * rows they need.
+ *
+ * Writers publish after the change is committed. Listeners are called on the writing
+ * thread and only need to implement the events they care about.
+ */
+public final class InboxEvents {
+
+    public interface Listener {
+        /**
+         * An entry was created
+         */
+        default void onEntryAdded(String entryId) {
+        }
+
+        /**
+         * Several entries were created or replaced at once, e.g. by an import.
+         * Announced per entry unless overridden.
+         */
+        default void onEntriesAdded(List<String> entryIds) {
+            for (String entryId : entryIds) {
+                onEntryAdded(entryId);
+            }
+        }
+
+        /**
+         * Fields of an entry changed (text, title, deck, page range, lock)
+         */
+        default void onEntryUpdated(String entryId) {
+        }
+
+        /**
+         * An entry and its cards were deleted
+         */
+        default void onEntryRemoved(String entryId) {
+        }
+
+        /**
+         * Several entries were deleted at once. Announced per entry unless overridden.
+         */
+        default void onEntriesRemoved(List<String> entryIds) {
+            for (String entryId : entryIds) {
+                onEntryRemoved(entryId);
+            }
+        }
+
+        /**
+         * Cards of an entry were added, edited or deleted
+         *
+         * @param cardIds The changed cards, empty when any card of the entry may have changed
+         */
+        default void onCardsChanged(String entryId, List<String> cardIds) {
+        }
+
+        /**
+         * A batch of cards was appended to an entry. Also announced as onCardsChanged.
+         */
+        default void onCardsAppended(String entryId, List<GeneratedCard> cards) {
+        }
+    }
+
+    private static final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private InboxEvents() {
+    }
+
+    public static void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public static void publishEntryAdded(String entryId) {
+        for (Listener listener : listeners) {
+            listener.onEntryAdded(entryId);
+        }
+    }
+
+    public static void publishEntriesAdded(List<String> entryIds) {
+        if (entryIds.isEmpty()) {
+            return;
+        }
+        for (Listener listener : listeners) {
+            listener.onEntriesAdded(entryIds);
+        }
+    }
+
+    public static void publishEntryUpdated(String entryId) {
+        for (Listener listener : listeners) {
+            listener.onEntryUpdated(entryId);
+        }
+    }
+
+    public static void publishEntryRemoved(String entryId) {
+        for (Listener listener : listeners) {
+            listener.onEntryRemoved(entryId);
+        }
+    }
+
+    public static void publishEntriesRemoved(List<String> entryIds) {
+        if (entryIds.isEmpty()) {
+            return;
+        }
+        for (Listener listener : listeners) {
+            listener.onEntriesRemoved(entryIds);
+        }
+    }
+
+    /**
+     * Announce that any card of an entry may have changed (e.g. all of them were replaced)
+     */
+    public static void publishCardsChanged(String entryId) {
+        publishCardsChanged(entryId, Collections.emptyList());
+    }
+
+    public static void publishCardsChanged(String entryId, List<String> cardIds) {
+        for (Listener listener : listeners) {
+            listener.onCardsChanged(entryId, cardIds);
+        }
+    }
+
+    public static void publishCardsAppended(String entryId, List<GeneratedCard> cards) {
+        for (Listener listener : listeners) {
+            listener.onCardsAppended(entryId, cards);
+        }
+        List<String> cardIds = new ArrayList<>(cards.size());
+        for (GeneratedCard card : cards) {
+            cardIds.add(card.id);
+        }
+        publishCardsChanged(entryId, cardIds);
+    }
+}
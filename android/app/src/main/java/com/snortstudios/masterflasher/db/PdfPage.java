@@ -0,0 +1,61 @@
+package com.snortstudios.masterflasher.db;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+
+/**
+ * Room entity holding the extracted text of a single PDF page.
+ *
+ * Pages are written one at a time while pdf.js walks the document, so a partially
+ * extracted PDF keeps the pages it already has. Pages are cascade-deleted with their entry.
+ */
+@Entity(
+    tableName = "pdf_pages",
+    primaryKeys = {"entryId", "pageNo"},
+    foreignKeys = @ForeignKey(
+        entity = InboxEntry.class,
+        parentColumns = "id",
+        childColumns = "entryId",
+        onDelete = ForeignKey.CASCADE
+    )
+)
+public class PdfPage {
+    
+    /**
+     * Foreign key to the parent InboxEntry
+     */
+    @NonNull
+    public String entryId;
+    
+    /**
+     * 1-based page number within the PDF
+     */
+    public int pageNo;
+    
+    /**
+     * Cleaned text extracted from the page
+     */
+    public String text;
+    
+    /**
+     * Length of text in characters (kept separately so stats never load the text)
+     */
+    public int charCount;
+    
+    public PdfPage() {
+        this.entryId = "";
+    }
+    
+    /**
+     * Factory method to create a page row
+     */
+    public static PdfPage create(@NonNull String entryId, int pageNo, String text) {
+        PdfPage page = new PdfPage();
+        page.entryId = entryId;
+        page.pageNo = pageNo;
+        page.text = text != null ? text : "";
+        page.charCount = page.text.length();
+        return page;
+    }
+}
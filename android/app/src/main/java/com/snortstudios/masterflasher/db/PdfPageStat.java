@@ -0,0 +1,11 @@
+package com.snortstudios.masterflasher.db;
+
+/**
+ * Lightweight projection of a pdf_pages row without its text.
+ */
+public class PdfPageStat {
+    
+    public int pageNo;
+    
+    public int charCount;
+}
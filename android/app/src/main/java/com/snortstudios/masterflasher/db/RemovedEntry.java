@@ -0,0 +1,19 @@
+package com.snortstudios.masterflasher.db;
+
+/**
+ * Projection of an entry about to be deleted: its id, and the files to remove with it.
+ */
+public class RemovedEntry {
+
+    public String id;
+
+    /**
+     * Capacitor file URL of the stored PDF, null for text and URL entries
+     */
+    public String pdfUrl;
+
+    /**
+     * Whether its extracted text is kept in a file (see EntryTextStore)
+     */
+    public boolean hasTextFile;
+}
@@ -0,0 +1,84 @@
+package com.snortstudios.masterflasher.db;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Room entity caching one successful Gemini response.
+ *
+ * Keyed by a SHA-256 of (model, stage, full prompt). The prompt already contains the
+ * effective user prompt, the system constraints and the chunk or fact batch, so any
+ * change to one of them is a different key. Not linked to inbox entries: the same
+ * text shared again after a delete still hits the cache.
+ */
+@Entity(
+    tableName = "response_cache",
+    indices = {@Index("lastAccessedAt")}
+)
+public class ResponseCacheEntry {
+
+    /**
+     * Hex SHA-256 cache key
+     */
+    @PrimaryKey
+    @NonNull
+    public String key;
+
+    /**
+     * Pipeline stage that produced the response (FACTS, SCORING, CARDS)
+     */
+    public String stage;
+
+    /**
+     * Model that produced the response
+     */
+    public String model;
+
+    /**
+     * Raw response text as returned by the model
+     */
+    public String response;
+
+    /**
+     * Approximate storage size in bytes, used for size-based eviction
+     */
+    public int sizeBytes;
+
+    /**
+     * Unix timestamp when the response was stored
+     */
+    public long createdAt;
+
+    /**
+     * Unix timestamp of the last read or write, used for LRU eviction
+     */
+    public long lastAccessedAt;
+
+    /**
+     * Number of times this response was served from the cache
+     */
+    public int hitCount;
+
+    public ResponseCacheEntry() {
+        this.key = "";
+    }
+
+    /**
+     * Factory method to create a new cache entry
+     */
+    public static ResponseCacheEntry create(@NonNull String key, String stage, String model, String response) {
+        ResponseCacheEntry entry = new ResponseCacheEntry();
+        entry.key = key;
+        entry.stage = stage;
+        entry.model = model;
+        entry.response = response;
+        // Java strings are UTF-16 in memory, SQLite stores UTF-8; length is a close enough proxy
+        entry.sizeBytes = response != null ? response.length() : 0;
+        entry.createdAt = System.currentTimeMillis();
+        entry.lastAccessedAt = entry.createdAt;
+        entry.hitCount = 0;
+        return entry;
+    }
+}
@@ -0,0 +1,48 @@
+package com.snortstudios.masterflasher.db;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+
+/**
+ * Room entity marking a chunk whose facts were extracted and stored (see GenerationRun).
+ *
+ * Failed chunks get no row, so a resumed run tries them again.
+ */
+@Entity(
+    tableName = "run_chunks",
+    primaryKeys = {"entryId", "chunkIndex"},
+    foreignKeys = @ForeignKey(
+        entity = InboxEntry.class,
+        parentColumns = "id",
+        childColumns = "entryId",
+        onDelete = ForeignKey.CASCADE
+    )
+)
+public class RunChunk {
+
+    @NonNull
+    public String entryId;
+
+    public int chunkIndex;
+
+    /**
+     * Facts the chunk yielded, before near-duplicates were dropped
+     */
+    public int factCount;
+
+    public long completedAt;
+
+    public RunChunk() {
+        this.entryId = "";
+    }
+
+    public static RunChunk create(@NonNull String entryId, int chunkIndex, int factCount) {
+        RunChunk chunk = new RunChunk();
+        chunk.entryId = entryId;
+        chunk.chunkIndex = chunkIndex;
+        chunk.factCount = factCount;
+        chunk.completedAt = System.currentTimeMillis();
+        return chunk;
+    }
+}
@@ -0,0 +1,69 @@
+package com.snortstudios.masterflasher.db;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+
+/**
+ * Room entity holding one extracted fact of a checkpointed run and how far it got:
+ * extracted, scored (with its score and whether it passed), turned into cards.
+ */
+@Entity(
+    tableName = "run_facts",
+    primaryKeys = {"entryId", "factId"},
+    foreignKeys = @ForeignKey(
+        entity = InboxEntry.class,
+        parentColumns = "id",
+        childColumns = "entryId",
+        onDelete = ForeignKey.CASCADE
+    )
+)
+public class RunFact {
+
+    @NonNull
+    public String entryId;
+
+    @NonNull
+    public String factId;
+
+    /**
+     * Arrival order within the run, so a resumed run queues facts as the original did
+     */
+    public int seq;
+
+    public int chunkIndex;
+
+    public String text;
+
+    public boolean scored;
+
+    /**
+     * Total score, null when unscored or when the model returned no score for the fact
+     */
+    public Double score;
+
+    /**
+     * Passed the score threshold; the run ranks passing facts again to select the ones for cards
+     */
+    public boolean passed;
+
+    /**
+     * Card batch the fact went into, null until that batch was stored
+     */
+    public Integer cardBatch;
+
+    public RunFact() {
+        this.entryId = "";
+        this.factId = "";
+    }
+
+    public static RunFact create(@NonNull String entryId, @NonNull String factId, int seq, int chunkIndex, String text) {
+        RunFact fact = new RunFact();
+        fact.entryId = entryId;
+        fact.factId = factId;
+        fact.seq = seq;
+        fact.chunkIndex = chunkIndex;
+        fact.text = text;
+        return fact;
+    }
+}
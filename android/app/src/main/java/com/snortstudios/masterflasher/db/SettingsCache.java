@@ -0,0 +1,114 @@
+package com.snortstudios.masterflasher.db;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide, write-through cache of the app_settings table.
+ *
+ * The table holds a handful of small rows (prompts, rate limits), so it is read whole on
+ * first use, usually by the database warm-up at process start. After that reads cost a
+ * hash lookup; writes go to the database first and update the cache once committed.
+ *
+ * All settings writes must go through this class, or the cache turns stale.
+ */
+public class SettingsCache {
+
+    private static volatile SettingsCache INSTANCE;
+
+    private final InboxDao dao;
+    // Rows by key; the row is kept for null values, which a ConcurrentHashMap cannot hold
+    private final Map<String, AppSetting> settings = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    SettingsCache(InboxDao dao) {
+        this.dao = dao;
+    }
+
+    public static SettingsCache getInstance(InboxDao dao) {
+        if (INSTANCE == null) {
+            synchronized (SettingsCache.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new SettingsCache(dao);
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Read the table now instead of on the first get
+     */
+    public void load() {
+        ensureLoaded();
+    }
+
+    /**
+     * Value of a setting, null if unset
+     */
+    public String get(String key) {
+        ensureLoaded();
+        AppSetting setting = settings.get(key);
+        return setting != null ? setting.value : null;
+    }
+
+    /**
+     * Values of several settings; every key is present, mapped to null if unset
+     */
+    public Map<String, String> get(List<String> keys) {
+        ensureLoaded();
+        Map<String, String> values = new HashMap<>();
+        for (String key : keys) {
+            AppSetting setting = settings.get(key);
+            values.put(key, setting != null ? setting.value : null);
+        }
+        return values;
+    }
+
+    /**
+     * All stored settings
+     */
+    public Map<String, String> getAll() {
+        ensureLoaded();
+        Map<String, String> values = new HashMap<>();
+        for (AppSetting setting : settings.values()) {
+            values.put(setting.key, setting.value);
+        }
+        return values;
+    }
+
+    /**
+     * Store a setting, null to clear its value
+     */
+    public synchronized void set(String key, String value) {
+        ensureLoaded();
+        AppSetting setting = new AppSetting(key, value);
+        dao.setSetting(setting);
+        settings.put(key, setting);
+    }
+
+    public synchronized void delete(String key) {
+        ensureLoaded();
+        dao.deleteSetting(key);
+        settings.remove(key);
+    }
+
+    // ==================== Helper Methods ====================
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            for (AppSetting setting : dao.getAllSettings()) {
+                settings.put(setting.key, setting);
+            }
+            loaded = true;
+        }
+    }
+}
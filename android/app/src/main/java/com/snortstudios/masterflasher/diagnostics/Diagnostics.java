@@ -0,0 +1,188 @@
+package com.snortstudios.masterflasher.diagnostics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide latency counters for plugin methods and SQL, read by DiagnosticsPlugin.
+ *
+ * Plugin methods run inside a Scope, which records their wall time into a per-method
+ * LatencyHistogram. Room reports every statement through onQuery on the thread that runs
+ * it, so statements issued inside a Scope are attributed to that call: calls slower than
+ * SLOW_CALL_MS are kept with the SQL they ran, as a bounded sample of the latest ones.
+ *
+ * Everything here is lock-free, recording costs a few atomic increments per call.
+ */
+public final class Diagnostics {
+
+    public static final long SLOW_CALL_MS = 50;
+
+    private static final int MAX_SLOW_CALLS = 32;
+    private static final int MAX_QUERIES_PER_CALL = 16;
+    // Statements with IN (...) lists differ per length, so distinct statements are capped
+    private static final int MAX_DISTINCT_QUERIES = 256;
+
+    private static final Map<String, LatencyHistogram> methods = new ConcurrentHashMap<>();
+    private static final Map<String, AtomicLong> queryCounts = new ConcurrentHashMap<>();
+    private static final ConcurrentLinkedDeque<SlowCall> slowCalls = new ConcurrentLinkedDeque<>();
+    private static final ThreadLocal<Scope> currentScope = new ThreadLocal<>();
+
+    // Process start to first inbox render, -1 until the web layer reports it
+    private static final AtomicLong firstRenderMs = new AtomicLong(-1);
+
+    private Diagnostics() {
+    }
+
+    /**
+     * A plugin call that was slower than SLOW_CALL_MS
+     */
+    public static final class SlowCall {
+        public final String method;
+        public final long durationMicros;
+        public final long finishedAt;
+        public final int queryCount;
+
+        /**
+         * First statements the call ran, at most MAX_QUERIES_PER_CALL
+         */
+        public final List<String> queries;
+
+        SlowCall(String method, long durationMicros, int queryCount, List<String> queries) {
+            this.method = method;
+            this.durationMicros = durationMicros;
+            this.finishedAt = System.currentTimeMillis();
+            this.queryCount = queryCount;
+            this.queries = queries;
+        }
+    }
+
+    /**
+     * Timing of one method call, closed when the call returns. Confined to its thread.
+     */
+    public static final class Scope implements AutoCloseable {
+        private final String method;
+        private final long startNanos = System.nanoTime();
+        private final Scope parent;
+        private final List<String> queries = new ArrayList<>();
+        private int queryCount;
+
+        private Scope(String method, Scope parent) {
+            this.method = method;
+            this.parent = parent;
+        }
+
+        @Override
+        public void close() {
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+            histogram(method).record(micros);
+            if (micros >= TimeUnit.MILLISECONDS.toMicros(SLOW_CALL_MS)) {
+                slowCalls.addFirst(new SlowCall(method, micros, queryCount, queries));
+                while (slowCalls.size() > MAX_SLOW_CALLS) {
+                    slowCalls.pollLast();
+                }
+            }
+            currentScope.set(parent);
+        }
+    }
+
+    /**
+     * Start timing a method call; use with try-with-resources
+     *
+     * @param method Name to group by, e.g. "Inbox.getEntry"
+     */
+    public static Scope enter(String method) {
+        Scope scope = new Scope(method, currentScope.get());
+        currentScope.set(scope);
+        return scope;
+    }
+
+    /**
+     * Count a statement and attribute it to the call running on this thread, if any.
+     * Must be called on the thread that runs the statement (a direct QueryCallback executor).
+     */
+    public static void onQuery(String sql) {
+        AtomicLong counter = queryCounts.get(sql);
+        if (counter == null && queryCounts.size() < MAX_DISTINCT_QUERIES) {
+            counter = queryCounts.computeIfAbsent(sql, k -> new AtomicLong());
+        }
+        if (counter != null) {
+            counter.incrementAndGet();
+        }
+
+        Scope scope = currentScope.get();
+        if (scope != null) {
+            scope.queryCount++;
+            if (scope.queries.size() < MAX_QUERIES_PER_CALL) {
+                scope.queries.add(sql);
+            }
+        }
+    }
+
+    /**
+     * Snapshots of all method histograms by method name
+     */
+    public static Map<String, LatencyHistogram.Snapshot> getMethodStats() {
+        Map<String, LatencyHistogram.Snapshot> stats = new HashMap<>();
+        for (Map.Entry<String, LatencyHistogram> entry : methods.entrySet()) {
+            stats.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return stats;
+    }
+
+    /**
+     * Latest slow calls, newest first
+     */
+    public static List<SlowCall> getSlowCalls() {
+        return Collections.unmodifiableList(new ArrayList<>(slowCalls));
+    }
+
+    /**
+     * Times each distinct statement ran
+     */
+    public static Map<String, Long> getQueryCounts() {
+        Map<String, Long> counts = new HashMap<>();
+        for (Map.Entry<String, AtomicLong> entry : queryCounts.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().get());
+        }
+        return counts;
+    }
+
+    /**
+     * Record the time from process start to the first rendered inbox, once per process
+     *
+     * @return false if it was already recorded
+     */
+    public static boolean markFirstRender(long millisSinceStart) {
+        return firstRenderMs.compareAndSet(-1, millisSinceStart);
+    }
+
+    /**
+     * Process start to first inbox render in milliseconds, -1 if not rendered yet
+     */
+    public static long getFirstRenderMs() {
+        return firstRenderMs.get();
+    }
+
+    /**
+     * Clear method and query counters. The startup time is kept, it is recorded once.
+     */
+    public static void reset() {
+        for (LatencyHistogram histogram : methods.values()) {
+            histogram.reset();
+        }
+        queryCounts.clear();
+        slowCalls.clear();
+    }
+
+    private static LatencyHistogram histogram(String method) {
+        LatencyHistogram histogram = methods.get(method);
+        return histogram != null ? histogram : methods.computeIfAbsent(method, k -> new LatencyHistogram());
+    }
+}
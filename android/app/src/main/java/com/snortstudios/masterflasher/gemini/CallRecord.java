@@ -0,0 +1,80 @@
+package com.snortstudios.masterflasher.gemini;
+
+import com.snortstudios.masterflasher.util.Hashes;
+
+/**
+ * Usage of one Gemini request as seen by the engine: tokens, wall time, retries and
+ * whether it was answered from the response cache. Handed to the engine's CallRecorder.
+ */
+public class CallRecord {
+
+    /**
+     * Inbox entry the request was made for, null for calls outside entry generation
+     */
+    public final String entryId;
+
+    public final GenerationEngine.Stage stage;
+
+    public final String model;
+
+    /**
+     * Short hash of the stage instruction (see promptHash), groups calls by prompt version
+     */
+    public final String promptHash;
+
+    /**
+     * Tokens billed for the prompt, 0 for cache hits and failed calls
+     */
+    public final int promptTokens;
+
+    /**
+     * Tokens billed for the response, 0 for cache hits and failed calls
+     */
+    public final int outputTokens;
+
+    /**
+     * Wall time from the first attempt to the result, including waits and retries
+     */
+    public final long latencyMs;
+
+    /**
+     * Part of latencyMs spent waiting for the rate limiter or a retry backoff
+     */
+    public final long waitMs;
+
+    /**
+     * Attempts after the first
+     */
+    public final int retries;
+
+    public final boolean cacheHit;
+
+    /**
+     * False when the request still failed after its retries
+     */
+    public final boolean success;
+
+    public CallRecord(String entryId, GenerationEngine.Stage stage, String model, String promptHash,
+                      int promptTokens, int outputTokens, long latencyMs, long waitMs, int retries,
+                      boolean cacheHit, boolean success) {
+        this.entryId = entryId;
+        this.stage = stage;
+        this.model = model;
+        this.promptHash = promptHash;
+        this.promptTokens = promptTokens;
+        this.outputTokens = outputTokens;
+        this.latencyMs = latencyMs;
+        this.waitMs = waitMs;
+        this.retries = retries;
+        this.cacheHit = cacheHit;
+        this.success = success;
+    }
+
+    /**
+     * First 16 hex digits of the SHA-256 of a stage instruction. Editing a prompt gives it
+     * a new hash, so the cost of prompt versions can be compared.
+     */
+    public static String promptHash(String instruction) {
+        return Hashes.sha256Hex(instruction).substring(0, 16);
+    }
+}
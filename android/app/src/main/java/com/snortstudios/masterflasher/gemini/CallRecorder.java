@@ -0,0 +1,12 @@
+package com.snortstudios.masterflasher.gemini;
+
+/**
+ * Receives the usage of every Gemini request the engine makes, cache hits included.
+ *
+ * Implementations must be thread-safe and must not throw: stage pools call in
+ * concurrently, right after each request.
+ */
+public interface CallRecorder {
+
+    void record(CallRecord record);
+}
@@ -0,0 +1,47 @@
+package com.snortstudios.masterflasher.gemini;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Facts extracted from one text chunk, or the error that prevented extraction.
+ */
+public class ChunkResult {
+    
+    public final int chunkIndex;
+    
+    public final List<Fact> facts;
+    
+    /**
+     * Error message when the chunk failed, null on success
+     */
+    public final String error;
+    
+    /**
+     * Whether the failure was transient (rate limit, server or network error)
+     */
+    public final boolean retryable;
+    
+    private ChunkResult(int chunkIndex, List<Fact> facts, String error, boolean retryable) {
+        this.chunkIndex = chunkIndex;
+        this.facts = facts;
+        this.error = error;
+        this.retryable = retryable;
+    }
+    
+    public static ChunkResult success(int chunkIndex, List<Fact> facts) {
+        return new ChunkResult(chunkIndex, facts, null, false);
+    }
+    
+    public static ChunkResult failure(int chunkIndex, String error) {
+        return new ChunkResult(chunkIndex, Collections.emptyList(), error, false);
+    }
+    
+    public static ChunkResult failure(int chunkIndex, String error, boolean retryable) {
+        return new ChunkResult(chunkIndex, Collections.emptyList(), error, retryable);
+    }
+    
+    public boolean isFailed() {
+        return error != null;
+    }
+}
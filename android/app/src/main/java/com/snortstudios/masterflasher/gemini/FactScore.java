@@ -0,0 +1,27 @@
+package com.snortstudios.masterflasher.gemini;
+
+import org.json.JSONObject;
+
+/**
+ * Learning-value score for a fact, as returned by the scoring stage.
+ */
+public class FactScore {
+    
+    public final String factId;
+    
+    /**
+     * Per-dimension scores (centrality, non_obviousness, leverage, testability, transfer)
+     */
+    public final JSONObject scores;
+    
+    /**
+     * Weighted total (0-18)
+     */
+    public final double total;
+    
+    public FactScore(String factId, JSONObject scores, double total) {
+        this.factId = factId;
+        this.scores = scores;
+        this.total = total;
+    }
+}
@@ -0,0 +1,21 @@
+package com.snortstudios.masterflasher.gemini;
+
+import java.util.List;
+
+/**
+ * A basic front/back flashcard produced by the card stage.
+ */
+public class Flashcard {
+    
+    public final String front;
+    
+    public final String back;
+    
+    public final List<String> tags;
+    
+    public Flashcard(String front, String back, List<String> tags) {
+        this.front = front;
+        this.back = back;
+        this.tags = tags;
+    }
+}
@@ -0,0 +1,227 @@
+package com.snortstudios.masterflasher.gemini;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Minimal REST client for the Gemini generateContent endpoint.
+ *
+ * Uses HttpURLConnection, which keeps idle keep-alive connections in a process-wide
+ * pool. Every response body (including error bodies) is read to the end and closed,
+ * and disconnect() is never called, so consecutive calls reuse the same TLS connection
+ * instead of paying a new handshake per chunk.
+ *
+ * The base URL is configurable so the client can be pointed at a local mock server.
+ */
+public class GeminiClient {
+
+    public static final String DEFAULT_BASE_URL = "https://generativelanguage.googleapis.com";
+
+    private static final int CONNECT_TIMEOUT_MS = 15_000;
+    private static final int READ_TIMEOUT_MS = 120_000;
+
+    private final String baseUrl;
+    private final String apiKey;
+
+    public GeminiClient(String baseUrl, String apiKey) {
+        String url = baseUrl != null && !baseUrl.isEmpty() ? baseUrl : DEFAULT_BASE_URL;
+        this.baseUrl = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+        this.apiKey = apiKey;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * Run a single JSON-mode generateContent request.
+     *
+     * @param model Model name, e.g. "gemini-2.5-flash-lite"
+     * @param prompt Complete prompt text
+     * @param responseSchema Gemini response schema (OpenAPI subset)
+     * @param maxOutputTokens Output token cap
+     * @throws GeminiException on transport errors and non-200 responses
+     */
+    public GeminiResponse generateContent(String model, String prompt, JSONObject responseSchema,
+                                          int maxOutputTokens) throws GeminiException {
+        byte[] body;
+        try {
+            body = buildRequestBody(prompt, responseSchema, maxOutputTokens).toString()
+                .getBytes(StandardCharsets.UTF_8);
+        } catch (JSONException e) {
+            throw new GeminiException("Failed to build request: " + e.getMessage(), e, false);
+        }
+
+        HttpURLConnection conn = null;
+        try {
+            URL url = new URL(baseUrl + "/v1beta/models/" + model + ":generateContent");
+            conn = (HttpURLConnection) url.openConnection();
+            conn.setRequestMethod("POST");
+            conn.setDoOutput(true);
+            conn.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            conn.setReadTimeout(READ_TIMEOUT_MS);
+            conn.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+            conn.setRequestProperty("x-goog-api-key", apiKey);
+            conn.setFixedLengthStreamingMode(body.length);
+
+            try (OutputStream out = conn.getOutputStream()) {
+                out.write(body);
+            }
+
+            int status = conn.getResponseCode();
+            InputStream stream = status >= 400 ? conn.getErrorStream() : conn.getInputStream();
+            String responseBody = readFully(stream);
+
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new GeminiException(status, "Gemini API error " + status + ": " + errorMessage(responseBody),
+                    retryAfterMs(conn.getHeaderField("Retry-After"), responseBody));
+            }
+
+            return parseResponse(responseBody);
+        } catch (IOException e) {
+            // A half-read connection must not go back to the pool
+            if (conn != null) {
+                conn.disconnect();
+            }
+            throw new GeminiException("Gemini request failed: " + e.getMessage(), e);
+        }
+    }
+
+    // ==================== Helper Methods ====================
+
+    private JSONObject buildRequestBody(String prompt, JSONObject responseSchema, int maxOutputTokens)
+            throws JSONException {
+        JSONObject part = new JSONObject();
+        part.put("text", prompt);
+
+        JSONObject content = new JSONObject();
+        content.put("role", "user");
+        content.put("parts", new JSONArray().put(part));
+
+        JSONObject generationConfig = new JSONObject();
+        generationConfig.put("responseMimeType", "application/json");
+        generationConfig.put("maxOutputTokens", maxOutputTokens);
+        if (responseSchema != null) {
+            generationConfig.put("responseSchema", responseSchema);
+        }
+
+        JSONObject body = new JSONObject();
+        body.put("contents", new JSONArray().put(content));
+        body.put("generationConfig", generationConfig);
+        return body;
+    }
+
+    private GeminiResponse parseResponse(String responseBody) throws GeminiException {
+        try {
+            JSONObject json = new JSONObject(responseBody);
+
+            StringBuilder text = new StringBuilder();
+            String finishReason = null;
+            JSONArray candidates = json.optJSONArray("candidates");
+            if (candidates != null && candidates.length() > 0) {
+                JSONObject candidate = candidates.getJSONObject(0);
+                finishReason = candidate.optString("finishReason", null);
+                JSONObject content = candidate.optJSONObject("content");
+                JSONArray parts = content != null ? content.optJSONArray("parts") : null;
+                if (parts != null) {
+                    for (int i = 0; i < parts.length(); i++) {
+                        text.append(parts.getJSONObject(i).optString("text", ""));
+                    }
+                }
+            }
+
+            JSONObject usage = json.optJSONObject("usageMetadata");
+            int promptTokens = usage != null ? usage.optInt("promptTokenCount", 0) : 0;
+            int outputTokens = usage != null ? usage.optInt("candidatesTokenCount", 0) : 0;
+
+            return new GeminiResponse(text.toString(), finishReason, promptTokens, outputTokens);
+        } catch (JSONException e) {
+            throw new GeminiException("Invalid Gemini response: " + e.getMessage(), e, false);
+        }
+    }
+
+    /**
+     * Pull error.message out of a Gemini error body, falling back to the raw body
+     */
+    private String errorMessage(String responseBody) {
+        try {
+            JSONObject error = new JSONObject(responseBody).optJSONObject("error");
+            if (error != null && error.has("message")) {
+                return error.getString("message");
+            }
+        } catch (JSONException e) {
+            // Not JSON, use the raw body
+        }
+        return responseBody.length() > 300 ? responseBody.substring(0, 300) : responseBody;
+    }
+
+    /**
+     * Server-requested retry delay: the Retry-After header (seconds or HTTP date),
+     * else the retryDelay of a google.rpc.RetryInfo error detail (e.g. "27s").
+     *
+     * @return Delay in milliseconds, -1 if the server gave none
+     */
+    static long retryAfterMs(String retryAfterHeader, String responseBody) {
+        if (retryAfterHeader != null && !retryAfterHeader.trim().isEmpty()) {
+            String value = retryAfterHeader.trim();
+            try {
+                return Math.max(0, (long) (Double.parseDouble(value) * 1000));
+            } catch (NumberFormatException e) {
+                try {
+                    SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+                    Date date = format.parse(value);
+                    if (date != null) {
+                        return Math.max(0, date.getTime() - System.currentTimeMillis());
+                    }
+                } catch (ParseException ignored) {
+                    // Fall back to the error body
+                }
+            }
+        }
+
+        try {
+            JSONObject error = new JSONObject(responseBody).optJSONObject("error");
+            JSONArray details = error != null ? error.optJSONArray("details") : null;
+            if (details != null) {
+                for (int i = 0; i < details.length(); i++) {
+                    JSONObject detail = details.optJSONObject(i);
+                    String delay = detail != null ? detail.optString("retryDelay", "") : "";
+                    if (delay.endsWith("s")) {
+                        return Math.max(0, (long) (Double.parseDouble(delay.substring(0, delay.length() - 1)) * 1000));
+                    }
+                }
+            }
+        } catch (JSONException | NumberFormatException e) {
+            // No usable retry hint
+        }
+        return -1;
+    }
+
+    private String readFully(InputStream stream) throws IOException {
+        if (stream == null) {
+            return "";
+        }
+        try (InputStream in = stream) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            byte[] chunk = new byte[8192];
+            int bytesRead;
+            while ((bytesRead = in.read(chunk)) != -1) {
+                buffer.write(chunk, 0, bytesRead);
+            }
+            return buffer.toString(StandardCharsets.UTF_8.name());
+        }
+    }
+}
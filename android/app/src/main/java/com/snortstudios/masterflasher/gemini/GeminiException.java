@@ -0,0 +1,73 @@
+package com.snortstudios.masterflasher.gemini;
+
+/**
+ * Error returned by a Gemini API call.
+ *
+ * statusCode is the HTTP status, or 0 when there is no usable response: either the
+ * request never got one (timeout, DNS failure, connection reset), or the request could
+ * not be built or the response not parsed, which is not retryable.
+ */
+public class GeminiException extends Exception {
+
+    private final int statusCode;
+
+    /**
+     * Server-requested delay before retrying (Retry-After / RetryInfo), -1 if none was given
+     */
+    private final long retryAfterMs;
+
+    /**
+     * For errors without a status: whether a new attempt could turn out differently
+     */
+    private final boolean retryable;
+
+    public GeminiException(int statusCode, String message) {
+        this(statusCode, message, -1);
+    }
+
+    public GeminiException(int statusCode, String message, long retryAfterMs) {
+        super(message);
+        this.statusCode = statusCode;
+        this.retryAfterMs = retryAfterMs;
+        this.retryable = false;
+    }
+
+    /**
+     * Transport error, retryable
+     */
+    public GeminiException(String message, Throwable cause) {
+        this(message, cause, true);
+    }
+
+    /**
+     * @param retryable false for failures that repeat on every attempt (request could not be
+     *     built, response body is not valid JSON)
+     */
+    public GeminiException(String message, Throwable cause, boolean retryable) {
+        super(message, cause);
+        this.statusCode = 0;
+        this.retryAfterMs = -1;
+        this.retryable = retryable;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public long getRetryAfterMs() {
+        return retryAfterMs;
+    }
+
+    /**
+     * Rate limiting, server-side failures and transport errors are worth retrying;
+     * other 4xx responses (bad key, invalid request), unbuildable requests and unparseable
+     * responses will fail the same way again.
+     */
+    public boolean isRetryable() {
+        return (statusCode == 0 && retryable) || statusCode == 408 || statusCode == 429 || statusCode >= 500;
+    }
+
+    public boolean isRateLimited() {
+        return statusCode == 429;
+    }
+}
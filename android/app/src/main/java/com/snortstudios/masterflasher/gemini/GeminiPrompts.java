@@ -0,0 +1,52 @@
+package com.snortstudios.masterflasher.gemini;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.List;
+
+/**
+ * Appends the dynamic content (title, text, facts) to a stage instruction.
+ *
+ * The instruction is the effective prompt resolved on the web layer: the user's custom
+ * prompt (or default) followed by the non-editable system constraints.
+ */
+public final class GeminiPrompts {
+    
+    private GeminiPrompts() {
+    }
+    
+    /**
+     * Fact extraction prompt for one chunk
+     */
+    public static String factExtraction(String instruction, String chunk, String title) {
+        return instruction + "\n\nContext/Title: " + (title != null && !title.isEmpty() ? title : "Unknown") +
+            "\nText:\n" + chunk;
+    }
+    
+    /**
+     * Scoring prompt for a batch of facts
+     */
+    public static String factScoring(String instruction, List<Fact> facts) throws JSONException {
+        return instruction + "\n\nFacts to score:\n" + factsJson(facts);
+    }
+    
+    /**
+     * Flashcard creation prompt for a batch of facts
+     */
+    public static String flashcardCreation(String instruction, List<Fact> facts) throws JSONException {
+        return instruction + "\n\nConcepts:\n" + factsJson(facts);
+    }
+    
+    private static String factsJson(List<Fact> facts) throws JSONException {
+        JSONArray array = new JSONArray();
+        for (Fact fact : facts) {
+            JSONObject obj = new JSONObject();
+            obj.put("id", fact.id);
+            obj.put("fact", fact.text);
+            array.put(obj);
+        }
+        return array.toString(2);
+    }
+}
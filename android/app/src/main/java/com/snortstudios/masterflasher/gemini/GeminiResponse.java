@@ -0,0 +1,56 @@
+package com.snortstudios.masterflasher.gemini;
+
+/**
+ * Parsed result of a generateContent call: the response text plus the metadata
+ * the JS SDK used to expose (finish reason, token usage).
+ */
+public class GeminiResponse {
+    
+    /**
+     * Concatenated text parts of the first candidate
+     */
+    public final String text;
+    
+    /**
+     * Finish reason of the first candidate (e.g. "STOP", "MAX_TOKENS"), may be null
+     */
+    public final String finishReason;
+    
+    /**
+     * Tokens billed for the prompt (usageMetadata.promptTokenCount)
+     */
+    public final int promptTokens;
+    
+    /**
+     * Tokens billed for the response (usageMetadata.candidatesTokenCount)
+     */
+    public final int outputTokens;
+    
+    /**
+     * True when the text was served from the response cache instead of the API
+     */
+    public final boolean fromCache;
+    
+    public GeminiResponse(String text, String finishReason, int promptTokens, int outputTokens) {
+        this(text, finishReason, promptTokens, outputTokens, false);
+    }
+    
+    private GeminiResponse(String text, String finishReason, int promptTokens, int outputTokens, boolean fromCache) {
+        this.text = text;
+        this.finishReason = finishReason;
+        this.promptTokens = promptTokens;
+        this.outputTokens = outputTokens;
+        this.fromCache = fromCache;
+    }
+    
+    /**
+     * Wrap a cached response text; no tokens were billed for it
+     */
+    public static GeminiResponse cached(String text) {
+        return new GeminiResponse(text, "STOP", 0, 0, true);
+    }
+    
+    public boolean isTruncated() {
+        return "MAX_TOKENS".equals(finishReason);
+    }
+}
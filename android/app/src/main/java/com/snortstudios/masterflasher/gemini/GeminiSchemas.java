@@ -0,0 +1,64 @@
+package com.snortstudios.masterflasher.gemini;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Response schemas for the three generation stages.
+ * Mirrors the schemas previously declared in the TypeScript gemini modules.
+ */
+public final class GeminiSchemas {
+    
+    /**
+     * { sourceTitle?: string, facts: { fact: string }[] }
+     */
+    public static final JSONObject FACTS = parse(
+        "{\"type\":\"OBJECT\",\"properties\":{" +
+            "\"sourceTitle\":{\"type\":\"STRING\"}," +
+            "\"facts\":{\"type\":\"ARRAY\",\"items\":{\"type\":\"OBJECT\"," +
+                "\"properties\":{\"fact\":{\"type\":\"STRING\"}},\"required\":[\"fact\"]}}}," +
+        "\"required\":[\"facts\"]}"
+    );
+    
+    /**
+     * { id: string, scores: {...}, score_total: number }[]
+     */
+    public static final JSONObject SCORES = parse(
+        "{\"type\":\"ARRAY\",\"items\":{\"type\":\"OBJECT\",\"properties\":{" +
+            "\"id\":{\"type\":\"STRING\"}," +
+            "\"scores\":{\"type\":\"OBJECT\",\"properties\":{" +
+                "\"centrality\":{\"type\":\"NUMBER\"}," +
+                "\"non_obviousness\":{\"type\":\"NUMBER\"}," +
+                "\"leverage\":{\"type\":\"NUMBER\"}," +
+                "\"testability\":{\"type\":\"NUMBER\"}," +
+                "\"transfer\":{\"type\":\"NUMBER\"}}," +
+                "\"required\":[\"centrality\",\"non_obviousness\",\"leverage\",\"testability\",\"transfer\"]}," +
+            "\"score_total\":{\"type\":\"NUMBER\"}}," +
+        "\"required\":[\"id\",\"scores\",\"score_total\"]}}"
+    );
+    
+    /**
+     * { deck: string, cards: { front: string, back: string, tags?: string[] }[] }
+     */
+    public static final JSONObject CARDS = parse(
+        "{\"type\":\"OBJECT\",\"properties\":{" +
+            "\"deck\":{\"type\":\"STRING\"}," +
+            "\"cards\":{\"type\":\"ARRAY\",\"items\":{\"type\":\"OBJECT\",\"properties\":{" +
+                "\"front\":{\"type\":\"STRING\"}," +
+                "\"back\":{\"type\":\"STRING\"}," +
+                "\"tags\":{\"type\":\"ARRAY\",\"items\":{\"type\":\"STRING\"}}}," +
+                "\"required\":[\"front\",\"back\"]}}}," +
+        "\"required\":[\"deck\",\"cards\"]}"
+    );
+    
+    private GeminiSchemas() {
+    }
+    
+    private static JSONObject parse(String schema) {
+        try {
+            return new JSONObject(schema);
+        } catch (JSONException e) {
+            throw new IllegalStateException("Invalid response schema", e);
+        }
+    }
+}
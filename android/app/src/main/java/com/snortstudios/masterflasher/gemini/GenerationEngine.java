@@ -0,0 +1,644 @@
+package com.snortstudios.masterflasher.gemini;
+
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs the three Gemini stages (fact extraction, fact scoring, card creation) natively.
+ *
+ * Owns one shared GeminiClient and one fixed-size thread pool per stage, so the number
+ * of in-flight requests per stage never exceeds its configured limit no matter how many
+ * chunks or batches the caller submits.
+ *
+ * Every request also passes through a per-model RateLimiter (RPM/TPM token buckets)
+ * and is retried with exponential backoff on 429s, server and network errors.
+ * Chunks that still fail are given one more pass after the rest of the batch finishes.
+ * When a ResponseCache is set, identical requests are answered from it without an API call.
+ * When a CallRecorder is set, it receives the tokens, latency and retries of every request.
+ *
+ * Uses singleton pattern so the web layer and background work share the same limits.
+ */
+public class GenerationEngine {
+
+    private static final String TAG = "GenerationEngine";
+
+    /**
+     * Pipeline stages, each with its own concurrency limit
+     */
+    public enum Stage {
+        FACTS, SCORING, CARDS
+    }
+
+    /**
+     * Receives each card batch as soon as it completes, on the CARDS pool thread.
+     * Batches arrive in completion order, not fact order.
+     */
+    public interface CardBatchListener {
+        void onBatch(int batchIndex, List<Flashcard> cards) throws Exception;
+    }
+
+    public static final int DEFAULT_FACT_CONCURRENCY = 4;
+    public static final int DEFAULT_SCORING_CONCURRENCY = 2;
+    public static final int DEFAULT_CARD_CONCURRENCY = 2;
+
+    // Scoring responses are small, so scoring batches can be larger than card batches
+    public static final int DEFAULT_SCORING_BATCH_SIZE = 50;
+    public static final int DEFAULT_CARD_BATCH_SIZE = 25;
+
+    private static final int MAX_OUTPUT_TOKENS = 8192;
+
+    // Extra passes over chunks that still failed after per-request retries
+    private static final int FAILED_CHUNK_RETRY_PASSES = 1;
+
+    private static volatile GenerationEngine INSTANCE;
+
+    private final Map<Stage, ExecutorService> stagePools = new EnumMap<>(Stage.class);
+    private final Map<Stage, Integer> stageLimits = new EnumMap<>(Stage.class);
+
+    private final RateLimiter rateLimiter = new RateLimiter();
+    private volatile RetryPolicy retryPolicy = new RetryPolicy(RetryPolicy.DEFAULT_MAX_ATTEMPTS);
+
+    private volatile ResponseCache responseCache;
+    private volatile CallRecorder callRecorder;
+
+    private volatile GeminiClient client;
+    private volatile String model;
+
+    private GenerationEngine() {
+        stageLimits.put(Stage.FACTS, DEFAULT_FACT_CONCURRENCY);
+        stageLimits.put(Stage.SCORING, DEFAULT_SCORING_CONCURRENCY);
+        stageLimits.put(Stage.CARDS, DEFAULT_CARD_CONCURRENCY);
+        for (Stage stage : Stage.values()) {
+            stagePools.put(stage, newStagePool(stage, stageLimits.get(stage)));
+        }
+    }
+
+    /**
+     * Get the singleton engine instance
+     */
+    public static GenerationEngine getInstance() {
+        if (INSTANCE == null) {
+            synchronized (GenerationEngine.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new GenerationEngine();
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    // ==================== Configuration ====================
+
+    /**
+     * Set credentials, model and per-stage concurrency limits.
+     * Pools are only rebuilt for stages whose limit changed; in-flight work on a
+     * replaced pool still completes.
+     *
+     * @param baseUrl API base URL, null for the public Gemini endpoint
+     * @param limits Concurrency per stage; missing stages keep their current limit
+     */
+    public synchronized void configure(String apiKey, String model, String baseUrl, Map<Stage, Integer> limits) {
+        // Cheap to recreate: idle connections live in the process-wide HttpURLConnection pool
+        this.client = new GeminiClient(baseUrl, apiKey);
+        this.model = model;
+
+        for (Map.Entry<Stage, Integer> limit : limits.entrySet()) {
+            int permits = Math.max(1, limit.getValue());
+            Stage stage = limit.getKey();
+            if (stageLimits.get(stage) != permits) {
+                ExecutorService old = stagePools.put(stage, newStagePool(stage, permits));
+                stageLimits.put(stage, permits);
+                if (old != null) {
+                    old.shutdown();
+                }
+            }
+        }
+    }
+
+    public boolean isConfigured() {
+        return client != null && model != null;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public synchronized int getConcurrency(Stage stage) {
+        return stageLimits.get(stage);
+    }
+
+    /**
+     * Set the RPM/TPM budget applied to each model
+     */
+    public void setRateLimits(int requestsPerMinute, int tokensPerMinute) {
+        rateLimiter.setLimits(requestsPerMinute, tokensPerMinute);
+    }
+
+    /**
+     * Set how many times a single request is attempted before it counts as failed
+     */
+    public void setMaxAttempts(int maxAttempts) {
+        retryPolicy = new RetryPolicy(maxAttempts);
+    }
+
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Set the cache consulted before each request, null to disable caching
+     */
+    public void setResponseCache(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Set the recorder receiving the usage of each request, null to stop recording
+     */
+    public void setCallRecorder(CallRecorder callRecorder) {
+        this.callRecorder = callRecorder;
+    }
+
+    public CallRecorder getCallRecorder() {
+        return callRecorder;
+    }
+
+    /**
+     * Number of submitted requests for a stage still waiting for a free slot
+     */
+    public int getStageQueueDepth(Stage stage) {
+        ExecutorService pool = pool(stage);
+        return pool instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) pool).getQueue().size() : 0;
+    }
+
+    // ==================== Stages ====================
+
+    /**
+     * Extract facts from every chunk, at most the FACTS limit in parallel.
+     * A failed chunk yields a ChunkResult carrying the error instead of failing the whole call.
+     *
+     * @return One result per chunk, in chunk order
+     */
+    public List<ChunkResult> extractFacts(List<String> chunks, String title, String instruction)
+            throws InterruptedException {
+        GeminiClient api = requireClient();
+        String modelName = model;
+
+        List<Future<ChunkResult>> futures = new ArrayList<>(chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            final int chunkIndex = i;
+            final String chunk = chunks.get(i);
+            futures.add(pool(Stage.FACTS).submit(() -> extractChunk(api, modelName, null, chunkIndex, chunk, title, instruction)));
+        }
+
+        List<ChunkResult> results = new ArrayList<>(chunks.size());
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                results.add(futures.get(i).get());
+            } catch (ExecutionException e) {
+                results.add(ChunkResult.failure(i, String.valueOf(e.getCause())));
+            }
+        }
+
+        // Transient failures usually clear once the burst is over, so retry instead of dropping the chunk
+        for (int pass = 0; pass < FAILED_CHUNK_RETRY_PASSES; pass++) {
+            List<Integer> retryIndexes = new ArrayList<>();
+            for (ChunkResult result : results) {
+                if (result.isFailed() && result.retryable) {
+                    retryIndexes.add(result.chunkIndex);
+                }
+            }
+            if (retryIndexes.isEmpty()) {
+                break;
+            }
+            Log.d(TAG, "Retrying " + retryIndexes.size() + " failed chunks");
+
+            List<Future<ChunkResult>> retries = new ArrayList<>(retryIndexes.size());
+            for (int chunkIndex : retryIndexes) {
+                final String chunk = chunks.get(chunkIndex);
+                retries.add(pool(Stage.FACTS).submit(() -> extractChunk(api, modelName, null, chunkIndex, chunk, title, instruction)));
+            }
+            for (int i = 0; i < retries.size(); i++) {
+                try {
+                    results.set(retryIndexes.get(i), retries.get(i).get());
+                } catch (ExecutionException e) {
+                    Log.w(TAG, "Chunk retry failed: " + e.getCause());
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Score facts in batches, at most the SCORING limit in parallel.
+     * Facts in a failed batch are simply left without a score.
+     */
+    public List<FactScore> scoreFacts(List<Fact> facts, String instruction, int batchSize)
+            throws InterruptedException {
+        GeminiClient api = requireClient();
+        String modelName = model;
+        List<List<Fact>> batches = batch(facts, batchSize > 0 ? batchSize : DEFAULT_SCORING_BATCH_SIZE);
+
+        List<Future<List<FactScore>>> futures = new ArrayList<>(batches.size());
+        for (int i = 0; i < batches.size(); i++) {
+            final int batchIndex = i;
+            final List<Fact> batchFacts = batches.get(i);
+            futures.add(pool(Stage.SCORING).submit(() -> scoreBatch(api, modelName, null, batchIndex, batches.size(), batchFacts, instruction)));
+        }
+
+        List<FactScore> scores = new ArrayList<>();
+        for (Future<List<FactScore>> future : futures) {
+            scores.addAll(awaitOrEmpty(future));
+        }
+        return scores;
+    }
+
+    /**
+     * Create flashcards in batches, at most the CARDS limit in parallel.
+     * Cards are returned in fact order; a failed batch contributes no cards.
+     */
+    public List<Flashcard> generateCards(List<Fact> facts, String instruction, int batchSize)
+            throws InterruptedException {
+        return generateCards(null, facts, instruction, batchSize, null);
+    }
+
+    /**
+     * Create flashcards in batches, handing each non-empty batch to the listener as it
+     * completes. A batch whose listener throws counts as failed and is left out of the
+     * returned cards. If the caller is interrupted, batches not yet finished are cancelled.
+     *
+     * @param entryId Entry the cards are for, recorded with each request; may be null
+     */
+    public List<Flashcard> generateCards(String entryId, List<Fact> facts, String instruction, int batchSize,
+                                         CardBatchListener listener) throws InterruptedException {
+        GeminiClient api = requireClient();
+        String modelName = model;
+        List<List<Fact>> batches = batch(facts, batchSize > 0 ? batchSize : DEFAULT_CARD_BATCH_SIZE);
+
+        List<Future<List<Flashcard>>> futures = new ArrayList<>(batches.size());
+        for (int i = 0; i < batches.size(); i++) {
+            final int batchIndex = i;
+            final List<Fact> batchFacts = batches.get(i);
+            futures.add(pool(Stage.CARDS).submit(() -> {
+                List<Flashcard> cards = cardBatch(api, modelName, entryId, batchIndex, batches.size(), batchFacts, instruction);
+                if (listener != null && !cards.isEmpty() && !Thread.currentThread().isInterrupted()) {
+                    listener.onBatch(batchIndex, cards);
+                }
+                return cards;
+            }));
+        }
+
+        List<Flashcard> cards = new ArrayList<>();
+        try {
+            for (Future<List<Flashcard>> future : futures) {
+                cards.addAll(awaitOrEmpty(future));
+            }
+        } catch (InterruptedException e) {
+            for (Future<List<Flashcard>> future : futures) {
+                future.cancel(true);
+            }
+            throw e;
+        }
+        return cards;
+    }
+
+    // ==================== Streaming ====================
+
+    /*
+     * Single-unit submissions for callers that overlap the stages themselves
+     * (see GenerationPipeline). Each call runs on its stage pool and hands its
+     * result to onDone on that pool thread; failures arrive as a failed ChunkResult
+     * or an empty list, like in the batch methods above. Cancelling the returned
+     * future before it runs means onDone is never called. The entryId is only
+     * recorded with the request's usage and may be null.
+     */
+
+    /**
+     * Extract facts from one chunk on the FACTS pool
+     */
+    public Future<?> submitChunk(String entryId, int chunkIndex, String chunk, String title, String instruction,
+                                 Consumer<ChunkResult> onDone) {
+        GeminiClient api = requireClient();
+        String modelName = model;
+        return pool(Stage.FACTS).submit(() -> onDone.accept(extractChunk(api, modelName, entryId, chunkIndex, chunk, title, instruction)));
+    }
+
+    /**
+     * Score one batch of facts on the SCORING pool
+     */
+    public Future<?> submitScoring(String entryId, int batchIndex, List<Fact> facts, String instruction,
+                                   Consumer<List<FactScore>> onDone) {
+        GeminiClient api = requireClient();
+        String modelName = model;
+        return pool(Stage.SCORING).submit(() -> onDone.accept(scoreBatch(api, modelName, entryId, batchIndex, 0, facts, instruction)));
+    }
+
+    /**
+     * Create cards for one batch of facts on the CARDS pool
+     */
+    public Future<?> submitCards(String entryId, int batchIndex, List<Fact> facts, String instruction,
+                                 Consumer<List<Flashcard>> onDone) {
+        GeminiClient api = requireClient();
+        String modelName = model;
+        return pool(Stage.CARDS).submit(() -> onDone.accept(cardBatch(api, modelName, entryId, batchIndex, 0, facts, instruction)));
+    }
+
+    // ==================== Single Requests ====================
+
+    private ChunkResult extractChunk(GeminiClient api, String modelName, String entryId, int chunkIndex, String chunk,
+                                     String title, String instruction) {
+        try {
+            String prompt = GeminiPrompts.factExtraction(instruction, chunk, title);
+            GeminiResponse response = request(api, modelName, entryId, Stage.FACTS, instruction, prompt, GeminiSchemas.FACTS);
+            List<Fact> facts = parseFacts(response.text, chunkIndex);
+            remember(modelName, Stage.FACTS, prompt, response);
+            Log.d(TAG, "Chunk " + (chunkIndex + 1) + ": " + facts.size() + " facts");
+            return ChunkResult.success(chunkIndex, facts);
+        } catch (GeminiException e) {
+            Log.w(TAG, "Fact extraction failed for chunk " + (chunkIndex + 1) + ": " + e.getMessage());
+            return ChunkResult.failure(chunkIndex, e.getMessage(), e.isRetryable());
+        } catch (JSONException e) {
+            Log.w(TAG, "Fact extraction failed for chunk " + (chunkIndex + 1) + ": " + e.getMessage());
+            return ChunkResult.failure(chunkIndex, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ChunkResult.failure(chunkIndex, "Interrupted");
+        }
+    }
+
+    private List<FactScore> scoreBatch(GeminiClient api, String modelName, String entryId, int batchIndex,
+                                       int totalBatches, List<Fact> facts, String instruction) {
+        try {
+            String prompt = GeminiPrompts.factScoring(instruction, facts);
+            GeminiResponse response = request(api, modelName, entryId, Stage.SCORING, instruction, prompt, GeminiSchemas.SCORES);
+            if (response.isTruncated()) {
+                Log.w(TAG, "Scoring batch " + batchLabel(batchIndex, totalBatches) + " was truncated (MAX_TOKENS)");
+            }
+            List<FactScore> scores = parseScores(response.text);
+            remember(modelName, Stage.SCORING, prompt, response);
+            return scores;
+        } catch (GeminiException | JSONException e) {
+            Log.w(TAG, "Scoring batch " + batchLabel(batchIndex, totalBatches) + " failed: " + e.getMessage());
+            return Collections.emptyList();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Collections.emptyList();
+        }
+    }
+
+    private List<Flashcard> cardBatch(GeminiClient api, String modelName, String entryId, int batchIndex,
+                                      int totalBatches, List<Fact> facts, String instruction) {
+        try {
+            String prompt = GeminiPrompts.flashcardCreation(instruction, facts);
+            GeminiResponse response = request(api, modelName, entryId, Stage.CARDS, instruction, prompt, GeminiSchemas.CARDS);
+            if (response.isTruncated()) {
+                Log.w(TAG, "Card batch " + batchLabel(batchIndex, totalBatches) + " was truncated (MAX_TOKENS)");
+            }
+            List<Flashcard> cards = parseCards(response.text);
+            remember(modelName, Stage.CARDS, prompt, response);
+            return cards;
+        } catch (GeminiException | JSONException e) {
+            Log.w(TAG, "Card batch " + batchLabel(batchIndex, totalBatches) + " failed: " + e.getMessage());
+            return Collections.emptyList();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Answer from the response cache when possible, otherwise call the API.
+     * Either way the call's usage goes to the CallRecorder; interrupted calls are not recorded.
+     *
+     * @param instruction Stage instruction the prompt was built from, identifies the prompt version
+     */
+    private GeminiResponse request(GeminiClient api, String modelName, String entryId, Stage stage,
+                                   String instruction, String prompt, JSONObject schema)
+            throws GeminiException, InterruptedException {
+        long start = System.nanoTime();
+        ResponseCache cache = responseCache;
+        if (cache != null) {
+            String cached = cache.get(ResponseCache.key(modelName, stage, prompt));
+            if (cached != null) {
+                record(entryId, stage, modelName, instruction, null, start, new Attempts(), true);
+                return GeminiResponse.cached(cached);
+            }
+        }
+        Attempts attempts = new Attempts();
+        try {
+            GeminiResponse response = send(api, modelName, prompt, schema, attempts);
+            record(entryId, stage, modelName, instruction, response, start, attempts, false);
+            return response;
+        } catch (GeminiException e) {
+            record(entryId, stage, modelName, instruction, null, start, attempts, false);
+            throw e;
+        }
+    }
+
+    /**
+     * Hand a finished call to the recorder
+     *
+     * @param response null for cache hits and failed calls, which billed no tokens we know of
+     */
+    private void record(String entryId, Stage stage, String modelName, String instruction, GeminiResponse response,
+                        long startNanos, Attempts attempts, boolean cacheHit) {
+        CallRecorder recorder = callRecorder;
+        if (recorder == null) {
+            return;
+        }
+        long latencyMs = (System.nanoTime() - startNanos) / 1_000_000;
+        recorder.record(new CallRecord(entryId, stage, modelName, CallRecord.promptHash(instruction),
+            response != null ? response.promptTokens : 0, response != null ? response.outputTokens : 0,
+            latencyMs, attempts.waitNanos / 1_000_000, attempts.retries, cacheHit, cacheHit || response != null));
+    }
+
+    /**
+     * Store a fresh response once it has parsed; truncated responses are not cached
+     * so a later run can get the complete output.
+     */
+    private void remember(String modelName, Stage stage, String prompt, GeminiResponse response) {
+        ResponseCache cache = responseCache;
+        if (cache != null && !response.fromCache && !response.isTruncated()) {
+            cache.put(ResponseCache.key(modelName, stage, prompt), stage, modelName, response.text);
+        }
+    }
+
+    /**
+     * Send one request through the rate limiter, retrying transient failures with backoff.
+     * A 429 pauses the model in the limiter so other queued calls wait out Retry-After too.
+     */
+    private GeminiResponse send(GeminiClient api, String modelName, String prompt, JSONObject schema,
+                                Attempts attempts) throws GeminiException, InterruptedException {
+        RetryPolicy policy = retryPolicy;
+        int estimatedTokens = RateLimiter.estimateTokens(prompt);
+
+        for (int attempt = 0; ; attempt++) {
+            attempts.retries = attempt;
+            long waitStart = System.nanoTime();
+            rateLimiter.acquire(modelName, estimatedTokens);
+            attempts.waitNanos += System.nanoTime() - waitStart;
+            try {
+                GeminiResponse response = api.generateContent(modelName, prompt, schema, MAX_OUTPUT_TOKENS);
+                rateLimiter.settle(modelName, estimatedTokens, response.promptTokens);
+                return response;
+            } catch (GeminiException e) {
+                if (!policy.shouldRetry(e, attempt)) {
+                    throw e;
+                }
+                long delayMs = policy.delayMs(attempt, e.getRetryAfterMs());
+                Log.w(TAG, "Request failed (" + e.getStatusCode() + "), retry " + (attempt + 1)
+                    + " in " + delayMs + "ms: " + e.getMessage());
+                if (e.isRateLimited()) {
+                    rateLimiter.pause(modelName, delayMs);
+                } else {
+                    long sleepStart = System.nanoTime();
+                    Thread.sleep(delayMs);
+                    attempts.waitNanos += System.nanoTime() - sleepStart;
+                }
+            }
+        }
+    }
+
+    // ==================== Response Parsing ====================
+
+    static List<Fact> parseFacts(String responseText, int chunkIndex) throws JSONException {
+        JSONObject json = new JSONObject(responseText);
+        JSONArray factsArray = json.optJSONArray("facts");
+        List<Fact> facts = new ArrayList<>();
+        if (factsArray == null) {
+            return facts;
+        }
+        for (int i = 0; i < factsArray.length(); i++) {
+            JSONObject factObj = factsArray.optJSONObject(i);
+            String text = factObj != null ? factObj.optString("fact", "").trim() : "";
+            if (!text.isEmpty()) {
+                // IDs are assigned client-side, the model only returns the statement
+                facts.add(new Fact(UUID.randomUUID().toString(), text, chunkIndex));
+            }
+        }
+        return facts;
+    }
+
+    static List<FactScore> parseScores(String responseText) throws JSONException {
+        JSONArray scoresArray = new JSONArray(responseText);
+        List<FactScore> scores = new ArrayList<>();
+        for (int i = 0; i < scoresArray.length(); i++) {
+            JSONObject scoreObj = scoresArray.optJSONObject(i);
+            if (scoreObj == null) {
+                continue;
+            }
+            String id = scoreObj.optString("id", "");
+            JSONObject dimensions = scoreObj.optJSONObject("scores");
+            Object total = scoreObj.opt("score_total");
+            if (!id.isEmpty() && dimensions != null && total instanceof Number) {
+                scores.add(new FactScore(id, dimensions, ((Number) total).doubleValue()));
+            }
+        }
+        return scores;
+    }
+
+    static List<Flashcard> parseCards(String responseText) throws JSONException {
+        JSONObject json = new JSONObject(responseText);
+        JSONArray cardsArray = json.optJSONArray("cards");
+        List<Flashcard> cards = new ArrayList<>();
+        if (cardsArray == null) {
+            return cards;
+        }
+        for (int i = 0; i < cardsArray.length(); i++) {
+            JSONObject cardObj = cardsArray.optJSONObject(i);
+            if (cardObj == null) {
+                continue;
+            }
+            String front = cardObj.optString("front", "").trim();
+            String back = cardObj.optString("back", "").trim();
+            if (front.isEmpty() || back.isEmpty()) {
+                continue;
+            }
+            List<String> tags = new ArrayList<>();
+            JSONArray tagsArray = cardObj.optJSONArray("tags");
+            if (tagsArray != null) {
+                for (int t = 0; t < tagsArray.length(); t++) {
+                    tags.add(tagsArray.optString(t));
+                }
+            }
+            cards.add(new Flashcard(front, back, tags));
+        }
+        return cards;
+    }
+
+    // ==================== Helper Methods ====================
+
+    /**
+     * Retry count and waiting time of one request, filled in by send
+     */
+    private static class Attempts {
+        int retries;
+        long waitNanos;
+    }
+
+    private GeminiClient requireClient() {
+        GeminiClient api = client;
+        if (api == null || model == null) {
+            throw new IllegalStateException("Generation engine is not configured");
+        }
+        return api;
+    }
+
+    private synchronized ExecutorService pool(Stage stage) {
+        return stagePools.get(stage);
+    }
+
+    private static <T> List<T> awaitOrEmpty(Future<List<T>> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Log.w(TAG, "Batch failed: " + e.getCause());
+            return Collections.emptyList();
+        }
+    }
+
+    // totalBatches is 0 for streamed batches, where the total is not known up front
+    private static String batchLabel(int batchIndex, int totalBatches) {
+        return totalBatches > 0 ? (batchIndex + 1) + "/" + totalBatches : String.valueOf(batchIndex + 1);
+    }
+
+    static <T> List<List<T>> batch(List<T> items, int batchSize) {
+        List<List<T>> batches = new ArrayList<>();
+        for (int i = 0; i < items.size(); i += batchSize) {
+            batches.add(items.subList(i, Math.min(items.size(), i + batchSize)));
+        }
+        return batches;
+    }
+
+    private static ExecutorService newStagePool(Stage stage, int threads) {
+        String prefix = "gemini-" + stage.name().toLowerCase(Locale.ROOT) + "-";
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
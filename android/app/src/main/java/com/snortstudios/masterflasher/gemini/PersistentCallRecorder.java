@@ -0,0 +1,54 @@
+package com.snortstudios.masterflasher.gemini;
+
+import android.util.Log;
+
+import com.snortstudios.masterflasher.db.CallMetric;
+import com.snortstudios.masterflasher.db.GenerationDao;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Room-backed CallRecorder writing one call_metrics row per request.
+ *
+ * Rows older than the retention period are pruned on the writing thread every few
+ * hundred inserts.
+ */
+public class PersistentCallRecorder implements CallRecorder {
+
+    private static final String TAG = "CallRecorder";
+
+    public static final long DEFAULT_RETENTION_MS = TimeUnit.DAYS.toMillis(90);
+
+    private static final int PRUNE_INTERVAL = 256;
+
+    private final GenerationDao dao;
+    private final long retentionMs;
+
+    private final AtomicInteger insertsSincePrune = new AtomicInteger();
+
+    public PersistentCallRecorder(GenerationDao dao) {
+        this(dao, DEFAULT_RETENTION_MS);
+    }
+
+    public PersistentCallRecorder(GenerationDao dao, long retentionMs) {
+        this.dao = dao;
+        this.retentionMs = retentionMs;
+    }
+
+    @Override
+    public void record(CallRecord record) {
+        try {
+            dao.insertCallMetric(CallMetric.create(record.entryId, record.stage.name(), record.model,
+                record.promptHash, record.promptTokens, record.outputTokens, record.latencyMs,
+                record.waitMs, record.retries, record.cacheHit, record.success));
+            if (insertsSincePrune.incrementAndGet() >= PRUNE_INTERVAL) {
+                insertsSincePrune.set(0);
+                dao.deleteCallMetricsOlderThan(System.currentTimeMillis() - retentionMs);
+            }
+        } catch (Exception e) {
+            // Metrics must never fail generation
+            Log.w(TAG, "Metric write failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.snortstudios.masterflasher.gemini;
+
+import android.util.Log;
+
+import com.snortstudios.masterflasher.db.GenerationDao;
+import com.snortstudios.masterflasher.db.ResponseCacheEntry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Room-backed ResponseCache with LRU size and age eviction.
+ *
+ * Entries unused for longer than the max age are dropped, then the least recently
+ * used entries go until the cache fits its byte budget. Eviction runs on the writing
+ * thread every few inserts rather than on every one.
+ *
+ * Hit/miss counters cover the current process; per-entry hit counts are persisted.
+ */
+public class PersistentResponseCache implements ResponseCache {
+
+    private static final String TAG = "ResponseCache";
+
+    public static final long DEFAULT_MAX_BYTES = 20L * 1024 * 1024;
+    public static final long DEFAULT_MAX_AGE_MS = TimeUnit.DAYS.toMillis(30);
+
+    private static final int EVICTION_INTERVAL = 16;
+    private static final int EVICTION_BATCH = 32;
+
+    private final GenerationDao dao;
+    private final long maxBytes;
+    private final long maxAgeMs;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicInteger putsSinceEviction = new AtomicInteger();
+
+    public PersistentResponseCache(GenerationDao dao) {
+        this(dao, DEFAULT_MAX_BYTES, DEFAULT_MAX_AGE_MS);
+    }
+
+    public PersistentResponseCache(GenerationDao dao, long maxBytes, long maxAgeMs) {
+        this.dao = dao;
+        this.maxBytes = maxBytes;
+        this.maxAgeMs = maxAgeMs;
+    }
+
+    @Override
+    public String get(String key) {
+        try {
+            ResponseCacheEntry entry = dao.getCacheEntry(key);
+            long now = System.currentTimeMillis();
+            if (entry == null || entry.lastAccessedAt < now - maxAgeMs) {
+                misses.incrementAndGet();
+                return null;
+            }
+            dao.touchCacheEntry(key, now);
+            hits.incrementAndGet();
+            return entry.response;
+        } catch (Exception e) {
+            // A broken cache must never fail generation
+            Log.w(TAG, "Cache read failed: " + e.getMessage());
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    @Override
+    public void put(String key, GenerationEngine.Stage stage, String model, String responseText) {
+        try {
+            dao.insertCacheEntry(ResponseCacheEntry.create(key, stage.name(), model, responseText));
+            if (putsSinceEviction.incrementAndGet() >= EVICTION_INTERVAL) {
+                putsSinceEviction.set(0);
+                evict();
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Cache write failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Drop expired entries, then least recently used ones until under the byte budget
+     */
+    public synchronized void evict() {
+        int expired = dao.deleteCacheEntriesOlderThan(System.currentTimeMillis() - maxAgeMs);
+        int evicted = 0;
+        while (dao.getCacheSizeBytes() > maxBytes) {
+            int deleted = dao.deleteLeastRecentlyUsedCacheEntries(EVICTION_BATCH);
+            if (deleted == 0) {
+                break;
+            }
+            evicted += deleted;
+        }
+        if (expired > 0 || evicted > 0) {
+            Log.d(TAG, "Evicted " + expired + " expired and " + evicted + " LRU entries");
+        }
+    }
+
+    public void clear() {
+        dao.clearCache();
+        hits.set(0);
+        misses.set(0);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Fraction of lookups served from the cache, 0 when nothing was looked up yet
+     */
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    public int getEntryCount() {
+        return dao.getCacheEntryCount();
+    }
+
+    public long getSizeBytes() {
+        return dao.getCacheSizeBytes();
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+}
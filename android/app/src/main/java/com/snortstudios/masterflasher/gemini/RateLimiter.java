@@ -0,0 +1,215 @@
+package com.snortstudios.masterflasher.gemini;
+
+import com.snortstudios.masterflasher.text.TokenEstimator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Token-bucket rate limiter keyed by model name.
+ *
+ * Each model has two buckets refilled continuously: requests per minute (RPM) and
+ * tokens per minute (TPM). A call must take one request permit plus its estimated
+ * token cost before it is sent. Once the response reports real usage, the difference
+ * is settled against the token bucket, so under-estimates turn into a small debt
+ * instead of a burst of 429s.
+ *
+ * A 429 pauses the whole model until its Retry-After has passed, so calls already
+ * queued on other threads back off together rather than hammering the API.
+ */
+public class RateLimiter {
+
+    /**
+     * Gemini free-tier limits for the flash-lite models
+     */
+    public static final int DEFAULT_REQUESTS_PER_MINUTE = 15;
+    public static final int DEFAULT_TOKENS_PER_MINUTE = 250_000;
+
+    private static final double MS_PER_MINUTE = 60_000.0;
+
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    private volatile int requestsPerMinute = DEFAULT_REQUESTS_PER_MINUTE;
+    private volatile int tokensPerMinute = DEFAULT_TOKENS_PER_MINUTE;
+
+    /**
+     * Snapshot of one model's limiter state
+     */
+    public static class Status {
+        public final String model;
+        public final int queued;
+        public final int availableRequests;
+        public final int availableTokens;
+        public final long pausedForMs;
+
+        Status(String model, int queued, int availableRequests, int availableTokens, long pausedForMs) {
+            this.model = model;
+            this.queued = queued;
+            this.availableRequests = availableRequests;
+            this.availableTokens = availableTokens;
+            this.pausedForMs = pausedForMs;
+        }
+    }
+
+    /**
+     * Set the per-model budgets. Existing buckets keep their current fill level.
+     */
+    public void setLimits(int requestsPerMinute, int tokensPerMinute) {
+        this.requestsPerMinute = Math.max(1, requestsPerMinute);
+        this.tokensPerMinute = Math.max(1, tokensPerMinute);
+        for (Bucket bucket : buckets.values()) {
+            bucket.setLimits(this.requestsPerMinute, this.tokensPerMinute);
+        }
+    }
+
+    public int getRequestsPerMinute() {
+        return requestsPerMinute;
+    }
+
+    public int getTokensPerMinute() {
+        return tokensPerMinute;
+    }
+
+    /**
+     * Block until one request and estimatedTokens fit in the model's budget.
+     * Costs above the bucket size are clamped so a single huge prompt still goes through.
+     */
+    public void acquire(String model, int estimatedTokens) throws InterruptedException {
+        bucket(model).acquire(estimatedTokens);
+    }
+
+    /**
+     * Charge (or refund) the difference between estimated and reported token usage
+     */
+    public void settle(String model, int estimatedTokens, int actualTokens) {
+        if (actualTokens > 0) {
+            bucket(model).adjust(estimatedTokens - actualTokens);
+        }
+    }
+
+    /**
+     * Hold back every call for the model for the given delay, e.g. after a 429
+     */
+    public void pause(String model, long delayMs) {
+        bucket(model).pause(delayMs);
+    }
+
+    /**
+     * Number of calls currently waiting for budget, across all models
+     */
+    public int getQueueDepth() {
+        int total = 0;
+        for (Bucket bucket : buckets.values()) {
+            total += bucket.queued();
+        }
+        return total;
+    }
+
+    public List<Status> getStatus() {
+        List<Status> statuses = new ArrayList<>();
+        for (Map.Entry<String, Bucket> entry : buckets.entrySet()) {
+            statuses.add(entry.getValue().status(entry.getKey()));
+        }
+        return statuses;
+    }
+
+    /**
+     * Rough token estimate for budgeting before a request is sent (see TokenEstimator)
+     */
+    public static int estimateTokens(String text) {
+        return TokenEstimator.estimate(text);
+    }
+
+    private Bucket bucket(String model) {
+        return buckets.computeIfAbsent(model, key -> new Bucket(requestsPerMinute, tokensPerMinute));
+    }
+
+    // ==================== Bucket ====================
+
+    private static class Bucket {
+
+        private double requestCapacity;
+        private double tokenCapacity;
+        private double requests;
+        private double tokens;
+        private long lastRefill = System.currentTimeMillis();
+        private long pausedUntil;
+        private int queued;
+
+        Bucket(int requestsPerMinute, int tokensPerMinute) {
+            setLimits(requestsPerMinute, tokensPerMinute);
+            requests = requestCapacity;
+            tokens = tokenCapacity;
+        }
+
+        synchronized void setLimits(int requestsPerMinute, int tokensPerMinute) {
+            refill(System.currentTimeMillis());
+            requestCapacity = requestsPerMinute;
+            tokenCapacity = tokensPerMinute;
+            requests = Math.min(requests, requestCapacity);
+            tokens = Math.min(tokens, tokenCapacity);
+            notifyAll();
+        }
+
+        synchronized void acquire(int estimatedTokens) throws InterruptedException {
+            double cost = Math.min(Math.max(0, estimatedTokens), tokenCapacity);
+            queued++;
+            try {
+                while (true) {
+                    long now = System.currentTimeMillis();
+                    refill(now);
+
+                    long waitMs;
+                    if (now < pausedUntil) {
+                        waitMs = pausedUntil - now;
+                    } else if (requests >= 1 && tokens >= cost) {
+                        requests -= 1;
+                        tokens -= cost;
+                        return;
+                    } else {
+                        double requestWait = requests >= 1 ? 0 : (1 - requests) * MS_PER_MINUTE / requestCapacity;
+                        double tokenWait = tokens >= cost ? 0 : (cost - tokens) * MS_PER_MINUTE / tokenCapacity;
+                        waitMs = (long) Math.ceil(Math.max(requestWait, tokenWait));
+                    }
+                    wait(Math.max(1, waitMs));
+                }
+            } finally {
+                queued--;
+            }
+        }
+
+        synchronized void adjust(double tokenDelta) {
+            refill(System.currentTimeMillis());
+            tokens = Math.min(tokenCapacity, tokens + tokenDelta);
+            if (tokenDelta > 0) {
+                notifyAll();
+            }
+        }
+
+        synchronized void pause(long delayMs) {
+            pausedUntil = Math.max(pausedUntil, System.currentTimeMillis() + delayMs);
+        }
+
+        synchronized int queued() {
+            return queued;
+        }
+
+        synchronized Status status(String model) {
+            long now = System.currentTimeMillis();
+            refill(now);
+            return new Status(model, queued, (int) requests, (int) tokens, Math.max(0, pausedUntil - now));
+        }
+
+        private void refill(long now) {
+            long elapsed = now - lastRefill;
+            if (elapsed <= 0) {
+                return;
+            }
+            requests = Math.min(requestCapacity, requests + elapsed * requestCapacity / MS_PER_MINUTE);
+            tokens = Math.min(tokenCapacity, tokens + elapsed * tokenCapacity / MS_PER_MINUTE);
+            lastRefill = now;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.snortstudios.masterflasher.gemini;
+
+import com.snortstudios.masterflasher.util.Hashes;
+
+/**
+ * Cache of successful Gemini response texts, consulted before every request.
+ *
+ * Implementations must be thread-safe: stage pools call into the cache concurrently.
+ */
+public interface ResponseCache {
+
+    /**
+     * Get a cached response text, or null on a miss
+     */
+    String get(String key);
+
+    /**
+     * Store a response text that parsed successfully
+     */
+    void put(String key, GenerationEngine.Stage stage, String model, String responseText);
+
+    /**
+     * Cache key for a request: SHA-256 of model, stage and the complete prompt
+     * (effective instruction plus chunk or fact batch).
+     */
+    static String key(String model, GenerationEngine.Stage stage, String prompt) {
+        return Hashes.sha256Hex(model, stage.name(), prompt);
+    }
+}
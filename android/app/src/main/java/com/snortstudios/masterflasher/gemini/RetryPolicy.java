@@ -0,0 +1,47 @@
+package com.snortstudios.masterflasher.gemini;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with full jitter for retryable Gemini failures.
+ *
+ * The delay for attempt n is a random value in [0, min(max, base * 2^n)], so
+ * concurrent callers that failed together spread out instead of retrying in lockstep.
+ * A server-provided Retry-After always wins when it is longer.
+ */
+public class RetryPolicy {
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 5;
+
+    private static final long BASE_DELAY_MS = 1_000;
+    private static final long MAX_DELAY_MS = 60_000;
+
+    private final int maxAttempts;
+
+    public RetryPolicy(int maxAttempts) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Whether a call that failed on the given (0-based) attempt should be tried again
+     */
+    public boolean shouldRetry(GeminiException error, int attempt) {
+        return error.isRetryable() && attempt + 1 < maxAttempts;
+    }
+
+    /**
+     * Delay before the next attempt
+     *
+     * @param attempt 0-based index of the attempt that just failed
+     * @param retryAfterMs Server-requested delay, or -1 if none
+     */
+    public long delayMs(int attempt, long retryAfterMs) {
+        long ceiling = Math.min(MAX_DELAY_MS, BASE_DELAY_MS << Math.min(attempt, 16));
+        long jittered = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        return Math.max(jittered, retryAfterMs);
+    }
+}
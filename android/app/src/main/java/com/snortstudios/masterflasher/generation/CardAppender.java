@@ -0,0 +1,63 @@
+package com.snortstudios.masterflasher.generation;
+
+import com.snortstudios.masterflasher.db.GeneratedCard;
+import com.snortstudios.masterflasher.db.InboxDao;
+import com.snortstudios.masterflasher.db.InboxEvents;
+import com.snortstudios.masterflasher.db.RunFact;
+import com.snortstudios.masterflasher.gemini.Flashcard;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes card batches to an entry as they complete and announces them through InboxEvents.
+ *
+ * Batches finish in any order and on several threads; appends are serialized so card
+ * ids stay sequential (entryId-card-N-timestamp, same scheme as the web layer).
+ */
+class CardAppender {
+
+    private final InboxDao dao;
+    private final String entryId;
+    private final long timestamp = System.currentTimeMillis();
+
+    private int count;
+
+    /**
+     * @param existingCount Cards already stored by an earlier, resumed run
+     */
+    CardAppender(InboxDao dao, String entryId, int existingCount) {
+        this.dao = dao;
+        this.entryId = entryId;
+        this.count = existingCount;
+    }
+
+    /**
+     * Store a batch, together with the checkpoint rows of the facts it was made from
+     */
+    synchronized void onBatch(int batchIndex, List<Flashcard> flashcards, List<RunFact> facts) {
+        List<GeneratedCard> cards = new ArrayList<>(flashcards.size());
+        for (Flashcard flashcard : flashcards) {
+            cards.add(GeneratedCard.create(
+                entryId + "-card-" + (count + cards.size()) + "-" + timestamp,
+                entryId,
+                flashcard.front,
+                flashcard.back,
+                flashcard.tags
+            ));
+        }
+
+        if (!dao.appendRunCards(entryId, cards, facts)) {
+            throw new IllegalStateException("Entry was deleted: " + entryId);
+        }
+        count += cards.size();
+        InboxEvents.publishCardsAppended(entryId, cards);
+    }
+
+    /**
+     * Number of cards written so far
+     */
+    synchronized int getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,12 @@
+package com.snortstudios.masterflasher.generation;
+
+/**
+ * A pipeline run that could not produce cards (no text, no facts, no cards).
+ * The message is shown to the user as-is.
+ */
+public class GenerationException extends Exception {
+
+    public GenerationException(String message) {
+        super(message);
+    }
+}
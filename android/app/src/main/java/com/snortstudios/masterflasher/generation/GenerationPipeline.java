@@ -0,0 +1,141 @@
+package com.snortstudios.masterflasher.generation;
+
+import com.snortstudios.masterflasher.db.EntrySummary;
+import com.snortstudios.masterflasher.db.GenerationRun;
+import com.snortstudios.masterflasher.db.InboxDao;
+import com.snortstudios.masterflasher.gemini.GenerationEngine;
+import com.snortstudios.masterflasher.text.ChunkSpool;
+import com.snortstudios.masterflasher.text.ColumnTextReader;
+import com.snortstudios.masterflasher.text.EntryTextStore;
+import com.snortstudios.masterflasher.text.TextChunker;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Runs fact extraction, scoring, filtering and card creation for one inbox entry
+ * and stores the result, mirroring the flow of EntryDetailScreen.handleGenerate.
+ *
+ * Extraction and scoring overlap (see PipelineRun): a chunk's facts are scored as soon as
+ * the chunk is done, while the best MAX_FACTS_TO_PASS passing facts are kept in a bounded
+ * heap. Once the last batch is scored the selected facts go into card batches, which are
+ * appended as they complete; the entry is only locked once every batch is done.
+ *
+ * Finished chunks, facts, scores and card batches are checkpointed (RunCheckpoint). A run
+ * that fails, is cancelled or dies with the process leaves the entry unlocked with its
+ * partial cards, and the next run with the same text and prompts resumes from there.
+ *
+ * The entry's text is never loaded whole: it is streamed from its file (EntryTextStore) or
+ * column (ColumnTextReader) through TextChunker into a ChunkSpool in the cache directory,
+ * and PipelineRun reads the chunks back one at a time.
+ */
+public class GenerationPipeline {
+
+    // Same filtering rules as the web layer
+    static final double SCORE_THRESHOLD = 9;
+    static final int MAX_FACTS_TO_PASS = 40;
+
+    // Smaller scoring batches than the barrier flow, so scoring keeps up with extraction.
+    // Two card batches of 20 cover MAX_FACTS_TO_PASS.
+    static final int STREAM_SCORING_BATCH_SIZE = 25;
+    static final int STREAM_CARD_BATCH_SIZE = 20;
+
+    // Extraction pauses while this many facts wait for scoring
+    static final int MAX_QUEUED_FACTS = STREAM_SCORING_BATCH_SIZE * 2;
+
+    /**
+     * Receives human-readable progress for the entry being processed
+     */
+    public interface ProgressListener {
+        void onProgress(String entryId, String stage, String message);
+
+        /**
+         * Called on the running thread after every completed request
+         */
+        default void onStats(String entryId, PipelineStats stats) {
+        }
+    }
+
+    private final InboxDao dao;
+    private final GenerationEngine engine;
+    private final EntryTextStore textStore;
+    private final File spoolDir;
+
+    /**
+     * @param spoolDir Directory for the temporary chunk files of running entries (the cache directory)
+     */
+    public GenerationPipeline(InboxDao dao, GenerationEngine engine, EntryTextStore textStore, File spoolDir) {
+        this.dao = dao;
+        this.engine = engine;
+        this.textStore = textStore;
+        this.spoolDir = spoolDir;
+    }
+
+    /**
+     * Generate and store cards for an entry, then lock it.
+     *
+     * @return Final stats of the run (cardsStored is the number of cards written)
+     * @throws GenerationException when the entry has no usable text or a stage produced nothing
+     */
+    public PipelineStats run(String entryId, PipelinePrompts prompts, ProgressListener listener)
+            throws GenerationException, InterruptedException {
+        EntrySummary entry = dao.getEntrySummary(entryId);
+        if (entry == null) {
+            throw new GenerationException("Entry not found: " + entryId);
+        }
+        if (entry.isLocked) {
+            // Starting a run replaces the entry's cards, including ones already added to AnkiDroid
+            throw new GenerationException("This entry already has its cards.");
+        }
+
+        boolean hasExtractedText = entry.extractedTextLength > 0;
+        if ("pdf".equals(entry.contentType) && !hasExtractedText) {
+            throw new GenerationException("Extract text from the PDF first.");
+        }
+        if ("url".equals(entry.contentType) && !hasExtractedText) {
+            throw new GenerationException("Extract content from the URL first.");
+        }
+
+        try (ChunkSpool chunks = chunk(entry, hasExtractedText)) {
+            if (chunks.isEmpty()) {
+                throw new GenerationException("Entry has no text to process.");
+            }
+
+            // Resumes an interrupted run, or drops the checkpoint and cards of a run with other inputs
+            RunCheckpoint checkpoint = RunCheckpoint.open(dao, entryId,
+                RunCheckpoint.inputHash(chunks.digest(), prompts), chunks.size());
+            CardAppender appender = new CardAppender(dao, entryId,
+                checkpoint.isResumed() ? dao.getTotalCardCount(entryId) : 0);
+
+            PipelineRun run = new PipelineRun(engine, entryId, chunks, entry.title, prompts, listener, appender, checkpoint);
+            try {
+                run.run();
+            } catch (InterruptedException e) {
+                checkpoint.stop(GenerationRun.STATE_CANCELLED, null);
+                throw e;
+            } catch (GenerationException | RuntimeException e) {
+                checkpoint.stop(GenerationRun.STATE_FAILED, e.getMessage());
+                throw e;
+            }
+            checkpoint.complete();
+
+            PipelineStats stats = run.snapshot();
+            listener.onStats(entryId, stats);
+            return stats;
+        } catch (IOException e) {
+            throw new GenerationException("Could not read the entry's text: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stream the entry's text through the chunker into a spool file
+     */
+    private ChunkSpool chunk(EntrySummary entry, boolean extracted) throws IOException {
+        try (Reader text = extracted && entry.extractedTextInFile
+                ? textStore.open(entry.id)
+                : new ColumnTextReader(dao, entry.id, extracted)) {
+            return ChunkSpool.write(new TextChunker(), text, spoolDir);
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.snortstudios.masterflasher.generation;
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.os.Build;
+import android.os.IBinder;
+import android.util.Log;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.ServiceCompat;
+import androidx.core.content.ContextCompat;
+
+import com.snortstudios.masterflasher.MainActivity;
+import com.snortstudios.masterflasher.db.AppDatabase;
+import com.snortstudios.masterflasher.gemini.GenerationEngine;
+import com.snortstudios.masterflasher.text.EntryTextStore;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Foreground service that works through queued inbox entries one at a time.
+ *
+ * Each entry runs the full GenerationPipeline independently of the WebView, so
+ * leaving the entry screen or backgrounding the app does not abort a long run.
+ * The service stops itself when the queue is empty.
+ *
+ * The queue lives in memory: the foreground notification keeps the process alive
+ * while work is pending, and queued prompts are only valid for this process anyway
+ * (the API key is never persisted natively).
+ */
+public class GenerationService extends Service {
+
+    private static final String TAG = "GenerationService";
+
+    private static final String CHANNEL_ID = "generation";
+    private static final int NOTIFICATION_ID = 4201;
+
+    /**
+     * Receives runner events; called on the worker thread
+     */
+    public interface Listener {
+        void onProgress(String entryId, String stage, String message);
+
+        void onStats(String entryId, PipelineStats stats);
+
+        void onCompleted(String entryId, PipelineStats stats);
+
+        void onFailed(String entryId, String error);
+
+        void onQueueChanged(String runningEntryId, List<String> queuedEntryIds);
+    }
+
+    private static final Object LOCK = new Object();
+    private static final LinkedHashSet<String> queue = new LinkedHashSet<>();
+    private static final Map<String, PipelinePrompts> queuedPrompts = new HashMap<>();
+    private static final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private static String runningEntryId;
+    private static PipelineStats runningStats;
+    private static Thread worker;
+
+    // Guarded by LOCK
+    private int lastStartId;
+
+    // ==================== Static API ====================
+
+    /**
+     * Queue entries for background generation and make sure the service is running.
+     * Entries already queued or running are skipped, and so are locked entries: a run
+     * starts by replacing the entry's cards, which would drop cards already in AnkiDroid.
+     *
+     * Queries the database, so call it off the main thread.
+     *
+     * @return Number of entries actually added to the queue
+     */
+    public static int enqueue(Context context, List<String> entryIds, PipelinePrompts prompts) {
+        Set<String> locked = new HashSet<>(
+            AppDatabase.getInstance(context).inboxDao().getLockedEntryIds(entryIds));
+        if (!locked.isEmpty()) {
+            Log.w(TAG, "Not queueing locked entries " + locked);
+        }
+
+        int added = 0;
+        synchronized (LOCK) {
+            for (String entryId : entryIds) {
+                if (!locked.contains(entryId) && !entryId.equals(runningEntryId) && queue.add(entryId)) {
+                    queuedPrompts.put(entryId, prompts);
+                    added++;
+                }
+            }
+        }
+
+        if (added > 0) {
+            dispatchQueueChanged();
+            Context appContext = context.getApplicationContext();
+            ContextCompat.startForegroundService(appContext, new Intent(appContext, GenerationService.class));
+        }
+        return added;
+    }
+
+    /**
+     * Remove a queued entry, or interrupt it if it is the one currently running
+     *
+     * @return true if the entry was queued or running
+     */
+    public static boolean cancel(String entryId) {
+        boolean found;
+        synchronized (LOCK) {
+            found = queue.remove(entryId);
+            queuedPrompts.remove(entryId);
+            if (!found && entryId.equals(runningEntryId) && worker != null) {
+                worker.interrupt();
+                found = true;
+            }
+        }
+        if (found) {
+            dispatchQueueChanged();
+        }
+        return found;
+    }
+
+    public static String getRunningEntryId() {
+        synchronized (LOCK) {
+            return runningEntryId;
+        }
+    }
+
+    /**
+     * Latest stats of the running entry, null when idle or before its first request completes
+     */
+    public static PipelineStats getRunningStats() {
+        synchronized (LOCK) {
+            return runningStats;
+        }
+    }
+
+    public static List<String> getQueuedEntryIds() {
+        synchronized (LOCK) {
+            return new ArrayList<>(queue);
+        }
+    }
+
+    public static void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // ==================== Service Lifecycle ====================
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        ServiceCompat.startForeground(this, NOTIFICATION_ID, buildNotification("Preparing...", 0, 0),
+            Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q ? ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC : 0);
+
+        synchronized (LOCK) {
+            lastStartId = startId;
+            if (worker == null) {
+                worker = new Thread(this::processQueue, "generation-runner");
+                worker.start();
+            }
+        }
+        // Queue and prompts are in-memory only, nothing to resume after a process restart
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    // ==================== Worker ====================
+
+    private void processQueue() {
+        GenerationPipeline pipeline = new GenerationPipeline(
+            AppDatabase.getInstance(this).inboxDao(), GenerationEngine.getInstance(),
+            new EntryTextStore(getFilesDir()), getCacheDir());
+        int completed = 0;
+        int stopId;
+
+        while (true) {
+            String entryId;
+            PipelinePrompts prompts;
+            int remaining;
+            synchronized (LOCK) {
+                // Clear a stale cancel() interrupt before picking up the next entry
+                Thread.interrupted();
+                if (queue.isEmpty()) {
+                    runningEntryId = null;
+                    runningStats = null;
+                    worker = null;
+                    stopId = lastStartId;
+                    break;
+                }
+                entryId = queue.iterator().next();
+                queue.remove(entryId);
+                prompts = queuedPrompts.remove(entryId);
+                runningEntryId = entryId;
+                runningStats = null;
+                remaining = queue.size();
+            }
+            dispatchQueueChanged();
+            updateNotification("Generating cards...", completed, completed + remaining + 1);
+
+            final int done = completed;
+            final int total = completed + remaining + 1;
+            try {
+                PipelineStats stats = pipeline.run(entryId, prompts, new GenerationPipeline.ProgressListener() {
+                    @Override
+                    public void onProgress(String id, String stage, String message) {
+                        updateNotification(message, done, total);
+                        for (Listener listener : listeners) {
+                            listener.onProgress(id, stage, message);
+                        }
+                    }
+
+                    @Override
+                    public void onStats(String id, PipelineStats stats) {
+                        synchronized (LOCK) {
+                            runningStats = stats;
+                        }
+                        updateNotification(stats.describe(), done, total);
+                        for (Listener listener : listeners) {
+                            listener.onStats(id, stats);
+                        }
+                    }
+                });
+                Log.d(TAG, "Generated " + stats.cardsStored + " cards for " + entryId
+                    + " in " + stats.elapsedMs + "ms, first after " + stats.timeToFirstCardMs + "ms");
+                for (Listener listener : listeners) {
+                    listener.onCompleted(entryId, stats);
+                }
+            } catch (InterruptedException e) {
+                Log.d(TAG, "Generation cancelled for " + entryId);
+                dispatchFailed(entryId, "Cancelled");
+            } catch (GenerationException e) {
+                dispatchFailed(entryId, e.getMessage());
+            } catch (Exception e) {
+                Log.e(TAG, "Generation failed for " + entryId, e);
+                dispatchFailed(entryId, "Processing failed: " + e.getMessage());
+            }
+            completed++;
+        }
+
+        dispatchQueueChanged();
+        // If enqueue() restarted the service after the queue was found empty,
+        // a new worker owns the notification and stopSelf(stopId) is a no-op
+        synchronized (LOCK) {
+            if (stopId == lastStartId) {
+                ServiceCompat.stopForeground(this, ServiceCompat.STOP_FOREGROUND_REMOVE);
+            }
+        }
+        stopSelf(stopId);
+    }
+
+    private static void dispatchFailed(String entryId, String error) {
+        Log.w(TAG, "Generation failed for " + entryId + ": " + error);
+        for (Listener listener : listeners) {
+            listener.onFailed(entryId, error);
+        }
+    }
+
+    private static void dispatchQueueChanged() {
+        String running;
+        List<String> queued;
+        synchronized (LOCK) {
+            running = runningEntryId;
+            queued = new ArrayList<>(queue);
+        }
+        for (Listener listener : listeners) {
+            listener.onQueueChanged(running, queued);
+        }
+    }
+
+    // ==================== Notification ====================
+
+    private void updateNotification(String message, int done, int total) {
+        NotificationManager manager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+        if (manager != null) {
+            manager.notify(NOTIFICATION_ID, buildNotification(message, done, total));
+        }
+    }
+
+    private android.app.Notification buildNotification(String message, int done, int total) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationManager manager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+            if (manager != null && manager.getNotificationChannel(CHANNEL_ID) == null) {
+                manager.createNotificationChannel(new NotificationChannel(
+                    CHANNEL_ID, "Card generation", NotificationManager.IMPORTANCE_LOW));
+            }
+        }
+
+        Intent openApp = new Intent(this, MainActivity.class);
+        PendingIntent contentIntent = PendingIntent.getActivity(this, 0, openApp,
+            PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+
+        String title = total > 1
+            ? "Generating cards (" + (done + 1) + " of " + total + ")"
+            : "Generating cards";
+
+        return new NotificationCompat.Builder(this, CHANNEL_ID)
+            .setSmallIcon(android.R.drawable.stat_notify_sync)
+            .setContentTitle(title)
+            .setContentText(message)
+            .setContentIntent(contentIntent)
+            .setOngoing(true)
+            .setOnlyAlertOnce(true)
+            .setProgress(total, done, total == 0)
+            .build();
+    }
+}
@@ -0,0 +1,23 @@
+package com.snortstudios.masterflasher.generation;
+
+/**
+ * Effective instructions for the three pipeline stages.
+ *
+ * Resolved by the web layer (custom prompt or default, plus the fixed system
+ * constraints) when entries are queued, so background runs use exactly the prompts
+ * the user had configured at that moment.
+ */
+public class PipelinePrompts {
+
+    public final String factExtraction;
+
+    public final String factScoring;
+
+    public final String cardCreation;
+
+    public PipelinePrompts(String factExtraction, String factScoring, String cardCreation) {
+        this.factExtraction = factExtraction;
+        this.factScoring = factScoring;
+        this.cardCreation = cardCreation;
+    }
+}
@@ -0,0 +1,424 @@
+package com.snortstudios.masterflasher.generation;
+
+import android.util.Log;
+
+import com.snortstudios.masterflasher.db.RunFact;
+import com.snortstudios.masterflasher.gemini.ChunkResult;
+import com.snortstudios.masterflasher.gemini.Fact;
+import com.snortstudios.masterflasher.gemini.FactScore;
+import com.snortstudios.masterflasher.gemini.Flashcard;
+import com.snortstudios.masterflasher.gemini.GenerationEngine;
+import com.snortstudios.masterflasher.gemini.GenerationEngine.Stage;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * One overlapped run of fact extraction, scoring and card creation.
+ *
+ * Engine workers post their results to this run's event queue; the calling thread
+ * applies them and decides what to submit next, so all bookkeeping is single-threaded.
+ * A chunk's facts are queued for scoring as soon as the chunk completes, so extraction
+ * and scoring overlap. Every chunk is extracted and scored; facts above the score
+ * threshold compete for the MAX_FACTS_TO_PASS places in a min-heap, and once scoring
+ * is done the selected facts go into card batches, which are stored as they come back.
+ * This is the same selection as the barrier flow: the best facts of the whole document,
+ * ties broken by document order. Near-duplicates of facts already seen are dropped
+ * before scoring.
+ *
+ * Backpressure: each stage has at most its engine concurrency limit in flight, and no
+ * new chunk is sent for extraction while MAX_QUEUED_FACTS facts still wait for scoring.
+ *
+ * Finished work is written to a RunCheckpoint as it is applied. A resumed run starts from
+ * the checkpoint: finished chunks are skipped and stored facts go back into the queue
+ * they were waiting in.
+ */
+class PipelineRun {
+
+    private static final String TAG = "GenerationPipeline";
+
+    private final GenerationEngine engine;
+    private final String entryId;
+    private final List<String> chunks;
+    private final String title;
+    private final PipelinePrompts prompts;
+    private final GenerationPipeline.ProgressListener listener;
+    private final CardAppender appender;
+    private final RunCheckpoint checkpoint;
+
+    private final BlockingQueue<Runnable> events = new LinkedBlockingQueue<>();
+    private final List<Future<?>> futures = new ArrayList<>();
+    private final Map<Stage, Integer> inFlight = new EnumMap<>(Stage.class);
+
+    private final ArrayDeque<Integer> pendingChunks = new ArrayDeque<>();
+    private final Set<Integer> retriedChunks = new HashSet<>();
+    private final List<Fact> awaitingScore = new ArrayList<>();
+    private final List<Fact> awaitingCards = new ArrayList<>();
+    private final FactDeduplicator deduplicator = new FactDeduplicator();
+    // Arrival order of the facts of this run, for document order among equal scores
+    private final Map<String, Integer> seqs = new HashMap<>();
+
+    // Passing facts not yet sent for cards, worst first so the heap stays at MAX_FACTS_TO_PASS
+    private final PriorityQueue<Candidate> selection = new PriorityQueue<>(Candidate.WORST_FIRST);
+    private int selectionLimit = GenerationPipeline.MAX_FACTS_TO_PASS;
+    private int candidates;
+    private int nextSeq;
+
+    private int chunksDone;
+    private int failedChunks;
+    private int factsExtracted;
+    private int factsScored;
+    private int factsPassed;
+    private int scoringBatches;
+    private int cardBatches;
+
+    // Set once scoring is done and the selection went to the card queue
+    private boolean selected;
+
+    private long startedAt;
+    private long firstCardAt = -1;
+
+    PipelineRun(GenerationEngine engine, String entryId, List<String> chunks, String title,
+                PipelinePrompts prompts, GenerationPipeline.ProgressListener listener, CardAppender appender,
+                RunCheckpoint checkpoint) {
+        this.engine = engine;
+        this.entryId = entryId;
+        this.chunks = chunks;
+        this.title = title;
+        this.prompts = prompts;
+        this.listener = listener;
+        this.appender = appender;
+        this.checkpoint = checkpoint;
+        for (Stage stage : Stage.values()) {
+            inFlight.put(stage, 0);
+        }
+    }
+
+    /**
+     * Run until every stage has drained
+     *
+     * @return Number of cards stored
+     */
+    int run() throws GenerationException, InterruptedException {
+        startedAt = System.currentTimeMillis();
+        for (int i = 0; i < chunks.size(); i++) {
+            if (!checkpoint.isChunkDone(i)) {
+                pendingChunks.add(i);
+            }
+        }
+        if (checkpoint.isResumed()) {
+            restore();
+            listener.onProgress(entryId, "facts", "Resuming: " + chunksDone + " of " + chunks.size()
+                + " chunks and " + appender.getCount() + " cards already done...");
+        } else {
+            listener.onProgress(entryId, "facts", "Extracting facts from " + chunks.size() + " chunks...");
+        }
+
+        try {
+            while (true) {
+                submitReady();
+                if (totalInFlight() == 0) {
+                    break;
+                }
+                events.take().run();
+                listener.onStats(entryId, snapshot());
+            }
+        } finally {
+            // No-op for finished requests; stops the rest on interrupt or a failed write
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+
+        if (failedChunks > 0) {
+            Log.w(TAG, failedChunks + "/" + chunks.size() + " chunks failed for entry " + entryId);
+        }
+        if (deduplicator.getRemoved() > 0) {
+            Log.d(TAG, "Dropped " + deduplicator.getRemoved() + " near-duplicate facts (~"
+                + deduplicator.getTokensSaved() + " tokens) for entry " + entryId);
+        }
+        if (factsExtracted == 0) {
+            throw new GenerationException(
+                "No key concepts could be extracted from this content. " +
+                "This may happen with very short text, technical content, or documents that are mostly images. " +
+                "Try a different source or check if the content is extractable.");
+        }
+        if (factsPassed == 0) {
+            throw new GenerationException(
+                "No high-value facts were found in this content. " +
+                "The extracted concepts may be too generic or obvious. " +
+                "Try a different source with more specific, non-obvious information.");
+        }
+        if (appender.getCount() == 0) {
+            throw new GenerationException(
+                "No flashcards could be generated from the extracted concepts. " +
+                "This may happen if the content is too abstract or lacks specific facts. " +
+                "Try adjusting the source content or custom prompts in Settings.");
+        }
+        return appender.getCount();
+    }
+
+    /**
+     * Put the work stored by an earlier run back where it was
+     */
+    private void restore() {
+        chunksDone = checkpoint.getDoneChunkCount();
+        factsExtracted = checkpoint.getRun().factsExtracted;
+        deduplicator.restoreCounts(checkpoint.getRun().factsDuplicate, checkpoint.getRun().tokensSaved);
+
+        for (RunFact row : checkpoint.getFacts()) {
+            Fact fact = new Fact(row.factId, row.text, row.chunkIndex);
+            deduplicator.restore(fact);
+            seqs.put(row.factId, row.seq);
+            nextSeq = Math.max(nextSeq, row.seq + 1);
+            if (row.scored) {
+                factsScored++;
+            }
+            if (row.cardBatch != null) {
+                // Selected by the earlier run, so one place fewer for the rest
+                factsPassed++;
+                selectionLimit--;
+                cardBatches = Math.max(cardBatches, row.cardBatch + 1);
+            } else if (row.passed) {
+                // Ranking the stored candidates again gives back the facts that still need cards
+                select(new Candidate(fact, row.score, row.seq));
+            } else if (!row.scored) {
+                awaitingScore.add(fact);
+            }
+        }
+    }
+
+    PipelineStats snapshot() {
+        long now = System.currentTimeMillis();
+        return new PipelineStats(
+            chunks.size(), chunksDone, factsExtracted, deduplicator.getRemoved(), deduplicator.getTokensSaved(),
+            factsScored, factsPassed, appender.getCount(),
+            pendingChunks.size(), awaitingScore.size(), awaitingCards.size(),
+            inFlight.get(Stage.FACTS), inFlight.get(Stage.SCORING), inFlight.get(Stage.CARDS),
+            now - startedAt, firstCardAt < 0 ? -1 : firstCardAt - startedAt);
+    }
+
+    // ==================== Scheduling ====================
+
+    private void submitReady() {
+        if (!selected && scoringDone()) {
+            selected = true;
+            List<Fact> unique = deduplicator.getRepresentatives();
+            // A single extracted fact always passes, which is only known once scoring is done
+            if (unique.size() == 1 && factsPassed == 0) {
+                select(new Candidate(unique.get(0), null, seqs.getOrDefault(unique.get(0).id, 0)));
+                checkpoint.passed(unique.get(0));
+            }
+            releaseSelection();
+        }
+
+        // Downstream first, so finished work leaves the pipeline before new work enters it
+        while (hasSlot(Stage.CARDS) && !awaitingCards.isEmpty()) {
+            List<Fact> batch = take(awaitingCards, GenerationPipeline.STREAM_CARD_BATCH_SIZE);
+            if (cardBatches == 0) {
+                listener.onProgress(entryId, "cards", "Generating flashcards from " + factsPassed + " selected facts...");
+            }
+            int batchIndex = cardBatches++;
+            started(Stage.CARDS, engine.submitCards(entryId, batchIndex, batch, prompts.cardCreation,
+                cards -> events.add(() -> onCards(batchIndex, batch, cards))));
+        }
+
+        while (hasSlot(Stage.SCORING) && (awaitingScore.size() >= GenerationPipeline.STREAM_SCORING_BATCH_SIZE
+                || (!awaitingScore.isEmpty() && extractionDone()))) {
+            List<Fact> batch = take(awaitingScore, GenerationPipeline.STREAM_SCORING_BATCH_SIZE);
+            if (scoringBatches == 0) {
+                listener.onProgress(entryId, "scoring", "Scoring facts for learning value...");
+            }
+            scoringBatches++;
+            started(Stage.SCORING, engine.submitScoring(entryId, scoringBatches - 1, batch, prompts.factScoring,
+                scores -> events.add(() -> onScores(batch, scores))));
+        }
+
+        while (hasSlot(Stage.FACTS) && !pendingChunks.isEmpty()
+                && awaitingScore.size() < GenerationPipeline.MAX_QUEUED_FACTS) {
+            int chunkIndex = pendingChunks.poll();
+            started(Stage.FACTS, engine.submitChunk(entryId, chunkIndex, chunks.get(chunkIndex), title, prompts.factExtraction,
+                result -> events.add(() -> onChunk(result))));
+        }
+    }
+
+    // ==================== Results ====================
+
+    private void onChunk(ChunkResult result) {
+        finished(Stage.FACTS);
+        if (result.isFailed() && result.retryable && retriedChunks.add(result.chunkIndex)) {
+            // Transient failures usually clear once the burst is over, retry once at the back of the queue
+            pendingChunks.add(result.chunkIndex);
+            return;
+        }
+        chunksDone++;
+        if (result.isFailed()) {
+            failedChunks++;
+            return;
+        }
+        factsExtracted += result.facts.size();
+        List<Fact> added = new ArrayList<>(result.facts.size());
+        List<Fact> replaced = new ArrayList<>();
+        for (Fact fact : result.facts) {
+            seqs.put(fact.id, nextSeq++);
+            Fact dropped = deduplicator.add(fact, awaitingScore::contains);
+            if (dropped == null) {
+                awaitingScore.add(fact);
+                added.add(fact);
+            } else if (dropped != fact) {
+                // Still waiting for scoring, so the more detailed duplicate takes its place
+                awaitingScore.set(awaitingScore.indexOf(dropped), fact);
+                added.add(fact);
+                if (!added.remove(dropped)) {
+                    replaced.add(dropped);
+                }
+            }
+        }
+        checkpoint.chunkDone(result.chunkIndex, result.facts.size(), added, replaced,
+            factsExtracted, deduplicator.getRemoved(), deduplicator.getTokensSaved());
+    }
+
+    private void onScores(List<Fact> batch, List<FactScore> scores) {
+        finished(Stage.SCORING);
+        Map<String, Double> totals = new HashMap<>();
+        for (FactScore score : scores) {
+            totals.put(score.factId, score.total);
+        }
+        // Above the threshold passes; unscored facts pass too, so a failed batch drops nothing
+        Set<String> passedIds = new HashSet<>();
+        for (Fact fact : batch) {
+            factsScored++;
+            Double total = totals.get(fact.id);
+            if (total == null || total > GenerationPipeline.SCORE_THRESHOLD) {
+                select(new Candidate(fact, total, seqs.get(fact.id)));
+                passedIds.add(fact.id);
+            }
+        }
+        checkpoint.scored(batch, totals, passedIds);
+    }
+
+    private void onCards(int batchIndex, List<Fact> batch, List<Flashcard> cards) {
+        finished(Stage.CARDS);
+        if (cards.isEmpty()) {
+            // The facts stay unmarked, so a resumed run tries them again
+            return;
+        }
+        appender.onBatch(batchIndex, cards, checkpoint.carded(batch, batchIndex));
+        if (firstCardAt < 0) {
+            firstCardAt = System.currentTimeMillis();
+            Log.d(TAG, "First cards for " + entryId + " after " + (firstCardAt - startedAt) + "ms");
+        }
+    }
+
+    // ==================== Selection ====================
+
+    /**
+     * Offer a passing fact for one of the selection places, evicting the worst when full
+     */
+    private void select(Candidate candidate) {
+        candidates++;
+        if (selectionLimit <= 0) {
+            return;
+        }
+        if (selection.size() < selectionLimit) {
+            selection.add(candidate);
+            factsPassed++;
+        } else if (Candidate.WORST_FIRST.compare(candidate, selection.peek()) > 0) {
+            selection.poll();
+            selection.add(candidate);
+        }
+    }
+
+    /**
+     * Queue the selected facts for cards. They stay in document order
+     * unless the cap cut some, in which case they go best first.
+     */
+    private void releaseSelection() {
+        List<Candidate> chosen = new ArrayList<>(selection);
+        selection.clear();
+        if (candidates > chosen.size()) {
+            Log.d(TAG, "Selected " + chosen.size() + " of " + candidates + " passing facts for " + entryId);
+            chosen.sort(Candidate.WORST_FIRST.reversed());
+        } else {
+            chosen.sort(Candidate.DOCUMENT_ORDER);
+        }
+        for (Candidate candidate : chosen) {
+            awaitingCards.add(candidate.fact);
+        }
+    }
+
+    /**
+     * A passing fact with its rank. Unscored facts rank as 0, like the web layer; equal
+     * scores keep document order (chunk, then arrival within the chunk).
+     */
+    private static class Candidate {
+
+        static final Comparator<Candidate> DOCUMENT_ORDER = Comparator
+            .<Candidate>comparingInt(c -> c.fact.chunkIndex)
+            .thenComparingInt(c -> c.seq);
+
+        // Lower score first, later in the document first among equal scores
+        static final Comparator<Candidate> WORST_FIRST = Comparator
+            .<Candidate>comparingDouble(c -> c.score)
+            .thenComparing(DOCUMENT_ORDER.reversed());
+
+        final Fact fact;
+        final double score;
+        final int seq;
+
+        Candidate(Fact fact, Double score, int seq) {
+            this.fact = fact;
+            this.score = score != null ? score : 0;
+            this.seq = seq;
+        }
+    }
+
+    // ==================== Helper Methods ====================
+
+    private boolean extractionDone() {
+        return pendingChunks.isEmpty() && inFlight.get(Stage.FACTS) == 0;
+    }
+
+    private boolean scoringDone() {
+        return extractionDone() && awaitingScore.isEmpty() && inFlight.get(Stage.SCORING) == 0;
+    }
+
+    private boolean hasSlot(Stage stage) {
+        return inFlight.get(stage) < engine.getConcurrency(stage);
+    }
+
+    private int totalInFlight() {
+        int total = 0;
+        for (int count : inFlight.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    private void started(Stage stage, Future<?> future) {
+        futures.add(future);
+        inFlight.put(stage, inFlight.get(stage) + 1);
+    }
+
+    private void finished(Stage stage) {
+        inFlight.put(stage, inFlight.get(stage) - 1);
+    }
+
+    private static List<Fact> take(List<Fact> queue, int max) {
+        List<Fact> head = queue.subList(0, Math.min(max, queue.size()));
+        List<Fact> batch = new ArrayList<>(head);
+        head.clear();
+        return batch;
+    }
+}
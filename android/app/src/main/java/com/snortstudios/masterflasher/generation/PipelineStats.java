@@ -0,0 +1,66 @@
+package com.snortstudios.masterflasher.generation;
+
+/**
+ * Snapshot of a streaming pipeline run.
+ *
+ * Queued counts are work waiting for a stage slot: chunks not yet sent for extraction,
+ * facts not yet in a scoring batch, passing facts not yet in a card batch.
+ * In-flight counts are requests currently running in each stage.
+ */
+public class PipelineStats {
+
+    public final int chunksTotal;
+    public final int chunksDone;
+    public final int factsExtracted;
+    // Extracted facts dropped as near-duplicates, and their estimated tokens
+    public final int factsDuplicate;
+    public final int tokensSaved;
+    public final int factsScored;
+    public final int factsPassed;
+    public final int cardsStored;
+
+    public final int factsQueued;
+    public final int scoringQueued;
+    public final int cardsQueued;
+
+    public final int factsInFlight;
+    public final int scoringInFlight;
+    public final int cardsInFlight;
+
+    public final long elapsedMs;
+    // -1 until the first card batch has been stored
+    public final long timeToFirstCardMs;
+
+    PipelineStats(int chunksTotal, int chunksDone, int factsExtracted, int factsDuplicate, int tokensSaved,
+                  int factsScored, int factsPassed, int cardsStored, int factsQueued, int scoringQueued, int cardsQueued,
+                  int factsInFlight, int scoringInFlight, int cardsInFlight,
+                  long elapsedMs, long timeToFirstCardMs) {
+        this.chunksTotal = chunksTotal;
+        this.chunksDone = chunksDone;
+        this.factsExtracted = factsExtracted;
+        this.factsDuplicate = factsDuplicate;
+        this.tokensSaved = tokensSaved;
+        this.factsScored = factsScored;
+        this.factsPassed = factsPassed;
+        this.cardsStored = cardsStored;
+        this.factsQueued = factsQueued;
+        this.scoringQueued = scoringQueued;
+        this.cardsQueued = cardsQueued;
+        this.factsInFlight = factsInFlight;
+        this.scoringInFlight = scoringInFlight;
+        this.cardsInFlight = cardsInFlight;
+        this.elapsedMs = elapsedMs;
+        this.timeToFirstCardMs = timeToFirstCardMs;
+    }
+
+    /**
+     * One-line progress summary for logs and the notification
+     */
+    public String describe() {
+        return "Chunks " + chunksDone + "/" + chunksTotal
+            + ", " + factsExtracted + " facts"
+            + (factsDuplicate > 0 ? " (" + factsDuplicate + " duplicates)" : "")
+            + ", " + factsPassed + " selected"
+            + ", " + cardsStored + " cards";
+    }
+}
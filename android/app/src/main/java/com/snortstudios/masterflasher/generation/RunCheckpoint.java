@@ -0,0 +1,220 @@
+package com.snortstudios.masterflasher.generation;
+
+import android.util.Log;
+
+import com.snortstudios.masterflasher.db.GenerationRun;
+import com.snortstudios.masterflasher.db.InboxDao;
+import com.snortstudios.masterflasher.db.InboxEvents;
+import com.snortstudios.masterflasher.db.RunChunk;
+import com.snortstudios.masterflasher.db.RunFact;
+import com.snortstudios.masterflasher.gemini.Fact;
+import com.snortstudios.masterflasher.util.Hashes;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Persists the progress of a pipeline run so an interrupted run resumes where it stopped.
+ *
+ * Every unit of finished work is written as it completes: a chunk together with its
+ * facts, a scoring batch's scores, a card batch together with the facts it covered.
+ * A run that is killed, cancelled or fails keeps these rows (see GenerationRun for the
+ * states); the next run of the entry with the same inputs skips the finished chunks and
+ * re-queues facts that were not scored or not yet turned into cards.
+ *
+ * Used from PipelineRun's coordinating thread only.
+ */
+class RunCheckpoint {
+
+    private static final String TAG = "GenerationPipeline";
+
+    private final InboxDao dao;
+    private final GenerationRun run;
+    private final boolean resumed;
+    private final Set<Integer> doneChunks = new HashSet<>();
+    // Stored facts by id, in arrival order
+    private final Map<String, RunFact> facts = new LinkedHashMap<>();
+    private int nextSeq;
+
+    private RunCheckpoint(InboxDao dao, GenerationRun run, boolean resumed) {
+        this.dao = dao;
+        this.run = run;
+        this.resumed = resumed;
+    }
+
+    /**
+     * Resume the entry's checkpoint if it was made from the same inputs, otherwise start
+     * a fresh one (dropping the old checkpoint and its cards)
+     */
+    static RunCheckpoint open(InboxDao dao, String entryId, String inputHash, int chunkCount) {
+        GenerationRun existing = dao.getRun(entryId);
+        if (existing != null && inputHash.equals(existing.inputHash) && existing.chunkCount == chunkCount) {
+            RunCheckpoint checkpoint = new RunCheckpoint(dao, existing, true);
+            for (RunChunk chunk : dao.getRunChunks(entryId)) {
+                checkpoint.doneChunks.add(chunk.chunkIndex);
+            }
+            for (RunFact fact : dao.getRunFacts(entryId)) {
+                checkpoint.facts.put(fact.factId, fact);
+                checkpoint.nextSeq = Math.max(checkpoint.nextSeq, fact.seq + 1);
+            }
+            Log.d(TAG, "Resuming " + existing.state + " run of " + entryId + ": " + checkpoint.doneChunks.size()
+                + "/" + chunkCount + " chunks, " + checkpoint.facts.size() + " facts stored");
+            existing.state = GenerationRun.STATE_RUNNING;
+            existing.error = null;
+            existing.updatedAt = System.currentTimeMillis();
+            dao.updateRun(existing);
+            return checkpoint;
+        }
+
+        GenerationRun run = GenerationRun.create(entryId, inputHash, chunkCount);
+        dao.startRun(run);
+        InboxEvents.publishCardsChanged(entryId);
+        return new RunCheckpoint(dao, run, false);
+    }
+
+    /**
+     * Checkpoint key: SHA-256 of the chunks (ChunkSpool.digest()) and the stage instructions,
+     * so the same key means the same chunks.
+     */
+    static String inputHash(String chunksDigest, PipelinePrompts prompts) {
+        return Hashes.sha256Hex(prompts.factExtraction, prompts.factScoring, prompts.cardCreation, chunksDigest);
+    }
+
+    boolean isResumed() {
+        return resumed;
+    }
+
+    boolean isChunkDone(int chunkIndex) {
+        return doneChunks.contains(chunkIndex);
+    }
+
+    int getDoneChunkCount() {
+        return doneChunks.size();
+    }
+
+    GenerationRun getRun() {
+        return run;
+    }
+
+    /**
+     * Stored facts in arrival order
+     */
+    Collection<RunFact> getFacts() {
+        return facts.values();
+    }
+
+    // ==================== Progress ====================
+
+    /**
+     * Store a completed chunk
+     *
+     * @param added Facts of the chunk that were kept
+     * @param replaced Earlier facts that a more detailed duplicate from this chunk replaced
+     */
+    void chunkDone(int chunkIndex, int factCount, List<Fact> added, List<Fact> replaced,
+                   int factsExtracted, int factsDuplicate, int tokensSaved) {
+        List<RunFact> rows = new ArrayList<>(added.size());
+        for (Fact fact : added) {
+            RunFact row = RunFact.create(run.entryId, fact.id, nextSeq++, fact.chunkIndex, fact.text);
+            rows.add(row);
+        }
+        List<String> removedIds = new ArrayList<>(replaced.size());
+        for (Fact fact : replaced) {
+            removedIds.add(fact.id);
+        }
+
+        run.factsExtracted = factsExtracted;
+        run.factsDuplicate = factsDuplicate;
+        run.tokensSaved = tokensSaved;
+        run.updatedAt = System.currentTimeMillis();
+        dao.saveRunChunk(run, RunChunk.create(run.entryId, chunkIndex, factCount), rows, removedIds);
+
+        doneChunks.add(chunkIndex);
+        for (String id : removedIds) {
+            facts.remove(id);
+        }
+        for (RunFact row : rows) {
+            facts.put(row.factId, row);
+        }
+    }
+
+    /**
+     * Store the scores of a scoring batch
+     *
+     * @param totals Score per fact id, facts without a score are missing
+     * @param passedIds Facts of the batch above the score threshold, which compete for selection
+     */
+    void scored(List<Fact> batch, Map<String, Double> totals, Set<String> passedIds) {
+        List<RunFact> rows = new ArrayList<>(batch.size());
+        for (Fact fact : batch) {
+            RunFact row = facts.get(fact.id);
+            if (row != null) {
+                row.scored = true;
+                row.score = totals.get(fact.id);
+                row.passed = passedIds.contains(fact.id);
+                rows.add(row);
+            }
+        }
+        if (!rows.isEmpty()) {
+            dao.updateRunFacts(rows);
+        }
+    }
+
+    /**
+     * Store that a fact was selected outside of scoring (the single-fact rule)
+     */
+    void passed(Fact fact) {
+        RunFact row = facts.get(fact.id);
+        if (row != null) {
+            row.passed = true;
+            List<RunFact> rows = new ArrayList<>(1);
+            rows.add(row);
+            dao.updateRunFacts(rows);
+        }
+    }
+
+    /**
+     * Rows to store with a card batch, marked as covered by it
+     */
+    List<RunFact> carded(List<Fact> batch, int batchIndex) {
+        List<RunFact> rows = new ArrayList<>(batch.size());
+        for (Fact fact : batch) {
+            RunFact row = facts.get(fact.id);
+            if (row != null) {
+                row.cardBatch = batchIndex;
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    // ==================== Completion ====================
+
+    /**
+     * Lock the entry and drop the checkpoint
+     */
+    void complete() {
+        dao.completeRun(run.entryId);
+        InboxEvents.publishEntryUpdated(run.entryId);
+    }
+
+    /**
+     * Keep the checkpoint for the next run, recording why this one stopped
+     */
+    void stop(String state, String error) {
+        run.state = state;
+        run.error = error;
+        run.updatedAt = System.currentTimeMillis();
+        try {
+            dao.updateRun(run);
+        } catch (RuntimeException e) {
+            // The entry may have been deleted, which is why the run stopped
+            Log.w(TAG, "Could not store run state for " + run.entryId, e);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.snortstudios.masterflasher.media;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.core.content.FileProvider;
+
+import com.snortstudios.masterflasher.util.Hashes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+/**
+ * Source images of OCR entries and their cards.
+ *
+ * Camera crops arrive as full-resolution JPEGs of several MB. store() scales them down
+ * to MAX_EDGE_PX, re-encodes them as WebP with the highest quality that fits MAX_BYTES,
+ * and keeps them under files/images named by the SHA-256 of the encoded bytes. That name
+ * is the reference entries and cards hold, so an image is stored once and AnkiMedia adds
+ * it to AnkiDroid once. Images no row refers to any more are removed by deleteUnreferenced().
+ *
+ * Encoding runs on a small background pool, never on the UI or plugin thread.
+ */
+public final class SourceImages {
+
+    private static final String TAG = "SourceImages";
+
+    static final String IMAGE_DIR = "images";
+    static final String EXTENSION = ".webp";
+
+    static final int MAX_EDGE_PX = 1600;
+    static final int MAX_BYTES = 200 * 1024;
+    static final int MAX_QUALITY = 80;
+    static final int MIN_QUALITY = 40;
+    static final int QUALITY_STEP = 10;
+
+    // store() hands out a name before the entry or card referring to it is saved
+    static final long SWEEP_GRACE_MS = 10 * 60 * 1000;
+
+    private static final Pattern NAME_PATTERN = Pattern.compile("[0-9a-f]{64}\\.webp");
+
+    private static final ExecutorService pool = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "SourceImages");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    /**
+     * Receives the outcome of store(); called on a pool thread
+     */
+    public interface Callback {
+        void onStored(String name);
+
+        void onError(Exception e);
+    }
+
+    private SourceImages() {
+    }
+
+    /**
+     * Re-encode an image file in the background and store it under its content hash
+     */
+    public static void store(Context context, File source, Callback callback) {
+        File imageDir = new File(context.getFilesDir(), IMAGE_DIR);
+        pool.execute(() -> {
+            String name;
+            try {
+                name = encodeAndStore(source, imageDir);
+            } catch (Exception e) {
+                Log.w(TAG, "Could not store " + source, e);
+                callback.onError(e);
+                return;
+            }
+            callback.onStored(name);
+        });
+    }
+
+    /**
+     * Stored file of a reference, null when the reference is not a valid image name
+     */
+    public static File file(Context context, String name) {
+        if (!isValidName(name)) {
+            return null;
+        }
+        return new File(new File(context.getFilesDir(), IMAGE_DIR), name);
+    }
+
+    /**
+     * Directory holding the stored images
+     */
+    public static File dir(Context context) {
+        return new File(context.getFilesDir(), IMAGE_DIR);
+    }
+
+    /**
+     * Delete stored images whose names are not in referenced (the sourceImage values still
+     * in the database). Images stored or reused within SWEEP_GRACE_MS are kept, since their
+     * reference may not be saved yet.
+     *
+     * @return Number of images deleted
+     */
+    public static int deleteUnreferenced(File imageDir, Collection<String> referenced, long now) {
+        File[] files = imageDir.listFiles();
+        if (files == null) {
+            return 0;
+        }
+        Set<String> keep = new HashSet<>(referenced);
+        int deleted = 0;
+        for (File file : files) {
+            String name = file.getName();
+            if (!isValidName(name) || keep.contains(name) || now - file.lastModified() < SWEEP_GRACE_MS) {
+                continue;
+            }
+            if (file.delete()) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * content:// URI of a stored image, for handing it to another app
+     */
+    public static Uri contentUri(Context context, File file) {
+        return FileProvider.getUriForFile(context, context.getPackageName() + ".fileprovider", file);
+    }
+
+    /**
+     * Whether a reference is a content hash name as written by store(), and so safe to
+     * resolve inside the images directory
+     */
+    public static boolean isValidName(String name) {
+        return name != null && NAME_PATTERN.matcher(name).matches();
+    }
+
+    // ==================== Encoding ====================
+
+    private static String encodeAndStore(File source, File imageDir) throws IOException {
+        long startNanos = System.nanoTime();
+        byte[] webp = encode(source);
+        String name = nameFor(webp);
+
+        File target = new File(imageDir, name);
+        if (!target.isFile()) {
+            if (!imageDir.isDirectory() && !imageDir.mkdirs()) {
+                throw new IOException("Could not create " + imageDir);
+            }
+            // Through a temporary file so a crash never leaves a truncated image under a valid name
+            File partial = new File(imageDir, name + ".part");
+            try (OutputStream out = new FileOutputStream(partial)) {
+                out.write(webp);
+            }
+            if (!partial.renameTo(target)) {
+                partial.delete();
+                throw new IOException("Could not write " + target);
+            }
+        } else {
+            // Referenced again: restart the grace period of deleteUnreferenced()
+            target.setLastModified(System.currentTimeMillis());
+        }
+        Log.i(TAG, "Stored " + source.length() + " bytes as " + webp.length + " bytes WebP in "
+            + (System.nanoTime() - startNanos) / 1_000_000 + " ms");
+        return name;
+    }
+
+    /**
+     * Decode at most twice the target size, scale to MAX_EDGE_PX and compress with
+     * decreasing quality until the result fits MAX_BYTES
+     */
+    private static byte[] encode(File source) throws IOException {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(source.getAbsolutePath(), bounds);
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            throw new IOException("Not an image: " + source);
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize(bounds.outWidth, bounds.outHeight, MAX_EDGE_PX);
+        Bitmap decoded = BitmapFactory.decodeFile(source.getAbsolutePath(), options);
+        if (decoded == null) {
+            throw new IOException("Could not decode " + source);
+        }
+
+        Bitmap bitmap = decoded;
+        int longEdge = Math.max(decoded.getWidth(), decoded.getHeight());
+        if (longEdge > MAX_EDGE_PX) {
+            float scale = (float) MAX_EDGE_PX / longEdge;
+            bitmap = Bitmap.createScaledBitmap(decoded,
+                Math.max(1, Math.round(decoded.getWidth() * scale)),
+                Math.max(1, Math.round(decoded.getHeight() * scale)), true);
+            decoded.recycle();
+        }
+
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(MAX_BYTES);
+            for (int quality = MAX_QUALITY; ; quality -= QUALITY_STEP) {
+                out.reset();
+                bitmap.compress(webpFormat(), quality, out);
+                if (out.size() <= MAX_BYTES || quality - QUALITY_STEP < MIN_QUALITY) {
+                    return out.toByteArray();
+                }
+            }
+        } finally {
+            bitmap.recycle();
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Bitmap.CompressFormat webpFormat() {
+        // WEBP is deprecated from API 30 in favour of the explicit WEBP_LOSSY
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+            ? Bitmap.CompressFormat.WEBP_LOSSY
+            : Bitmap.CompressFormat.WEBP;
+    }
+
+    /**
+     * Largest power of two that keeps the long edge at or above maxEdge, so the decoded
+     * bitmap is never more than twice the target size
+     */
+    static int sampleSize(int width, int height, int maxEdge) {
+        int longEdge = Math.max(width, height);
+        int sampleSize = 1;
+        while (longEdge / (sampleSize * 2) >= maxEdge) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * Content hash name of encoded image bytes
+     */
+    static String nameFor(byte[] webp) {
+        return Hashes.sha256Hex(webp) + EXTENSION;
+    }
+}
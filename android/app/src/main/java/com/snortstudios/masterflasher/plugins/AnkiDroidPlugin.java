@@ -10,13 +10,22 @@ import com.getcapacitor.PluginMethod;
 import com.getcapacitor.annotation.CapacitorPlugin;
 import com.getcapacitor.annotation.Permission;
 import com.getcapacitor.annotation.PermissionCallback;
+import android.util.SparseArray;
 import com.ichi2.anki.api.AddContentApi;
+import com.ichi2.anki.api.NoteInfo;
+import com.snortstudios.masterflasher.anki.AnkiMedia;
+import com.snortstudios.masterflasher.anki.AnkiNotes;
+import com.snortstudios.masterflasher.anki.AnkiOutbox;
+import com.snortstudios.masterflasher.db.AppDatabase;
+import com.snortstudios.masterflasher.db.DuplicateCardIndex;
+import com.snortstudios.masterflasher.db.GeneratedCard;
+import com.snortstudios.masterflasher.db.InboxDao;
+import com.snortstudios.masterflasher.diagnostics.Diagnostics;
 
-import java.util.Map;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import org.json.JSONException;
 
 @CapacitorPlugin(
     name = "AnkiDroid",
@@ -29,37 +38,82 @@ import org.json.JSONException;
 )
 public class AnkiDroidPlugin extends Plugin {
 
+    // Forwards outbox flush summaries to the web layer
+    private final AnkiOutbox.Listener outboxListener = summary -> {
+        List<String> addedCardIds = new ArrayList<>(summary.addedCardIds);
+        addedCardIds.addAll(summary.duplicateCardIds);
+        JSObject data = new JSObject();
+        data.put("added", summary.addedCardIds.size());
+        data.put("duplicates", summary.duplicateCardIds.size());
+        data.put("failed", summary.failed);
+        data.put("gaveUp", summary.gaveUpCardIds.size());
+        data.put("remaining", summary.remaining);
+        data.put("addedCardIds", new JSArray(addedCardIds));
+        data.put("gaveUpCardIds", new JSArray(summary.gaveUpCardIds));
+        if (summary.nextAttemptAt != null) {
+            data.put("nextAttemptAt", summary.nextAttemptAt);
+        }
+        if (summary.lastError != null) {
+            data.put("lastError", summary.lastError);
+        }
+        data.put("durationMs", summary.durationMs);
+        notifyListeners("outboxFlushed", data);
+    };
+
+    @Override
+    public void load() {
+        AnkiOutbox.addListener(outboxListener);
+        // Cards queued before the process died
+        if (getPermissionState("anki") == PermissionState.GRANTED) {
+            AnkiOutbox.requestFlush(getContext());
+        }
+    }
+
+    @Override
+    protected void handleOnDestroy() {
+        AnkiOutbox.removeListener(outboxListener);
+    }
+
     @PluginMethod
     public void isAvailable(PluginCall call) {
-        JSObject ret = new JSObject();
-        try {
-            AddContentApi api = new AddContentApi(getContext());
-            ret.put("value", true);
-        } catch (Exception e) {
-             ret.put("value", false);
+        try (Diagnostics.Scope scope = Diagnostics.enter("AnkiDroid.isAvailable")) {
+            JSObject ret = new JSObject();
+            try {
+                AddContentApi api = new AddContentApi(getContext());
+                ret.put("value", true);
+                AnkiOutbox.requestFlush(getContext());
+            } catch (Exception e) {
+                 ret.put("value", false);
+            }
+            call.resolve(ret);
         }
-        call.resolve(ret);
     }
 
     @PluginMethod
     public void hasPermission(PluginCall call) {
-        JSObject ret = new JSObject();
-        if (getPermissionState("anki") == PermissionState.GRANTED) {
-             ret.put("value", true);
-        } else {
-             ret.put("value", false);
+        try (Diagnostics.Scope scope = Diagnostics.enter("AnkiDroid.hasPermission")) {
+            JSObject ret = new JSObject();
+            if (getPermissionState("anki") == PermissionState.GRANTED) {
+                 ret.put("value", true);
+                 AnkiOutbox.requestFlush(getContext());
+            } else {
+                 ret.put("value", false);
+            }
+            call.resolve(ret);
         }
-        call.resolve(ret);
     }
 
     @PluginMethod
     public void requestPermission(PluginCall call) {
-        if (getPermissionState("anki") != PermissionState.GRANTED) {
-            requestPermissionForAlias("anki", call, "permissionCallback");
-        } else {
-            JSObject ret = new JSObject();
-            ret.put("value", true);
-            call.resolve(ret);
+        try (Diagnostics.Scope scope = Diagnostics.enter("AnkiDroid.requestPermission")) {
+            if (getPermissionState("anki") != PermissionState.GRANTED) {
+                requestPermissionForAlias("anki", call, "permissionCallback");
+            } else {
+                JSObject ret = new JSObject();
+                ret.put("value", true);
+                AnkiOutbox.requestFlush(getContext());
+                call.resolve(ret);
+            }
         }
     }
 
@@ -68,92 +122,211 @@ public class AnkiDroidPlugin extends Plugin {
         JSObject ret = new JSObject();
         if (getPermissionState("anki") == PermissionState.GRANTED) {
             ret.put("value", true);
+            AnkiOutbox.requestFlush(getContext());
         } else {
             ret.put("value", false);
         }
         call.resolve(ret);
     }
 
+    /**
+     * Add a basic note. A front that is already in AnkiDroid (see DuplicateCardIndex) is
+     * not added again unless allowDuplicate is set; the existing note is returned instead.
+     * Params: { deckName, modelKey?, front, back, tags?, allowDuplicate?, sourceImage? }
+     * Returns: { noteId?, duplicate }
+     */
     @PluginMethod
     public void addBasicCard(PluginCall call) {
-        String deckName = call.getString("deckName");
-        String modelName = call.getString("modelKey", "com.snortstudios.masterflasher.basic"); 
-        String front = call.getString("front");
-        String back = call.getString("back");
-        JSArray tagsArray = call.getArray("tags");
-        
-        if (deckName == null || front == null || back == null) {
-            call.reject("Missing required fields");
-            return;
+        try (Diagnostics.Scope scope = Diagnostics.enter("AnkiDroid.addBasicCard")) {
+            String deckName = call.getString("deckName");
+            String modelName = call.getString("modelKey", AnkiNotes.DEFAULT_MODEL_KEY);
+            String front = call.getString("front");
+            String back = call.getString("back");
+            JSArray tagsArray = call.getArray("tags");
+            boolean allowDuplicate = call.getBoolean("allowDuplicate", false);
+            String sourceImage = call.getString("sourceImage");
+            
+            if (deckName == null || front == null || back == null) {
+                call.reject("Missing required fields");
+                return;
+            }
+
+            DuplicateCardIndex duplicateIndex = getDuplicateIndex();
+            if (!allowDuplicate && duplicateIndex.contains(front)) {
+                JSObject ret = new JSObject();
+                Long existingNoteId = duplicateIndex.getNoteId(front);
+                if (existingNoteId != null) {
+                    ret.put("noteId", existingNoteId);
+                }
+                ret.put("duplicate", true);
+                call.resolve(ret);
+                return;
+            }
+
+            Set<String> tags = new HashSet<>();
+            if (tagsArray != null) {
+                for (int i = 0; i < tagsArray.length(); i++) {
+                    tags.add(tagsArray.optString(i));
+                }
+            }
+
+            try {
+                AddContentApi api = new AddContentApi(getContext());
+                
+                // 1. Get or Create Deck
+                Long deckId = AnkiNotes.getDeckId(api, deckName);
+                if (deckId == null) {
+                    call.reject("Could not create or find deck: " + deckName);
+                    return;
+                }
+
+                // 2. Get or Create Model
+                Long modelId = AnkiNotes.getModelId(api, modelName);
+                if (modelId == null) {
+                     call.reject("Could not create or find model: " + modelName);
+                     return;
+                }
+
+                // 3. Add Note, with the source image on the back
+                String backField = AnkiMedia.backWithImage(getContext(), api,
+                    AppDatabase.getInstance(getContext()).inboxDao(), back, sourceImage);
+                Long noteId = api.addNote(modelId, deckId, new String[]{front, backField}, tags);
+                
+                if (noteId != null) {
+                    duplicateIndex.add(front, noteId);
+                    JSObject ret = new JSObject();
+                    ret.put("noteId", noteId);
+                    ret.put("duplicate", false);
+                    call.resolve(ret);
+                } else {
+                    call.reject("Failed to add note (null ID returned)");
+                }
+                
+            } catch (Exception e) {
+                e.printStackTrace();
+                call.reject("Anki Error: " + e.getMessage());
+            }
         }
+    }
+
+    /**
+     * Look up the fronts of all cards not yet added in AnkiDroid with one batched query,
+     * and record the ones that already exist as notes of the model in the duplicate index.
+     * Params: { modelKey? }
+     * Returns: { checked, found }
+     */
+    @PluginMethod
+    public void seedDuplicateIndex(PluginCall call) {
+        try (Diagnostics.Scope scope = Diagnostics.enter("AnkiDroid.seedDuplicateIndex")) {
+            String modelName = call.getString("modelKey", AnkiNotes.DEFAULT_MODEL_KEY);
 
-        Set<String> tags = new HashSet<>();
-        if (tagsArray != null) {
             try {
-                List<Object> list = tagsArray.toList();
-                for (Object o : list) {
-                    tags.add(o.toString());
+                AddContentApi api = new AddContentApi(getContext());
+                Long modelId = AnkiNotes.findModelId(api, modelName);
+
+                DuplicateCardIndex duplicateIndex = getDuplicateIndex();
+                List<String> fronts = new ArrayList<>();
+                if (modelId != null) {
+                    for (GeneratedCard card : AppDatabase.getInstance(getContext()).inboxDao().getUnexportedCards()) {
+                        if (card.front != null && !duplicateIndex.contains(card.front)) {
+                            fronts.add(card.front);
+                        }
+                    }
+                }
+
+                List<String> foundFronts = new ArrayList<>();
+                List<Long> foundNoteIds = new ArrayList<>();
+                if (!fronts.isEmpty()) {
+                    SparseArray<List<NoteInfo>> duplicates = api.findDuplicateNotes(modelId, fronts);
+                    for (int i = 0; duplicates != null && i < duplicates.size(); i++) {
+                        List<NoteInfo> notes = duplicates.valueAt(i);
+                        if (notes != null && !notes.isEmpty()) {
+                            foundFronts.add(fronts.get(duplicates.keyAt(i)));
+                            foundNoteIds.add(notes.get(0).getId());
+                        }
+                    }
+                    duplicateIndex.addAll(foundFronts, foundNoteIds);
                 }
-            } catch (JSONException e) {
-                // Ignore bad tags
+
+                JSObject ret = new JSObject();
+                ret.put("checked", fronts.size());
+                ret.put("found", foundFronts.size());
+                call.resolve(ret);
+            } catch (Exception e) {
+                call.reject("Failed to seed duplicate index: " + e.getMessage(), e);
             }
         }
+    }
 
-        try {
-            AddContentApi api = new AddContentApi(getContext());
-            
-            // 1. Get or Create Deck
-            Long deckId = getDeckId(api, deckName);
-            if (deckId == null) {
-                call.reject("Could not create or find deck: " + deckName);
+    /**
+     * Queue cards for export. They are added in batches as soon as AnkiDroid is available
+     * and the permission granted, and retried with backoff when that fails (see AnkiOutbox).
+     * Params: { cardIds: string[], deckName?, modelKey? }
+     * Returns: { queued } - cards already added are not queued
+     */
+    @PluginMethod
+    public void enqueueCards(PluginCall call) {
+        try (Diagnostics.Scope scope = Diagnostics.enter("AnkiDroid.enqueueCards")) {
+            JSArray cardIdsArray = call.getArray("cardIds");
+            String deckName = call.getString("deckName", "MasterFlasher");
+            String modelName = call.getString("modelKey", AnkiNotes.DEFAULT_MODEL_KEY);
+
+            if (cardIdsArray == null) {
+                call.reject("Missing required parameter: cardIds");
                 return;
             }
 
-            // 2. Get or Create Model
-            Long modelId = getModelId(api, modelName); 
-            if (modelId == null) {
-                 call.reject("Could not create or find model: " + modelName);
-                 return;
-            }
+            try {
+                List<String> cardIds = new ArrayList<>(cardIdsArray.length());
+                for (int i = 0; i < cardIdsArray.length(); i++) {
+                    cardIds.add(cardIdsArray.getString(i));
+                }
+                List<String> queued = AnkiOutbox.enqueue(getContext(), cardIds, deckName, modelName);
 
-            // 3. Add Note
-            Long noteId = api.addNote(modelId, deckId, new String[]{front, back}, tags);
-            
-            if (noteId != null) {
                 JSObject ret = new JSObject();
-                ret.put("noteId", noteId);
+                ret.put("queued", queued.size());
                 call.resolve(ret);
-            } else {
-                call.reject("Failed to add note (null ID returned)");
+            } catch (Exception e) {
+                call.reject("Failed to queue cards: " + e.getMessage(), e);
             }
-            
-        } catch (Exception e) {
-            e.printStackTrace();
-            call.reject("Anki Error: " + e.getMessage());
         }
     }
 
-    private Long getDeckId(AddContentApi api, String name) {
-        Map<Long, String> deckList = api.getDeckList();
-        if (deckList != null) {
-            for (Map.Entry<Long, String> entry : deckList.entrySet()) {
-                if (name.equals(entry.getValue())) {
-                    return entry.getKey();
-                }
-            }
+    /**
+     * Export the due queued cards now, if AnkiDroid is ready; the outcome arrives as an
+     * outboxFlushed event
+     */
+    @PluginMethod
+    public void flushOutbox(PluginCall call) {
+        try (Diagnostics.Scope scope = Diagnostics.enter("AnkiDroid.flushOutbox")) {
+            AnkiOutbox.requestFlush(getContext());
+            call.resolve();
         }
-        return api.addNewDeck(name);
     }
 
-    private Long getModelId(AddContentApi api, String name) {
-        Map<Long, String> modelList = api.getModelList();
-        if (modelList != null) {
-            for (Map.Entry<Long, String> entry : modelList.entrySet()) {
-                if (name.equals(entry.getValue())) {
-                    return entry.getKey();
+    /**
+     * Returns: { pending, nextAttemptAt? }
+     */
+    @PluginMethod
+    public void getOutboxStatus(PluginCall call) {
+        try (Diagnostics.Scope scope = Diagnostics.enter("AnkiDroid.getOutboxStatus")) {
+            try {
+                InboxDao dao = AppDatabase.getInstance(getContext()).inboxDao();
+                JSObject ret = new JSObject();
+                int pending = dao.getOutboxCount();
+                ret.put("pending", pending);
+                Long nextAttemptAt = pending > 0 ? dao.getNextOutboxAttemptAt() : null;
+                if (nextAttemptAt != null) {
+                    ret.put("nextAttemptAt", nextAttemptAt);
                 }
+                call.resolve(ret);
+            } catch (Exception e) {
+                call.reject("Failed to get outbox status: " + e.getMessage(), e);
             }
         }
-        return api.addNewBasicModel(name);
+    }
+
+    private DuplicateCardIndex getDuplicateIndex() {
+        return DuplicateCardIndex.getInstance(AppDatabase.getInstance(getContext()).inboxDao());
     }
 }
@@ -0,0 +1,164 @@
+package com.snortstudios.masterflasher.plugins;
+
+import android.net.Uri;
+import android.util.Log;
+
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+import com.snortstudios.masterflasher.backup.InboxArchive;
+import com.snortstudios.masterflasher.backup.InboxExporter;
+import com.snortstudios.masterflasher.backup.InboxImporter;
+import com.snortstudios.masterflasher.db.AppDatabase;
+import com.snortstudios.masterflasher.diagnostics.Diagnostics;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Capacitor plugin exporting the whole inbox into one archive and importing it back
+ * (see InboxArchive for the layout).
+ *
+ * Exposed methods:
+ * - exportInbox({ path? }) -> { path, uri, ...stats }
+ * - importInbox({ path, onConflict?: 'skip' | 'replace' }) -> { ...stats }
+ *
+ * stats: { entries, cards, pdfPages, settings, files, skippedEntries, bytes, durationMs, megabytesPerSecond }
+ *
+ * Imports announce the entries they wrote with one entriesAdded event (see InboxPlugin).
+ */
+@CapacitorPlugin(name = "Backup")
+public class BackupPlugin extends Plugin {
+
+    private static final String TAG = "BackupPlugin";
+    private static final String BACKUP_DIR = "backups";
+
+    // Archives take seconds to minutes, one at a time and off the Capacitor plugin thread
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    /**
+     * Write all entries, cards, PDF pages, settings and PDF files into a zip archive
+     * Params: { path?: string } - defaults to backups/masterflasher-<timestamp>.zip in app storage
+     * Returns: { path, uri, entries, cards, pdfPages, settings, files, bytes, durationMs, megabytesPerSecond }
+     */
+    @PluginMethod
+    public void exportInbox(PluginCall call) {
+        String path = call.getString("path");
+        File target;
+        if (path != null) {
+            target = new File(path);
+        } else {
+            String timestamp = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date());
+            target = new File(new File(getContext().getFilesDir(), BACKUP_DIR), "masterflasher-" + timestamp + ".zip");
+        }
+
+        executor.execute(() -> {
+            try (Diagnostics.Scope scope = Diagnostics.enter("Backup.exportInbox")) {
+                File parent = target.getParentFile();
+                if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+                    throw new IOException("Could not create " + parent);
+                }
+                InboxExporter exporter = new InboxExporter(getDatabase(), getContext().getFilesDir());
+                InboxArchive.Stats stats;
+                try (OutputStream out = new FileOutputStream(target)) {
+                    stats = exporter.export(out);
+                } catch (IOException | RuntimeException e) {
+                    target.delete();
+                    throw e;
+                }
+                Log.i(TAG, "Exported " + stats);
+
+                JSObject result = statsToJson(stats);
+                result.put("path", target.getAbsolutePath());
+                result.put("uri", Uri.fromFile(target).toString());
+                call.resolve(result);
+            } catch (Exception e) {
+                call.reject("Failed to export inbox: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Read an archive written by exportInbox into the database
+     * Params: { path: string, onConflict?: 'skip' | 'replace' } - path may be a file path or a file:// or content:// URI
+     * Returns: { entries, cards, pdfPages, settings, files, skippedEntries, bytes, durationMs, megabytesPerSecond }
+     */
+    @PluginMethod
+    public void importInbox(PluginCall call) {
+        String path = call.getString("path");
+        String onConflictName = call.getString("onConflict", "skip");
+
+        if (path == null) {
+            call.reject("Missing required parameter: path");
+            return;
+        }
+
+        InboxImporter.OnConflict onConflict;
+        if ("skip".equals(onConflictName)) {
+            onConflict = InboxImporter.OnConflict.SKIP;
+        } else if ("replace".equals(onConflictName)) {
+            onConflict = InboxImporter.OnConflict.REPLACE;
+        } else {
+            call.reject("Invalid onConflict: " + onConflictName);
+            return;
+        }
+
+        executor.execute(() -> {
+            try (Diagnostics.Scope scope = Diagnostics.enter("Backup.importInbox");
+                 InputStream in = openInput(path)) {
+                InboxImporter importer = new InboxImporter(getDatabase(), getContext().getFilesDir());
+                InboxArchive.Stats stats = importer.importFrom(in, onConflict);
+                Log.i(TAG, "Imported " + stats);
+                call.resolve(statsToJson(stats));
+            } catch (Exception e) {
+                call.reject("Failed to import inbox: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    // ==================== Helper Methods ====================
+
+    private AppDatabase getDatabase() {
+        return AppDatabase.getInstance(getContext());
+    }
+
+    private InputStream openInput(String path) throws FileNotFoundException {
+        if (path.startsWith("content://")) {
+            InputStream in = getContext().getContentResolver().openInputStream(Uri.parse(path));
+            if (in == null) {
+                throw new FileNotFoundException(path);
+            }
+            return in;
+        }
+        if (path.startsWith("file://")) {
+            path = Uri.parse(path).getPath();
+        }
+        return new FileInputStream(path);
+    }
+
+    private static JSObject statsToJson(InboxArchive.Stats stats) {
+        JSObject obj = new JSObject();
+        obj.put("entries", stats.entries);
+        obj.put("cards", stats.cards);
+        obj.put("pdfPages", stats.pdfPages);
+        obj.put("settings", stats.settings);
+        obj.put("files", stats.files);
+        obj.put("skippedEntries", stats.skippedEntries);
+        obj.put("bytes", stats.bytes);
+        obj.put("durationMs", stats.durationMs);
+        obj.put("megabytesPerSecond", stats.megabytesPerSecond());
+        return obj;
+    }
+}
@@ -252,6 +252,8 @@ public class CameraOCRActivity extends AppCompatActivity {
 						String text = visionText.getText();
 						Intent resultIntent = new Intent();
 						resultIntent.putExtra("text", text);
+						// The crop stays in the cache dir, CameraOCRPlugin keeps a compact copy
+						resultIntent.putExtra("imagePath", imageUri.getPath());
 						setResult(RESULT_OK, resultIntent);
 						finish();
 					})
@@ -16,6 +16,10 @@ import com.getcapacitor.annotation.CapacitorPlugin;
 import com.getcapacitor.annotation.Permission;
 import com.getcapacitor.annotation.PermissionCallback;
 import com.getcapacitor.PermissionState;
+import com.snortstudios.masterflasher.diagnostics.Diagnostics;
+import com.snortstudios.masterflasher.media.SourceImages;
+
+import java.io.File;
 
 @CapacitorPlugin(name = "CameraOCR", permissions = {
 		@Permission(strings = { Manifest.permission.CAMERA }, alias = "camera"),
@@ -26,10 +30,12 @@ public class CameraOCRPlugin extends Plugin {
 
 	@PluginMethod
 	public void captureOCR(PluginCall call) {
-		if (getPermissionState("camera") != PermissionState.GRANTED) {
-			requestPermissionForAlias("camera", call, "cameraPermissionsCallback");
-		} else {
-			startCameraActivity(call);
+		try (Diagnostics.Scope scope = Diagnostics.enter("CameraOCR.captureOCR")) {
+			if (getPermissionState("camera") != PermissionState.GRANTED) {
+				requestPermissionForAlias("camera", call, "cameraPermissionsCallback");
+			} else {
+				startCameraActivity(call);
+			}
 		}
 	}
 
@@ -55,7 +61,11 @@ public class CameraOCRPlugin extends Plugin {
 
 		if (result.getResultCode() == Activity.RESULT_OK && result.getData() != null) {
 			String text = result.getData().getStringExtra("text");
-			if (text != null) {
+			String imagePath = result.getData().getStringExtra("imagePath");
+			if (text != null && imagePath != null) {
+				// Resolves from the SourceImages pool once the crop is re-encoded
+				storeSourceImage(call, text, new File(imagePath));
+			} else if (text != null) {
 				JSObject ret = new JSObject();
 				ret.put("text", text);
 				call.resolve(ret);
@@ -80,4 +90,29 @@ public class CameraOCRPlugin extends Plugin {
 			call.reject("OCR failed or cancelled");
 		}
 	}
+
+	/**
+	 * Keep a compact WebP copy of the crop and resolve { text, sourceImage? }. The text is
+	 * resolved without an image when encoding fails; the full-size crop is deleted either way.
+	 */
+	private void storeSourceImage(PluginCall call, String text, File crop) {
+		SourceImages.store(getContext(), crop, new SourceImages.Callback() {
+			@Override
+			public void onStored(String name) {
+				crop.delete();
+				JSObject ret = new JSObject();
+				ret.put("text", text);
+				ret.put("sourceImage", name);
+				call.resolve(ret);
+			}
+
+			@Override
+			public void onError(Exception e) {
+				crop.delete();
+				JSObject ret = new JSObject();
+				ret.put("text", text);
+				call.resolve(ret);
+			}
+		});
+	}
 }
@@ -0,0 +1,133 @@
+package com.snortstudios.masterflasher.plugins;
+
+import android.app.Activity;
+import android.os.Process;
+import android.os.SystemClock;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+import com.snortstudios.masterflasher.diagnostics.Diagnostics;
+import com.snortstudios.masterflasher.diagnostics.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Capacitor plugin exposing native latency counters (see Diagnostics), to profile
+ * plugin calls and SQL on real devices without a debugger.
+ *
+ * Exposed methods:
+ * - getStats({ queryLimit? }) -> {
+ *       methods: { name, count, meanMs, p50Ms, p95Ms, p99Ms, maxMs }[],
+ *       slowCalls: { method, durationMs, finishedAt, queryCount, queries }[],
+ *       queries: { sql, count }[],
+ *       slowCallThresholdMs,
+ *       firstRenderMs
+ *   }
+ * - reset() -> void
+ * - reportFirstRender() -> void
+ *
+ * Methods are sorted by p99, queries by count, both descending.
+ */
+@CapacitorPlugin(name = "Diagnostics")
+public class DiagnosticsPlugin extends Plugin {
+
+    private static final int DEFAULT_QUERY_LIMIT = 50;
+
+    /**
+     * Get latency percentiles per plugin method, the latest slow calls with their SQL,
+     * and the most frequent statements
+     * Params: { queryLimit?: number }
+     */
+    @PluginMethod
+    public void getStats(PluginCall call) {
+        int queryLimit = call.getInt("queryLimit", DEFAULT_QUERY_LIMIT);
+
+        try {
+            List<Map.Entry<String, LatencyHistogram.Snapshot>> methods =
+                new ArrayList<>(Diagnostics.getMethodStats().entrySet());
+            methods.sort((a, b) -> Long.compare(b.getValue().percentile(0.99), a.getValue().percentile(0.99)));
+            JSArray methodsArray = new JSArray();
+            for (Map.Entry<String, LatencyHistogram.Snapshot> entry : methods) {
+                LatencyHistogram.Snapshot stats = entry.getValue();
+                if (stats.count == 0) {
+                    continue;
+                }
+                JSObject obj = new JSObject();
+                obj.put("name", entry.getKey());
+                obj.put("count", stats.count);
+                obj.put("meanMs", toMillis(stats.meanMicros()));
+                obj.put("p50Ms", toMillis(stats.percentile(0.50)));
+                obj.put("p95Ms", toMillis(stats.percentile(0.95)));
+                obj.put("p99Ms", toMillis(stats.percentile(0.99)));
+                obj.put("maxMs", toMillis(stats.maxMicros));
+                methodsArray.put(obj);
+            }
+
+            JSArray slowCallsArray = new JSArray();
+            for (Diagnostics.SlowCall slowCall : Diagnostics.getSlowCalls()) {
+                JSObject obj = new JSObject();
+                obj.put("method", slowCall.method);
+                obj.put("durationMs", toMillis(slowCall.durationMicros));
+                obj.put("finishedAt", slowCall.finishedAt);
+                obj.put("queryCount", slowCall.queryCount);
+                obj.put("queries", new JSArray(slowCall.queries));
+                slowCallsArray.put(obj);
+            }
+
+            List<Map.Entry<String, Long>> queries = new ArrayList<>(Diagnostics.getQueryCounts().entrySet());
+            queries.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+            JSArray queriesArray = new JSArray();
+            for (Map.Entry<String, Long> entry : queries.subList(0, Math.min(queryLimit, queries.size()))) {
+                JSObject obj = new JSObject();
+                obj.put("sql", entry.getKey());
+                obj.put("count", entry.getValue());
+                queriesArray.put(obj);
+            }
+
+            JSObject result = new JSObject();
+            result.put("methods", methodsArray);
+            result.put("slowCalls", slowCallsArray);
+            result.put("queries", queriesArray);
+            result.put("slowCallThresholdMs", Diagnostics.SLOW_CALL_MS);
+            long firstRenderMs = Diagnostics.getFirstRenderMs();
+            result.put("firstRenderMs", firstRenderMs >= 0 ? firstRenderMs : null);
+            call.resolve(result);
+        } catch (Exception e) {
+            call.reject("Failed to get diagnostics: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Clear all counters, histograms and slow call samples
+     */
+    @PluginMethod
+    public void reset(PluginCall call) {
+        Diagnostics.reset();
+        call.resolve();
+    }
+
+    /**
+     * Called by the web layer once the inbox list has rendered. Records the time since
+     * process start and reports the activity fully drawn, which ends time to full display
+     * in startup traces (see the macrobenchmark module). Only the first call counts.
+     */
+    @PluginMethod
+    public void reportFirstRender(PluginCall call) {
+        long millisSinceStart = SystemClock.uptimeMillis() - Process.getStartUptimeMillis();
+        Activity activity = getActivity();
+        if (Diagnostics.markFirstRender(millisSinceStart) && activity != null) {
+            activity.runOnUiThread(activity::reportFullyDrawn);
+        }
+        call.resolve();
+    }
+
+    private static double toMillis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,841 @@
+package com.snortstudios.masterflasher.plugins;
+
+import android.Manifest;
+import android.os.Build;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.PermissionState;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+import com.getcapacitor.annotation.Permission;
+import com.getcapacitor.annotation.PermissionCallback;
+import com.snortstudios.masterflasher.db.AppDatabase;
+import com.snortstudios.masterflasher.db.CallMetricTotals;
+import com.snortstudios.masterflasher.db.GenerationDao;
+import com.snortstudios.masterflasher.db.GenerationRun;
+import com.snortstudios.masterflasher.db.InboxDao;
+import com.snortstudios.masterflasher.diagnostics.Diagnostics;
+import com.snortstudios.masterflasher.gemini.CallRecorder;
+import com.snortstudios.masterflasher.gemini.ChunkResult;
+import com.snortstudios.masterflasher.gemini.Fact;
+import com.snortstudios.masterflasher.gemini.FactScore;
+import com.snortstudios.masterflasher.gemini.Flashcard;
+import com.snortstudios.masterflasher.gemini.GenerationEngine;
+import com.snortstudios.masterflasher.gemini.PersistentCallRecorder;
+import com.snortstudios.masterflasher.gemini.PersistentResponseCache;
+import com.snortstudios.masterflasher.gemini.RateLimiter;
+import com.snortstudios.masterflasher.gemini.ResponseCache;
+import com.snortstudios.masterflasher.generation.FactDeduplicator;
+import com.snortstudios.masterflasher.generation.GenerationException;
+import com.snortstudios.masterflasher.generation.GenerationPipeline;
+import com.snortstudios.masterflasher.generation.GenerationService;
+import com.snortstudios.masterflasher.generation.PipelinePrompts;
+import com.snortstudios.masterflasher.generation.PipelineStats;
+import com.snortstudios.masterflasher.text.EntryTextStore;
+import com.snortstudios.masterflasher.text.TextChunker;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Capacitor plugin exposing the native Gemini generation engine.
+ *
+ * The web layer resolves prompts and hands whole texts or fact batches to this plugin;
+ * text is chunked natively by TextChunker. Requests run on native threads with one shared HTTP client
+ * and a bounded number of in-flight calls per stage, instead of from the WebView JS thread.
+ *
+ * Exposed methods:
+ * - configure({ apiKey, model, baseUrl?, concurrency?: { facts?, scoring?, cards? },
+ *               rateLimit?: { requestsPerMinute?, tokensPerMinute? }, maxAttempts? }) -> void
+ * - extractFacts({ chunks: string[] | text, title?, prompt, maxTokens?, overlapTokens? })
+ *     -> { results: { chunkIndex, facts, error? }[] }
+ * - dedupeFacts({ facts: { id, fact }[] }) -> { facts, removed, tokensSaved }
+ * - scoreFacts({ facts: { id, fact }[], prompt, batchSize? }) -> { scores: FactScore[] }
+ * - generateCards({ facts: { id, fact }[], prompt, batchSize? }) -> { cards: { front, back, tags }[] }
+ * - generateEntry({ entryId, prompts }) -> { cardCount, stats }
+ * - getQueueStatus() -> { queued, stages, models, limits }
+ * - getCacheStats() -> { hits, misses, hitRate, entries, sizeBytes, maxBytes }
+ * - clearCache() -> void
+ * - getUsageStats({ entryId?, since?, limit? })
+ *     -> { totals, byStage, byModel, byPrompt, byEntry, bySource } (see totalsToJson)
+ * - clearUsageStats() -> void
+ * - enqueueEntries({ entryIds: string[], prompts: { factExtraction, factScoring, cardCreation } }) -> { queued }
+ *     (asks for the notification permission on Android 13+ the first time)
+ * - cancelGeneration({ entryId }) -> { cancelled }
+ * - getRunnerStatus() -> { running: string | null, queued: string[], stats? }
+ * - getCheckpoint({ entryId }) -> { checkpoint: { state, chunkCount, chunksDone, facts, cardsStored, error?, updatedAt } | null }
+ *
+ * Pipeline events (background runner and generateEntry):
+ * - generationProgress: { entryId, stage, message }
+ * - generationStats: { entryId, ...PipelineStats } after every completed request
+ *
+ * Background runner events:
+ * - generationCompleted: { entryId, cardCount, stats }
+ * - generationFailed: { entryId, error }
+ * - generationQueueChanged: { running, queued }
+ */
+@CapacitorPlugin(
+    name = "Generation",
+    permissions = {
+        @Permission(
+            strings = { Manifest.permission.POST_NOTIFICATIONS },
+            alias = "notifications"
+        )
+    }
+)
+public class GenerationPlugin extends Plugin {
+
+    // Plugin calls block on network I/O, keep them off the Capacitor plugin thread
+    private static final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private PersistentResponseCache responseCache;
+
+    // Forwards background runner events to the web layer
+    private final GenerationService.Listener runnerListener = new GenerationService.Listener() {
+        @Override
+        public void onProgress(String entryId, String stage, String message) {
+            JSObject data = new JSObject();
+            data.put("entryId", entryId);
+            data.put("stage", stage);
+            data.put("message", message);
+            notifyListeners("generationProgress", data);
+        }
+
+        @Override
+        public void onStats(String entryId, PipelineStats stats) {
+            JSObject data = statsToJson(stats);
+            data.put("entryId", entryId);
+            notifyListeners("generationStats", data);
+        }
+
+        @Override
+        public void onCompleted(String entryId, PipelineStats stats) {
+            JSObject data = new JSObject();
+            data.put("entryId", entryId);
+            data.put("cardCount", stats.cardsStored);
+            data.put("stats", statsToJson(stats));
+            notifyListeners("generationCompleted", data);
+        }
+
+        @Override
+        public void onFailed(String entryId, String error) {
+            JSObject data = new JSObject();
+            data.put("entryId", entryId);
+            data.put("error", error);
+            notifyListeners("generationFailed", data);
+        }
+
+        @Override
+        public void onQueueChanged(String runningEntryId, List<String> queuedEntryIds) {
+            notifyListeners("generationQueueChanged", runnerStatusToJson(runningEntryId, queuedEntryIds));
+        }
+    };
+
+    @Override
+    public void load() {
+        GenerationService.addListener(runnerListener);
+
+        GenerationEngine engine = getEngine();
+        GenerationDao generationDao = AppDatabase.getInstance(getContext()).generationDao();
+        ResponseCache cache = engine.getResponseCache();
+        if (cache instanceof PersistentResponseCache) {
+            responseCache = (PersistentResponseCache) cache;
+        } else {
+            responseCache = new PersistentResponseCache(generationDao);
+            engine.setResponseCache(responseCache);
+        }
+        CallRecorder recorder = engine.getCallRecorder();
+        if (!(recorder instanceof PersistentCallRecorder)) {
+            engine.setCallRecorder(new PersistentCallRecorder(generationDao));
+        }
+    }
+
+    @Override
+    protected void handleOnDestroy() {
+        GenerationService.removeListener(runnerListener);
+    }
+
+    private GenerationEngine getEngine() {
+        return GenerationEngine.getInstance();
+    }
+
+    /**
+     * Configure API credentials, model, per-stage concurrency and rate limits
+     * Params: { apiKey: string, model: string, baseUrl?: string,
+     *           concurrency?: { facts?: number, scoring?: number, cards?: number },
+     *           rateLimit?: { requestsPerMinute?: number, tokensPerMinute?: number },
+     *           maxAttempts?: number }
+     */
+    @PluginMethod
+    public void configure(PluginCall call) {
+        try (Diagnostics.Scope scope = Diagnostics.enter("Generation.configure")) {
+            String apiKey = call.getString("apiKey");
+            String model = call.getString("model");
+
+            if (apiKey == null || apiKey.isEmpty() || model == null || model.isEmpty()) {
+                call.reject("Missing required parameters: apiKey and model");
+                return;
+            }
+
+            Map<GenerationEngine.Stage, Integer> limits = new EnumMap<>(GenerationEngine.Stage.class);
+            JSObject concurrency = call.getObject("concurrency");
+            if (concurrency != null) {
+                putLimit(limits, GenerationEngine.Stage.FACTS, concurrency, "facts");
+                putLimit(limits, GenerationEngine.Stage.SCORING, concurrency, "scoring");
+                putLimit(limits, GenerationEngine.Stage.CARDS, concurrency, "cards");
+            }
+
+            try {
+                GenerationEngine engine = getEngine();
+                engine.configure(apiKey, model, call.getString("baseUrl"), limits);
+
+                JSObject rateLimit = call.getObject("rateLimit");
+                if (rateLimit != null) {
+                    RateLimiter limiter = engine.getRateLimiter();
+                    engine.setRateLimits(
+                        rateLimit.optInt("requestsPerMinute", limiter.getRequestsPerMinute()),
+                        rateLimit.optInt("tokensPerMinute", limiter.getTokensPerMinute()));
+                }
+                Integer maxAttempts = call.getInt("maxAttempts");
+                if (maxAttempts != null) {
+                    engine.setMaxAttempts(maxAttempts);
+                }
+                call.resolve();
+            } catch (Exception e) {
+                call.reject("Failed to configure generation engine: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Extract facts from text chunks
+     * Params: { chunks: string[], title?: string, prompt: string }
+     * Returns: { results: { chunkIndex: number, facts: { id, fact }[], error?: string }[] }
+     */
+    @PluginMethod
+    public void extractFacts(PluginCall call) {
+        JSArray chunksArray = call.getArray("chunks");
+        String text = call.getString("text");
+        String prompt = call.getString("prompt");
+        String title = call.getString("title");
+
+        if ((chunksArray == null && text == null) || prompt == null) {
+            call.reject("Missing required parameters: chunks or text, and prompt");
+            return;
+        }
+
+        TextChunker chunker;
+        try {
+            chunker = new TextChunker(
+                call.getInt("maxTokens", TextChunker.DEFAULT_MAX_TOKENS),
+                call.getInt("overlapTokens", TextChunker.DEFAULT_OVERLAP_TOKENS));
+        } catch (IllegalArgumentException e) {
+            call.reject("Invalid chunking options: " + e.getMessage());
+            return;
+        }
+
+        executor.execute(() -> {
+            try (Diagnostics.Scope scope = Diagnostics.enter("Generation.extractFacts")) {
+                List<String> chunks;
+                if (text != null) {
+                    chunks = chunker.chunk(text);
+                } else {
+                    chunks = new ArrayList<>(chunksArray.length());
+                    for (int i = 0; i < chunksArray.length(); i++) {
+                        chunks.add(chunksArray.getString(i));
+                    }
+                }
+
+                List<ChunkResult> results = getEngine().extractFacts(chunks, title, prompt);
+
+                JSArray resultsArray = new JSArray();
+                for (ChunkResult chunkResult : results) {
+                    JSObject obj = new JSObject();
+                    obj.put("chunkIndex", chunkResult.chunkIndex);
+                    obj.put("facts", factsToJson(chunkResult.facts));
+                    if (chunkResult.isFailed()) {
+                        obj.put("error", chunkResult.error);
+                    }
+                    resultsArray.put(obj);
+                }
+
+                JSObject result = new JSObject();
+                result.put("results", resultsArray);
+                call.resolve(result);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                call.reject("Fact extraction interrupted");
+            } catch (Exception e) {
+                call.reject("Failed to extract facts: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Drop near-duplicate facts, keeping the most detailed fact of each cluster
+     * Params: { facts: { id: string, fact: string }[] }
+     * Returns: { facts: { id, fact }[], removed: number, tokensSaved: number }
+     */
+    @PluginMethod
+    public void dedupeFacts(PluginCall call) {
+        JSArray factsArray = call.getArray("facts");
+
+        if (factsArray == null) {
+            call.reject("Missing required parameter: facts");
+            return;
+        }
+
+        executor.execute(() -> {
+            try (Diagnostics.Scope scope = Diagnostics.enter("Generation.dedupeFacts")) {
+                FactDeduplicator deduplicator = new FactDeduplicator();
+                List<Fact> facts = deduplicator.dedupe(jsonToFacts(factsArray));
+
+                JSObject result = new JSObject();
+                result.put("facts", factsToJson(facts));
+                result.put("removed", deduplicator.getRemoved());
+                result.put("tokensSaved", deduplicator.getTokensSaved());
+                call.resolve(result);
+            } catch (Exception e) {
+                call.reject("Failed to dedupe facts: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Score facts for learning value
+     * Params: { facts: { id: string, fact: string }[], prompt: string, batchSize?: number }
+     * Returns: { scores: { id, scores, score_total }[] }
+     */
+    @PluginMethod
+    public void scoreFacts(PluginCall call) {
+        JSArray factsArray = call.getArray("facts");
+        String prompt = call.getString("prompt");
+        int batchSize = call.getInt("batchSize", GenerationEngine.DEFAULT_SCORING_BATCH_SIZE);
+
+        if (factsArray == null || prompt == null) {
+            call.reject("Missing required parameters: facts and prompt");
+            return;
+        }
+
+        executor.execute(() -> {
+            try (Diagnostics.Scope scope = Diagnostics.enter("Generation.scoreFacts")) {
+                List<FactScore> scores = getEngine().scoreFacts(jsonToFacts(factsArray), prompt, batchSize);
+
+                JSArray scoresArray = new JSArray();
+                for (FactScore score : scores) {
+                    JSObject obj = new JSObject();
+                    obj.put("id", score.factId);
+                    obj.put("scores", score.scores);
+                    obj.put("score_total", score.total);
+                    scoresArray.put(obj);
+                }
+
+                JSObject result = new JSObject();
+                result.put("scores", scoresArray);
+                call.resolve(result);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                call.reject("Fact scoring interrupted");
+            } catch (Exception e) {
+                call.reject("Failed to score facts: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Generate flashcards from facts
+     * Params: { facts: { id: string, fact: string }[], prompt: string, batchSize?: number }
+     * Returns: { cards: { front: string, back: string, tags: string[] }[] }
+     */
+    @PluginMethod
+    public void generateCards(PluginCall call) {
+        JSArray factsArray = call.getArray("facts");
+        String prompt = call.getString("prompt");
+        int batchSize = call.getInt("batchSize", GenerationEngine.DEFAULT_CARD_BATCH_SIZE);
+
+        if (factsArray == null || prompt == null) {
+            call.reject("Missing required parameters: facts and prompt");
+            return;
+        }
+
+        executor.execute(() -> {
+            try (Diagnostics.Scope scope = Diagnostics.enter("Generation.generateCards")) {
+                List<Flashcard> cards = getEngine().generateCards(jsonToFacts(factsArray), prompt, batchSize);
+
+                JSArray cardsArray = new JSArray();
+                for (Flashcard card : cards) {
+                    JSObject obj = new JSObject();
+                    obj.put("front", card.front);
+                    obj.put("back", card.back);
+                    obj.put("tags", new JSArray(card.tags));
+                    cardsArray.put(obj);
+                }
+
+                JSObject result = new JSObject();
+                result.put("cards", cardsArray);
+                call.resolve(result);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                call.reject("Card generation interrupted");
+            } catch (Exception e) {
+                call.reject("Failed to generate cards: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Run the whole overlapped pipeline for an entry while the caller waits, e.g. with the
+     * entry screen open. Emits generationProgress/generationStats like the background runner,
+     * and cardsAppended (Inbox) per stored batch. Locks the entry at the end.
+     * Params: { entryId: string, prompts: PipelinePrompts }
+     * Returns: { cardCount: number, stats: PipelineStats }
+     */
+    @PluginMethod
+    public void generateEntry(PluginCall call) {
+        String entryId = call.getString("entryId");
+        JSObject prompts = call.getObject("prompts");
+
+        if (entryId == null || prompts == null) {
+            call.reject("Missing required parameters: entryId and prompts");
+            return;
+        }
+
+        PipelinePrompts pipelinePrompts = jsonToPrompts(prompts);
+        if (pipelinePrompts == null) {
+            call.reject("Missing required prompts: factExtraction, factScoring and cardCreation");
+            return;
+        }
+
+        if (!getEngine().isConfigured()) {
+            call.reject("Generation engine is not configured");
+            return;
+        }
+
+        executor.execute(() -> {
+            try (Diagnostics.Scope scope = Diagnostics.enter("Generation.generateEntry")) {
+                GenerationPipeline pipeline = new GenerationPipeline(
+                    AppDatabase.getInstance(getContext()).inboxDao(), getEngine(),
+                    new EntryTextStore(getContext().getFilesDir()), getContext().getCacheDir());
+                PipelineStats stats = pipeline.run(entryId, pipelinePrompts, new GenerationPipeline.ProgressListener() {
+                    @Override
+                    public void onProgress(String id, String stage, String message) {
+                        runnerListener.onProgress(id, stage, message);
+                    }
+
+                    @Override
+                    public void onStats(String id, PipelineStats stats) {
+                        runnerListener.onStats(id, stats);
+                    }
+                });
+
+                InboxPlugin.sweepSourceImages(getContext());
+
+                JSObject result = new JSObject();
+                result.put("cardCount", stats.cardsStored);
+                result.put("stats", statsToJson(stats));
+                call.resolve(result);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                call.reject("Card generation interrupted");
+            } catch (GenerationException e) {
+                call.reject(e.getMessage(), e);
+            } catch (Exception e) {
+                call.reject("Failed to generate cards: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Get how much work is waiting on the rate limiter and the stage pools
+     * Returns: { queued: number, stages: { facts, scoring, cards },
+     *            models: { model, queued, availableRequests, availableTokens, pausedForMs }[],
+     *            limits: { requestsPerMinute, tokensPerMinute } }
+     */
+    @PluginMethod
+    public void getQueueStatus(PluginCall call) {
+        try (Diagnostics.Scope scope = Diagnostics.enter("Generation.getQueueStatus")) {
+            try {
+                GenerationEngine engine = getEngine();
+                RateLimiter limiter = engine.getRateLimiter();
+
+                JSObject stages = new JSObject();
+                stages.put("facts", engine.getStageQueueDepth(GenerationEngine.Stage.FACTS));
+                stages.put("scoring", engine.getStageQueueDepth(GenerationEngine.Stage.SCORING));
+                stages.put("cards", engine.getStageQueueDepth(GenerationEngine.Stage.CARDS));
+
+                JSArray models = new JSArray();
+                for (RateLimiter.Status status : limiter.getStatus()) {
+                    JSObject obj = new JSObject();
+                    obj.put("model", status.model);
+                    obj.put("queued", status.queued);
+                    obj.put("availableRequests", status.availableRequests);
+                    obj.put("availableTokens", status.availableTokens);
+                    obj.put("pausedForMs", status.pausedForMs);
+                    models.put(obj);
+                }
+
+                JSObject limits = new JSObject();
+                limits.put("requestsPerMinute", limiter.getRequestsPerMinute());
+                limits.put("tokensPerMinute", limiter.getTokensPerMinute());
+
+                JSObject result = new JSObject();
+                result.put("queued", limiter.getQueueDepth());
+                result.put("stages", stages);
+                result.put("models", models);
+                result.put("limits", limits);
+                call.resolve(result);
+            } catch (Exception e) {
+                call.reject("Failed to get queue status: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    // ==================== Response Cache ====================
+
+    /**
+     * Get response cache hit/miss counters (this process) and storage usage
+     * Returns: { hits, misses, hitRate, entries, sizeBytes, maxBytes }
+     */
+    @PluginMethod
+    public void getCacheStats(PluginCall call) {
+        try (Diagnostics.Scope scope = Diagnostics.enter("Generation.getCacheStats")) {
+            try {
+                JSObject result = new JSObject();
+                result.put("hits", responseCache.getHits());
+                result.put("misses", responseCache.getMisses());
+                result.put("hitRate", responseCache.getHitRate());
+                result.put("entries", responseCache.getEntryCount());
+                result.put("sizeBytes", responseCache.getSizeBytes());
+                result.put("maxBytes", responseCache.getMaxBytes());
+                call.resolve(result);
+            } catch (Exception e) {
+                call.reject("Failed to get cache stats: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Delete all cached responses and reset the counters
+     */
+    @PluginMethod
+    public void clearCache(PluginCall call) {
+        try (Diagnostics.Scope scope = Diagnostics.enter("Generation.clearCache")) {
+            try {
+                responseCache.clear();
+                call.resolve();
+            } catch (Exception e) {
+                call.reject("Failed to clear cache: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    // ==================== Usage Metrics ====================
+
+    /**
+     * Get token, latency and retry totals of recorded Gemini requests, overall and
+     * grouped by stage, model, prompt version, entry and source content type.
+     * Params: { entryId?: string, since?: number (Unix ms), limit?: number (entries, default 20) }
+     * Returns: { totals, byStage, byModel, byPrompt, byEntry, bySource }; each group is
+     * { key, label?, calls, promptTokens, outputTokens, latencyMs, waitMs, retries, cacheHits, failures }
+     */
+    @PluginMethod
+    public void getUsageStats(PluginCall call) {
+        String entryId = call.getString("entryId");
+        Long sinceParam = call.getLong("since");
+        long since = sinceParam != null ? sinceParam : 0L;
+        int limit = call.getInt("limit", 20);
+
+        executor.execute(() -> {
+            try (Diagnostics.Scope scope = Diagnostics.enter("Generation.getUsageStats")) {
+                GenerationDao dao = AppDatabase.getInstance(getContext()).generationDao();
+                JSObject result = new JSObject();
+                result.put("totals", totalsToJson(dao.getMetricTotals(entryId, since)));
+                result.put("byStage", totalsToJson(dao.getMetricTotalsByStage(entryId, since)));
+                result.put("byModel", totalsToJson(dao.getMetricTotalsByModel(entryId, since)));
+                result.put("byPrompt", totalsToJson(dao.getMetricTotalsByPrompt(entryId, since)));
+                result.put("byEntry", totalsToJson(dao.getMetricTotalsByEntry(entryId, since, limit)));
+                result.put("bySource", totalsToJson(dao.getMetricTotalsBySource(entryId, since)));
+                call.resolve(result);
+            } catch (Exception e) {
+                call.reject("Failed to get usage stats: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Delete all recorded request metrics
+     */
+    @PluginMethod
+    public void clearUsageStats(PluginCall call) {
+        try (Diagnostics.Scope scope = Diagnostics.enter("Generation.clearUsageStats")) {
+            try {
+                AppDatabase.getInstance(getContext()).generationDao().clearCallMetrics();
+                call.resolve();
+            } catch (Exception e) {
+                call.reject("Failed to clear usage stats: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    // ==================== Background Runner ====================
+
+    /**
+     * Queue entries for unattended generation in the foreground service.
+     * The engine must already be configured (API key, model). On Android 13+ the user is
+     * asked once for the notification permission first; entries are queued either way.
+     * Params: { entryIds: string[], prompts: { factExtraction: string, factScoring: string, cardCreation: string } }
+     * Returns: { queued: number } (entries already queued, running or locked are skipped)
+     */
+    @PluginMethod
+    public void enqueueEntries(PluginCall call) {
+        JSArray entryIdsArray = call.getArray("entryIds");
+        JSObject prompts = call.getObject("prompts");
+
+        if (entryIdsArray == null || prompts == null) {
+            call.reject("Missing required parameters: entryIds and prompts");
+            return;
+        }
+
+        PipelinePrompts pipelinePrompts = jsonToPrompts(prompts);
+        if (pipelinePrompts == null) {
+            call.reject("Missing required prompts: factExtraction, factScoring and cardCreation");
+            return;
+        }
+
+        if (!getEngine().isConfigured()) {
+            call.reject("Generation engine is not configured");
+            return;
+        }
+
+        // Without it the progress notification is hidden, so only ask while the answer is still open
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && getPermissionState("notifications") == PermissionState.PROMPT) {
+            requestPermissionForAlias("notifications", call, "notificationsPermissionCallback");
+            return;
+        }
+
+        queueEntries(call);
+    }
+
+    @PermissionCallback
+    private void notificationsPermissionCallback(PluginCall call) {
+        // The service runs without a visible notification when denied
+        queueEntries(call);
+    }
+
+    private void queueEntries(PluginCall call) {
+        JSArray entryIdsArray = call.getArray("entryIds");
+        PipelinePrompts pipelinePrompts = jsonToPrompts(call.getObject("prompts"));
+
+        // Looks up which entries are locked, so stay off the plugin thread
+        executor.execute(() -> {
+            try (Diagnostics.Scope scope = Diagnostics.enter("Generation.enqueueEntries")) {
+                List<String> entryIds = new ArrayList<>(entryIdsArray.length());
+                for (int i = 0; i < entryIdsArray.length(); i++) {
+                    entryIds.add(entryIdsArray.getString(i));
+                }
+
+                int queued = GenerationService.enqueue(getContext(), entryIds, pipelinePrompts);
+
+                JSObject result = new JSObject();
+                result.put("queued", queued);
+                call.resolve(result);
+            } catch (Exception e) {
+                call.reject("Failed to queue entries: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Remove an entry from the queue, or stop it if it is running
+     * Params: { entryId: string }
+     * Returns: { cancelled: boolean }
+     */
+    @PluginMethod
+    public void cancelGeneration(PluginCall call) {
+        try (Diagnostics.Scope scope = Diagnostics.enter("Generation.cancelGeneration")) {
+            String entryId = call.getString("entryId");
+            if (entryId == null) {
+                call.reject("Missing required parameter: entryId");
+                return;
+            }
+
+            JSObject result = new JSObject();
+            result.put("cancelled", GenerationService.cancel(entryId));
+            call.resolve(result);
+        }
+    }
+
+    /**
+     * Get the entry being processed and the entries waiting
+     * Returns: { running: string | null, queued: string[] }
+     */
+    @PluginMethod
+    public void getRunnerStatus(PluginCall call) {
+        try (Diagnostics.Scope scope = Diagnostics.enter("Generation.getRunnerStatus")) {
+            JSObject status = runnerStatusToJson(GenerationService.getRunningEntryId(), GenerationService.getQueuedEntryIds());
+            PipelineStats stats = GenerationService.getRunningStats();
+            if (stats != null) {
+                status.put("stats", statsToJson(stats));
+            }
+            call.resolve(status);
+        }
+    }
+
+    /**
+     * Get the stored progress of an entry's unfinished run, which the next run resumes
+     * when the text and prompts are unchanged
+     * Params: { entryId: string }
+     * Returns: { checkpoint: { state, chunkCount, chunksDone, facts, cardsStored, error?, updatedAt } | null }
+     */
+    @PluginMethod
+    public void getCheckpoint(PluginCall call) {
+        try (Diagnostics.Scope scope = Diagnostics.enter("Generation.getCheckpoint")) {
+            String entryId = call.getString("entryId");
+
+            if (entryId == null) {
+                call.reject("Missing required parameter: entryId");
+                return;
+            }
+
+            try {
+                InboxDao dao = AppDatabase.getInstance(getContext()).inboxDao();
+                GenerationRun run = dao.getRun(entryId);
+
+                JSObject result = new JSObject();
+                if (run == null) {
+                    result.put("checkpoint", JSONObject.NULL);
+                } else {
+                    JSObject checkpoint = new JSObject();
+                    checkpoint.put("state", run.state);
+                    checkpoint.put("chunkCount", run.chunkCount);
+                    checkpoint.put("chunksDone", dao.getRunChunkCount(entryId));
+                    checkpoint.put("facts", dao.getRunFactCount(entryId));
+                    checkpoint.put("cardsStored", dao.getTotalCardCount(entryId));
+                    if (run.error != null) {
+                        checkpoint.put("error", run.error);
+                    }
+                    checkpoint.put("updatedAt", run.updatedAt);
+                    result.put("checkpoint", checkpoint);
+                }
+                call.resolve(result);
+            } catch (Exception e) {
+                call.reject("Failed to get checkpoint: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    // ==================== Helper Methods ====================
+
+    private JSObject runnerStatusToJson(String runningEntryId, List<String> queuedEntryIds) {
+        JSObject status = new JSObject();
+        status.put("running", runningEntryId != null ? runningEntryId : JSONObject.NULL);
+        status.put("queued", new JSArray(queuedEntryIds));
+        return status;
+    }
+
+    private JSObject statsToJson(PipelineStats stats) {
+        JSObject queued = new JSObject();
+        queued.put("facts", stats.factsQueued);
+        queued.put("scoring", stats.scoringQueued);
+        queued.put("cards", stats.cardsQueued);
+
+        JSObject inFlight = new JSObject();
+        inFlight.put("facts", stats.factsInFlight);
+        inFlight.put("scoring", stats.scoringInFlight);
+        inFlight.put("cards", stats.cardsInFlight);
+
+        JSObject obj = new JSObject();
+        obj.put("chunksTotal", stats.chunksTotal);
+        obj.put("chunksDone", stats.chunksDone);
+        obj.put("factsExtracted", stats.factsExtracted);
+        obj.put("factsDuplicate", stats.factsDuplicate);
+        obj.put("tokensSaved", stats.tokensSaved);
+        obj.put("factsScored", stats.factsScored);
+        obj.put("factsPassed", stats.factsPassed);
+        obj.put("cardsStored", stats.cardsStored);
+        obj.put("queued", queued);
+        obj.put("inFlight", inFlight);
+        obj.put("elapsedMs", stats.elapsedMs);
+        if (stats.timeToFirstCardMs >= 0) {
+            obj.put("timeToFirstCardMs", stats.timeToFirstCardMs);
+        }
+        obj.put("summary", stats.describe());
+        return obj;
+    }
+
+    private JSObject totalsToJson(CallMetricTotals totals) {
+        JSObject obj = new JSObject();
+        if (totals.groupKey != null) {
+            obj.put("key", totals.groupKey);
+        }
+        if (totals.label != null) {
+            obj.put("label", totals.label);
+        }
+        obj.put("calls", totals.calls);
+        obj.put("promptTokens", totals.promptTokens);
+        obj.put("outputTokens", totals.outputTokens);
+        obj.put("latencyMs", totals.latencyMs);
+        obj.put("waitMs", totals.waitMs);
+        obj.put("retries", totals.retries);
+        obj.put("cacheHits", totals.cacheHits);
+        obj.put("failures", totals.failures);
+        return obj;
+    }
+
+    private JSArray totalsToJson(List<CallMetricTotals> groups) {
+        JSArray array = new JSArray();
+        for (CallMetricTotals totals : groups) {
+            array.put(totalsToJson(totals));
+        }
+        return array;
+    }
+
+    private PipelinePrompts jsonToPrompts(JSObject prompts) {
+        String factExtraction = prompts.getString("factExtraction");
+        String factScoring = prompts.getString("factScoring");
+        String cardCreation = prompts.getString("cardCreation");
+        if (factExtraction == null || factScoring == null || cardCreation == null) {
+            return null;
+        }
+        return new PipelinePrompts(factExtraction, factScoring, cardCreation);
+    }
+
+    private void putLimit(Map<GenerationEngine.Stage, Integer> limits, GenerationEngine.Stage stage,
+                          JSObject concurrency, String key) {
+        if (concurrency.has(key)) {
+            limits.put(stage, concurrency.optInt(key, 1));
+        }
+    }
+
+    private List<Fact> jsonToFacts(JSArray factsArray) throws JSONException {
+        List<Fact> facts = new ArrayList<>(factsArray.length());
+        for (int i = 0; i < factsArray.length(); i++) {
+            JSONObject factObj = factsArray.getJSONObject(i);
+            facts.add(new Fact(factObj.getString("id"), factObj.getString("fact"), factObj.optInt("chunkIndex", 0)));
+        }
+        return facts;
+    }
+
+    private JSArray factsToJson(List<Fact> facts) {
+        JSArray array = new JSArray();
+        for (Fact fact : facts) {
+            JSObject obj = new JSObject();
+            obj.put("id", fact.id);
+            obj.put("fact", fact.text);
+            obj.put("chunkIndex", fact.chunkIndex);
+            array.put(obj);
+        }
+        return array;
+    }
+}
@@ -1,6 +1,7 @@
 package com.snortstudios.masterflasher.plugins;
 
-import android.annotation.SuppressLint;
+import android.content.Context;
+import android.util.Log;
 
 import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
@@ -9,18 +10,32 @@ import com.getcapacitor.PluginCall;
 import com.getcapacitor.PluginMethod;
 import com.getcapacitor.annotation.CapacitorPlugin;
 import com.snortstudios.masterflasher.db.AppDatabase;
+import com.snortstudios.masterflasher.db.DuplicateCardIndex;
+import com.snortstudios.masterflasher.db.EntrySummary;
 import com.snortstudios.masterflasher.db.GeneratedCard;
 import com.snortstudios.masterflasher.db.InboxDao;
 import com.snortstudios.masterflasher.db.InboxEntry;
+import com.snortstudios.masterflasher.db.InboxEvents;
+import com.snortstudios.masterflasher.db.InboxJson;
+import com.snortstudios.masterflasher.db.PdfPage;
+import com.snortstudios.masterflasher.db.PdfPageStat;
+import com.snortstudios.masterflasher.db.RemovedEntry;
+import com.snortstudios.masterflasher.diagnostics.Diagnostics;
+import com.snortstudios.masterflasher.media.SourceImages;
+import com.snortstudios.masterflasher.text.EntryTextStore;
+import com.snortstudios.masterflasher.text.PdfTextReader;
 
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-import java.util.UUID;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Capacitor plugin for inbox database operations.
@@ -29,66 +44,230 @@ import java.util.UUID;
 @CapacitorPlugin(name = "Inbox")
 public class InboxPlugin extends Plugin {
     
+    private static final String TAG = "InboxPlugin";
+    
+    // Unlinks the PDFs, text files and unreferenced images of deleted entries off the bridge thread, in deletion order
+    private static final ExecutorService fileExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "InboxFileCleanup");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    
+    // Forwards every inbox write to the UI, wherever it was made
+    private final InboxEvents.Listener inboxListener = new InboxEvents.Listener() {
+        @Override
+        public void onEntryAdded(String entryId) {
+            notifyListeners("entryAdded", entryEvent(entryId));
+        }
+        
+        @Override
+        public void onEntriesAdded(List<String> entryIds) {
+            JSObject event = new JSObject();
+            event.put("entryIds", new JSArray(entryIds));
+            notifyListeners("entriesAdded", event);
+        }
+        
+        @Override
+        public void onEntryUpdated(String entryId) {
+            notifyListeners("entryUpdated", entryEvent(entryId));
+        }
+        
+        @Override
+        public void onEntryRemoved(String entryId) {
+            notifyListeners("entryRemoved", entryEvent(entryId));
+        }
+        
+        @Override
+        public void onEntriesRemoved(List<String> entryIds) {
+            JSObject event = new JSObject();
+            event.put("entryIds", new JSArray(entryIds));
+            notifyListeners("entriesRemoved", event);
+        }
+        
+        @Override
+        public void onCardsChanged(String entryId, List<String> cardIds) {
+            JSObject event = entryEvent(entryId);
+            event.put("cardIds", new JSArray(cardIds));
+            notifyListeners("cardsChanged", event);
+        }
+        
+        @Override
+        public void onCardsAppended(String entryId, List<GeneratedCard> cards) {
+            JSArray cardsArray = new JSArray();
+            for (GeneratedCard card : cards) {
+                cardsArray.put(InboxJson.cardToJson(card, getDuplicateIndex(), new JSObject()));
+            }
+            JSObject event = entryEvent(entryId);
+            event.put("cards", cardsArray);
+            notifyListeners("cardsAppended", event);
+        }
+    };
+    
+    @Override
+    public void load() {
+        InboxEvents.addListener(inboxListener);
+    }
+    
+    @Override
+    protected void handleOnDestroy() {
+        InboxEvents.removeListener(inboxListener);
+    }
+    
     private InboxDao getDao() {
         return AppDatabase.getInstance(getContext()).inboxDao();
     }
     
+    private DuplicateCardIndex getDuplicateIndex() {
+        return DuplicateCardIndex.getInstance(getDao());
+    }
+    
+    private EntryTextStore getTextStore() {
+        return new EntryTextStore(getContext().getFilesDir());
+    }
+    
     // ==================== Entry Operations ====================
     
     /**
      * Get all inbox entries
+     * Params: { fields?: string[] } (entry fields to return, default all; id is always included)
      * Returns: { entries: InboxEntry[] }
      */
     @PluginMethod
     public void getAllEntries(PluginCall call) {
-        try {
-            List<InboxEntry> entries = getDao().getAllEntries();
-            JSArray entriesArray = new JSArray();
-            
-            for (InboxEntry entry : entries) {
-                entriesArray.put(entryToJson(entry));
+        try (Diagnostics.Scope scope = Diagnostics.enter("Inbox.getAllEntries")) {
+            try {
+                Set<String> fields = getFields(call);
+                JSArray entriesArray = new JSArray();
+                if (needsText(fields)) {
+                    for (InboxEntry entry : getDao().getAllEntries()) {
+                        entriesArray.put(InboxJson.entryToJson(entry, fields, new JSObject()));
+                    }
+                } else {
+                    // Text is left in the database, not just out of the payload
+                    for (EntrySummary summary : getDao().getAllEntrySummaries()) {
+                        entriesArray.put(InboxJson.summaryToJson(summary, fields, new JSObject()));
+                    }
+                }
+                
+                JSObject result = new JSObject();
+                result.put("entries", entriesArray);
+                call.resolve(result);
+            } catch (Exception e) {
+                call.reject("Failed to get entries: " + e.getMessage(), e);
             }
-            
-            JSObject result = new JSObject();
-            result.put("entries", entriesArray);
-            call.resolve(result);
-        } catch (Exception e) {
-            call.reject("Failed to get entries: " + e.getMessage(), e);
         }
     }
     
     /**
      * Get a single entry by ID with its cards
-     * Params: { id: string }
-     * Returns: { entry: InboxEntry, cards: GeneratedCard[] }
+     * Params: { id: string, fields?: string[] (default all), includeCards?: boolean (default true) }
+     * Returns: { entry: InboxEntry, cards: GeneratedCard[] } (cards empty when not included)
      */
     @PluginMethod
     public void getEntry(PluginCall call) {
-        String id = call.getString("id");
-        if (id == null) {
-            call.reject("Missing required parameter: id");
-            return;
-        }
-        
-        try {
-            InboxEntry entry = getDao().getEntry(id);
-            if (entry == null) {
-                call.reject("Entry not found: " + id);
+        try (Diagnostics.Scope scope = Diagnostics.enter("Inbox.getEntry")) {
+            String id = call.getString("id");
+            if (id == null) {
+                call.reject("Missing required parameter: id");
                 return;
             }
+            boolean includeCards = call.getBoolean("includeCards", true);
             
-            List<GeneratedCard> cards = getDao().getCardsForEntry(id);
-            JSArray cardsArray = new JSArray();
-            for (GeneratedCard card : cards) {
-                cardsArray.put(cardToJson(card));
+            try {
+                Set<String> fields = getFields(call);
+                JSObject entryJson;
+                if (needsText(fields)) {
+                    InboxEntry entry = getDao().getEntry(id);
+                    entryJson = entry != null ? InboxJson.entryToJson(entry, fields, new JSObject()) : null;
+                } else {
+                    EntrySummary summary = getDao().getEntrySummary(id);
+                    entryJson = summary != null ? InboxJson.summaryToJson(summary, fields, new JSObject()) : null;
+                }
+                if (entryJson == null) {
+                    call.reject("Entry not found: " + id);
+                    return;
+                }
+                
+                JSArray cardsArray = new JSArray();
+                if (includeCards) {
+                    for (GeneratedCard card : getDao().getCardsForEntry(id)) {
+                        cardsArray.put(InboxJson.cardToJson(card, getDuplicateIndex(), new JSObject()));
+                    }
+                }
+                
+                JSObject result = new JSObject();
+                result.put("entry", entryJson);
+                result.put("cards", cardsArray);
+                call.resolve(result);
+            } catch (Exception e) {
+                call.reject("Failed to get entry: " + e.getMessage(), e);
+            }
+        }
+    }
+    
+    /**
+     * Read part of an entry's text, for entries too large to send over the bridge at once.
+     * Offsets and lengths count characters as SQLite does (Unicode code points). Extracted
+     * text kept in a file (see EntryTextStore) is read from there.
+     * Params: { id: string, field?: 'content' | 'extractedText', offset?: number, length?: number }
+     *   field defaults to extractedText when the entry has any, otherwise content;
+     *   length defaults to the rest of the text
+     * Returns: { text: string, field: string, offset: number, totalLength: number }
+     */
+    @PluginMethod
+    public void getEntryText(PluginCall call) {
+        try (Diagnostics.Scope scope = Diagnostics.enter("Inbox.getEntryText")) {
+            String id = call.getString("id");
+            if (id == null) {
+                call.reject("Missing required parameter: id");
+                return;
+            }
+            String field = call.getString("field");
+            if (field != null && !InboxJson.FIELD_CONTENT.equals(field) && !InboxJson.FIELD_EXTRACTED_TEXT.equals(field)) {
+                call.reject("Invalid field: " + field + " (expected content or extractedText)");
+                return;
+            }
+            int offset = call.getInt("offset", 0);
+            Integer length = call.getInt("length");
+            if (offset < 0 || (length != null && length < 0)) {
+                call.reject("offset and length must not be negative");
+                return;
             }
             
-            JSObject result = new JSObject();
-            result.put("entry", entryToJson(entry));
-            result.put("cards", cardsArray);
-            call.resolve(result);
-        } catch (Exception e) {
-            call.reject("Failed to get entry: " + e.getMessage(), e);
+            try {
+                EntrySummary summary = getDao().getEntrySummary(id);
+                if (summary == null) {
+                    call.reject("Entry not found: " + id);
+                    return;
+                }
+                if (field == null) {
+                    field = summary.extractedTextLength > 0 ? InboxJson.FIELD_EXTRACTED_TEXT : InboxJson.FIELD_CONTENT;
+                }
+                boolean extracted = InboxJson.FIELD_EXTRACTED_TEXT.equals(field);
+                int totalLength = extracted ? summary.extractedTextLength : summary.contentLength;
+                
+                int count = Math.max(0, totalLength - offset);
+                if (length != null) {
+                    count = Math.min(count, length);
+                }
+                String text = null;
+                if (count > 0 && extracted && summary.extractedTextInFile) {
+                    text = getTextStore().read(id, offset, count);
+                } else if (count > 0) {
+                    text = extracted
+                        ? getDao().getExtractedTextRange(id, offset + 1, count)
+                        : getDao().getContentRange(id, offset + 1, count);
+                }
+                
+                JSObject result = new JSObject();
+                result.put("text", text != null ? text : "");
+                result.put("field", field);
+                result.put("offset", offset);
+                result.put("totalLength", totalLength);
+                call.resolve(result);
+            } catch (Exception e) {
+                call.reject("Failed to get entry text: " + e.getMessage(), e);
+            }
         }
     }
     
@@ -98,45 +277,103 @@ public class InboxPlugin extends Plugin {
      */
     @PluginMethod
     public void saveEntry(PluginCall call) {
-        JSObject entryObj = call.getObject("entry");
-        if (entryObj == null) {
-            call.reject("Missing required parameter: entry");
-            return;
-        }
-        
-        try {
-            InboxEntry entry = jsonToEntry(entryObj);
-            getDao().insertEntry(entry);
-            call.resolve();
-        } catch (Exception e) {
-            call.reject("Failed to save entry: " + e.getMessage(), e);
+        try (Diagnostics.Scope scope = Diagnostics.enter("Inbox.saveEntry")) {
+            JSObject entryObj = call.getObject("entry");
+            if (entryObj == null) {
+                call.reject("Missing required parameter: entry");
+                return;
+            }
+            
+            try {
+                InboxEntry entry = InboxJson.jsonToEntry(entryObj);
+                if (getDao().saveEntry(entry)) {
+                    InboxEvents.publishEntryUpdated(entry.id);
+                } else {
+                    InboxEvents.publishEntryAdded(entry.id);
+                }
+                call.resolve();
+            } catch (Exception e) {
+                call.reject("Failed to save entry: " + e.getMessage(), e);
+            }
         }
     }
     
     /**
      * Delete an entry by ID (cascade deletes its cards)
-     * For PDF entries, also deletes the PDF file from app storage
+     * For PDF entries, the PDF file is then removed from app storage in the background
      * Params: { id: string }
      */
     @PluginMethod
     public void deleteEntry(PluginCall call) {
-        String id = call.getString("id");
-        if (id == null) {
-            call.reject("Missing required parameter: id");
-            return;
+        try (Diagnostics.Scope scope = Diagnostics.enter("Inbox.deleteEntry")) {
+            String id = call.getString("id");
+            if (id == null) {
+                call.reject("Missing required parameter: id");
+                return;
+            }
+            
+            try {
+                List<RemovedEntry> removed = getDao().deleteEntries(Collections.singletonList(id));
+                deleteFiles(removed);
+                InboxEvents.publishEntryRemoved(id);
+                call.resolve();
+            } catch (Exception e) {
+                call.reject("Failed to delete entry: " + e.getMessage(), e);
+            }
         }
-        
-        try {
-            // Get entry first to check if it's a PDF that needs file cleanup
-            InboxEntry entry = getDao().getEntry(id);
-            if (entry != null && "pdf".equals(entry.contentType)) {
-                deletePdfFile(entry.content);
+    }
+    
+    /**
+     * Delete several entries in one transaction (cascade deletes their cards).
+     * PDF files are removed in the background afterwards.
+     * Params: { ids: string[] }
+     * Returns: { removed: number } (entries that existed)
+     */
+    @PluginMethod
+    public void deleteEntries(PluginCall call) {
+        try (Diagnostics.Scope scope = Diagnostics.enter("Inbox.deleteEntries")) {
+            JSArray idsArray = call.getArray("ids");
+            if (idsArray == null) {
+                call.reject("Missing required parameter: ids");
+                return;
             }
             
-            getDao().deleteEntry(id);
-            call.resolve();
-        } catch (Exception e) {
-            call.reject("Failed to delete entry: " + e.getMessage(), e);
+            try {
+                List<String> ids = new ArrayList<>(idsArray.length());
+                for (int i = 0; i < idsArray.length(); i++) {
+                    ids.add(idsArray.getString(i));
+                }
+                resolveRemoved(call, getDao().deleteEntries(ids));
+            } catch (Exception e) {
+                call.reject("Failed to delete entries: " + e.getMessage(), e);
+            }
+        }
+    }
+    
+    /**
+     * Delete all entries matching a filter in one transaction (cascade deletes their cards).
+     * Omitted criteria match any entry, so an empty filter clears the inbox.
+     * PDF files are removed in the background afterwards.
+     * Params: { filter: { contentType?: string, isLocked?: boolean, createdBefore?: number } }
+     * Returns: { removed: number }
+     */
+    @PluginMethod
+    public void deleteWhere(PluginCall call) {
+        try (Diagnostics.Scope scope = Diagnostics.enter("Inbox.deleteWhere")) {
+            JSObject filter = call.getObject("filter");
+            if (filter == null) {
+                call.reject("Missing required parameter: filter");
+                return;
+            }
+            
+            try {
+                String contentType = filter.getString("contentType");
+                Boolean isLocked = filter.getBool("isLocked");
+                Long createdBefore = filter.isNull("createdBefore") ? null : filter.getLong("createdBefore");
+                resolveRemoved(call, getDao().deleteEntriesWhere(contentType, isLocked, createdBefore));
+            } catch (Exception e) {
+                call.reject("Failed to delete entries: " + e.getMessage(), e);
+            }
         }
     }
     
@@ -148,26 +385,31 @@ public class InboxPlugin extends Plugin {
      */
     @PluginMethod
     public void saveCards(PluginCall call) {
-        String entryId = call.getString("entryId");
-        JSArray cardsArray = call.getArray("cards");
-        
-        if (entryId == null || cardsArray == null) {
-            call.reject("Missing required parameters: entryId and cards");
-            return;
-        }
-        
-        try {
-            List<GeneratedCard> cards = new ArrayList<>();
-            for (int i = 0; i < cardsArray.length(); i++) {
-                JSONObject cardObj = cardsArray.getJSONObject(i);
-                GeneratedCard card = jsonToCard(cardObj, entryId);
-                cards.add(card);
+        try (Diagnostics.Scope scope = Diagnostics.enter("Inbox.saveCards")) {
+            String entryId = call.getString("entryId");
+            JSArray cardsArray = call.getArray("cards");
+            
+            if (entryId == null || cardsArray == null) {
+                call.reject("Missing required parameters: entryId and cards");
+                return;
             }
             
-            getDao().insertCards(cards);
-            call.resolve();
-        } catch (Exception e) {
-            call.reject("Failed to save cards: " + e.getMessage(), e);
+            try {
+                List<GeneratedCard> cards = new ArrayList<>();
+                List<String> cardIds = new ArrayList<>();
+                for (int i = 0; i < cardsArray.length(); i++) {
+                    JSONObject cardObj = cardsArray.getJSONObject(i);
+                    GeneratedCard card = InboxJson.jsonToCard(cardObj, entryId);
+                    cards.add(card);
+                    cardIds.add(card.id);
+                }
+                
+                getDao().insertCards(cards);
+                InboxEvents.publishCardsChanged(entryId, cardIds);
+                call.resolve();
+            } catch (Exception e) {
+                call.reject("Failed to save cards: " + e.getMessage(), e);
+            }
         }
     }
     
@@ -177,33 +419,39 @@ public class InboxPlugin extends Plugin {
      */
     @PluginMethod
     public void updateCardStatus(PluginCall call) {
-        String cardId = call.getString("cardId");
-        String status = call.getString("status");
-        
-        if (cardId == null || status == null) {
-            call.reject("Missing required parameters: cardId and status");
-            return;
-        }
-        
-        try {
-            GeneratedCard card = getDao().getCard(cardId);
-            if (card == null) {
-                call.reject("Card not found: " + cardId);
+        try (Diagnostics.Scope scope = Diagnostics.enter("Inbox.updateCardStatus")) {
+            String cardId = call.getString("cardId");
+            String status = call.getString("status");
+            
+            if (cardId == null || status == null) {
+                call.reject("Missing required parameters: cardId and status");
                 return;
             }
             
-            card.status = status;
-            
-            // noteId is optional
-            Integer noteId = call.getInt("noteId");
-            if (noteId != null) {
-                card.noteId = noteId.longValue();
+            try {
+                GeneratedCard card = getDao().getCard(cardId);
+                if (card == null) {
+                    call.reject("Card not found: " + cardId);
+                    return;
+                }
+                
+                card.status = status;
+                
+                // noteId is optional; note IDs are millisecond timestamps and overflow an int
+                Long noteId = call.getLong("noteId");
+                if (noteId != null) {
+                    card.noteId = noteId;
+                }
+                
+                getDao().updateCard(card);
+                if ("added".equals(status)) {
+                    getDuplicateIndex().add(card.front, card.noteId);
+                }
+                InboxEvents.publishCardsChanged(card.entryId, Collections.singletonList(card.id));
+                call.resolve();
+            } catch (Exception e) {
+                call.reject("Failed to update card status: " + e.getMessage(), e);
             }
-            
-            getDao().updateCard(card);
-            call.resolve();
-        } catch (Exception e) {
-            call.reject("Failed to update card status: " + e.getMessage(), e);
         }
     }
     
@@ -213,29 +461,62 @@ public class InboxPlugin extends Plugin {
      */
     @PluginMethod
     public void updateCardContent(PluginCall call) {
-        String cardId = call.getString("cardId");
-        String front = call.getString("front");
-        String back = call.getString("back");
-        
-        if (cardId == null || front == null || back == null) {
-            call.reject("Missing required parameters: cardId, front, and back");
-            return;
-        }
-        
-        try {
-            GeneratedCard card = getDao().getCard(cardId);
-            if (card == null) {
-                call.reject("Card not found: " + cardId);
+        try (Diagnostics.Scope scope = Diagnostics.enter("Inbox.updateCardContent")) {
+            String cardId = call.getString("cardId");
+            String front = call.getString("front");
+            String back = call.getString("back");
+            
+            if (cardId == null || front == null || back == null) {
+                call.reject("Missing required parameters: cardId, front, and back");
                 return;
             }
             
-            card.front = front;
-            card.back = back;
+            try {
+                GeneratedCard card = getDao().getCard(cardId);
+                if (card == null) {
+                    call.reject("Card not found: " + cardId);
+                    return;
+                }
+                
+                card.front = front;
+                card.back = back;
+                
+                getDao().updateCard(card);
+                InboxEvents.publishCardsChanged(card.entryId, Collections.singletonList(card.id));
+                call.resolve();
+            } catch (Exception e) {
+                call.reject("Failed to update card content: " + e.getMessage(), e);
+            }
+        }
+    }
+    
+    /**
+     * Get the cards carrying a tag, across all entries
+     * Params: { tag: string }
+     * Returns: { cards: GeneratedCard[] }
+     */
+    @PluginMethod
+    public void getCardsByTag(PluginCall call) {
+        try (Diagnostics.Scope scope = Diagnostics.enter("Inbox.getCardsByTag")) {
+            String tag = call.getString("tag");
+            
+            if (tag == null) {
+                call.reject("Missing required parameter: tag");
+                return;
+            }
             
-            getDao().updateCard(card);
-            call.resolve();
-        } catch (Exception e) {
-            call.reject("Failed to update card content: " + e.getMessage(), e);
+            try {
+                JSArray cardsArray = new JSArray();
+                for (GeneratedCard card : getDao().getCardsWithTag(tag)) {
+                    cardsArray.put(InboxJson.cardToJson(card, getDuplicateIndex(), new JSObject()));
+                }
+                
+                JSObject result = new JSObject();
+                result.put("cards", cardsArray);
+                call.resolve(result);
+            } catch (Exception e) {
+                call.reject("Failed to get cards by tag: " + e.getMessage(), e);
+            }
         }
     }
     
@@ -247,35 +528,35 @@ public class InboxPlugin extends Plugin {
      */
     @PluginMethod
     public void checkAutoRemove(PluginCall call) {
-        String entryId = call.getString("entryId");
-        if (entryId == null) {
-            call.reject("Missing required parameter: entryId");
-            return;
-        }
-        
-        try {
-            int totalCards = getDao().getTotalCardCount(entryId);
-            int pendingCards = getDao().getPendingCardCount(entryId);
-            
-            JSObject result = new JSObject();
+        try (Diagnostics.Scope scope = Diagnostics.enter("Inbox.checkAutoRemove")) {
+            String entryId = call.getString("entryId");
+            if (entryId == null) {
+                call.reject("Missing required parameter: entryId");
+                return;
+            }
             
-            // If there are cards and none are pending, remove the entry
-            if (totalCards > 0 && pendingCards == 0) {
-                // Get entry first to check if it's a PDF that needs file cleanup
+            try {
                 InboxEntry entry = getDao().getEntry(entryId);
-                if (entry != null && "pdf".equals(entry.contentType)) {
-                    deletePdfFile(entry.content);
+                int totalCards = getDao().getTotalCardCount(entryId);
+                int pendingCards = getDao().getPendingCardCount(entryId);
+                
+                JSObject result = new JSObject();
+                
+                // If there are cards and none are pending, remove the entry.
+                // Unlocked entries may still be receiving card batches, keep those.
+                if (entry != null && entry.isLocked && totalCards > 0 && pendingCards == 0) {
+                    // PDFs and their text need file cleanup
+                    deleteFiles(getDao().deleteEntries(Collections.singletonList(entryId)));
+                    InboxEvents.publishEntryRemoved(entryId);
+                    result.put("removed", true);
+                } else {
+                    result.put("removed", false);
                 }
                 
-                getDao().deleteEntry(entryId);
-                result.put("removed", true);
-            } else {
-                result.put("removed", false);
+                call.resolve(result);
+            } catch (Exception e) {
+                call.reject("Failed to check auto-remove: " + e.getMessage(), e);
             }
-            
-            call.resolve(result);
-        } catch (Exception e) {
-            call.reject("Failed to check auto-remove: " + e.getMessage(), e);
         }
     }
     
@@ -285,24 +566,27 @@ public class InboxPlugin extends Plugin {
      */
     @PluginMethod
     public void lockEntry(PluginCall call) {
-        String entryId = call.getString("entryId");
-        if (entryId == null) {
-            call.reject("Missing required parameter: entryId");
-            return;
-        }
-        
-        try {
-            InboxEntry entry = getDao().getEntry(entryId);
-            if (entry == null) {
-                call.reject("Entry not found: " + entryId);
+        try (Diagnostics.Scope scope = Diagnostics.enter("Inbox.lockEntry")) {
+            String entryId = call.getString("entryId");
+            if (entryId == null) {
+                call.reject("Missing required parameter: entryId");
                 return;
             }
             
-            entry.isLocked = true;
-            getDao().updateEntry(entry);
-            call.resolve();
-        } catch (Exception e) {
-            call.reject("Failed to lock entry: " + e.getMessage(), e);
+            try {
+                InboxEntry entry = getDao().getEntry(entryId);
+                if (entry == null) {
+                    call.reject("Entry not found: " + entryId);
+                    return;
+                }
+                
+                entry.isLocked = true;
+                getDao().updateEntry(entry);
+                InboxEvents.publishEntryUpdated(entryId);
+                call.resolve();
+            } catch (Exception e) {
+                call.reject("Failed to lock entry: " + e.getMessage(), e);
+            }
         }
     }
     
@@ -312,28 +596,31 @@ public class InboxPlugin extends Plugin {
      */
     @PluginMethod
     public void updateExtractedContent(PluginCall call) {
-        String entryId = call.getString("entryId");
-        String title = call.getString("title");
-        String extractedText = call.getString("extractedText");
-        
-        if (entryId == null) {
-            call.reject("Missing required parameter: entryId");
-            return;
-        }
-        
-        try {
-            InboxEntry entry = getDao().getEntry(entryId);
-            if (entry == null) {
-                call.reject("Entry not found: " + entryId);
+        try (Diagnostics.Scope scope = Diagnostics.enter("Inbox.updateExtractedContent")) {
+            String entryId = call.getString("entryId");
+            String title = call.getString("title");
+            String extractedText = call.getString("extractedText");
+            
+            if (entryId == null) {
+                call.reject("Missing required parameter: entryId");
                 return;
             }
             
-            entry.title = title;
-            entry.extractedText = extractedText;
-            getDao().updateEntry(entry);
-            call.resolve();
-        } catch (Exception e) {
-            call.reject("Failed to update extracted content: " + e.getMessage(), e);
+            try {
+                InboxEntry entry = getDao().getEntry(entryId);
+                if (entry == null) {
+                    call.reject("Entry not found: " + entryId);
+                    return;
+                }
+                
+                entry.title = title;
+                entry.extractedText = extractedText;
+                getDao().updateEntry(entry);
+                InboxEvents.publishEntryUpdated(entryId);
+                call.resolve();
+            } catch (Exception e) {
+                call.reject("Failed to update extracted content: " + e.getMessage(), e);
+            }
         }
     }
     
@@ -343,119 +630,293 @@ public class InboxPlugin extends Plugin {
      */
     @PluginMethod
     public void updateDeckName(PluginCall call) {
-        String entryId = call.getString("entryId");
-        String deckName = call.getString("deckName");
-        
-        if (entryId == null || deckName == null) {
-            call.reject("Missing required parameters: entryId and deckName");
-            return;
-        }
-        
-        try {
-            InboxEntry entry = getDao().getEntry(entryId);
-            if (entry == null) {
-                call.reject("Entry not found: " + entryId);
+        try (Diagnostics.Scope scope = Diagnostics.enter("Inbox.updateDeckName")) {
+            String entryId = call.getString("entryId");
+            String deckName = call.getString("deckName");
+            
+            if (entryId == null || deckName == null) {
+                call.reject("Missing required parameters: entryId and deckName");
                 return;
             }
             
-            entry.deckName = deckName;
-            getDao().updateEntry(entry);
-            call.resolve();
-        } catch (Exception e) {
-            call.reject("Failed to update deck name: " + e.getMessage(), e);
+            try {
+                InboxEntry entry = getDao().getEntry(entryId);
+                if (entry == null) {
+                    call.reject("Entry not found: " + entryId);
+                    return;
+                }
+                
+                entry.deckName = deckName;
+                getDao().updateEntry(entry);
+                InboxEvents.publishEntryUpdated(entryId);
+                call.resolve();
+            } catch (Exception e) {
+                call.reject("Failed to update deck name: " + e.getMessage(), e);
+            }
         }
     }
     
-    // ==================== Helper Methods ====================
+    // ==================== PDF Page Operations ====================
     
-    private JSObject entryToJson(InboxEntry entry) {
-        JSObject obj = new JSObject();
-        obj.put("id", entry.id);
-        obj.put("contentType", entry.contentType);
-        obj.put("content", entry.content);
-        obj.put("preview", entry.preview);
-        obj.put("title", entry.title);
-        obj.put("extractedText", entry.extractedText);
-        obj.put("deckName", entry.deckName);
-        obj.put("isLocked", entry.isLocked);
-        obj.put("createdAt", entry.createdAt);
-        return obj;
+    /**
+     * Store the extracted text of one PDF page. Called once per page while pdf.js
+     * walks the document, so extraction progress survives an interrupted run.
+     * Params: { entryId: string, pageNo: number, text: string, pageCount?: number }
+     */
+    @PluginMethod
+    public void savePdfPage(PluginCall call) {
+        try (Diagnostics.Scope scope = Diagnostics.enter("Inbox.savePdfPage")) {
+            String entryId = call.getString("entryId");
+            Integer pageNo = call.getInt("pageNo");
+            String text = call.getString("text");
+            
+            if (entryId == null || pageNo == null || text == null) {
+                call.reject("Missing required parameters: entryId, pageNo, and text");
+                return;
+            }
+            
+            try {
+                InboxEntry entry = getDao().getEntry(entryId);
+                if (entry == null) {
+                    call.reject("Entry not found: " + entryId);
+                    return;
+                }
+                
+                // pageCount is optional, pdf.js knows it once the document is open
+                Integer pageCount = call.getInt("pageCount");
+                if (pageCount != null && pageCount != entry.pageCount) {
+                    entry.pageCount = pageCount;
+                    getDao().updateEntry(entry);
+                    InboxEvents.publishEntryUpdated(entryId);
+                }
+                
+                getDao().insertPdfPage(PdfPage.create(entryId, pageNo, text));
+                call.resolve();
+            } catch (Exception e) {
+                call.reject("Failed to save PDF page: " + e.getMessage(), e);
+            }
+        }
     }
     
-    @SuppressLint("DirectSystemCurrentTimeMillisUsage")
-    private InboxEntry jsonToEntry(JSObject obj) {
-        InboxEntry entry = new InboxEntry();
-        entry.id = obj.getString("id", UUID.randomUUID().toString());
-        entry.contentType = obj.getString("contentType", "text");
-        entry.content = obj.getString("content", "");
-        entry.preview = obj.getString("preview", "");
-        entry.title = obj.getString("title");
-        entry.extractedText = obj.getString("extractedText");
-        entry.deckName = obj.getString("deckName");
-        entry.isLocked = obj.getBoolean("isLocked", false);
-        
-        // Handle createdAt - use current time if not provided
-        try {
-            Long createdAt = obj.getLong("createdAt");
-            entry.createdAt = createdAt != null ? createdAt : System.currentTimeMillis();
-        } catch (Exception e) {
-            entry.createdAt = System.currentTimeMillis();
+    /**
+     * Get per-page extraction stats for a PDF entry (no page text is returned)
+     * Params: { entryId: string }
+     * Returns: { pageCount: number, pageRangeStart?: number, pageRangeEnd?: number,
+     *            totalChars: number, pages: { pageNo: number, charCount: number }[] }
+     */
+    @PluginMethod
+    public void getPdfPageStats(PluginCall call) {
+        try (Diagnostics.Scope scope = Diagnostics.enter("Inbox.getPdfPageStats")) {
+            String entryId = call.getString("entryId");
+            if (entryId == null) {
+                call.reject("Missing required parameter: entryId");
+                return;
+            }
+            
+            try {
+                InboxEntry entry = getDao().getEntry(entryId);
+                if (entry == null) {
+                    call.reject("Entry not found: " + entryId);
+                    return;
+                }
+                
+                List<PdfPageStat> stats = getDao().getPdfPageStats(entryId);
+                JSArray pagesArray = new JSArray();
+                long totalChars = 0;
+                for (PdfPageStat stat : stats) {
+                    JSObject pageObj = new JSObject();
+                    pageObj.put("pageNo", stat.pageNo);
+                    pageObj.put("charCount", stat.charCount);
+                    pagesArray.put(pageObj);
+                    totalChars += stat.charCount;
+                }
+                
+                JSObject result = new JSObject();
+                result.put("pageCount", entry.pageCount);
+                result.put("pageRangeStart", entry.pageRangeStart);
+                result.put("pageRangeEnd", entry.pageRangeEnd);
+                result.put("totalChars", totalChars);
+                result.put("pages", pagesArray);
+                call.resolve(result);
+            } catch (Exception e) {
+                call.reject("Failed to get PDF page stats: " + e.getMessage(), e);
+            }
         }
-        
-        return entry;
     }
     
-    private JSObject cardToJson(GeneratedCard card) {
-        JSObject obj = new JSObject();
-        obj.put("id", card.id);
-        obj.put("entryId", card.entryId);
-        obj.put("front", card.front);
-        obj.put("back", card.back);
-        obj.put("status", card.status);
-        
-        // Parse tags from JSON string to array
-        if (card.tags != null) {
+    /**
+     * Select the page range used for generation and rebuild the entry's text from the
+     * stored pages in that range. Omitting a bound selects from the first / through the last page.
+     * The pages are streamed a window at a time into the entry's text file (EntryTextStore),
+     * normalized on the way, so the text of the range is never held whole.
+     * Params: { entryId: string, startPage?: number, endPage?: number }
+     * Returns: { missingPages: number[], charCount: number } (charCount in code points)
+     */
+    @PluginMethod
+    public void setPdfPageRange(PluginCall call) {
+        try (Diagnostics.Scope scope = Diagnostics.enter("Inbox.setPdfPageRange")) {
+            String entryId = call.getString("entryId");
+            Integer startPage = call.getInt("startPage");
+            Integer endPage = call.getInt("endPage");
+            
+            if (entryId == null) {
+                call.reject("Missing required parameter: entryId");
+                return;
+            }
+            if ((startPage != null && startPage < 1) || (endPage != null && endPage < 1)) {
+                call.reject("Page numbers start at 1");
+                return;
+            }
+            if (startPage != null && endPage != null && startPage > endPage) {
+                call.reject("startPage must not be greater than endPage");
+                return;
+            }
+            
             try {
-                obj.put("tags", new JSArray(card.tags));
-            } catch (JSONException e) {
-                obj.put("tags", new JSArray());
+                EntrySummary entry = getDao().getEntrySummary(entryId);
+                if (entry == null) {
+                    call.reject("Entry not found: " + entryId);
+                    return;
+                }
+                if (!"pdf".equals(entry.contentType)) {
+                    call.reject("Page ranges are only supported for PDF entries");
+                    return;
+                }
+                
+                int first = startPage != null ? startPage : 1;
+                int last = endPage != null ? endPage : (entry.pageCount > 0 ? entry.pageCount : Integer.MAX_VALUE);
+                if (entry.pageCount > 0) {
+                    last = Math.min(last, entry.pageCount);
+                }
+                
+                int charCount = getTextStore().write(entryId, new PdfTextReader(getDao(), entryId, first, last));
+                // No text keeps extractedTextFileLength null, so the UI still offers extraction
+                getDao().setPdfText(entryId, startPage, endPage, charCount > 0 ? charCount : null);
+                InboxEvents.publishEntryUpdated(entryId);
+                
+                // Report pages in range that pdf.js still has to extract
+                JSArray missingPages = new JSArray();
+                if (entry.pageCount > 0) {
+                    List<PdfPageStat> pages = getDao().getPdfPageStats(entryId);
+                    int pageIndex = 0;
+                    for (int pageNo = first; pageNo <= last; pageNo++) {
+                        while (pageIndex < pages.size() && pages.get(pageIndex).pageNo < pageNo) {
+                            pageIndex++;
+                        }
+                        if (pageIndex >= pages.size() || pages.get(pageIndex).pageNo != pageNo) {
+                            missingPages.put(pageNo);
+                        }
+                    }
+                }
+                
+                JSObject result = new JSObject();
+                result.put("missingPages", missingPages);
+                result.put("charCount", charCount);
+                call.resolve(result);
+            } catch (Exception e) {
+                call.reject("Failed to set PDF page range: " + e.getMessage(), e);
             }
-        } else {
-            obj.put("tags", new JSArray());
         }
-        
-        if (card.noteId != null) {
-            obj.put("noteId", card.noteId);
+    }
+    
+    // ==================== Helper Methods ====================
+    
+    private static JSObject entryEvent(String entryId) {
+        JSObject event = new JSObject();
+        event.put("entryId", entryId);
+        return event;
+    }
+    
+    /**
+     * Requested entry fields, null for all of them
+     */
+    private Set<String> getFields(PluginCall call) throws JSONException {
+        JSArray array = call.getArray("fields");
+        if (array == null) {
+            return null;
         }
-        
-        return obj;
+        Set<String> fields = new HashSet<>();
+        for (int i = 0; i < array.length(); i++) {
+            fields.add(array.getString(i));
+        }
+        fields.add("id");
+        return fields;
     }
     
-    private GeneratedCard jsonToCard(JSONObject obj, String entryId) throws JSONException {
-        GeneratedCard card = new GeneratedCard();
-        card.id = obj.optString("id", UUID.randomUUID().toString());
-        card.entryId = entryId;
-        card.front = obj.optString("front", "");
-        card.back = obj.optString("back", "");
-        card.status = obj.optString("status", "pending");
+    /**
+     * Whether the full entity is needed, or the summary without text will do
+     */
+    private static boolean needsText(Set<String> fields) {
+        return fields == null || fields.contains(InboxJson.FIELD_CONTENT) || fields.contains(InboxJson.FIELD_EXTRACTED_TEXT);
+    }
+    
+    /**
+     * Announce deleted entries and resolve with their count
+     */
+    private void resolveRemoved(PluginCall call, List<RemovedEntry> removed) {
+        deleteFiles(removed);
+        List<String> ids = new ArrayList<>(removed.size());
+        for (RemovedEntry entry : removed) {
+            ids.add(entry.id);
+        }
+        InboxEvents.publishEntriesRemoved(ids);
         
-        // Convert tags array to JSON string
-        if (obj.has("tags")) {
-            JSONArray tagsArray = obj.optJSONArray("tags");
-            if (tagsArray != null) {
-                card.tags = tagsArray.toString();
-            } else {
-                card.tags = "[]";
+        JSObject result = new JSObject();
+        result.put("removed", removed.size());
+        call.resolve(result);
+    }
+    
+    /**
+     * Queue the PDF and text files of deleted entries for removal, then sweep the source
+     * images no remaining entry or card refers to. Their rows are already gone, so a file
+     * that fails to delete is only wasted space.
+     */
+    private void deleteFiles(List<RemovedEntry> removed) {
+        List<String> urls = new ArrayList<>();
+        List<String> textIds = new ArrayList<>();
+        for (RemovedEntry entry : removed) {
+            if (entry.pdfUrl != null) {
+                urls.add(entry.pdfUrl);
+            }
+            if (entry.hasTextFile) {
+                textIds.add(entry.id);
             }
-        } else {
-            card.tags = "[]";
         }
-        
-        if (obj.has("noteId") && !obj.isNull("noteId")) {
-            card.noteId = obj.getLong("noteId");
+        if (removed.isEmpty()) {
+            return;
         }
-        
-        return card;
+        EntryTextStore textStore = getTextStore();
+        fileExecutor.execute(() -> {
+            for (String url : urls) {
+                deletePdfFile(url);
+            }
+            for (String id : textIds) {
+                if (!textStore.delete(id)) {
+                    Log.w(TAG, "Failed to delete text file of entry " + id);
+                }
+            }
+        });
+        sweepSourceImages(getContext());
+    }
+    
+    /**
+     * Queue removal of stored source images that no entry or card refers to any more.
+     * Called after entries are deleted and after an entry's cards are replaced.
+     */
+    public static void sweepSourceImages(Context context) {
+        Context appContext = context.getApplicationContext();
+        fileExecutor.execute(() -> {
+            try {
+                List<String> referenced = AppDatabase.getInstance(appContext).inboxDao().getReferencedSourceImages();
+                int deleted = SourceImages.deleteUnreferenced(
+                    SourceImages.dir(appContext), referenced, System.currentTimeMillis());
+                if (deleted > 0) {
+                    Log.d(TAG, "Deleted " + deleted + " unreferenced source images");
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "Failed to sweep source images", e);
+            }
+        });
     }
     
     /**
@@ -466,7 +927,7 @@ public class InboxPlugin extends Plugin {
      *
      * @param capacitorUrl The Capacitor-compatible file URL stored in entry.content
      */
-    private void deletePdfFile(String capacitorUrl) {
+    private static void deletePdfFile(String capacitorUrl) {
         if (capacitorUrl == null || capacitorUrl.isEmpty()) {
             return;
         }
@@ -481,13 +942,13 @@ public class InboxPlugin extends Plugin {
                 if (pdfFile.exists()) {
                     boolean deleted = pdfFile.delete();
                     if (!deleted) {
-                        android.util.Log.w("InboxPlugin", "Failed to delete PDF file: " + filePath);
+                        Log.w(TAG, "Failed to delete PDF file: " + filePath);
                     }
                 }
             }
         } catch (Exception e) {
             // Log but don't fail - file cleanup is best effort
-            android.util.Log.e("InboxPlugin", "Error deleting PDF file: " + e.getMessage(), e);
+            Log.e(TAG, "Error deleting PDF file: " + e.getMessage(), e);
         }
     }
 }
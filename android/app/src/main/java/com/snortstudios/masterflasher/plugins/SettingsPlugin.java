@@ -1,30 +1,40 @@
 package com.snortstudios.masterflasher.plugins;
 
+import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
 import com.getcapacitor.PluginMethod;
 import com.getcapacitor.annotation.CapacitorPlugin;
 import com.snortstudios.masterflasher.db.AppDatabase;
-import com.snortstudios.masterflasher.db.AppSetting;
-import com.snortstudios.masterflasher.db.InboxDao;
+import com.snortstudios.masterflasher.db.SettingsCache;
+import com.snortstudios.masterflasher.diagnostics.Diagnostics;
+
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Capacitor plugin for app settings storage.
  * 
  * Provides key-value storage for non-sensitive settings like custom prompts.
- * Uses Room database for persistence, consistent with other app data.
+ * Uses Room database for persistence, consistent with other app data. Reads are served
+ * from SettingsCache, loaded once per process; writes go through it to the database.
  * 
  * Exposed methods:
  * - getSetting({ key: string }) -> { value: string | null }
+ * - getSettings({ keys: string[] }) -> { values: { [key]: string | null } }
+ * - getAllSettings() -> { values: { [key]: string | null } }
  * - setSetting({ key: string, value: string }) -> void
  * - deleteSetting({ key: string }) -> void
  */
 @CapacitorPlugin(name = "Settings")
 public class SettingsPlugin extends Plugin {
     
-    private InboxDao getDao() {
-        return AppDatabase.getInstance(getContext()).inboxDao();
+    private SettingsCache getSettings() {
+        return SettingsCache.getInstance(AppDatabase.getInstance(getContext()).inboxDao());
     }
     
     /**
@@ -35,19 +45,67 @@ public class SettingsPlugin extends Plugin {
      */
     @PluginMethod
     public void getSetting(PluginCall call) {
-        String key = call.getString("key");
-        if (key == null || key.isEmpty()) {
-            call.reject("Missing required parameter: key");
-            return;
+        try (Diagnostics.Scope scope = Diagnostics.enter("Settings.getSetting")) {
+            String key = call.getString("key");
+            if (key == null || key.isEmpty()) {
+                call.reject("Missing required parameter: key");
+                return;
+            }
+            
+            try {
+                JSObject result = new JSObject();
+                result.put("value", getSettings().get(key));
+                call.resolve(result);
+            } catch (Exception e) {
+                call.reject("Failed to get setting: " + e.getMessage(), e);
+            }
+        }
+    }
+    
+    /**
+     * Get several settings in one call
+     * 
+     * Params: { keys: string[] }
+     * Returns: { values: { [key]: string | null } } (every requested key is present)
+     */
+    @PluginMethod
+    public void getSettings(PluginCall call) {
+        try (Diagnostics.Scope scope = Diagnostics.enter("Settings.getSettings")) {
+            JSArray keysArray = call.getArray("keys");
+            if (keysArray == null) {
+                call.reject("Missing required parameter: keys");
+                return;
+            }
+            
+            try {
+                List<String> keys = new ArrayList<>(keysArray.length());
+                for (int i = 0; i < keysArray.length(); i++) {
+                    keys.add(keysArray.getString(i));
+                }
+                JSObject result = new JSObject();
+                result.put("values", toJson(getSettings().get(keys)));
+                call.resolve(result);
+            } catch (Exception e) {
+                call.reject("Failed to get settings: " + e.getMessage(), e);
+            }
         }
-        
-        try {
-            AppSetting setting = getDao().getSetting(key);
-            JSObject result = new JSObject();
-            result.put("value", setting != null ? setting.value : null);
-            call.resolve(result);
-        } catch (Exception e) {
-            call.reject("Failed to get setting: " + e.getMessage(), e);
+    }
+    
+    /**
+     * Get every stored setting
+     * 
+     * Returns: { values: { [key]: string | null } }
+     */
+    @PluginMethod
+    public void getAllSettings(PluginCall call) {
+        try (Diagnostics.Scope scope = Diagnostics.enter("Settings.getAllSettings")) {
+            try {
+                JSObject result = new JSObject();
+                result.put("values", toJson(getSettings().getAll()));
+                call.resolve(result);
+            } catch (Exception e) {
+                call.reject("Failed to get settings: " + e.getMessage(), e);
+            }
         }
     }
     
@@ -58,22 +116,23 @@ public class SettingsPlugin extends Plugin {
      */
     @PluginMethod
     public void setSetting(PluginCall call) {
-        String key = call.getString("key");
-        String value = call.getString("value");
-        
-        if (key == null || key.isEmpty()) {
-            call.reject("Missing required parameter: key");
-            return;
-        }
-        
-        // value can be null or empty to clear a setting
-        
-        try {
-            AppSetting setting = new AppSetting(key, value);
-            getDao().setSetting(setting);
-            call.resolve();
-        } catch (Exception e) {
-            call.reject("Failed to set setting: " + e.getMessage(), e);
+        try (Diagnostics.Scope scope = Diagnostics.enter("Settings.setSetting")) {
+            String key = call.getString("key");
+            String value = call.getString("value");
+            
+            if (key == null || key.isEmpty()) {
+                call.reject("Missing required parameter: key");
+                return;
+            }
+            
+            // value can be null or empty to clear a setting
+            
+            try {
+                getSettings().set(key, value);
+                call.resolve();
+            } catch (Exception e) {
+                call.reject("Failed to set setting: " + e.getMessage(), e);
+            }
         }
     }
     
@@ -84,17 +143,30 @@ public class SettingsPlugin extends Plugin {
      */
     @PluginMethod
     public void deleteSetting(PluginCall call) {
-        String key = call.getString("key");
-        if (key == null || key.isEmpty()) {
-            call.reject("Missing required parameter: key");
-            return;
+        try (Diagnostics.Scope scope = Diagnostics.enter("Settings.deleteSetting")) {
+            String key = call.getString("key");
+            if (key == null || key.isEmpty()) {
+                call.reject("Missing required parameter: key");
+                return;
+            }
+            
+            try {
+                getSettings().delete(key);
+                call.resolve();
+            } catch (Exception e) {
+                call.reject("Failed to delete setting: " + e.getMessage(), e);
+            }
         }
-        
-        try {
-            getDao().deleteSetting(key);
-            call.resolve();
-        } catch (Exception e) {
-            call.reject("Failed to delete setting: " + e.getMessage(), e);
+    }
+    
+    /**
+     * Settings as a JSON object, with unset values as null rather than left out
+     */
+    private static JSObject toJson(Map<String, String> values) {
+        JSObject obj = new JSObject();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            obj.put(entry.getKey(), entry.getValue() != null ? entry.getValue() : JSONObject.NULL);
         }
+        return obj;
     }
 }
@@ -11,6 +11,7 @@ import android.widget.Toast;
 
 import com.snortstudios.masterflasher.db.AppDatabase;
 import com.snortstudios.masterflasher.db.InboxEntry;
+import com.snortstudios.masterflasher.db.InboxEvents;
 
 import java.io.File;
 import java.io.FileOutputStream;
@@ -83,14 +84,15 @@ public class ShareReceiverActivity extends Activity {
     private void saveTextToInbox(String content) {
         try {
             // Determine content type (URL or text)
-            String contentType = isUrl(content) ? "url" : "text";
+            String contentType = InboxEntry.isUrl(content) ? "url" : "text";
             
             // Create new inbox entry
             String id = UUID.randomUUID().toString();
             InboxEntry entry = InboxEntry.create(id, contentType, content);
             
-            // Save to database
+            // Save to database; an open inbox picks the entry up from the change feed
             AppDatabase.getInstance(this).inboxDao().insertEntry(entry);
+            InboxEvents.publishEntryAdded(id);
             
             // Show success toast
             showToast("Saved to inbox");
@@ -138,6 +140,7 @@ public class ShareReceiverActivity extends Activity {
                 
                 // Save to database
                 AppDatabase.getInstance(this).inboxDao().insertEntry(entry);
+                InboxEvents.publishEntryAdded(id);
                 
                 // Show success toast on UI thread
                 runOnUiThread(() -> showToast("PDF saved to inbox"));
@@ -187,10 +190,6 @@ public class ShareReceiverActivity extends Activity {
         return result;
     }
     
-    private boolean isUrl(String text) {
-        return text.matches("(?i)^https?://.*");
-    }
-    
     private void showToast(String message) {
         Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
     }
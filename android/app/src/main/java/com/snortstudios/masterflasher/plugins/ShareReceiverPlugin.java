@@ -7,6 +7,7 @@ import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
 import com.getcapacitor.PluginMethod;
 import com.getcapacitor.annotation.CapacitorPlugin;
+import com.snortstudios.masterflasher.diagnostics.Diagnostics;
 
 @CapacitorPlugin(name = "ShareReceiver")
 public class ShareReceiverPlugin extends Plugin {
@@ -19,11 +20,13 @@ public class ShareReceiverPlugin extends Plugin {
 
     @PluginMethod
     public void getSharedText(PluginCall call) {
-        Activity activity = getActivity();
-        Intent intent = activity.getIntent();
+        try (Diagnostics.Scope scope = Diagnostics.enter("ShareReceiver.getSharedText")) {
+            Activity activity = getActivity();
+            Intent intent = activity.getIntent();
         
-        JSObject ret = processIntent(intent, false);
-        call.resolve(ret);
+            JSObject ret = processIntent(intent, false);
+            call.resolve(ret);
+        }
     }
 
     private JSObject processIntent(Intent intent, boolean notifyListeners) {
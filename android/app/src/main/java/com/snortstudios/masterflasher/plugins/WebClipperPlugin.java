@@ -8,22 +8,25 @@ import com.getcapacitor.PluginCall;
 import com.getcapacitor.PluginMethod;
 import com.getcapacitor.annotation.ActivityCallback;
 import com.getcapacitor.annotation.CapacitorPlugin;
+import com.snortstudios.masterflasher.diagnostics.Diagnostics;
 
 @CapacitorPlugin(name = "WebClipper")
 public class WebClipperPlugin extends Plugin {
 
     @PluginMethod
     public void open(PluginCall call) {
-        String url = call.getString("url");
-        if (url == null) {
-            call.reject("URL is required");
-            return;
-        }
+        try (Diagnostics.Scope scope = Diagnostics.enter("WebClipper.open")) {
+            String url = call.getString("url");
+            if (url == null) {
+                call.reject("URL is required");
+                return;
+            }
 
-        Intent intent = new Intent(getContext(), WebClipperActivity.class);
-        intent.putExtra("url", url);
+            Intent intent = new Intent(getContext(), WebClipperActivity.class);
+            intent.putExtra("url", url);
 
-        startActivityForResult(call, intent, "handleClipperResult");
+            startActivityForResult(call, intent, "handleClipperResult");
+        }
     }
 
     @ActivityCallback
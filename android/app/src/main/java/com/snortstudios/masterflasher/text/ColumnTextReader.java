@@ -0,0 +1,66 @@
+package com.snortstudios.masterflasher.text;
+
+import com.snortstudios.masterflasher.db.InboxDao;
+
+import java.io.Reader;
+
+/**
+ * An entry's content or extractedText column read a window at a time with SQLite substr,
+ * so text kept in the row (shared text, web pages, PDFs extracted before EntryTextStore)
+ * is not loaded whole either.
+ */
+public class ColumnTextReader extends Reader {
+
+    // Code points per query
+    static final int WINDOW_CHARS = 64 * 1024;
+
+    private final InboxDao dao;
+    private final String entryId;
+    private final boolean extractedText;
+
+    // Code points read so far
+    private int offset;
+    private String window = "";
+    private int windowPos;
+    private boolean eof;
+
+    /**
+     * @param extractedText Read extractedText, otherwise content
+     */
+    public ColumnTextReader(InboxDao dao, String entryId, boolean extractedText) {
+        this.dao = dao;
+        this.entryId = entryId;
+        this.extractedText = extractedText;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        while (windowPos == window.length()) {
+            if (eof) {
+                return -1;
+            }
+            String next = extractedText
+                ? dao.getExtractedTextRange(entryId, offset + 1, WINDOW_CHARS)
+                : dao.getContentRange(entryId, offset + 1, WINDOW_CHARS);
+            int codePoints = next != null ? next.codePointCount(0, next.length()) : 0;
+            eof = codePoints < WINDOW_CHARS;
+            offset += codePoints;
+            window = next != null ? next : "";
+            windowPos = 0;
+        }
+        int n = Math.min(len, window.length() - windowPos);
+        window.getChars(windowPos, windowPos + n, cbuf, off);
+        windowPos += n;
+        return n;
+    }
+
+    @Override
+    public void close() {
+        window = "";
+        windowPos = 0;
+        eof = true;
+    }
+}
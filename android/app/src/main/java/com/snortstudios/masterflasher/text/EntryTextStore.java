@@ -0,0 +1,151 @@
+package com.snortstudios.masterflasher.text;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Extracted text of inbox entries kept in files (files/texts/<entryId>.txt, UTF-8) instead
+ * of the extractedText column.
+ *
+ * The text of a long PDF runs to megabytes. Kept in the row, every read of it was one
+ * String, copied again into the JSObject, the WebView and the chunker. Here it is written
+ * and read as a stream: write() normalizes it on the way in (NormalizingReader), open()
+ * feeds the chunker, and read() returns a range for the UI, so the whole text is never in
+ * memory. InboxEntry.extractedTextFileLength marks the entries whose text is here.
+ */
+public final class EntryTextStore {
+
+    public static final String TEXT_DIR = "texts";
+    public static final String EXTENSION = ".txt";
+
+    private static final int BUFFER_CHARS = 16 * 1024;
+
+    private final File dir;
+
+    public EntryTextStore(File filesDir) {
+        this.dir = new File(filesDir, TEXT_DIR);
+    }
+
+    /**
+     * File holding an entry's text, which may not exist
+     *
+     * @throws IllegalArgumentException when the id cannot be a file name
+     */
+    public File file(String entryId) {
+        if (!isSafeId(entryId)) {
+            throw new IllegalArgumentException("Invalid entry id: " + entryId);
+        }
+        return new File(dir, entryId + EXTENSION);
+    }
+
+    /**
+     * Normalize text into the entry's file, replacing its earlier text. Written through a
+     * temporary file, so a reader sees the old text or the new one, never part of it.
+     * The reader is closed.
+     *
+     * @return Length of the stored text in code points; for 0 the file is removed
+     */
+    public int write(String entryId, Reader text) throws IOException {
+        File target = file(entryId);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            text.close();
+            throw new IOException("Could not create " + dir);
+        }
+        File partial = new File(dir, target.getName() + ".part");
+        long codePoints = 0;
+        try (Reader in = new NormalizingReader(text);
+             Writer out = new OutputStreamWriter(new FileOutputStream(partial), StandardCharsets.UTF_8)) {
+            char[] buffer = new char[BUFFER_CHARS];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+                for (int i = 0; i < read; i++) {
+                    if (!Character.isLowSurrogate(buffer[i])) {
+                        codePoints++;
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            partial.delete();
+            throw e;
+        }
+
+        if (codePoints == 0) {
+            partial.delete();
+            target.delete();
+            return 0;
+        }
+        if (codePoints > Integer.MAX_VALUE) {
+            partial.delete();
+            throw new IOException("Text too long: " + codePoints + " characters");
+        }
+        if (!partial.renameTo(target)) {
+            partial.delete();
+            throw new IOException("Could not write " + target);
+        }
+        return (int) codePoints;
+    }
+
+    /**
+     * Open an entry's text for reading, for the caller to close
+     */
+    public Reader open(String entryId) throws IOException {
+        return new BufferedReader(
+            new InputStreamReader(new FileInputStream(file(entryId)), StandardCharsets.UTF_8), BUFFER_CHARS);
+    }
+
+    /**
+     * Read part of an entry's text, skipping what comes before without keeping it
+     *
+     * @param offset First code point
+     * @param length Code points to read, fewer at the end of the text
+     */
+    public String read(String entryId, int offset, int length) throws IOException {
+        StringBuilder result = new StringBuilder(Math.min(length, BUFFER_CHARS));
+        try (Reader in = open(entryId)) {
+            char[] buffer = new char[BUFFER_CHARS];
+            // Index of the code point the current char belongs to
+            long index = -1;
+            long end = (long) offset + length;
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                for (int i = 0; i < read; i++) {
+                    char c = buffer[i];
+                    if (!Character.isLowSurrogate(c) && ++index >= end) {
+                        return result.toString();
+                    }
+                    if (index >= offset) {
+                        result.append(c);
+                    }
+                }
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Remove an entry's text file, if it has one
+     *
+     * @return false when the file exists but could not be deleted
+     */
+    public boolean delete(String entryId) {
+        File file = file(entryId);
+        return !file.exists() || file.delete();
+    }
+
+    /**
+     * Whether an entry id (for example from a backup archive) is safe as a file name
+     */
+    public static boolean isSafeId(String entryId) {
+        return entryId != null && !entryId.isEmpty() && !entryId.equals(".") && !entryId.equals("..")
+            && entryId.indexOf('/') < 0 && entryId.indexOf('\\') < 0;
+    }
+}
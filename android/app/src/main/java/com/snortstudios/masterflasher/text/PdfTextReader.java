@@ -0,0 +1,108 @@
+package com.snortstudios.masterflasher.text;
+
+import com.snortstudios.masterflasher.db.InboxDao;
+import com.snortstudios.masterflasher.db.PdfPage;
+
+import java.io.Reader;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Text of a PDF entry's stored pages within a range, read from pdf_pages a window of
+ * pages at a time. Non-empty pages are joined with a blank line, the layout extractPdfText
+ * produces, and only one window of page rows is held at once.
+ */
+public class PdfTextReader extends Reader {
+
+    static final int PAGE_WINDOW = 16;
+
+    private final InboxDao dao;
+    private final String entryId;
+    private final int endPage;
+
+    private List<PdfPage> pages = Collections.emptyList();
+    private int pageIndex;
+    private int afterPageNo;
+    private boolean lastWindow;
+
+    // Page being read, and the line breaks still to write before it
+    private String page = "";
+    private int pagePos;
+    private int breaksBefore;
+    private boolean anyPage;
+
+    /**
+     * @param startPage First page, inclusive
+     * @param endPage Last page, inclusive
+     */
+    public PdfTextReader(InboxDao dao, String entryId, int startPage, int endPage) {
+        this.dao = dao;
+        this.entryId = entryId;
+        this.endPage = endPage;
+        this.afterPageNo = startPage - 1;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        int n = 0;
+        while (n < len) {
+            if (breaksBefore > 0) {
+                cbuf[off + n++] = '\n';
+                breaksBefore--;
+                continue;
+            }
+            if (pagePos == page.length()) {
+                if (n > 0 || !nextPage()) {
+                    break;
+                }
+                continue;
+            }
+            int count = Math.min(len - n, page.length() - pagePos);
+            page.getChars(pagePos, pagePos + count, cbuf, off + n);
+            pagePos += count;
+            n += count;
+        }
+        return n > 0 ? n : -1;
+    }
+
+    @Override
+    public void close() {
+        pages = Collections.emptyList();
+        page = "";
+        lastWindow = true;
+    }
+
+    /**
+     * Move to the next page with text, loading the next window of rows when needed
+     */
+    private boolean nextPage() {
+        while (true) {
+            if (pageIndex == pages.size()) {
+                if (lastWindow) {
+                    return false;
+                }
+                pages = dao.getPdfPagesInRangeAfter(entryId, afterPageNo, endPage, PAGE_WINDOW);
+                pageIndex = 0;
+                lastWindow = pages.size() < PAGE_WINDOW;
+                if (pages.isEmpty()) {
+                    return false;
+                }
+                afterPageNo = pages.get(pages.size() - 1).pageNo;
+            }
+            PdfPage next = pages.get(pageIndex);
+            // Drop the row once read, the window only holds pages still to come
+            pages.set(pageIndex++, null);
+            if (next.text == null || next.text.isEmpty()) {
+                continue;
+            }
+            page = next.text;
+            pagePos = 0;
+            breaksBefore = anyPage ? 2 : 0;
+            anyPage = true;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.snortstudios.masterflasher.anki;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class AnkiOutboxTest {
+
+    @Test
+    public void backoff_doublesPerFailureUpToTheCap() {
+        assertEquals(AnkiOutbox.BASE_BACKOFF_MS, AnkiOutbox.backoffMs(1));
+        assertEquals(2 * AnkiOutbox.BASE_BACKOFF_MS, AnkiOutbox.backoffMs(2));
+        assertEquals(8 * AnkiOutbox.BASE_BACKOFF_MS, AnkiOutbox.backoffMs(4));
+        assertEquals(AnkiOutbox.MAX_BACKOFF_MS, AnkiOutbox.backoffMs(AnkiOutbox.MAX_ATTEMPTS + 20));
+        assertEquals(AnkiOutbox.MAX_BACKOFF_MS, AnkiOutbox.backoffMs(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void backoff_retriesWithinADayBeforeGivingUp() {
+        long total = 0;
+        for (int attempts = 1; attempts < AnkiOutbox.MAX_ATTEMPTS; attempts++) {
+            total += AnkiOutbox.backoffMs(attempts);
+        }
+        assertTrue(total < 24L * 60 * 60 * 1000);
+    }
+}
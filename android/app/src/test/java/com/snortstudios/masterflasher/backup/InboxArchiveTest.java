@@ -0,0 +1,85 @@
+package com.snortstudios.masterflasher.backup;
+
+import static org.junit.Assert.*;
+
+import com.snortstudios.masterflasher.db.GeneratedCard;
+import com.snortstudios.masterflasher.db.InboxEntry;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class InboxArchiveTest {
+
+    @Test
+    public void entryRoundTrip_keepsEveryColumnOnOneLine() throws Exception {
+        InboxEntry entry = InboxEntry.create("e1", "pdf",
+            InboxArchive.CAPACITOR_FILE_PREFIX + "/data/files/pdfs/pdf_1.pdf");
+        entry.title = "Cells";
+        entry.extractedText = "line one\nline two";
+        entry.deckName = "Biology";
+        entry.isLocked = true;
+        entry.createdAt = 1234L;
+        entry.pageCount = 300;
+        entry.pageRangeStart = 10;
+        entry.pageRangeEnd = 20;
+
+        String line = InboxArchive.entryToJson(entry).toString();
+        assertEquals(-1, line.indexOf('\n'));
+        assertFalse(line.contains("extractedTextLength"));
+
+        InboxEntry copy = InboxArchive.jsonToEntry(new JSONObject(line));
+        assertEquals(entry.id, copy.id);
+        assertEquals(entry.content, copy.content);
+        assertEquals(entry.preview, copy.preview);
+        assertEquals(entry.extractedText, copy.extractedText);
+        assertEquals(entry.deckName, copy.deckName);
+        assertTrue(copy.isLocked);
+        assertEquals(1234L, copy.createdAt);
+        assertEquals(300, copy.pageCount);
+        assertEquals(Integer.valueOf(10), copy.pageRangeStart);
+        assertEquals(Integer.valueOf(20), copy.pageRangeEnd);
+        assertEquals("pdf_1.pdf", InboxArchive.pdfFileName(copy));
+    }
+
+    @Test
+    public void entryRoundTrip_keepsTextFileLength() throws Exception {
+        InboxEntry entry = InboxEntry.create("e1", "pdf", "");
+        entry.extractedTextFileLength = 2_500_000;
+
+        InboxEntry copy = InboxArchive.jsonToEntry(new JSONObject(InboxArchive.entryToJson(entry).toString()));
+
+        assertNull(copy.extractedText);
+        assertEquals(Integer.valueOf(2_500_000), copy.extractedTextFileLength);
+        assertNull(InboxArchive.jsonToEntry(new JSONObject(InboxArchive.entryToJson(
+            InboxEntry.create("e2", "text", "hi")).toString())).extractedTextFileLength);
+    }
+
+    @Test
+    public void cardRoundTrip_keepsTagsNoteIdAndImage() throws Exception {
+        GeneratedCard card = GeneratedCard.create("c1", "e1", "Q", "A", Arrays.asList("bio", "cell"));
+        card.status = "added";
+        card.noteId = 42L;
+        card.sourceImage = "0f.webp";
+
+        GeneratedCard copy = InboxArchive.jsonToCard(new JSONObject(InboxArchive.cardToJson(card).toString()));
+
+        assertEquals("e1", copy.entryId);
+        assertEquals("added", copy.status);
+        assertEquals(Long.valueOf(42L), copy.noteId);
+        assertEquals(Arrays.asList("bio", "cell"), copy.tags);
+        assertEquals("0f.webp", copy.sourceImage);
+    }
+
+    @Test
+    public void pdfFileNames_onlyLocalPdfsAndNoPaths() {
+        assertNull(InboxArchive.pdfFileName(InboxEntry.create("e1", "url", "https://example.com/a.pdf")));
+        assertNull(InboxArchive.pdfFileName(InboxEntry.create("e2", "pdf", "https://example.com/a.pdf")));
+
+        assertTrue(InboxArchive.isSafeFileName("pdf_1.pdf"));
+        assertFalse(InboxArchive.isSafeFileName(".."));
+        assertFalse(InboxArchive.isSafeFileName("../databases/masterflasher_inbox.db"));
+        assertFalse(InboxArchive.isSafeFileName(""));
+    }
+}
@@ -0,0 +1,45 @@
+package com.snortstudios.masterflasher.db;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class CardTagTest {
+
+    @Test
+    public void forCards_keepsTagOrderPerCard() {
+        List<CardTag> rows = CardTag.forCards(Arrays.asList(
+            GeneratedCard.create("c1", "e1", "Q1", "A1", Arrays.asList("bio", "cell")),
+            GeneratedCard.create("c2", "e1", "Q2", "A2", Collections.emptyList()),
+            GeneratedCard.create("c3", "e1", "Q3", "A3", Collections.singletonList("bio"))
+        ));
+
+        assertEquals(3, rows.size());
+        assertEquals("c1", rows.get(0).cardId);
+        assertEquals("bio", rows.get(0).tag);
+        assertEquals(0, rows.get(0).position);
+        assertEquals("cell", rows.get(1).tag);
+        assertEquals(1, rows.get(1).position);
+        assertEquals("c3", rows.get(2).cardId);
+        assertEquals(0, rows.get(2).position);
+    }
+
+    @Test
+    public void attach_fillsTagsOfLoadedCards() {
+        GeneratedCard first = GeneratedCard.create("c1", "e1", "Q1", "A1", Collections.emptyList());
+        GeneratedCard second = GeneratedCard.create("c2", "e1", "Q2", "A2", Collections.emptyList());
+
+        CardTag.attach(Arrays.asList(first, second), Arrays.asList(
+            CardTag.create("c1", "bio", 0),
+            CardTag.create("c1", "cell", 1),
+            CardTag.create("c9", "other", 0)
+        ));
+
+        assertEquals(Arrays.asList("bio", "cell"), first.tags);
+        assertTrue(second.tags.isEmpty());
+    }
+}
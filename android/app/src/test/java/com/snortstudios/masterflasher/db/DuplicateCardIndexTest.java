@@ -0,0 +1,64 @@
+package com.snortstudios.masterflasher.db;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class DuplicateCardIndexTest {
+
+    private final List<GeneratedCard> addedCards = new ArrayList<>();
+    private final List<ExportedNote> exportedNotes = new ArrayList<>();
+    private int loads;
+
+    @Test
+    public void contains_findsCardsAddedBeforeAndAfterLoading() {
+        addedCards.add(GeneratedCard.create("c1", "e1", "What is ATP?", "Energy", Collections.emptyList()));
+        addedCards.get(0).status = "added";
+        addedCards.get(0).noteId = 1700000000000L;
+        exportedNotes.add(ExportedNote.create(CardFronts.hash("Capital of France"), null, "Capital of France"));
+
+        DuplicateCardIndex index = new DuplicateCardIndex(fakeDao());
+
+        assertTrue(index.contains("what is atp"));
+        assertEquals(Long.valueOf(1700000000000L), index.getNoteId("What is <i>ATP</i>"));
+        assertTrue(index.contains("capital of france?"));
+        assertNull(index.getNoteId("Capital of France"));
+        assertFalse(index.contains("Capital of Spain"));
+
+        index.add("Capital of Spain", 1700000000001L);
+        assertTrue(index.contains("capital of spain"));
+        assertEquals(2, exportedNotes.size());
+        assertEquals(1, loads);
+    }
+
+    @Test
+    public void add_keepsKnownNoteIdWhenReaddedWithoutOne() {
+        DuplicateCardIndex index = new DuplicateCardIndex(fakeDao());
+
+        index.add("What is ATP?", 42L);
+        index.addAll(Arrays.asList("what is ATP", null), Arrays.asList(null, 7L));
+
+        assertEquals(Long.valueOf(42L), index.getNoteId("What is ATP?"));
+        assertEquals(Long.valueOf(42L), exportedNotes.get(exportedNotes.size() - 1).noteId);
+        assertEquals(1, index.size());
+    }
+
+    // ==================== Helper Methods ====================
+
+    @SuppressWarnings("unchecked")
+    private InboxDao fakeDao() {
+        return new FakeInboxDao()
+            .on("getAddedCards", args -> {
+                loads++;
+                return Collections.unmodifiableList(addedCards);
+            })
+            .on("getExportedNotes", args -> new ArrayList<>(exportedNotes))
+            .on("insertExportedNotes", args -> exportedNotes.addAll((List<ExportedNote>) args[0]))
+            .create();
+    }
+}
@@ -0,0 +1,71 @@
+package com.snortstudios.masterflasher.db;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-memory InboxDao for unit tests: each test registers handlers for the queries it
+ * expects, backed by its own collections.
+ *
+ * A call without a handler runs the DAO's default method if it has one (which calls back
+ * into the handlers), and otherwise fails with the method name.
+ */
+public final class FakeInboxDao {
+
+    /**
+     * Answers one DAO method; args is empty for methods without parameters
+     */
+    public interface Handler {
+        Object handle(Object[] args) throws Throwable;
+    }
+
+    private final Map<String, Handler> handlers = new HashMap<>();
+
+    /**
+     * Answer calls of a method (any overload) with a handler, replacing an earlier one
+     */
+    public FakeInboxDao on(String methodName, Handler handler) {
+        handlers.put(methodName, handler);
+        return this;
+    }
+
+    public InboxDao create() {
+        return (InboxDao) Proxy.newProxyInstance(InboxDao.class.getClassLoader(), new Class<?>[]{InboxDao.class},
+            (proxy, method, args) -> {
+                Object[] arguments = args != null ? args : new Object[0];
+                Handler handler = handlers.get(method.getName());
+                if (handler != null) {
+                    return handler.handle(arguments);
+                }
+                if (method.isDefault()) {
+                    return invokeDefault(proxy, method, arguments);
+                }
+                if (method.getDeclaringClass() == Object.class) {
+                    return objectMethod(proxy, method, arguments);
+                }
+                throw new UnsupportedOperationException("FakeInboxDao has no handler for " + method.getName());
+            });
+    }
+
+    private static Object invokeDefault(Object proxy, Method method, Object[] args) throws Throwable {
+        Class<?> dao = method.getDeclaringClass();
+        return MethodHandles.privateLookupIn(dao, MethodHandles.lookup())
+            .unreflectSpecial(method, dao)
+            .bindTo(proxy)
+            .invokeWithArguments(args);
+    }
+
+    private static Object objectMethod(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return "FakeInboxDao@" + Integer.toHexString(System.identityHashCode(proxy));
+        }
+    }
+}
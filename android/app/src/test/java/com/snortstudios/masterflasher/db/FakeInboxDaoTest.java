@@ -0,0 +1,43 @@
+package com.snortstudios.masterflasher.db;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class FakeInboxDaoTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void defaultMethodsRunAgainstTheHandlers() {
+        List<GeneratedCard> rows = new ArrayList<>();
+        List<String> clearedTags = new ArrayList<>();
+        InboxDao dao = new FakeInboxDao()
+            .on("getEntrySourceImage", args -> "0f.webp")
+            .on("insertCardRows", args -> rows.addAll((List<GeneratedCard>) args[0]))
+            .on("deleteTagsForCards", args -> clearedTags.addAll((List<String>) args[0]))
+            .on("insertCardTags", args -> null)
+            .create();
+
+        // insertCard -> insertCards -> inheritSourceImages and the row queries
+        dao.insertCard(GeneratedCard.create("c1", "e1", "Q", "A", Collections.singletonList("bio")));
+
+        assertEquals(1, rows.size());
+        assertEquals("0f.webp", rows.get(0).sourceImage);
+        assertEquals(Collections.singletonList("c1"), clearedTags);
+    }
+
+    @Test
+    public void missingHandlerNamesTheMethod() {
+        InboxDao dao = new FakeInboxDao().create();
+        try {
+            dao.getEntry("e1");
+            fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            assertTrue(e.getMessage().endsWith("getEntry"));
+        }
+    }
+}
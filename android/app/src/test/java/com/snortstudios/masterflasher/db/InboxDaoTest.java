@@ -0,0 +1,65 @@
+package com.snortstudios.masterflasher.db;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class InboxDaoTest {
+
+    @Test
+    public void saveEntry_updatesExistingEntryInPlace() {
+        InboxEntry stored = new InboxEntry();
+        stored.id = "e1";
+        stored.contentType = "pdf";
+        stored.pageCount = 12;
+        stored.pageRangeStart = 3;
+        stored.pageRangeEnd = 5;
+        stored.extractedTextFileLength = 4000;
+        stored.sourceImage = "0f.webp";
+
+        List<InboxEntry> inserted = new ArrayList<>();
+        List<InboxEntry> updated = new ArrayList<>();
+        InboxDao dao = new FakeInboxDao()
+            .on("getEntrySummary", args -> EntrySummary.from(stored))
+            .on("getEntrySourceImage", args -> stored.sourceImage)
+            .on("insertEntry", args -> inserted.add((InboxEntry) args[0]))
+            .on("updateEntry", args -> updated.add((InboxEntry) args[0]))
+            .create();
+
+        InboxEntry edited = new InboxEntry();
+        edited.id = "e1";
+        edited.contentType = "pdf";
+        edited.title = "Renamed";
+
+        assertTrue(dao.saveEntry(edited));
+
+        // REPLACE would have deleted the row and cascaded to its cards
+        assertTrue(inserted.isEmpty());
+        assertEquals(1, updated.size());
+        InboxEntry saved = updated.get(0);
+        assertEquals("Renamed", saved.title);
+        assertEquals(12, saved.pageCount);
+        assertEquals(Integer.valueOf(3), saved.pageRangeStart);
+        assertEquals(Integer.valueOf(5), saved.pageRangeEnd);
+        assertEquals(Integer.valueOf(4000), saved.extractedTextFileLength);
+        assertEquals("0f.webp", saved.sourceImage);
+    }
+
+    @Test
+    public void saveEntry_insertsNewEntry() {
+        List<InboxEntry> inserted = new ArrayList<>();
+        InboxDao dao = new FakeInboxDao()
+            .on("getEntrySummary", args -> null)
+            .on("insertEntry", args -> inserted.add((InboxEntry) args[0]))
+            .create();
+
+        InboxEntry entry = new InboxEntry();
+        entry.id = "e2";
+
+        assertFalse(dao.saveEntry(entry));
+        assertEquals(1, inserted.size());
+    }
+}
@@ -0,0 +1,72 @@
+package com.snortstudios.masterflasher.db;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SettingsCacheTest {
+
+    private final Map<String, String> table = new LinkedHashMap<>();
+    private int loads;
+
+    @Test
+    public void get_readsTableOnceAndServesBatchesFromMemory() {
+        table.put("fact_extraction_prompt", "Extract facts");
+        table.put("cleared", null);
+        SettingsCache cache = new SettingsCache(fakeDao());
+
+        assertEquals("Extract facts", cache.get("fact_extraction_prompt"));
+        assertNull(cache.get("missing"));
+
+        Map<String, String> values = cache.get(Arrays.asList("fact_extraction_prompt", "missing"));
+        assertEquals("Extract facts", values.get("fact_extraction_prompt"));
+        assertTrue(values.containsKey("missing"));
+        assertNull(values.get("missing"));
+
+        Map<String, String> all = cache.getAll();
+        assertEquals(2, all.size());
+        assertTrue(all.containsKey("cleared"));
+        assertEquals(1, loads);
+    }
+
+    @Test
+    public void setAndDelete_writeThroughToTheTable() {
+        SettingsCache cache = new SettingsCache(fakeDao());
+
+        cache.set("gemini_requests_per_minute", "30");
+        assertEquals("30", table.get("gemini_requests_per_minute"));
+        assertEquals("30", cache.get("gemini_requests_per_minute"));
+
+        cache.delete("gemini_requests_per_minute");
+        assertFalse(table.containsKey("gemini_requests_per_minute"));
+        assertNull(cache.get("gemini_requests_per_minute"));
+        assertEquals(1, loads);
+    }
+
+    // ==================== Helper Methods ====================
+
+    private InboxDao fakeDao() {
+        return new FakeInboxDao()
+            .on("getAllSettings", args -> {
+                loads++;
+                List<AppSetting> rows = new ArrayList<>();
+                for (Map.Entry<String, String> entry : table.entrySet()) {
+                    rows.add(new AppSetting(entry.getKey(), entry.getValue()));
+                }
+                return rows;
+            })
+            .on("setSetting", args -> {
+                AppSetting setting = (AppSetting) args[0];
+                table.put(setting.key, setting.value);
+                return null;
+            })
+            .on("deleteSetting", args -> table.remove((String) args[0]))
+            .create();
+    }
+}
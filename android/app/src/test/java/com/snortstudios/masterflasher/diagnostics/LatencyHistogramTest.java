@@ -0,0 +1,69 @@
+package com.snortstudios.masterflasher.diagnostics;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketIndex_isContiguousAndBoundsCoverEveryValue() {
+        assertEquals(0, LatencyHistogram.bucketIndex(0));
+        assertEquals(15, LatencyHistogram.bucketIndex(15));
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+        for (long value : new long[]{16, 17, 31, 32, 1000, 123456789L, 1L << 40}) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(value <= LatencyHistogram.bucketUpperBound(index));
+            assertTrue(value > LatencyHistogram.bucketUpperBound(index - 1));
+            // At most 12.5% above the value
+            assertTrue(LatencyHistogram.bucketUpperBound(index) <= value + value / 8);
+        }
+    }
+
+    @Test
+    public void percentiles_followRecordedValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(100, snapshot.count);
+        assertEquals(50500, snapshot.meanMicros());
+        assertEquals(100000, snapshot.maxMicros);
+        assertEquals(50000, snapshot.percentile(0.50), 50000 / 8.0);
+        assertEquals(95000, snapshot.percentile(0.95), 95000 / 8.0);
+        assertEquals(100000, snapshot.percentile(1.0));
+    }
+
+    @Test
+    public void reset_clearsValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(42);
+        histogram.reset();
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(0, snapshot.count);
+        assertEquals(0, snapshot.percentile(0.99));
+    }
+
+    @Test
+    public void record_isSafeAcrossThreads() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    histogram.record(i % 500);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(40000, histogram.snapshot().count);
+        assertEquals(499, histogram.snapshot().maxMicros);
+    }
+}
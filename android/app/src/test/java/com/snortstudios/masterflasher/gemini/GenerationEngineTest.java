@@ -0,0 +1,368 @@
+package com.snortstudios.masterflasher.gemini;
+
+import static org.junit.Assert.*;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the generation engine against a local mock of the Gemini REST API.
+ */
+public class GenerationEngineTest {
+
+    private static final String MODEL = "test-model";
+
+    private HttpServer server;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private volatile String lastApiKey;
+    private volatile String lastPath;
+
+    // Response payload (the model's JSON text) returned by the mock
+    private volatile String responseText = "{\"facts\":[{\"fact\":\"Water boils at 100 C.\"}]}";
+    private volatile int responseStatus = 200;
+    // Raw body sent instead of a Gemini response when set
+    private volatile String rawResponseBody;
+
+    // Requests answered with 429 before the mock starts succeeding
+    private final AtomicInteger rateLimitedResponses = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void extractFacts_parsesFactsPerChunk() throws Exception {
+        configure(4, 2, 2);
+
+        List<ChunkResult> results = GenerationEngine.getInstance()
+            .extractFacts(Arrays.asList("chunk one", "chunk two"), "Title", "Extract facts.");
+
+        assertEquals(2, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            ChunkResult result = results.get(i);
+            assertFalse(result.isFailed());
+            assertEquals(i, result.chunkIndex);
+            assertEquals(1, result.facts.size());
+            assertEquals("Water boils at 100 C.", result.facts.get(0).text);
+        }
+        assertEquals("test-key", lastApiKey);
+        assertEquals("/v1beta/models/" + MODEL + ":generateContent", lastPath);
+    }
+
+    @Test
+    public void extractFacts_neverExceedsStageConcurrency() throws Exception {
+        configure(3, 2, 2);
+
+        List<String> chunks = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            chunks.add("chunk " + i);
+        }
+        GenerationEngine.getInstance().extractFacts(chunks, null, "Extract facts.");
+
+        assertEquals(12, requestCount.get());
+        assertTrue("max in flight was " + maxInFlight.get(), maxInFlight.get() <= 3);
+        assertTrue(maxInFlight.get() > 1);
+    }
+
+    @Test
+    public void extractFacts_reportsFailedChunks() throws Exception {
+        configure(2, 2, 2);
+        responseStatus = 500;
+
+        List<ChunkResult> results = GenerationEngine.getInstance()
+            .extractFacts(Arrays.asList("chunk"), null, "Extract facts.");
+
+        assertEquals(1, results.size());
+        assertTrue(results.get(0).isFailed());
+        assertTrue(results.get(0).facts.isEmpty());
+    }
+
+    @Test
+    public void extractFacts_retriesRateLimitedChunks() throws Exception {
+        configure(2, 2, 2);
+        rateLimitedResponses.set(2);
+
+        List<ChunkResult> results = GenerationEngine.getInstance()
+            .extractFacts(Arrays.asList("chunk"), null, "Extract facts.");
+
+        assertFalse(results.get(0).isFailed());
+        assertEquals(1, results.get(0).facts.size());
+        assertEquals(3, requestCount.get());
+    }
+
+    @Test
+    public void extractFacts_doesNotRetryClientErrors() throws Exception {
+        configure(2, 2, 2);
+        responseStatus = 400;
+
+        List<ChunkResult> results = GenerationEngine.getInstance()
+            .extractFacts(Arrays.asList("chunk"), null, "Extract facts.");
+
+        assertTrue(results.get(0).isFailed());
+        assertFalse(results.get(0).retryable);
+        assertEquals(1, requestCount.get());
+    }
+
+    @Test
+    public void extractFacts_doesNotRetryMalformedResponses() throws Exception {
+        configure(2, 2, 2);
+        rawResponseBody = "<html>Bad gateway</html>";
+
+        List<ChunkResult> results = GenerationEngine.getInstance()
+            .extractFacts(Arrays.asList("chunk"), null, "Extract facts.");
+
+        assertTrue(results.get(0).isFailed());
+        assertFalse(results.get(0).retryable);
+        assertEquals(1, requestCount.get());
+    }
+
+    @Test
+    public void retryAfterMs_readsHeaderAndRetryInfo() {
+        assertEquals(3000, GeminiClient.retryAfterMs("3", ""));
+        assertEquals(27000, GeminiClient.retryAfterMs(null,
+            "{\"error\":{\"details\":[{\"@type\":\"type.googleapis.com/google.rpc.RetryInfo\",\"retryDelay\":\"27s\"}]}}"));
+        assertEquals(-1, GeminiClient.retryAfterMs(null, "not json"));
+    }
+
+    @Test
+    public void extractFacts_servesRepeatedChunksFromCache() throws Exception {
+        configure(2, 2, 2);
+        Map<String, String> stored = new ConcurrentHashMap<>();
+        GenerationEngine engine = GenerationEngine.getInstance();
+        engine.setResponseCache(new ResponseCache() {
+            @Override
+            public String get(String key) {
+                return stored.get(key);
+            }
+
+            @Override
+            public void put(String key, GenerationEngine.Stage stage, String model, String responseText) {
+                stored.put(key, responseText);
+            }
+        });
+
+        engine.extractFacts(Arrays.asList("chunk"), "Title", "Extract facts.");
+        List<ChunkResult> cached = engine.extractFacts(Arrays.asList("chunk"), "Title", "Extract facts.");
+        engine.extractFacts(Arrays.asList("other chunk"), "Title", "Extract facts.");
+
+        assertEquals(1, cached.get(0).facts.size());
+        assertEquals(2, requestCount.get());
+        assertEquals(2, stored.size());
+    }
+
+    @Test
+    public void submitChunk_recordsUsageOfEachCall() throws Exception {
+        configure(2, 2, 2);
+        rateLimitedResponses.set(1);
+        Map<String, String> stored = new ConcurrentHashMap<>();
+        List<CallRecord> records = Collections.synchronizedList(new ArrayList<>());
+        GenerationEngine engine = GenerationEngine.getInstance();
+        engine.setCallRecorder(records::add);
+        engine.setResponseCache(new ResponseCache() {
+            @Override
+            public String get(String key) {
+                return stored.get(key);
+            }
+
+            @Override
+            public void put(String key, GenerationEngine.Stage stage, String model, String responseText) {
+                stored.put(key, responseText);
+            }
+        });
+
+        engine.submitChunk("entry-1", 0, "chunk", null, "Extract facts.", result -> { }).get();
+        engine.submitChunk("entry-1", 0, "chunk", null, "Extract facts.", result -> { }).get();
+
+        assertEquals(2, records.size());
+        CallRecord sent = records.get(0);
+        assertEquals("entry-1", sent.entryId);
+        assertEquals(GenerationEngine.Stage.FACTS, sent.stage);
+        assertEquals(MODEL, sent.model);
+        assertEquals(CallRecord.promptHash("Extract facts."), sent.promptHash);
+        assertEquals(10, sent.promptTokens);
+        assertEquals(5, sent.outputTokens);
+        assertEquals(1, sent.retries);
+        assertTrue(sent.latencyMs >= sent.waitMs);
+        assertFalse(sent.cacheHit);
+        assertTrue(sent.success);
+
+        CallRecord cached = records.get(1);
+        assertTrue(cached.cacheHit);
+        assertTrue(cached.success);
+        assertEquals(0, cached.promptTokens);
+        assertEquals(0, cached.retries);
+    }
+
+    @Test
+    public void extractFacts_recordsFailedCalls() throws Exception {
+        configure(2, 2, 2);
+        responseStatus = 400;
+        List<CallRecord> records = Collections.synchronizedList(new ArrayList<>());
+        GenerationEngine.getInstance().setCallRecorder(records::add);
+
+        GenerationEngine.getInstance().extractFacts(Arrays.asList("chunk"), null, "Extract facts.");
+
+        assertEquals(1, records.size());
+        assertNull(records.get(0).entryId);
+        assertFalse(records.get(0).success);
+        assertEquals(0, records.get(0).outputTokens);
+    }
+
+    @Test
+    public void generateCards_batchesFacts() throws Exception {
+        configure(2, 2, 2);
+        responseText = "{\"cards\":[{\"front\":\"Q\",\"back\":\"A\",\"tags\":[\"t\"]}]}";
+
+        List<Fact> facts = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            facts.add(new Fact("f" + i, "Fact " + i, 0));
+        }
+        List<Flashcard> cards = GenerationEngine.getInstance().generateCards(facts, "Make cards.", 2);
+
+        // 5 facts in batches of 2 -> 3 requests, one card each
+        assertEquals(3, requestCount.get());
+        assertEquals(3, cards.size());
+        assertEquals(Arrays.asList("t"), cards.get(0).tags);
+    }
+
+    @Test
+    public void generateCards_streamsBatchesAndDropsRejectedOnes() throws Exception {
+        configure(2, 2, 2);
+        responseText = "{\"cards\":[{\"front\":\"Q\",\"back\":\"A\",\"tags\":[]}]}";
+
+        List<Fact> facts = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            facts.add(new Fact("f" + i, "Fact " + i, 0));
+        }
+        List<Integer> delivered = Collections.synchronizedList(new ArrayList<>());
+        List<Flashcard> cards = GenerationEngine.getInstance().generateCards(null, facts, "Make cards.", 2,
+            (batchIndex, batch) -> {
+                if (batchIndex == 1) {
+                    throw new IllegalStateException("write failed");
+                }
+                delivered.add(batchIndex);
+            });
+
+        // The batch whose listener failed is not part of the result
+        Collections.sort(delivered);
+        assertEquals(Arrays.asList(0, 2), delivered);
+        assertEquals(2, cards.size());
+    }
+
+    @Test
+    public void parseScores_skipsIncompleteEntries() throws Exception {
+        List<FactScore> scores = GenerationEngine.parseScores(
+            "[{\"id\":\"a\",\"scores\":{\"clarity\":3},\"score_total\":12},{\"id\":\"b\"}]");
+
+        assertEquals(1, scores.size());
+        assertEquals("a", scores.get(0).factId);
+        assertEquals(12.0, scores.get(0).total, 0.0);
+    }
+
+    // ==================== Helper Methods ====================
+
+    private void configure(int facts, int scoring, int cards) {
+        Map<GenerationEngine.Stage, Integer> limits = new EnumMap<>(GenerationEngine.Stage.class);
+        limits.put(GenerationEngine.Stage.FACTS, facts);
+        limits.put(GenerationEngine.Stage.SCORING, scoring);
+        limits.put(GenerationEngine.Stage.CARDS, cards);
+        String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        GenerationEngine engine = GenerationEngine.getInstance();
+        engine.configure("test-key", MODEL, baseUrl, limits);
+        // Budgets high enough that only the mock's 429s slow anything down
+        engine.setRateLimits(100_000, 100_000_000);
+        engine.setMaxAttempts(3);
+        engine.setResponseCache(null);
+        engine.setCallRecorder(null);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int current = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(current, Math::max);
+        requestCount.incrementAndGet();
+        try {
+            lastApiKey = exchange.getRequestHeaders().getFirst("x-goog-api-key");
+            lastPath = exchange.getRequestURI().getPath();
+            readFully(exchange.getRequestBody());
+
+            // Hold the request open so parallel calls overlap
+            Thread.sleep(50);
+
+            int status = responseStatus;
+            if (rateLimitedResponses.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                status = 429;
+                exchange.getResponseHeaders().set("Retry-After", "0");
+            }
+
+            byte[] body = responseBody(status).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (Exception e) {
+            throw new IOException(e);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private String responseBody(int status) throws Exception {
+        if (status == 200 && rawResponseBody != null) {
+            return rawResponseBody;
+        }
+        if (status != 200) {
+            return new JSONObject().put("error", new JSONObject().put("message", "mock failure")).toString();
+        }
+        JSONObject part = new JSONObject().put("text", responseText);
+        JSONObject candidate = new JSONObject()
+            .put("content", new JSONObject().put("parts", new JSONArray().put(part)))
+            .put("finishReason", "STOP");
+        return new JSONObject()
+            .put("candidates", new JSONArray().put(candidate))
+            .put("usageMetadata", new JSONObject().put("promptTokenCount", 10).put("candidatesTokenCount", 5))
+            .toString();
+    }
+
+    private static void readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        int bytesRead;
+        while ((bytesRead = in.read(chunk)) != -1) {
+            buffer.write(chunk, 0, bytesRead);
+        }
+    }
+}
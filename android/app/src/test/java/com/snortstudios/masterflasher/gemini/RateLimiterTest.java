@@ -0,0 +1,75 @@
+package com.snortstudios.masterflasher.gemini;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class RateLimiterTest {
+
+    @Test
+    public void acquire_waitsForRequestBudget() throws Exception {
+        RateLimiter limiter = new RateLimiter();
+        // 600 RPM = one request every 100ms once the initial burst is spent
+        limiter.setLimits(600, 1_000_000);
+        for (int i = 0; i < 600; i++) {
+            limiter.acquire("model", 1);
+        }
+
+        long start = System.nanoTime();
+        limiter.acquire("model", 1);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue("waited " + elapsedMs + "ms", elapsedMs >= 50);
+    }
+
+    @Test
+    public void acquire_waitsForTokenBudget() throws Exception {
+        RateLimiter limiter = new RateLimiter();
+        // 60k TPM = 1000 tokens per second
+        limiter.setLimits(10_000, 60_000);
+        limiter.acquire("model", 60_000);
+
+        long start = System.nanoTime();
+        limiter.acquire("model", 200);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue("waited " + elapsedMs + "ms", elapsedMs >= 100);
+    }
+
+    @Test
+    public void modelsHaveSeparateBudgets() throws Exception {
+        RateLimiter limiter = new RateLimiter();
+        limiter.setLimits(1, 1_000_000);
+        limiter.acquire("a", 1);
+
+        long start = System.nanoTime();
+        limiter.acquire("b", 1);
+        assertTrue((System.nanoTime() - start) / 1_000_000 < 50);
+    }
+
+    @Test
+    public void pause_reportsQueuedCallers() throws Exception {
+        RateLimiter limiter = new RateLimiter();
+        limiter.setLimits(1000, 1_000_000);
+        limiter.pause("model", 300);
+
+        Thread waiter = new Thread(() -> {
+            try {
+                limiter.acquire("model", 1);
+            } catch (InterruptedException ignored) {
+            }
+        });
+        waiter.start();
+        Thread.sleep(100);
+
+        assertEquals(1, limiter.getQueueDepth());
+        waiter.join(2000);
+        assertEquals(0, limiter.getQueueDepth());
+    }
+
+    @Test
+    public void estimateTokens_roughlyFourCharsPerToken() {
+        assertEquals(0, RateLimiter.estimateTokens(""));
+        assertEquals(25, RateLimiter.estimateTokens(new String(new char[100])));
+    }
+}
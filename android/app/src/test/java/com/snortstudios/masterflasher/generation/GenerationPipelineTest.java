@@ -0,0 +1,510 @@
+package com.snortstudios.masterflasher.generation;
+
+import static org.junit.Assert.*;
+
+import com.snortstudios.masterflasher.db.EntrySummary;
+import com.snortstudios.masterflasher.db.FakeInboxDao;
+import com.snortstudios.masterflasher.db.GeneratedCard;
+import com.snortstudios.masterflasher.db.GenerationRun;
+import com.snortstudios.masterflasher.db.InboxDao;
+import com.snortstudios.masterflasher.db.InboxEntry;
+import com.snortstudios.masterflasher.db.RunChunk;
+import com.snortstudios.masterflasher.db.RunFact;
+import com.snortstudios.masterflasher.gemini.GenerationEngine;
+import com.snortstudios.masterflasher.text.EntryTextStore;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the overlapped pipeline against a local Gemini mock and an in-memory InboxDao.
+ */
+public class GenerationPipelineTest {
+
+    private static final PipelinePrompts PROMPTS = new PipelinePrompts("EXTRACT", "SCORE", "CARDS");
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private HttpServer server;
+    private EntryTextStore textStore;
+    private final AtomicInteger extractRequests = new AtomicInteger();
+    private final AtomicInteger scoringRequests = new AtomicInteger();
+    private final AtomicInteger cardRequests = new AtomicInteger();
+
+    // Facts returned per chunk by the mock, distinct across chunks unless repeatFacts is set
+    private volatile int factsPerChunk = 3;
+    private volatile boolean repeatFacts;
+    private final AtomicInteger factNumber = new AtomicInteger();
+
+    // Scoring returns "Fact N" a score of N while set, otherwise no scores (everything passes)
+    private volatile boolean scoreByNumber;
+
+    // Card requests fail with a non-retryable error while set
+    private volatile boolean failCards;
+    private final List<String> cardedFacts = Collections.synchronizedList(new ArrayList<>());
+
+    private final InboxEntry entry = new InboxEntry();
+    private final List<GeneratedCard> storedCards = Collections.synchronizedList(new ArrayList<>());
+
+    // Checkpoint tables, rows are copied in and out like a database would
+    private GenerationRun storedRun;
+    private final Map<Integer, RunChunk> storedChunks = new TreeMap<>();
+    private final Map<String, RunFact> storedFacts = new LinkedHashMap<>();
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        Map<GenerationEngine.Stage, Integer> limits = new EnumMap<>(GenerationEngine.Stage.class);
+        limits.put(GenerationEngine.Stage.FACTS, 4);
+        limits.put(GenerationEngine.Stage.SCORING, 2);
+        limits.put(GenerationEngine.Stage.CARDS, 2);
+        GenerationEngine engine = GenerationEngine.getInstance();
+        engine.configure("test-key", "test-model", "http://127.0.0.1:" + server.getAddress().getPort(), limits);
+        engine.setRateLimits(100_000, 100_000_000);
+        engine.setMaxAttempts(3);
+        engine.setResponseCache(null);
+
+        textStore = new EntryTextStore(folder.newFolder("files"));
+
+        entry.id = "entry-1";
+        entry.contentType = "text";
+        entry.title = "Test";
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void run_storesCardsAndLocksEntry() throws Exception {
+        entry.content = text(3);
+
+        List<PipelineStats> updates = Collections.synchronizedList(new ArrayList<>());
+        PipelineStats stats = newPipeline().run(entry.id, PROMPTS, new GenerationPipeline.ProgressListener() {
+            @Override
+            public void onProgress(String entryId, String stage, String message) {
+            }
+
+            @Override
+            public void onStats(String entryId, PipelineStats s) {
+                updates.add(s);
+            }
+        });
+
+        // 9 unscored facts all pass and fit in one card batch
+        assertEquals(3, extractRequests.get());
+        assertEquals(9, stats.factsPassed);
+        assertEquals(1, cardRequests.get());
+        assertEquals(1, stats.cardsStored);
+        assertEquals(1, storedCards.size());
+        assertTrue(entry.isLocked);
+
+        assertTrue(stats.timeToFirstCardMs >= 0);
+        // Completed runs drop their checkpoint
+        assertNull(storedRun);
+        assertTrue(storedFacts.isEmpty());
+        assertFalse(updates.isEmpty());
+        for (PipelineStats update : updates) {
+            assertTrue(update.factsInFlight <= 4);
+            assertTrue(update.scoringInFlight <= 2);
+            assertTrue(update.cardsInFlight <= 2);
+        }
+    }
+
+    @Test
+    public void run_selectsTheBestScoredFactsOfTheWholeDocument() throws Exception {
+        entry.content = text(40);
+        factsPerChunk = 5;
+        scoreByNumber = true;
+
+        PipelineStats stats = newPipeline().run(entry.id, PROMPTS, (entryId, stage, message) -> { });
+
+        // Every chunk is extracted and scored, whatever order the requests finish in
+        assertEquals(40, extractRequests.get());
+        assertEquals(200, stats.factsScored);
+        assertEquals(GenerationPipeline.MAX_FACTS_TO_PASS, stats.factsPassed);
+        // Two card batches of STREAM_CARD_BATCH_SIZE, one card each from the mock
+        assertEquals(2, cardRequests.get());
+        assertEquals(2, storedCards.size());
+
+        // Scores are the fact numbers, so the top 40 of 200 are facts 161 to 200
+        List<String> expected = new ArrayList<>();
+        for (int n = 161; n <= 200; n++) {
+            expected.add("Fact " + n);
+        }
+        List<String> carded = new ArrayList<>(cardedFacts);
+        Collections.sort(carded);
+        Collections.sort(expected);
+        assertEquals(expected, carded);
+    }
+
+    @Test
+    public void run_dropsNearDuplicateFactsBeforeScoring() throws Exception {
+        entry.content = text(3);
+        repeatFacts = true;
+
+        PipelineStats stats = newPipeline().run(entry.id, PROMPTS, (entryId, stage, message) -> { });
+
+        // Every chunk returns the same two facts in slightly different words
+        assertEquals(6, stats.factsExtracted);
+        assertEquals(4, stats.factsDuplicate);
+        assertTrue(stats.tokensSaved > 0);
+        assertEquals(2, stats.factsScored);
+        assertEquals(2, stats.factsPassed);
+        assertTrue(stats.describe().contains("4 duplicates"));
+    }
+
+    @Test
+    public void run_resumesFromCheckpointAfterFailure() throws Exception {
+        entry.content = text(4);
+        failCards = true;
+
+        try {
+            newPipeline().run(entry.id, PROMPTS, (entryId, stage, message) -> { });
+            fail("Expected GenerationException");
+        } catch (GenerationException e) {
+            assertTrue(e.getMessage().startsWith("No flashcards"));
+        }
+        assertEquals(GenerationRun.STATE_FAILED, storedRun.state);
+        assertEquals(4, storedChunks.size());
+        assertEquals(12, storedFacts.size());
+        assertFalse(entry.isLocked);
+        int extracted = extractRequests.get();
+        int scored = scoringRequests.get();
+
+        failCards = false;
+        List<String> messages = Collections.synchronizedList(new ArrayList<>());
+        PipelineStats stats = newPipeline().run(entry.id, PROMPTS, (entryId, stage, message) -> messages.add(message));
+
+        // Only the card batch is repeated
+        assertEquals(extracted, extractRequests.get());
+        assertEquals(scored, scoringRequests.get());
+        assertEquals(4, stats.chunksDone);
+        assertEquals(12, stats.factsExtracted);
+        assertEquals(12, stats.factsPassed);
+        assertEquals(1, stats.cardsStored);
+        assertTrue(messages.get(0).startsWith("Resuming"));
+        assertTrue(entry.isLocked);
+        assertNull(storedRun);
+    }
+
+    @Test
+    public void run_startsOverWhenPromptsChanged() throws Exception {
+        entry.content = text(2);
+        failCards = true;
+        try {
+            newPipeline().run(entry.id, PROMPTS, (entryId, stage, message) -> { });
+            fail("Expected GenerationException");
+        } catch (GenerationException e) {
+            // Checkpoint kept
+        }
+        int extracted = extractRequests.get();
+
+        failCards = false;
+        PipelinePrompts changed = new PipelinePrompts("EXTRACT v2", "SCORE", "CARDS");
+        newPipeline().run(entry.id, changed, (entryId, stage, message) -> { });
+
+        assertEquals(extracted + 2, extractRequests.get());
+        assertTrue(entry.isLocked);
+    }
+
+    @Test
+    public void run_chunksPdfTextFromItsFile() throws Exception {
+        entry.contentType = "pdf";
+        entry.extractedTextFileLength = textStore.write(entry.id, new StringReader(text(3)));
+
+        PipelineStats stats = newPipeline().run(entry.id, PROMPTS, (entryId, stage, message) -> { });
+
+        assertEquals(3, extractRequests.get());
+        assertEquals(9, stats.factsPassed);
+        assertTrue(entry.isLocked);
+        // The chunk spool is deleted with the run
+        assertEquals(0, new File(folder.getRoot(), "cache").list().length);
+    }
+
+    @Test
+    public void run_rejectsPdfWithoutText() throws Exception {
+        entry.contentType = "pdf";
+
+        try {
+            newPipeline().run(entry.id, PROMPTS, (entryId, stage, message) -> { });
+            fail("Expected GenerationException");
+        } catch (GenerationException e) {
+            assertEquals("Extract text from the PDF first.", e.getMessage());
+        }
+        assertEquals(0, extractRequests.get());
+    }
+
+    @Test
+    public void run_rejectsLockedEntryWithoutTouchingItsCards() throws Exception {
+        entry.content = text(2);
+        entry.isLocked = true;
+        storedCards.add(new GeneratedCard());
+
+        try {
+            newPipeline().run(entry.id, PROMPTS, (entryId, stage, message) -> { });
+            fail("Expected GenerationException");
+        } catch (GenerationException e) {
+            assertEquals("This entry already has its cards.", e.getMessage());
+        }
+        assertEquals(1, storedCards.size());
+        assertNull(storedRun);
+        assertEquals(0, extractRequests.get());
+    }
+
+    @Test
+    public void run_failsWhenNothingIsExtracted() throws Exception {
+        entry.content = text(2);
+        factsPerChunk = 0;
+
+        try {
+            newPipeline().run(entry.id, PROMPTS, (entryId, stage, message) -> { });
+            fail("Expected GenerationException");
+        } catch (GenerationException e) {
+            assertTrue(e.getMessage().startsWith("No key concepts"));
+        }
+        assertEquals(0, scoringRequests.get());
+        assertFalse(entry.isLocked);
+    }
+
+    // ==================== Helper Methods ====================
+
+    private GenerationPipeline newPipeline() throws IOException {
+        File cache = new File(folder.getRoot(), "cache");
+        if (!cache.isDirectory()) {
+            cache = folder.newFolder("cache");
+        }
+        return new GenerationPipeline(fakeDao(), GenerationEngine.getInstance(), textStore, cache);
+    }
+
+    /**
+     * Text that TextChunker splits into the given number of chunks (just under 2000 tokens each)
+     */
+    private static String text(int chunks) {
+        StringBuilder text = new StringBuilder();
+        String sentence = "This sentence is filler text for one chunk. ";
+        for (int i = 0; i < chunks; i++) {
+            StringBuilder chunk = new StringBuilder();
+            while (chunk.length() + sentence.length() <= 7990) {
+                chunk.append(sentence);
+            }
+            text.append(chunk);
+        }
+        return text.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private InboxDao fakeDao() {
+        return new FakeInboxDao()
+            .on("getEntry", args -> entry)
+            .on("getEntrySummary", args -> EntrySummary.from(entry))
+            .on("getContentRange", args -> range(entry.content, (int) args[1], (int) args[2]))
+            .on("getExtractedTextRange", args -> range(entry.extractedText, (int) args[1], (int) args[2]))
+            .on("deleteCardsForEntry", args -> {
+                storedCards.clear();
+                return null;
+            })
+            .on("lockEntry", args -> entry.isLocked = true)
+            .on("getTotalCardCount", args -> storedCards.size())
+            .on("getRun", args -> storedRun != null ? copy(storedRun) : null)
+            .on("startRun", args -> {
+                storedChunks.clear();
+                storedFacts.clear();
+                storedCards.clear();
+                storedRun = copy((GenerationRun) args[0]);
+                return null;
+            })
+            .on("updateRun", args -> storedRun = copy((GenerationRun) args[0]))
+            .on("getRunChunks", args -> new ArrayList<>(storedChunks.values()))
+            .on("getRunFacts", args -> {
+                List<RunFact> facts = new ArrayList<>();
+                for (RunFact fact : storedFacts.values()) {
+                    facts.add(copy(fact));
+                }
+                facts.sort(Comparator.comparingInt(f -> f.seq));
+                return facts;
+            })
+            .on("saveRunChunk", args -> {
+                storedRun = copy((GenerationRun) args[0]);
+                RunChunk chunk = (RunChunk) args[1];
+                storedChunks.put(chunk.chunkIndex, chunk);
+                for (String id : (List<String>) args[3]) {
+                    storedFacts.remove(id);
+                }
+                putFacts((List<RunFact>) args[2]);
+                return null;
+            })
+            .on("updateRunFacts", args -> {
+                putFacts((List<RunFact>) args[0]);
+                return null;
+            })
+            .on("appendRunCards", args -> {
+                storedCards.addAll((List<GeneratedCard>) args[1]);
+                putFacts((List<RunFact>) args[2]);
+                return true;
+            })
+            .on("completeRun", args -> {
+                entry.isLocked = true;
+                storedRun = null;
+                storedChunks.clear();
+                storedFacts.clear();
+                return null;
+            })
+            .create();
+    }
+
+    /**
+     * SQLite substr over code points, 1-based
+     */
+    private static String range(String text, int start, int length) {
+        if (text == null) {
+            return null;
+        }
+        int count = text.codePointCount(0, text.length());
+        int from = Math.min(start - 1, count);
+        int to = Math.min(from + length, count);
+        return text.substring(text.offsetByCodePoints(0, from), text.offsetByCodePoints(0, to));
+    }
+
+    private void putFacts(List<RunFact> facts) {
+        for (RunFact fact : facts) {
+            storedFacts.put(fact.factId, copy(fact));
+        }
+    }
+
+    private static GenerationRun copy(GenerationRun run) {
+        GenerationRun copy = GenerationRun.create(run.entryId, run.inputHash, run.chunkCount);
+        copy.state = run.state;
+        copy.factsExtracted = run.factsExtracted;
+        copy.factsDuplicate = run.factsDuplicate;
+        copy.tokensSaved = run.tokensSaved;
+        copy.error = run.error;
+        return copy;
+    }
+
+    private static RunFact copy(RunFact fact) {
+        RunFact copy = RunFact.create(fact.entryId, fact.factId, fact.seq, fact.chunkIndex, fact.text);
+        copy.scored = fact.scored;
+        copy.score = fact.score;
+        copy.passed = fact.passed;
+        copy.cardBatch = fact.cardBatch;
+        return copy;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            JSONObject request = new JSONObject(readFully(exchange.getRequestBody()));
+            String prompt = request.getJSONArray("contents").getJSONObject(0)
+                .getJSONArray("parts").getJSONObject(0).getString("text");
+
+            String responseText;
+            if (prompt.startsWith("EXTRACT")) {
+                extractRequests.incrementAndGet();
+                JSONArray facts = new JSONArray();
+                if (repeatFacts) {
+                    int n = extractRequests.get();
+                    facts.put(new JSONObject().put("fact", n % 2 == 0
+                        ? "The mitochondria is the powerhouse of the cell."
+                        : "Mitochondria are the powerhouse of the cell"));
+                    facts.put(new JSONObject().put("fact", "Water boils at 100 degrees Celsius at sea level" + (n == 2 ? " pressure." : ".")));
+                } else {
+                    for (int i = 0; i < factsPerChunk; i++) {
+                        facts.put(new JSONObject().put("fact", "Fact " + factNumber.incrementAndGet()));
+                    }
+                }
+                responseText = new JSONObject().put("facts", facts).toString();
+            } else if (prompt.startsWith("SCORE")) {
+                scoringRequests.incrementAndGet();
+                JSONArray scores = new JSONArray();
+                if (scoreByNumber) {
+                    JSONArray facts = factsOf(prompt, "Facts to score:\n");
+                    for (int i = 0; i < facts.length(); i++) {
+                        JSONObject fact = facts.getJSONObject(i);
+                        scores.put(new JSONObject()
+                            .put("id", fact.getString("id"))
+                            .put("scores", new JSONObject())
+                            .put("score_total", Integer.parseInt(fact.getString("fact").substring("Fact ".length()))));
+                    }
+                }
+                // Without scores every fact passes unscored
+                responseText = scores.toString();
+            } else {
+                cardRequests.incrementAndGet();
+                if (failCards) {
+                    exchange.sendResponseHeaders(400, -1);
+                    exchange.close();
+                    return;
+                }
+                JSONArray facts = factsOf(prompt, "Concepts:\n");
+                for (int i = 0; i < facts.length(); i++) {
+                    cardedFacts.add(facts.getJSONObject(i).getString("fact"));
+                }
+                responseText = "{\"cards\":[{\"front\":\"Q\",\"back\":\"A\",\"tags\":[]}]}";
+            }
+
+            // Hold the request open so stages overlap
+            Thread.sleep(20);
+
+            JSONObject part = new JSONObject().put("text", responseText);
+            JSONObject candidate = new JSONObject()
+                .put("content", new JSONObject().put("parts", new JSONArray().put(part)))
+                .put("finishReason", "STOP");
+            byte[] body = new JSONObject()
+                .put("candidates", new JSONArray().put(candidate))
+                .toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static JSONArray factsOf(String prompt, String marker) throws Exception {
+        return new JSONArray(prompt.substring(prompt.indexOf(marker) + marker.length()));
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        int bytesRead;
+        while ((bytesRead = in.read(chunk)) != -1) {
+            buffer.write(chunk, 0, bytesRead);
+        }
+        return buffer.toString("UTF-8");
+    }
+}
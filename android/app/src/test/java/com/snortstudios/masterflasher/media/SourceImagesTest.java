@@ -0,0 +1,78 @@
+package com.snortstudios.masterflasher.media;
+
+import static org.junit.Assert.*;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class SourceImagesTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void sampleSize_neverDecodesBelowTheTargetEdge() {
+        assertEquals(1, SourceImages.sampleSize(1200, 800, 1600));
+        assertEquals(1, SourceImages.sampleSize(3000, 2000, 1600));
+        assertEquals(2, SourceImages.sampleSize(2000, 4000, 1600));
+        assertEquals(4, SourceImages.sampleSize(8000, 6000, 1600));
+    }
+
+    @Test
+    public void names_areContentHashes() {
+        byte[] image = "webp bytes".getBytes(StandardCharsets.UTF_8);
+        String name = SourceImages.nameFor(image);
+
+        assertEquals(name, SourceImages.nameFor(image.clone()));
+        assertNotEquals(name, SourceImages.nameFor("other bytes".getBytes(StandardCharsets.UTF_8)));
+        assertTrue(SourceImages.isValidName(name));
+        assertEquals(64 + ".webp".length(), name.length());
+    }
+
+    @Test
+    public void isValidName_rejectsPaths() {
+        assertFalse(SourceImages.isValidName(null));
+        assertFalse(SourceImages.isValidName("../databases/masterflasher_inbox.db"));
+        assertFalse(SourceImages.isValidName("ocr_crop_1.jpg"));
+    }
+
+    @Test
+    public void deleteUnreferenced_removesOnlyOldUnreferencedImages() throws IOException {
+        File dir = folder.newFolder("source_images");
+        long now = System.currentTimeMillis();
+        long old = now - SourceImages.SWEEP_GRACE_MS - 1000;
+        File referenced = image(dir, "referenced", old);
+        File orphan = image(dir, "orphan", old);
+        File recent = image(dir, "recent", now);
+        File foreign = new File(dir, "ocr_crop_1.jpg");
+        assertTrue(foreign.createNewFile());
+        assertTrue(foreign.setLastModified(old));
+
+        int deleted = SourceImages.deleteUnreferenced(dir, Arrays.asList(referenced.getName()), now);
+
+        assertEquals(1, deleted);
+        assertFalse(orphan.exists());
+        assertTrue(referenced.exists());
+        assertTrue(recent.exists());
+        assertTrue(foreign.exists());
+    }
+
+    @Test
+    public void deleteUnreferenced_toleratesMissingDir() {
+        assertEquals(0, SourceImages.deleteUnreferenced(
+            new File(folder.getRoot(), "missing"), Arrays.asList(), System.currentTimeMillis()));
+    }
+
+    private static File image(File dir, String content, long lastModified) throws IOException {
+        File file = new File(dir, SourceImages.nameFor(content.getBytes(StandardCharsets.UTF_8)));
+        assertTrue(file.createNewFile());
+        assertTrue(file.setLastModified(lastModified));
+        return file;
+    }
+}
@@ -0,0 +1,79 @@
+package com.snortstudios.masterflasher.text;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+public class EntryTextStoreTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private EntryTextStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        store = new EntryTextStore(folder.newFolder("files"));
+    }
+
+    @Test
+    public void writesNormalizedTextAndCountsCodePoints() throws IOException {
+        int length = store.write("e1", new StringReader("  Page one \r\n\r\n\r\nPage \uD83D\uDE00 two  "));
+
+        assertEquals("Page one\n\nPage \uD83D\uDE00 two", readAll(store.open("e1")));
+        assertEquals(20, length);
+        // The temporary file was renamed into place
+        assertEquals(1, store.file("e1").getParentFile().list().length);
+    }
+
+    @Test
+    public void readsCodePointRanges() throws IOException {
+        store.write("e1", new StringReader("ab\uD83D\uDE00cdef"));
+
+        assertEquals("\uD83D\uDE00cd", store.read("e1", 2, 3));
+        assertEquals("ef", store.read("e1", 5, 100));
+        assertEquals("", store.read("e1", 50, 10));
+    }
+
+    @Test
+    public void blankTextRemovesTheFile() throws IOException {
+        store.write("e1", new StringReader("old text"));
+
+        assertEquals(0, store.write("e1", new StringReader(" \n\n ")));
+        assertFalse(store.file("e1").exists());
+        assertTrue(store.delete("e1"));
+    }
+
+    @Test
+    public void rejectsIdsThatAreNotFileNames() {
+        assertTrue(EntryTextStore.isSafeId("3f2a-11"));
+        assertFalse(EntryTextStore.isSafeId("../databases/masterflasher_inbox"));
+        assertFalse(EntryTextStore.isSafeId(".."));
+        assertFalse(EntryTextStore.isSafeId(""));
+        try {
+            store.file("a/b");
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    private static String readAll(Reader reader) throws IOException {
+        StringBuilder text = new StringBuilder();
+        try (Reader in = reader) {
+            char[] buffer = new char[64];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                text.append(buffer, 0, read);
+            }
+        }
+        return text.toString();
+    }
+}
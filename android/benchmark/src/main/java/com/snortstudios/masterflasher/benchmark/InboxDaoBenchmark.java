@@ -0,0 +1,143 @@
+package com.snortstudios.masterflasher.benchmark;
+
+import static org.junit.Assert.*;
+
+import android.content.Context;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.snortstudios.masterflasher.db.AppDatabase;
+import com.snortstudios.masterflasher.db.GeneratedCard;
+import com.snortstudios.masterflasher.db.InboxDao;
+import com.snortstudios.masterflasher.db.InboxEntry;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * InboxDao on the SyntheticInbox dataset (10k entries, 200k cards), covering the
+ * calls InboxPlugin makes for the inbox list, the entry screen and card review.
+ */
+@RunWith(AndroidJUnit4.class)
+public class InboxDaoBenchmark {
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private AppDatabase database;
+    private InboxDao dao;
+
+    @Before
+    public void openDataset() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        database = SyntheticInbox.get(context);
+        dao = database.inboxDao();
+    }
+
+    /**
+     * Inbox list as the UI loads it (summaries without text)
+     */
+    @Test
+    public void getAllEntrySummaries() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            assertEquals(SyntheticInbox.ENTRY_COUNT, dao.getAllEntrySummaries().size());
+        }
+    }
+
+    /**
+     * Inbox list with every text, as getAllEntries without fields returns it
+     */
+    @Test
+    public void getAllEntries() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            assertEquals(SyntheticInbox.ENTRY_COUNT, dao.getAllEntries().size());
+        }
+    }
+
+    @Test
+    public void getEntryWithCards() {
+        String id = SyntheticInbox.smallEntryId();
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            assertNotNull(dao.getEntry(id));
+            assertEquals(SyntheticInbox.CARDS_PER_ENTRY, dao.getCardsForEntry(id).size());
+        }
+    }
+
+    @Test
+    public void getLargeEntryWithCards() {
+        String id = SyntheticInbox.largeEntryId();
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            assertNotNull(dao.getEntry(id));
+            assertEquals(SyntheticInbox.CARDS_PER_ENTRY, dao.getCardsForEntry(id).size());
+        }
+    }
+
+    /**
+     * One generated batch of cards, as saveCards and the background runner store them
+     */
+    @Test
+    public void insertCards() {
+        String entryId = SyntheticInbox.smallEntryId();
+        Random random = new Random(7);
+        BenchmarkState state = benchmarkRule.getState();
+        int batch = 0;
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            List<GeneratedCard> cards = SyntheticInbox.cards(entryId, random, SyntheticInbox.CARDS_PER_ENTRY,
+                "bench-" + batch++ + "-");
+            state.resumeTiming();
+
+            dao.insertCards(cards);
+
+            state.pauseTiming();
+            // Keeps the dataset unchanged; tags go with their cards (ON DELETE CASCADE)
+            database.getOpenHelper().getWritableDatabase()
+                .execSQL("DELETE FROM generated_cards WHERE id LIKE ?", new Object[]{entryId + "-bench-%"});
+            state.resumeTiming();
+        }
+    }
+
+    /**
+     * The reads and delete checkAutoRemove makes once the last card of an entry was added
+     */
+    @Test
+    public void checkAutoRemove() {
+        Random random = new Random(11);
+        BenchmarkState state = benchmarkRule.getState();
+        int run = 0;
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            String entryId = "auto-remove-" + run++;
+            InboxEntry fresh = SyntheticInbox.entry(entryId, random, 4000, System.currentTimeMillis());
+            fresh.isLocked = true;
+            dao.insertEntry(fresh);
+            List<GeneratedCard> cards = SyntheticInbox.cards(entryId, random, SyntheticInbox.CARDS_PER_ENTRY, "card-");
+            for (GeneratedCard card : cards) {
+                card.status = "added";
+            }
+            dao.insertCards(cards);
+            state.resumeTiming();
+
+            InboxEntry entry = dao.getEntry(entryId);
+            int totalCards = dao.getTotalCardCount(entryId);
+            int pendingCards = dao.getPendingCardCount(entryId);
+            if (entry != null && entry.isLocked && totalCards > 0 && pendingCards == 0) {
+                dao.deleteEntry(entryId);
+            } else {
+                fail("Entry was not removable");
+            }
+        }
+    }
+}
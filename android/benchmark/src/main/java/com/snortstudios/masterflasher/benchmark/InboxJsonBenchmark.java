@@ -0,0 +1,122 @@
+package com.snortstudios.masterflasher.benchmark;
+
+import static org.junit.Assert.*;
+
+import android.content.Context;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.getcapacitor.JSObject;
+import com.snortstudios.masterflasher.db.DuplicateCardIndex;
+import com.snortstudios.masterflasher.db.EntrySummary;
+import com.snortstudios.masterflasher.db.GeneratedCard;
+import com.snortstudios.masterflasher.db.InboxDao;
+import com.snortstudios.masterflasher.db.InboxEntry;
+import com.snortstudios.masterflasher.db.InboxJson;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Entity to JSON mapping of InboxPlugin (InboxJson) on entries and cards from the
+ * SyntheticInbox dataset, without database access in the measured loop.
+ */
+@RunWith(AndroidJUnit4.class)
+public class InboxJsonBenchmark {
+
+    // Fields the inbox list requests, see InboxScreen LIST_FIELDS
+    private static final Set<String> LIST_FIELDS = new HashSet<>(Arrays.asList(
+        "id", "contentType", "preview", "title", "isLocked", "createdAt", "extractedTextLength"));
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private InboxEntry smallEntry;
+    private InboxEntry largeEntry;
+    private List<EntrySummary> summaries;
+    private List<GeneratedCard> cards;
+    private DuplicateCardIndex duplicateIndex;
+
+    @Before
+    public void loadDataset() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        InboxDao dao = SyntheticInbox.get(context).inboxDao();
+        smallEntry = dao.getEntry(SyntheticInbox.smallEntryId());
+        largeEntry = dao.getEntry(SyntheticInbox.largeEntryId());
+        summaries = dao.getAllEntrySummaries().subList(0, 1000);
+        cards = dao.getCardsForEntry(SyntheticInbox.smallEntryId());
+        duplicateIndex = DuplicateCardIndex.getInstance(dao);
+    }
+
+    @Test
+    public void entryToJson() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            InboxJson.entryToJson(smallEntry, null, new JSObject());
+        }
+    }
+
+    @Test
+    public void largeEntryToJson() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            InboxJson.entryToJson(largeEntry, null, new JSObject());
+        }
+    }
+
+    /**
+     * A thousand rows of the inbox list
+     */
+    @Test
+    public void summariesToJson() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            for (EntrySummary summary : summaries) {
+                InboxJson.summaryToJson(summary, LIST_FIELDS, new JSObject());
+            }
+        }
+    }
+
+    /**
+     * The cards of one entry, as getEntry returns them
+     */
+    @Test
+    public void cardsToJson() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            for (GeneratedCard card : cards) {
+                InboxJson.cardToJson(card, duplicateIndex, new JSObject());
+            }
+        }
+    }
+
+    /**
+     * The cards of one entry, as saveCards receives them
+     */
+    @Test
+    public void jsonToCards() throws Exception {
+        JSObject[] json = new JSObject[cards.size()];
+        for (int i = 0; i < json.length; i++) {
+            json[i] = InboxJson.cardToJson(cards.get(i), duplicateIndex, new JSObject());
+        }
+        String entryId = SyntheticInbox.smallEntryId();
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            for (JSObject obj : json) {
+                InboxJson.jsonToCard(obj, entryId);
+            }
+        }
+        assertEquals(cards.get(0).tags, InboxJson.jsonToCard(json[0], entryId).tags);
+    }
+}
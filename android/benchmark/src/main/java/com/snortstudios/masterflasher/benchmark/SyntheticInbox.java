@@ -0,0 +1,151 @@
+package com.snortstudios.masterflasher.benchmark;
+
+import android.content.Context;
+
+import androidx.room.Room;
+
+import com.snortstudios.masterflasher.db.AppDatabase;
+import com.snortstudios.masterflasher.db.AppSetting;
+import com.snortstudios.masterflasher.db.GeneratedCard;
+import com.snortstudios.masterflasher.db.InboxDao;
+import com.snortstudios.masterflasher.db.InboxEntry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic inbox at realistic scale: 10k entries with 20 cards each (200k cards),
+ * a few of them with megabyte-sized extracted text.
+ *
+ * Built once into its own database file and reused by later runs, since filling it
+ * takes far longer than any benchmark. Bump DATASET_VERSION when the shape changes.
+ */
+final class SyntheticInbox {
+
+    static final int ENTRY_COUNT = 10_000;
+    static final int CARDS_PER_ENTRY = 20;
+    static final int LARGE_TEXT_INTERVAL = 500;
+    static final int LARGE_TEXT_CHARS = 1024 * 1024;
+
+    private static final String DATABASE_NAME = "benchmark_inbox.db";
+    private static final String DATASET_KEY = "benchmark_dataset_version";
+    private static final String DATASET_VERSION = "1";
+    private static final int BATCH_ENTRIES = 100;
+
+    private static final String[] WORDS = {
+        "the", "mitochondria", "produces", "energy", "for", "cell", "through", "oxidative",
+        "phosphorylation", "which", "requires", "oxygen", "and", "glucose", "in", "a", "process",
+        "called", "respiration", "protein", "synthesis", "occurs", "at", "ribosomes", "3.5", "percent"
+    };
+
+    private static AppDatabase database;
+
+    private SyntheticInbox() {
+    }
+
+    /**
+     * The populated database, built on first use
+     */
+    static synchronized AppDatabase get(Context context) {
+        if (database == null) {
+            database = Room.databaseBuilder(context.getApplicationContext(), AppDatabase.class, DATABASE_NAME)
+                .allowMainThreadQueries()
+                .build();
+            AppSetting version = database.inboxDao().getSetting(DATASET_KEY);
+            if (version == null || !DATASET_VERSION.equals(version.value)) {
+                database.clearAllTables();
+                populate(database);
+                database.inboxDao().setSetting(new AppSetting(DATASET_KEY, DATASET_VERSION));
+            }
+        }
+        return database;
+    }
+
+    static String entryId(int index) {
+        return "entry-" + index;
+    }
+
+    /**
+     * An entry with a few kilobytes of text
+     */
+    static String smallEntryId() {
+        return entryId(ENTRY_COUNT / 2 + 1);
+    }
+
+    /**
+     * An entry with LARGE_TEXT_CHARS of extracted text
+     */
+    static String largeEntryId() {
+        return entryId(LARGE_TEXT_INTERVAL);
+    }
+
+    static InboxEntry entry(String id, Random random, int textChars, long createdAt) {
+        String text = text(random, textChars);
+        InboxEntry entry = InboxEntry.create(id, "url", "https://example.com/articles/" + id);
+        entry.title = "Article " + id;
+        entry.extractedText = text;
+        entry.deckName = "Biology";
+        entry.createdAt = createdAt;
+        return entry;
+    }
+
+    static List<GeneratedCard> cards(String entryId, Random random, int count, String idPrefix) {
+        List<GeneratedCard> cards = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            GeneratedCard card = GeneratedCard.create(
+                entryId + "-" + idPrefix + i,
+                entryId,
+                "What does " + word(random) + " " + word(random) + " do in " + word(random) + "?",
+                text(random, 120),
+                Arrays.asList("biology", word(random))
+            );
+            cards.add(card);
+        }
+        return cards;
+    }
+
+    static String text(Random random, int chars) {
+        StringBuilder text = new StringBuilder(chars + 32);
+        int sentence = 0;
+        while (text.length() < chars) {
+            text.append(word(random));
+            if (++sentence % 14 == 0) {
+                text.append(sentence % 70 == 0 ? ".\n\n" : ". ");
+            } else {
+                text.append(' ');
+            }
+        }
+        text.setLength(chars);
+        return text.toString();
+    }
+
+    private static String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    private static void populate(AppDatabase database) {
+        InboxDao dao = database.inboxDao();
+        Random random = new Random(42);
+        long now = System.currentTimeMillis();
+        for (int start = 1; start <= ENTRY_COUNT; start += BATCH_ENTRIES) {
+            int first = start;
+            database.runInTransaction(() -> {
+                for (int i = first; i < first + BATCH_ENTRIES && i <= ENTRY_COUNT; i++) {
+                    int textChars = i % LARGE_TEXT_INTERVAL == 0 ? LARGE_TEXT_CHARS : 2000 + random.nextInt(6000);
+                    InboxEntry entry = entry(entryId(i), random, textChars, now - i * 60_000L);
+                    entry.isLocked = true;
+                    dao.insertEntry(entry);
+                    List<GeneratedCard> cards = cards(entry.id, random, CARDS_PER_ENTRY, "card-");
+                    // A quarter of the cards were already exported
+                    for (int c = 0; c < cards.size(); c += 4) {
+                        cards.get(c).status = "added";
+                        cards.get(c).noteId = now + i * 100L + c;
+                    }
+                    dao.insertCards(cards);
+                }
+            });
+        }
+    }
+}
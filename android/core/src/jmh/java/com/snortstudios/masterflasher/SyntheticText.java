@@ -0,0 +1,49 @@
+package com.snortstudios.masterflasher;
+
+import java.util.Random;
+
+/**
+ * Deterministic pseudo-text for the benchmarks: sentences of 8-30 words in paragraphs
+ */
+public final class SyntheticText {
+
+    private static final String[] WORDS = {
+        "the", "mitochondria", "produces", "energy", "for", "cell", "through", "oxidative",
+        "phosphorylation", "which", "requires", "oxygen", "and", "glucose", "in", "a", "process",
+        "called", "respiration", "protein", "synthesis", "occurs", "at", "ribosomes", "3.5", "percent"
+    };
+
+    private SyntheticText() {
+    }
+
+    public static String text(Random random, int chars) {
+        StringBuilder text = new StringBuilder(chars + 256);
+        while (text.length() < chars) {
+            text.append(paragraph(random)).append("\n\n");
+        }
+        return text.substring(0, chars);
+    }
+
+    public static String sentence(Random random) {
+        int words = 8 + random.nextInt(23);
+        StringBuilder sentence = new StringBuilder(words * 8);
+        for (int w = 0; w < words; w++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            sentence.append(w == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+            sentence.append(w == words - 1 ? "." : " ");
+        }
+        return sentence.toString();
+    }
+
+    private static String paragraph(Random random) {
+        StringBuilder paragraph = new StringBuilder();
+        int sentences = 2 + random.nextInt(8);
+        for (int s = 0; s < sentences; s++) {
+            if (s > 0) {
+                paragraph.append(' ');
+            }
+            paragraph.append(sentence(random));
+        }
+        return paragraph.toString();
+    }
+}
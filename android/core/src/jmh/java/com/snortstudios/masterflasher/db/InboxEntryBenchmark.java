@@ -0,0 +1,62 @@
+package com.snortstudios.masterflasher.db;
+
+import com.snortstudios.masterflasher.SyntheticText;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Work done for every shared item: URL detection and the list preview.
+ *
+ * Run with: ./gradlew :core:jmh -PjmhIncludes=InboxEntryBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class InboxEntryBenchmark {
+
+    private String url;
+    private String shortText;
+    private String largeText;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        url = "https://example.com/articles/2024/05/mitochondria-and-the-energy-of-the-cell?ref=share";
+        shortText = "  " + SyntheticText.text(random, 400) + "\n";
+        largeText = "\n" + SyntheticText.text(random, 1024 * 1024) + "\n\n";
+    }
+
+    @Benchmark
+    public boolean isUrl() {
+        return InboxEntry.isUrl(url);
+    }
+
+    @Benchmark
+    public boolean isUrlOfLargeText() {
+        return InboxEntry.isUrl(largeText);
+    }
+
+    @Benchmark
+    public String urlPreview() {
+        return InboxEntry.generatePreview(url, "url", null);
+    }
+
+    @Benchmark
+    public String textPreview() {
+        return InboxEntry.generatePreview(shortText, "text", null);
+    }
+
+    @Benchmark
+    public String largeTextPreview() {
+        return InboxEntry.generatePreview(largeText, "text", null);
+    }
+}
@@ -0,0 +1,118 @@
+package com.snortstudios.masterflasher.db;
+
+import com.snortstudios.masterflasher.SyntheticText;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity to JSON mapping of InboxPlugin, per entry or per entry's cards.
+ *
+ * Run with: ./gradlew :core:jmh -PjmhIncludes=InboxJsonBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InboxJsonBenchmark {
+
+    private static final int CARDS_PER_ENTRY = 20;
+
+    // Fields the inbox list requests, without the text
+    private static final Set<String> LIST_FIELDS = new HashSet<>(Arrays.asList(
+        "contentType", "preview", "title", "deckName", "isLocked", "createdAt", "pageCount"));
+
+    private InboxEntry smallEntry;
+    private InboxEntry largeEntry;
+    private EntrySummary summary;
+    private List<GeneratedCard> cards;
+    private List<JSONObject> cardsJson;
+    private DuplicateLookup duplicates;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        smallEntry = entry("entry-1", SyntheticText.text(random, 6000));
+        largeEntry = entry("entry-2", SyntheticText.text(random, 1024 * 1024));
+        summary = EntrySummary.from(smallEntry);
+
+        cards = new ArrayList<>(CARDS_PER_ENTRY);
+        Set<String> exported = new HashSet<>();
+        for (int i = 0; i < CARDS_PER_ENTRY; i++) {
+            GeneratedCard card = GeneratedCard.create("card-" + i, smallEntry.id,
+                SyntheticText.sentence(random), SyntheticText.sentence(random), Arrays.asList("biology", "cells"));
+            cards.add(card);
+            // A quarter of the fronts are already in AnkiDroid
+            if (i % 4 == 0) {
+                exported.add(CardFronts.normalize(card.front));
+            }
+        }
+        duplicates = new DuplicateLookup() {
+            @Override
+            public boolean contains(String front) {
+                return exported.contains(CardFronts.normalize(front));
+            }
+
+            @Override
+            public Long getNoteId(String front) {
+                return contains(front) ? 1700000000000L : null;
+            }
+        };
+
+        cardsJson = new ArrayList<>(CARDS_PER_ENTRY);
+        for (GeneratedCard card : cards) {
+            cardsJson.add(InboxJson.cardToJson(card, duplicates, new JSONObject()));
+        }
+    }
+
+    @Benchmark
+    public JSONObject entryToJson() {
+        return InboxJson.entryToJson(smallEntry, null, new JSONObject());
+    }
+
+    @Benchmark
+    public JSONObject largeEntryToJson() {
+        return InboxJson.entryToJson(largeEntry, null, new JSONObject());
+    }
+
+    @Benchmark
+    public JSONObject summaryToJson() {
+        return InboxJson.summaryToJson(summary, LIST_FIELDS, new JSONObject());
+    }
+
+    @Benchmark
+    public void cardsToJson(Blackhole blackhole) {
+        for (GeneratedCard card : cards) {
+            blackhole.consume(InboxJson.cardToJson(card, duplicates, new JSONObject()));
+        }
+    }
+
+    @Benchmark
+    public void jsonToCards(Blackhole blackhole) throws Exception {
+        for (JSONObject obj : cardsJson) {
+            blackhole.consume(InboxJson.jsonToCard(obj, smallEntry.id));
+        }
+    }
+
+    private static InboxEntry entry(String id, String text) {
+        InboxEntry entry = InboxEntry.create(id, "url", "https://example.com/articles/" + id);
+        entry.title = "Article " + id;
+        entry.extractedText = text;
+        entry.deckName = "Biology";
+        return entry;
+    }
+}
@@ -0,0 +1,135 @@
+package com.snortstudios.masterflasher.text;
+
+import com.snortstudios.masterflasher.SyntheticText;
+import com.snortstudios.masterflasher.db.CardFronts;
+import com.snortstudios.masterflasher.gemini.Fact;
+import com.snortstudios.masterflasher.generation.FactDeduplicator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Chunking, normalization and deduplication of the generation pipeline on a 1 MB document,
+ * with the regex chunker the web layer used as a baseline.
+ *
+ * Run with: ./gradlew :core:jmh -PjmhIncludes=TextBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TextBenchmark {
+
+    private static final int DOCUMENT_CHARS = 1024 * 1024;
+    private static final int FACT_COUNT = 2000;
+
+    private String document;
+    private List<Fact> facts;
+    private List<String> fronts;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        document = SyntheticText.text(random, DOCUMENT_CHARS);
+
+        // Every fifth fact restates an earlier one with a word added
+        facts = new ArrayList<>(FACT_COUNT);
+        for (int i = 0; i < FACT_COUNT; i++) {
+            String text = i % 5 == 4
+                ? facts.get(random.nextInt(i)).text.replace(".", " in the cell.")
+                : SyntheticText.sentence(random);
+            facts.add(new Fact("fact-" + i, text, i / 20));
+        }
+
+        fronts = new ArrayList<>(FACT_COUNT);
+        for (Fact fact : facts) {
+            fronts.add("What is <b>" + fact.text + "</b>?");
+        }
+    }
+
+    @Benchmark
+    public List<String> chunk() {
+        return new TextChunker().chunk(document);
+    }
+
+    @Benchmark
+    public List<String> chunkWithOverlap() {
+        return new TextChunker(TextChunker.DEFAULT_MAX_TOKENS, 200).chunk(document);
+    }
+
+    @Benchmark
+    public List<String> chunkRegex() {
+        return regexChunk(document, 8000);
+    }
+
+    @Benchmark
+    public void chunkStreaming(Blackhole blackhole) throws IOException {
+        new TextChunker().chunk(new StringReader(document), blackhole::consume);
+    }
+
+    @Benchmark
+    public void normalize(Blackhole blackhole) throws IOException {
+        try (NormalizingReader reader = new NormalizingReader(new StringReader(document))) {
+            char[] buffer = new char[8192];
+            int read;
+            while ((read = reader.read(buffer)) > 0) {
+                blackhole.consume(buffer);
+            }
+        }
+    }
+
+    @Benchmark
+    public int estimateTokens() {
+        return TokenEstimator.estimate(document);
+    }
+
+    @Benchmark
+    public List<Fact> dedupeFacts() {
+        return new FactDeduplicator().dedupe(facts);
+    }
+
+    @Benchmark
+    public void hashFronts(Blackhole blackhole) {
+        for (String front : fronts) {
+            blackhole.consume(CardFronts.hash(front));
+        }
+    }
+
+    /**
+     * The sentence regex and concatenation chunker formerly in generateFacts.ts
+     */
+    private static List<String> regexChunk(String text, int chunkSize) {
+        List<String> chunks = new ArrayList<>();
+        Matcher matcher = Pattern.compile("[^.!?]+[.!?]+(\\s|$)").matcher(text);
+        String current = "";
+        while (matcher.find()) {
+            String sentence = matcher.group();
+            if ((current + sentence).length() > chunkSize) {
+                if (!current.isEmpty()) {
+                    chunks.add(current);
+                }
+                current = sentence;
+            } else {
+                current += sentence;
+            }
+        }
+        if (!current.isEmpty()) {
+            chunks.add(current);
+        }
+        return chunks;
+    }
+}
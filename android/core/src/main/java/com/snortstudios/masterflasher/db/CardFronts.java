@@ -0,0 +1,72 @@
+package com.snortstudios.masterflasher.db;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Normalization of card fronts for duplicate detection, shared by DuplicateCardIndex
+ * and the exported_notes table (keyed by hash).
+ *
+ * {@code "What is <b>ATP</b>?"} and {@code "what is ATP"} normalize to the same front.
+ */
+public final class CardFronts {
+
+    private CardFronts() {
+    }
+
+    /**
+     * Fold a front to what makes two cards the same question: markup and &amp;nbsp; removed,
+     * compatibility characters folded (NFKC), lower case, whitespace collapsed and
+     * trailing punctuation dropped
+     */
+    public static String normalize(String front) {
+        String folded = Normalizer.normalize(front.replace("&nbsp;", " "), Normalizer.Form.NFKC)
+            .toLowerCase(Locale.ROOT);
+        StringBuilder normalized = new StringBuilder(folded.length());
+        boolean inTag = false;
+        boolean pendingSpace = false;
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (inTag) {
+                inTag = c != '>';
+                continue;
+            }
+            if (c == '<') {
+                inTag = true;
+                pendingSpace = true;
+            } else if (Character.isWhitespace(c)) {
+                pendingSpace = true;
+            } else {
+                if (pendingSpace && normalized.length() > 0) {
+                    normalized.append(' ');
+                }
+                pendingSpace = false;
+                normalized.append(c);
+            }
+        }
+        int end = normalized.length();
+        while (end > 0 && isTrailingPunctuation(normalized.charAt(end - 1))) {
+            end--;
+        }
+        normalized.setLength(end);
+        return normalized.toString();
+    }
+
+    /**
+     * 64-bit FNV-1a of the normalized front
+     */
+    public static long hash(String front) {
+        String normalized = normalize(front);
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < normalized.length(); i++) {
+            hash ^= normalized.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    private static boolean isTrailingPunctuation(char c) {
+        // Full-width ? and ! are already folded by NFKC, the ideographic full stop is not
+        return c == '?' || c == '.' || c == '!' || c == ':' || c == ';' || c == ' ' || c == '\u3002';
+    }
+}
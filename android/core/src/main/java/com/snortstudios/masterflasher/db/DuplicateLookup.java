@@ -0,0 +1,17 @@
+package com.snortstudios.masterflasher.db;
+
+/**
+ * Card fronts that are already notes in AnkiDroid, implemented by DuplicateCardIndex.
+ */
+public interface DuplicateLookup {
+
+    /**
+     * Whether a card with this front is already in AnkiDroid
+     */
+    boolean contains(String front);
+
+    /**
+     * AnkiDroid note of an exported front, null if not exported or the note is unknown
+     */
+    Long getNoteId(String front);
+}
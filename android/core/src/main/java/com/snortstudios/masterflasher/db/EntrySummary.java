@@ -0,0 +1,67 @@
+package com.snortstudios.masterflasher.db;
+
+/**
+ * Projection of an inbox_entries row without its text (content and extractedText),
+ * with the text lengths instead (including extracted text kept in a file). Lengths count
+ * characters as SQLite does (code points), matching the offsets of getContentRange,
+ * getExtractedTextRange and EntryTextStore.read.
+ */
+public class EntrySummary {
+
+    public String id;
+
+    public String contentType;
+
+    public String preview;
+
+    public String title;
+
+    public String deckName;
+
+    public boolean isLocked;
+
+    public long createdAt;
+
+    public int pageCount;
+
+    public Integer pageRangeStart;
+
+    public Integer pageRangeEnd;
+
+    public int contentLength;
+
+    public int extractedTextLength;
+
+    /**
+     * Whether the extracted text is kept in a file rather than the row (see
+     * InboxEntry.extractedTextFileLength)
+     */
+    public boolean extractedTextInFile;
+
+    /**
+     * Summarize an entry that was already loaded in full
+     */
+    public static EntrySummary from(InboxEntry entry) {
+        EntrySummary summary = new EntrySummary();
+        summary.id = entry.id;
+        summary.contentType = entry.contentType;
+        summary.preview = entry.preview;
+        summary.title = entry.title;
+        summary.deckName = entry.deckName;
+        summary.isLocked = entry.isLocked;
+        summary.createdAt = entry.createdAt;
+        summary.pageCount = entry.pageCount;
+        summary.pageRangeStart = entry.pageRangeStart;
+        summary.pageRangeEnd = entry.pageRangeEnd;
+        summary.contentLength = codePoints(entry.content);
+        summary.extractedTextInFile = entry.extractedTextFileLength != null;
+        summary.extractedTextLength = summary.extractedTextInFile
+            ? entry.extractedTextFileLength
+            : codePoints(entry.extractedText);
+        return summary;
+    }
+
+    private static int codePoints(String text) {
+        return text != null ? text.codePointCount(0, text.length()) : 0;
+    }
+}
@@ -3,9 +3,13 @@ package com.snortstudios.masterflasher.db;
 import androidx.annotation.NonNull;
 import androidx.room.Entity;
 import androidx.room.ForeignKey;
+import androidx.room.Ignore;
 import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Room entity representing a generated flashcard.
  * Cards are linked to an InboxEntry and are cascade-deleted when the entry is deleted.
@@ -42,9 +46,12 @@ public class GeneratedCard {
     public String back;
     
     /**
-     * JSON array of tags as a string (e.g., '["tag1", "tag2"]')
+     * Tags in their given order, stored as card_tags rows. Filled by the InboxDao card
+     * reads that need them (getCardsForEntry, getCard, getCardsWithTag) and empty
+     * on the bulk reads used for duplicate detection.
      */
-    public String tags;
+    @Ignore
+    public List<String> tags = new ArrayList<>();
     
     /**
      * Card status: "pending", "added", or "error"
@@ -56,19 +63,25 @@ public class GeneratedCard {
      */
     public Long noteId;
     
+    /**
+     * Source image shown on the back when exported, inherited from the entry on insert
+     * (see InboxEntry.sourceImage). Null for cards without one.
+     */
+    public String sourceImage;
+    
     public GeneratedCard() {
     }
     
     /**
      * Factory method to create a new card
      */
-    public static GeneratedCard create(String id, String entryId, String front, String back, String tags) {
+    public static GeneratedCard create(String id, String entryId, String front, String back, List<String> tags) {
         GeneratedCard card = new GeneratedCard();
         card.id = id;
         card.entryId = entryId;
         card.front = front;
         card.back = back;
-        card.tags = tags;
+        card.tags = new ArrayList<>(tags);
         card.status = "pending";
         card.noteId = null;
         return card;
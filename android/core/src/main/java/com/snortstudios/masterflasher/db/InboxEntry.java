@@ -1,11 +1,12 @@
 package com.snortstudios.masterflasher.db;
 
-import android.annotation.SuppressLint;
-
 import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
 import androidx.room.PrimaryKey;
 
+import java.util.regex.Pattern;
+
 /**
  * Room entity representing an inbox entry.
  * Each entry contains shared content (text, URL, or PDF) that can be processed into flashcards.
@@ -13,6 +14,9 @@ import androidx.room.PrimaryKey;
 @Entity(tableName = "inbox_entries")
 public class InboxEntry {
     
+    private static final int PREVIEW_CHARS = 100;
+    private static final Pattern URL_PATTERN = Pattern.compile("(?i)^https?://.*");
+    
     @PrimaryKey
     @NonNull
     public String id;
@@ -43,11 +47,18 @@ public class InboxEntry {
     /**
      * Extracted text content:
      * - For URLs: extracted via WebClipper
-     * - For PDFs: extracted via pdf.js on the web layer
+     * - For PDFs: null, the text of the selected page range is kept in a file (see
+     *   extractedTextFileLength); entries saved before that may still have it here
      * - For text: null (text entries use content directly)
      */
     public String extractedText;
     
+    /**
+     * Length in code points of extracted text kept in a file instead of extractedText
+     * (see EntryTextStore), so it is never loaded whole. Null when the text is in the row.
+     */
+    public Integer extractedTextFileLength;
+    
     /**
      * User-specified deck name for cards generated from this entry
      */
@@ -64,13 +75,35 @@ public class InboxEntry {
      */
     public long createdAt;
     
+    /**
+     * Total number of pages in the PDF (0 until pdf.js has opened the document)
+     */
+    @ColumnInfo(defaultValue = "0")
+    public int pageCount;
+    
+    /**
+     * First selected PDF page (1-based, inclusive). Null means from the first page.
+     */
+    public Integer pageRangeStart;
+    
+    /**
+     * Last selected PDF page (1-based, inclusive). Null means through the last page.
+     */
+    public Integer pageRangeEnd;
+    
+    /**
+     * Source image the text was read from (camera OCR crop), a file name in the app's
+     * images directory. Null for entries without one.
+     */
+    public String sourceImage;
+    
     public InboxEntry() {
     }
     
     /**
      * Factory method to create a new entry from shared text or URL content
      */
-    @SuppressLint("DirectSystemCurrentTimeMillisUsage")
+    @SuppressWarnings("DirectSystemCurrentTimeMillisUsage")
     public static InboxEntry create(String id, String contentType, String content) {
         InboxEntry entry = new InboxEntry();
         entry.id = id;
@@ -89,7 +122,7 @@ public class InboxEntry {
      * @param capacitorUrl Capacitor-compatible file URL for pdf.js access
      * @param originalFilename Original PDF filename for display
      */
-    @SuppressLint("DirectSystemCurrentTimeMillisUsage")
+    @SuppressWarnings("DirectSystemCurrentTimeMillisUsage")
     public static InboxEntry createPdf(String id, String capacitorUrl, String originalFilename) {
         InboxEntry entry = new InboxEntry();
         entry.id = id;
@@ -102,6 +135,13 @@ public class InboxEntry {
         return entry;
     }
     
+    /**
+     * Whether shared text is a single URL, stored as a "url" entry
+     */
+    public static boolean isUrl(String text) {
+        return URL_PATTERN.matcher(text).matches();
+    }
+    
     /**
      * Generate a preview string for display
      *
@@ -109,7 +149,7 @@ public class InboxEntry {
      * @param contentType The type: "text", "url", or "pdf"
      * @param filename Optional filename for PDF entries
      */
-    private static String generatePreview(String content, String contentType, String filename) {
+    static String generatePreview(String content, String contentType, String filename) {
         if ("pdf".equals(contentType)) {
             // For PDFs, show "PDF: filename" preview
             String name = filename != null ? filename : "document.pdf";
@@ -120,14 +160,22 @@ public class InboxEntry {
         
         if ("url".equals(contentType)) {
             // For URLs, show the full URL (up to reasonable length)
-            return content.length() > 100 ? content.substring(0, 100) + "..." : content;
+            return content.length() > PREVIEW_CHARS ? content.substring(0, PREVIEW_CHARS) + "..." : content;
         } else {
-            // For text, show first 100 characters
-            String trimmed = content.trim();
-            if (trimmed.length() > 100) {
-                return trimmed.substring(0, 100) + "...";
+            // For text, show the first 100 characters of the trimmed text. Same result as
+            // trim(), without copying the whole text, which can be megabytes.
+            int start = 0;
+            int end = content.length();
+            while (start < end && content.charAt(start) <= ' ') {
+                start++;
+            }
+            while (end > start && content.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            if (end - start > PREVIEW_CHARS) {
+                return content.substring(start, start + PREVIEW_CHARS) + "...";
             }
-            return trimmed;
+            return content.substring(start, end);
         }
     }
 }
@@ -0,0 +1,159 @@
+package com.snortstudios.masterflasher.db;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Mapping between inbox entities and the JSON objects InboxPlugin exchanges with the web layer.
+ *
+ * Written against org.json only, so it runs on a plain JVM (see the core module's JMH
+ * benchmarks). Objects are filled into a caller-supplied JSONObject, so the plugin passes
+ * a JSObject and resolves it without a copy.
+ */
+public final class InboxJson {
+
+    // Entry fields holding document text, which can be megabytes
+    public static final String FIELD_CONTENT = "content";
+    public static final String FIELD_EXTRACTED_TEXT = "extractedText";
+
+    private InboxJson() {
+    }
+
+    /**
+     * @param fields Fields to include, null for all of them
+     * @param obj Object to fill, typically empty
+     */
+    public static <T extends JSONObject> T entryToJson(InboxEntry entry, Set<String> fields, T obj) {
+        summaryToJson(EntrySummary.from(entry), fields, obj);
+        putField(obj, fields, FIELD_CONTENT, entry.content);
+        putField(obj, fields, FIELD_EXTRACTED_TEXT, entry.extractedText);
+        putField(obj, fields, "sourceImage", entry.sourceImage);
+        return obj;
+    }
+
+    /**
+     * @param fields Fields to include, null for all of them
+     * @param obj Object to fill, typically empty
+     */
+    public static <T extends JSONObject> T summaryToJson(EntrySummary summary, Set<String> fields, T obj) {
+        put(obj, "id", summary.id);
+        putField(obj, fields, "contentType", summary.contentType);
+        putField(obj, fields, "preview", summary.preview);
+        putField(obj, fields, "title", summary.title);
+        putField(obj, fields, "deckName", summary.deckName);
+        putField(obj, fields, "isLocked", summary.isLocked);
+        putField(obj, fields, "createdAt", summary.createdAt);
+        putField(obj, fields, "pageCount", summary.pageCount);
+        putField(obj, fields, "pageRangeStart", summary.pageRangeStart);
+        putField(obj, fields, "pageRangeEnd", summary.pageRangeEnd);
+        putField(obj, fields, "contentLength", summary.contentLength);
+        putField(obj, fields, "extractedTextLength", summary.extractedTextLength);
+        return obj;
+    }
+
+    private static void putField(JSONObject obj, Set<String> fields, String name, Object value) {
+        if (fields == null || fields.contains(name)) {
+            put(obj, name, value);
+        }
+    }
+
+    @SuppressWarnings("DirectSystemCurrentTimeMillisUsage")
+    public static InboxEntry jsonToEntry(JSONObject obj) {
+        InboxEntry entry = new InboxEntry();
+        entry.id = getString(obj, "id", UUID.randomUUID().toString());
+        entry.contentType = getString(obj, "contentType", "text");
+        entry.content = getString(obj, "content", "");
+        entry.preview = getString(obj, "preview", "");
+        entry.title = getString(obj, "title", null);
+        entry.extractedText = getString(obj, "extractedText", null);
+        entry.deckName = getString(obj, "deckName", null);
+        entry.sourceImage = getString(obj, "sourceImage", null);
+        entry.isLocked = obj.optBoolean("isLocked", false);
+        
+        // Handle createdAt - use current time if not provided
+        long now = System.currentTimeMillis();
+        entry.createdAt = obj.isNull("createdAt") ? now : obj.optLong("createdAt", now);
+        
+        return entry;
+    }
+
+    /**
+     * @param duplicates Flags cards whose front is already a note in AnkiDroid
+     * @param obj Object to fill, typically empty
+     */
+    public static <T extends JSONObject> T cardToJson(GeneratedCard card, DuplicateLookup duplicates, T obj) {
+        put(obj, "id", card.id);
+        put(obj, "entryId", card.entryId);
+        put(obj, "front", card.front);
+        put(obj, "back", card.back);
+        put(obj, "status", card.status);
+        
+        put(obj, "tags", new JSONArray(card.tags));
+        
+        if (card.noteId != null) {
+            put(obj, "noteId", card.noteId);
+        }
+        
+        if (card.sourceImage != null) {
+            put(obj, "sourceImage", card.sourceImage);
+        }
+        
+        // Flag cards whose front is already a note in AnkiDroid, exporting them is skipped
+        if (!"added".equals(card.status) && duplicates.contains(card.front)) {
+            put(obj, "duplicate", true);
+            Long duplicateNoteId = duplicates.getNoteId(card.front);
+            if (duplicateNoteId != null) {
+                put(obj, "duplicateNoteId", duplicateNoteId);
+            }
+        }
+        
+        return obj;
+    }
+
+    public static GeneratedCard jsonToCard(JSONObject obj, String entryId) throws JSONException {
+        GeneratedCard card = new GeneratedCard();
+        card.id = obj.optString("id", UUID.randomUUID().toString());
+        card.entryId = entryId;
+        card.front = obj.optString("front", "");
+        card.back = obj.optString("back", "");
+        card.status = obj.optString("status", "pending");
+        
+        JSONArray tagsArray = obj.optJSONArray("tags");
+        if (tagsArray != null) {
+            for (int i = 0; i < tagsArray.length(); i++) {
+                card.tags.add(tagsArray.optString(i));
+            }
+        }
+        
+        if (obj.has("noteId") && !obj.isNull("noteId")) {
+            card.noteId = obj.getLong("noteId");
+        }
+        
+        card.sourceImage = getString(obj, "sourceImage", null);
+        
+        return card;
+    }
+
+    // ==================== Helper Methods ====================
+
+    private static void put(JSONObject obj, String name, Object value) {
+        try {
+            obj.put(name, value);
+        } catch (JSONException e) {
+            // Only thrown for non-finite numbers, which entities do not hold
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * String value, or the fallback when missing or null. optString would return "null"
+     * for a JSON null on Android.
+     */
+    private static String getString(JSONObject obj, String name, String fallback) {
+        return obj.isNull(name) ? fallback : obj.optString(name, fallback);
+    }
+}
@@ -0,0 +1,22 @@
+package com.snortstudios.masterflasher.gemini;
+
+/**
+ * A single atomic fact extracted from a text chunk.
+ */
+public class Fact {
+    
+    public final String id;
+    
+    public final String text;
+    
+    /**
+     * Index of the chunk the fact was extracted from
+     */
+    public final int chunkIndex;
+    
+    public Fact(String id, String text, int chunkIndex) {
+        this.id = id;
+        this.text = text;
+        this.chunkIndex = chunkIndex;
+    }
+}
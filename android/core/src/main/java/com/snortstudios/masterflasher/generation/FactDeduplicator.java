@@ -0,0 +1,110 @@
+package com.snortstudios.masterflasher.generation;
+
+import com.snortstudios.masterflasher.gemini.Fact;
+import com.snortstudios.masterflasher.text.NearDuplicateIndex;
+import com.snortstudios.masterflasher.text.TokenEstimator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Drops near-duplicate facts before they are scored.
+ *
+ * Overlapping or repetitive chunks often yield the same fact in different words. Facts
+ * are clustered by NearDuplicateIndex and each cluster keeps one representative, the
+ * most detailed fact (most estimated tokens, earliest on a tie). Removed facts are
+ * counted with the prompt tokens they would have added to scoring.
+ *
+ * Not thread-safe.
+ */
+public class FactDeduplicator {
+
+    private final NearDuplicateIndex index = new NearDuplicateIndex();
+    // Representative per cluster, in order of first occurrence
+    private final List<Fact> representatives = new ArrayList<>();
+    private final List<Integer> representativeTokens = new ArrayList<>();
+
+    private int removed;
+    private long removedTokens;
+
+    /**
+     * Remove near-duplicates from a list of facts
+     *
+     * @return One fact per cluster, in order of the cluster's first fact
+     */
+    public List<Fact> dedupe(List<Fact> facts) {
+        for (Fact fact : facts) {
+            add(fact, representative -> true);
+        }
+        return getRepresentatives();
+    }
+
+    /**
+     * Add an extracted fact
+     *
+     * @param replaceable Whether a representative can still be swapped for a better fact,
+     *                    e.g. because it has not been sent for scoring yet
+     * @return null when the fact starts a new cluster and should be kept. Otherwise the fact
+     *         to drop: the new fact itself, or the previous representative it replaced.
+     */
+    public Fact add(Fact fact, Predicate<Fact> replaceable) {
+        int tokens = TokenEstimator.estimate(fact.text);
+        int cluster = index.add(fact.text);
+        if (cluster == representatives.size()) {
+            representatives.add(fact);
+            representativeTokens.add(tokens);
+            return null;
+        }
+
+        removed++;
+        Fact representative = representatives.get(cluster);
+        int currentTokens = representativeTokens.get(cluster);
+        if (tokens > currentTokens && replaceable.test(representative)) {
+            representatives.set(cluster, fact);
+            representativeTokens.set(cluster, tokens);
+            removedTokens += currentTokens;
+            return representative;
+        }
+        removedTokens += tokens;
+        return fact;
+    }
+
+    /**
+     * Re-add a fact kept by an earlier run that is being resumed. It never counts as removed;
+     * a kept fact that resembles another kept one just does not get a cluster of its own.
+     */
+    public void restore(Fact fact) {
+        int cluster = index.add(fact.text);
+        if (cluster == representatives.size()) {
+            representatives.add(fact);
+            representativeTokens.add(TokenEstimator.estimate(fact.text));
+        }
+    }
+
+    /**
+     * Continue the counters of an earlier run that is being resumed
+     */
+    public void restoreCounts(int removed, int tokensSaved) {
+        this.removed = removed;
+        this.removedTokens = tokensSaved;
+    }
+
+    public List<Fact> getRepresentatives() {
+        return new ArrayList<>(representatives);
+    }
+
+    /**
+     * Facts dropped as near-duplicates
+     */
+    public int getRemoved() {
+        return removed;
+    }
+
+    /**
+     * Estimated tokens of the dropped facts
+     */
+    public int getTokensSaved() {
+        return (int) Math.min(Integer.MAX_VALUE, removedTokens);
+    }
+}
@@ -0,0 +1,142 @@
+package com.snortstudios.masterflasher.text;
+
+import com.snortstudios.masterflasher.util.Hashes;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Chunks of a document kept in a temporary file instead of memory, read back one at a time.
+ *
+ * write() streams the text through TextChunker and appends each chunk to the file as a
+ * length-prefixed UTF-8 record as soon as it is closed. Only the record offsets and a
+ * SHA-256 digest of the chunks stay in memory, so a 1000-page PDF costs a few kB of heap
+ * on top of the chunk being read. The file is deleted on close().
+ */
+public final class ChunkSpool extends AbstractList<String> implements Closeable {
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final File file;
+    private final RandomAccessFile records;
+    private final long[] offsets;
+    private final String digest;
+
+    private ChunkSpool(File file, long[] offsets, String digest) throws IOException {
+        this.file = file;
+        this.records = new RandomAccessFile(file, "r");
+        this.offsets = offsets;
+        this.digest = digest;
+    }
+
+    /**
+     * Chunk text from a reader into a new spool file in dir. The reader is not closed.
+     */
+    public static ChunkSpool write(TextChunker chunker, Reader text, File dir) throws IOException {
+        File file = File.createTempFile("chunks", ".spool", dir);
+        try {
+            Recorder recorder;
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(file), BUFFER_BYTES))) {
+                recorder = new Recorder(out);
+                // Write failures in the sink come back out of chunk() as IOException
+                chunker.chunk(text, recorder);
+            }
+            return new ChunkSpool(file, recorder.offsets(), Hashes.hex(recorder.sha.digest()));
+        } catch (IOException | RuntimeException e) {
+            file.delete();
+            throw e;
+        }
+    }
+
+    /**
+     * SHA-256 hex of the chunks in order; the same text and chunker give the same digest
+     */
+    public String digest() {
+        return digest;
+    }
+
+    @Override
+    public int size() {
+        return offsets.length;
+    }
+
+    /**
+     * Read one chunk back from the file
+     *
+     * @throws UncheckedIOException when the file cannot be read
+     */
+    @Override
+    public synchronized String get(int index) {
+        if (index < 0 || index >= offsets.length) {
+            throw new IndexOutOfBoundsException("Chunk " + index + " of " + offsets.length);
+        }
+        try {
+            records.seek(offsets[index]);
+            byte[] bytes = new byte[records.readInt()];
+            records.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read chunk " + index + " from " + file, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            records.close();
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Appends chunk records, keeping their offsets and the running digest
+     */
+    private static final class Recorder implements Consumer<String> {
+        private final DataOutputStream out;
+        private final MessageDigest sha = Hashes.sha256();
+        private long[] offsets = new long[64];
+        private int count;
+        private long position;
+
+        Recorder(DataOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void accept(String chunk) {
+            byte[] bytes = chunk.getBytes(StandardCharsets.UTF_8);
+            try {
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            sha.update(bytes);
+            sha.update((byte) 0);
+
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            offsets[count++] = position;
+            position += 4 + bytes.length;
+        }
+
+        long[] offsets() {
+            return Arrays.copyOf(offsets, count);
+        }
+    }
+}
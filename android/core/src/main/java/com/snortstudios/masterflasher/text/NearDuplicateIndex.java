@@ -0,0 +1,246 @@
+package com.snortstudios.masterflasher.text;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Groups short texts (facts) into clusters of near-duplicates.
+ *
+ * Each text is reduced to its set of content words; two texts are near-duplicates when
+ * the Jaccard similarity of those sets reaches the threshold and they agree on every
+ * number and negation, so "boils at 90 degrees" never merges with "boils at 100 degrees".
+ * Candidates are found with MinHash locality-sensitive hashing (16 bands of 4 rows), so
+ * adding a text compares it with a handful of clusters instead of all of them.
+ *
+ * Not thread-safe.
+ */
+public final class NearDuplicateIndex {
+
+    public static final double DEFAULT_THRESHOLD = 0.7;
+
+    private static final int BANDS = 16;
+    private static final int ROWS = 4;
+
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+        "a", "an", "the", "and", "or", "of", "to", "in", "on", "at", "by", "for", "with", "from",
+        "as", "into", "is", "are", "was", "were", "be", "been", "being", "it", "its", "this", "that",
+        "these", "those", "which", "who", "whom", "also", "has", "have", "had", "do", "does", "did"));
+
+    private static final Set<String> NEGATIONS = new HashSet<>(Arrays.asList(
+        "not", "no", "never", "none", "nor", "cannot", "without"));
+
+    private final double threshold;
+
+    // Per cluster: sorted term hashes and the hash of its numbers and negations
+    private final List<long[]> clusterTerms = new ArrayList<>();
+    private final List<Long> clusterGuards = new ArrayList<>();
+    // Band bucket key -> clusters in that bucket
+    private final Map<Long, List<Integer>> buckets = new HashMap<>();
+
+    public NearDuplicateIndex() {
+        this(DEFAULT_THRESHOLD);
+    }
+
+    public NearDuplicateIndex(double threshold) {
+        if (threshold <= 0 || threshold > 1) {
+            throw new IllegalArgumentException("threshold must be in (0, 1], got " + threshold);
+        }
+        this.threshold = threshold;
+    }
+
+    /**
+     * Add a text to the index
+     *
+     * @return The cluster of an indexed near-duplicate, or a new cluster number (equal to
+     *         the previous size()) when the text is not similar to anything indexed
+     */
+    public int add(CharSequence text) {
+        Set<Long> termSet = new HashSet<>();
+        Set<Long> guardSet = new HashSet<>();
+        collectTerms(text, termSet, guardSet);
+        long guard = 0;
+        for (long term : guardSet) {
+            guard += mix(term ^ 0x5DEECE66DL);
+        }
+        long[] terms = new long[termSet.size()];
+        int n = 0;
+        for (long term : termSet) {
+            terms[n++] = term;
+        }
+        Arrays.sort(terms);
+
+        long[] bandKeys = bandKeys(terms);
+        for (int band = 0; band < BANDS; band++) {
+            List<Integer> bucket = buckets.get(bandKeys[band]);
+            if (bucket == null) {
+                continue;
+            }
+            for (int cluster : bucket) {
+                if (clusterGuards.get(cluster) == guard && jaccard(terms, clusterTerms.get(cluster)) >= threshold) {
+                    return cluster;
+                }
+            }
+        }
+
+        int cluster = clusterTerms.size();
+        clusterTerms.add(terms);
+        clusterGuards.add(guard);
+        for (long key : bandKeys) {
+            buckets.computeIfAbsent(key, k -> new ArrayList<>(1)).add(cluster);
+        }
+        return cluster;
+    }
+
+    /**
+     * Number of clusters
+     */
+    public int size() {
+        return clusterTerms.size();
+    }
+
+    // ==================== Helper Methods ====================
+
+    /**
+     * Collect content-word hashes into terms, and those of numbers and negations also into guards
+     */
+    private static void collectTerms(CharSequence text, Set<Long> terms, Set<Long> guards) {
+        StringBuilder word = new StringBuilder();
+        int length = text.length();
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? text.charAt(i) : ' ';
+            if (c >= 0x2E80 && Character.isLetter(c)) {
+                // CJK is written without spaces, use character bigrams as words
+                addWord(word, terms, guards);
+                char next = i + 1 < length ? text.charAt(i + 1) : 0;
+                if (next >= 0x2E80 && Character.isLetter(next)) {
+                    terms.add(hash(String.valueOf(new char[]{c, next})));
+                } else {
+                    terms.add(hash(String.valueOf(c)));
+                }
+            } else if (Character.isLetterOrDigit(c)) {
+                word.append(c);
+            } else if ((c == '.' || c == ',') && word.length() > 0 && i + 1 < length
+                    && Character.isDigit(word.charAt(word.length() - 1)) && Character.isDigit(text.charAt(i + 1))) {
+                // Keep decimals and thousands separators inside the number
+                word.append(c);
+            } else if ((c == '\'' || c == '\u2019') && endsWithN(word) && i + 1 < length
+                    && Character.toLowerCase(text.charAt(i + 1)) == 't'
+                    && (i + 2 == length || !Character.isLetter(text.charAt(i + 2)))) {
+                // "doesn't" is "does" + "not"
+                word.setLength(word.length() - 1);
+                addWord(word, terms, guards);
+                addWord(word.append("not"), terms, guards);
+                i++;
+            } else {
+                addWord(word, terms, guards);
+            }
+        }
+        if (terms.isEmpty()) {
+            // Nothing but stop words: only identical texts match
+            terms.add(hash(text.toString().trim().toLowerCase(Locale.ROOT)));
+        }
+    }
+
+    /**
+     * Add the buffered word to terms (and guards) and clear the buffer
+     */
+    private static void addWord(StringBuilder buffer, Set<Long> terms, Set<Long> guards) {
+        if (buffer.length() == 0) {
+            return;
+        }
+        String word = buffer.toString().toLowerCase(Locale.ROOT);
+        buffer.setLength(0);
+        if (STOP_WORDS.contains(word) || (word.length() == 1 && !Character.isDigit(word.charAt(0)))) {
+            return;
+        }
+        boolean guarded = NEGATIONS.contains(word);
+        if (guarded) {
+            // Any negation matches any other
+            word = "not";
+        }
+        for (int i = 0; i < word.length() && !guarded; i++) {
+            guarded = Character.isDigit(word.charAt(i));
+        }
+        long hash = hash(word);
+        terms.add(hash);
+        if (guarded) {
+            guards.add(hash);
+        }
+    }
+
+    private static boolean endsWithN(StringBuilder word) {
+        return word.length() > 1 && Character.toLowerCase(word.charAt(word.length() - 1)) == 'n';
+    }
+
+    private static long[] bandKeys(long[] terms) {
+        long[] minHashes = new long[BANDS * ROWS];
+        Arrays.fill(minHashes, Long.MAX_VALUE);
+        for (long term : terms) {
+            for (int i = 0; i < minHashes.length; i++) {
+                long value = mix(term + (i + 1) * 0x9E3779B97F4A7C15L);
+                if (value < minHashes[i]) {
+                    minHashes[i] = value;
+                }
+            }
+        }
+
+        long[] keys = new long[BANDS];
+        for (int band = 0; band < BANDS; band++) {
+            long key = band;
+            for (int row = 0; row < ROWS; row++) {
+                key = mix(key * 31 + minHashes[band * ROWS + row]);
+            }
+            keys[band] = key;
+        }
+        return keys;
+    }
+
+    private static double jaccard(long[] a, long[] b) {
+        int shared = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                shared++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        int union = a.length + b.length - shared;
+        return union == 0 ? 1.0 : (double) shared / union;
+    }
+
+    /**
+     * 64-bit FNV-1a, finished with mix for better low bits
+     */
+    private static long hash(String word) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < word.length(); i++) {
+            hash ^= word.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * MurmurHash3 fmix64
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB93E39D2A25BL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,167 @@
+package com.snortstudios.masterflasher.text;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Cleans up extracted text as it is read, with constant state however long the text is.
+ *
+ * - CRLF, CR, vertical tab, form feed and the Unicode line and paragraph separators
+ *   become a line feed
+ * - Runs of spaces and tabs (and other Unicode spaces such as NBSP) become one space;
+ *   spaces at the start and end of a line are dropped
+ * - Blank lines collapse to one, so paragraphs stay separated by a single empty line
+ * - Other control characters and byte order marks are dropped
+ * - Leading and trailing whitespace of the whole text is dropped
+ *
+ * pdf.js pads page text with runs of spaces and blank lines; that whitespace costs prompt
+ * tokens and chunk room without telling Gemini anything.
+ */
+public class NormalizingReader extends FilterReader {
+
+    private static final int BUFFER_CHARS = 8 * 1024;
+
+    private final char[] input = new char[BUFFER_CHARS];
+    // Normalized text of the last input read, at most three chars per input char
+    private final StringBuilder output = new StringBuilder(BUFFER_CHARS);
+    private int outputPos;
+    private boolean eof;
+
+    // Whitespace seen since the last written char, written before the next one
+    private int pendingNewlines;
+    private boolean pendingSpace;
+    private boolean afterCarriageReturn;
+    private boolean started;
+
+    public NormalizingReader(Reader in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        char[] c = new char[1];
+        return read(c, 0, 1) < 0 ? -1 : c[0];
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (outputPos == output.length()) {
+            if (eof) {
+                return -1;
+            }
+            output.setLength(0);
+            outputPos = 0;
+            int count = in.read(input, 0, input.length);
+            if (count < 0) {
+                // Whitespace still pending is trailing, it is dropped
+                eof = true;
+                continue;
+            }
+            for (int i = 0; i < count; i++) {
+                accept(input[i]);
+            }
+        }
+        int n = Math.min(len, output.length() - outputPos);
+        output.getChars(outputPos, outputPos + n, cbuf, off);
+        outputPos += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        char[] skipped = new char[(int) Math.min(n, BUFFER_CHARS)];
+        long total = 0;
+        while (total < n) {
+            int read = read(skipped, 0, (int) Math.min(n - total, skipped.length));
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    @Override
+    public boolean ready() throws IOException {
+        return outputPos < output.length() || (!eof && in.ready());
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void mark(int readAheadLimit) throws IOException {
+        throw new IOException("mark() not supported");
+    }
+
+    @Override
+    public void reset() throws IOException {
+        throw new IOException("reset() not supported");
+    }
+
+    private void accept(char c) {
+        if (afterCarriageReturn) {
+            afterCarriageReturn = false;
+            if (c == '\n') {
+                return;
+            }
+        }
+        switch (c) {
+            case '\r':
+                afterCarriageReturn = true;
+                lineBreak();
+                return;
+            case '\n':
+            case '\u000B':
+            case '\f':
+            case '\u2028':
+            case '\u2029':
+                lineBreak();
+                return;
+            case '\uFEFF':
+                return;
+            default:
+                break;
+        }
+        if (isSpace(c)) {
+            // Dropped at the start of a line
+            pendingSpace = started && pendingNewlines == 0;
+            return;
+        }
+        if (Character.isISOControl(c)) {
+            return;
+        }
+
+        if (pendingNewlines > 0) {
+            output.append('\n');
+            if (pendingNewlines > 1) {
+                output.append('\n');
+            }
+        } else if (pendingSpace) {
+            output.append(' ');
+        }
+        output.append(c);
+        pendingNewlines = 0;
+        pendingSpace = false;
+        started = true;
+    }
+
+    private void lineBreak() {
+        // Spaces before a line break are dropped
+        pendingSpace = false;
+        if (started && pendingNewlines < 2) {
+            pendingNewlines++;
+        }
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\u00A0' || c == '\u2007' || c == '\u202F'
+            || (Character.isWhitespace(c) && !Character.isISOControl(c));
+    }
+}
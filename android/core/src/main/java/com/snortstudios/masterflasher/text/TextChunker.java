@@ -0,0 +1,633 @@
+package com.snortstudios.masterflasher.text;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Splits text into prompt-sized chunks by estimated tokens, in a single pass.
+ *
+ * The text is scanned once and cut into segments: sentences, markdown heading lines,
+ * and text ending at a paragraph break. Segments are packed into chunks of at most
+ * maxTokens (see TokenEstimator), and a chunk's text is copied out only once when it
+ * is closed. A chunk is closed early at a paragraph break once it is 75% full, and at a
+ * heading once it is half full, so chunks tend to follow the document's structure.
+ * A heading is never left at the end of a chunk.
+ *
+ * With overlapTokens > 0, each chunk starts with the last whole sentences of the previous
+ * one (up to that many tokens), so facts spanning a boundary are seen in full at least once.
+ * A segment longer than maxTokens on its own is cut at whitespace.
+ *
+ * Text from a Reader is scanned through a sliding window that only keeps the open chunk,
+ * the open segment and the start of the line being read; an oversized segment is cut while
+ * it is scanned. The window stays around two chunks (plus the longest run of whitespace at
+ * a line start) however long the document is, and the chunks are the same as for the whole
+ * text in memory.
+ */
+public class TextChunker {
+
+    // About 8000 characters of English, the size the web layer used to chunk by
+    public static final int DEFAULT_MAX_TOKENS = 2000;
+    public static final int DEFAULT_OVERLAP_TOKENS = 0;
+
+    private static final int PARAGRAPH_BREAK_PERCENT = 75;
+    private static final int HEADING_BREAK_PERCENT = 50;
+
+    // Initial window for chunk(Reader), grown when the open chunk and segment need more
+    private static final int INITIAL_WINDOW_CHARS = 16 * 1024;
+
+    private final int maxTokens;
+    private final int overlapTokens;
+
+    public TextChunker() {
+        this(DEFAULT_MAX_TOKENS, DEFAULT_OVERLAP_TOKENS);
+    }
+
+    /**
+     * @throws IllegalArgumentException unless maxTokens > 0 and 0 <= overlapTokens <= maxTokens / 2
+     */
+    public TextChunker(int maxTokens, int overlapTokens) {
+        if (maxTokens <= 0) {
+            throw new IllegalArgumentException("maxTokens must be positive");
+        }
+        if (overlapTokens < 0 || overlapTokens > maxTokens / 2) {
+            throw new IllegalArgumentException("overlapTokens must be between 0 and maxTokens / 2");
+        }
+        this.maxTokens = maxTokens;
+        this.overlapTokens = overlapTokens;
+    }
+
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+
+    public int getOverlapTokens() {
+        return overlapTokens;
+    }
+
+    /**
+     * Chunk the whole text. Whitespace-only text yields no chunks.
+     */
+    public List<String> chunk(CharSequence text) {
+        List<String> chunks = new ArrayList<>();
+        chunk(text, chunks::add);
+        return chunks;
+    }
+
+    /**
+     * Chunk the text, handing each chunk to the sink as soon as it is closed
+     */
+    public void chunk(CharSequence text, Consumer<String> sink) {
+        new Run(new WholeText(text), sink).scan();
+    }
+
+    /**
+     * Chunk text read from a stream without holding it, handing each chunk to the sink as
+     * soon as it is closed. Yields the same chunks as chunk(CharSequence) on the whole text.
+     * The reader is read to the end but not closed.
+     */
+    public void chunk(Reader text, Consumer<String> sink) throws IOException {
+        chunkWindowed(text, sink);
+    }
+
+    /**
+     * chunk(Reader, Consumer), returning the largest window it held in chars
+     */
+    int chunkWindowed(Reader text, Consumer<String> sink) throws IOException {
+        Window window = new Window(text);
+        Run run = new Run(window, sink);
+        window.run = run;
+        try {
+            run.scan();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return window.buffer.length;
+    }
+
+    // ==================== Text ====================
+
+    /**
+     * Text of one run by absolute index. charAt and substring may only be called for
+     * indices has() returned true for, and that the run still holds (see Run.retainFrom).
+     */
+    private interface Text {
+        boolean has(int index);
+
+        char charAt(int index);
+
+        String substring(int start, int end);
+    }
+
+    private static final class WholeText implements Text {
+        private final CharSequence text;
+        private final int length;
+
+        WholeText(CharSequence text) {
+            this.text = text;
+            this.length = text.length();
+        }
+
+        @Override
+        public boolean has(int index) {
+            return index < length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return text.charAt(index);
+        }
+
+        @Override
+        public String substring(int start, int end) {
+            return text.subSequence(start, end).toString();
+        }
+    }
+
+    /**
+     * Sliding window over a Reader. When the buffer is full, the text before
+     * Run.retainFrom() is dropped; the buffer only grows when the run still needs most of it.
+     */
+    private static final class Window implements Text {
+        private final Reader reader;
+        private Run run;
+        private char[] buffer = new char[INITIAL_WINDOW_CHARS];
+        // Absolute index of buffer[0]
+        private int base;
+        private int count;
+        private boolean eof;
+
+        Window(Reader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean has(int index) {
+            while (index >= base + count) {
+                if (eof || !fill()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return buffer[index - base];
+        }
+
+        @Override
+        public String substring(int start, int end) {
+            return new String(buffer, start - base, end - start);
+        }
+
+        private boolean fill() {
+            if (count == buffer.length) {
+                int released = run.retainFrom() - base;
+                if (released > 0) {
+                    System.arraycopy(buffer, released, buffer, 0, count - released);
+                    base += released;
+                    count -= released;
+                }
+                if (count > buffer.length / 2) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+            }
+            int read;
+            try {
+                read = reader.read(buffer, count, buffer.length - count);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (read < 0) {
+                eof = true;
+                return false;
+            }
+            count += read;
+            return true;
+        }
+    }
+
+    // ==================== Segments ====================
+
+    private static final class Segment {
+        final int start;
+        // Grow when blank lines are attached after the fact
+        int end;
+        long quarters;
+        final boolean paragraph;
+        final boolean heading;
+
+        Segment(int start, int end, long quarters, boolean paragraph, boolean heading) {
+            this.start = start;
+            this.end = end;
+            this.quarters = quarters;
+            this.paragraph = paragraph;
+            this.heading = heading;
+        }
+    }
+
+    /**
+     * State of one chunk() call
+     */
+    private final class Run {
+        private final Text text;
+        private final Consumer<String> sink;
+        private final long maxQuarters = 4L * maxTokens;
+        private final long overlapQuarters = 4L * overlapTokens;
+
+        // Segments of the open chunk; the first overlapCount were already emitted with the previous chunk
+        private List<Segment> current = new ArrayList<>();
+        private long currentQuarters;
+        private int overlapCount;
+
+        // Open segment, not yet added
+        private int segStart;
+        private long segQuarters;
+        private boolean segHasText;
+        private boolean paragraph = true;
+        // Cuts the open segment once it is known to be longer than a chunk
+        private Cutter cutter;
+
+        Run(Text text, Consumer<String> sink) {
+            this.text = text;
+            this.sink = sink;
+        }
+
+        /**
+         * First index the run still needs: the open chunk and the open segment, or the
+         * uncut rest of it
+         */
+        int retainFrom() {
+            int from = cutter != null ? cutter.pieceStart : segStart;
+            return current.isEmpty() ? from : Math.min(from, current.get(0).start);
+        }
+
+        void scan() {
+            int pos = 0;
+            while (text.has(pos)) {
+                int blankEnd = blankLineEnd(pos);
+                if (blankEnd >= 0) {
+                    int next = text.has(blankEnd) ? blankEnd + 1 : blankEnd;
+                    // Paragraph break closes the open segment, blank lines stay with it
+                    long blankQuarters = quarters(pos, next);
+                    segQuarters += blankQuarters;
+                    if (segHasText) {
+                        add(new Segment(segStart, next, segQuarters, paragraph, false));
+                        segStart = next;
+                        segQuarters = 0;
+                        segHasText = false;
+                    } else if (segStart == pos && extendLast(next, blankQuarters)) {
+                        // Previous segment already ended (e.g. a sentence at the end of its line)
+                        segStart = next;
+                        segQuarters = 0;
+                    }
+                    paragraph = true;
+                    pos = next;
+                    continue;
+                }
+
+                if (isHeading(pos)) {
+                    if (segHasText) {
+                        add(new Segment(segStart, pos, segQuarters, paragraph, false));
+                        segStart = pos;
+                        segQuarters = 0;
+                    }
+                    paragraph = true;
+                    // Leading whitespace before the heading goes with it
+                    int next = pos;
+                    while (text.has(next)) {
+                        char c = text.charAt(next++);
+                        if (!Character.isLowSurrogate(c)) {
+                            segQuarters += TokenEstimator.quarterTokens(c);
+                        }
+                        spill(next);
+                        if (c == '\n') {
+                            break;
+                        }
+                    }
+                    add(new Segment(segStart, next, segQuarters, true, true));
+                    segStart = next;
+                    segQuarters = 0;
+                    segHasText = false;
+                    pos = next;
+                    continue;
+                }
+
+                // Regular line: sentences may continue over hard line wraps
+                int i = pos;
+                while (text.has(i)) {
+                    char c = text.charAt(i);
+                    if (!Character.isLowSurrogate(c)) {
+                        segQuarters += TokenEstimator.quarterTokens(c);
+                    }
+                    if (!Character.isWhitespace(c)) {
+                        segHasText = true;
+                    }
+                    if (segHasText) {
+                        spill(i + 1);
+                    }
+                    if (!isTerminal(c)) {
+                        i++;
+                        if (c == '\n') {
+                            break;
+                        }
+                        continue;
+                    }
+
+                    // Closing quotes and brackets belong to the sentence
+                    int end = i + 1;
+                    while (text.has(end) && isClosing(text.charAt(end))) {
+                        segQuarters += TokenEstimator.quarterTokens(text.charAt(end));
+                        end++;
+                    }
+                    if (!isFullWidth(c) && text.has(end) && !Character.isWhitespace(text.charAt(end))) {
+                        // "3.14", "e.g.x": not a sentence end (CJK text has no spaces after a full stop)
+                        i = end;
+                        continue;
+                    }
+                    // Trailing spaces (and the line break) belong to the sentence
+                    boolean lineBreak = false;
+                    while (!lineBreak && text.has(end) && Character.isWhitespace(text.charAt(end))) {
+                        lineBreak = text.charAt(end) == '\n';
+                        segQuarters += TokenEstimator.quarterTokens(text.charAt(end));
+                        end++;
+                    }
+                    add(new Segment(segStart, end, segQuarters, paragraph, false));
+                    segStart = end;
+                    segQuarters = 0;
+                    segHasText = false;
+                    paragraph = false;
+                    i = end;
+                    if (lineBreak) {
+                        break;
+                    }
+                }
+                pos = i;
+            }
+
+            if (segHasText) {
+                add(new Segment(segStart, pos, segQuarters, paragraph, false));
+            }
+            flush(false);
+        }
+
+        // ==================== Packing ====================
+
+        private void add(Segment segment) {
+            if (segment.quarters > maxQuarters) {
+                addOversized(segment);
+                return;
+            }
+
+            if (hasFresh()) {
+                boolean full = currentQuarters + segment.quarters > maxQuarters;
+                boolean atBoundary =
+                    (segment.heading && currentQuarters * 100 >= maxQuarters * HEADING_BREAK_PERCENT)
+                    || (segment.paragraph && currentQuarters * 100 >= maxQuarters * PARAGRAPH_BREAK_PERCENT);
+                if (full || atBoundary) {
+                    flush(true);
+                }
+            }
+            makeRoom(segment.quarters);
+            append(segment);
+        }
+
+        /**
+         * Cut a segment longer than a whole chunk, finishing the cut spill() started
+         */
+        private void addOversized(Segment segment) {
+            Cutter segmentCutter = cutter != null ? cutter : new Cutter(segment.start, segment.paragraph);
+            cutter = null;
+            segmentCutter.finish(segment.end);
+        }
+
+        /**
+         * Start cutting the open segment once it is longer than a chunk, up to what has been
+         * scanned, so a long stretch without sentence ends is never held whole. Only called
+         * for segments that will be added.
+         */
+        private void spill(int scanned) {
+            if (segQuarters > maxQuarters) {
+                if (cutter == null) {
+                    cutter = new Cutter(segStart, paragraph);
+                }
+                cutter.advance(scanned);
+            }
+        }
+
+        /**
+         * Emit the open chunk if it has anything new, then start the next one with the
+         * overlap and any trailing heading (when keepContext is set)
+         */
+        private void flush(boolean keepContext) {
+            if (!hasFresh()) {
+                return;
+            }
+
+            List<Segment> carried = new ArrayList<>();
+            if (keepContext) {
+                while (current.size() - overlapCount > 1 && current.get(current.size() - 1).heading) {
+                    carried.add(0, current.remove(current.size() - 1));
+                }
+            }
+
+            int start = current.get(0).start;
+            int end = current.get(current.size() - 1).end;
+            sink.accept(text.substring(start, end));
+
+            List<Segment> next = new ArrayList<>();
+            if (keepContext && overlapQuarters > 0) {
+                long quarters = 0;
+                for (int k = current.size() - 1; k > 0; k--) {
+                    Segment segment = current.get(k);
+                    if (segment.heading || quarters + segment.quarters > overlapQuarters) {
+                        break;
+                    }
+                    quarters += segment.quarters;
+                    next.add(0, segment);
+                }
+            }
+            overlapCount = next.size();
+            next.addAll(carried);
+
+            current = next;
+            currentQuarters = 0;
+            for (Segment segment : current) {
+                currentQuarters += segment.quarters;
+            }
+        }
+
+        /**
+         * Give up the overlap, then a carried heading, until the segment fits
+         */
+        private void makeRoom(long quarters) {
+            if (currentQuarters + quarters <= maxQuarters) {
+                return;
+            }
+            dropOverlap();
+            if (currentQuarters + quarters > maxQuarters) {
+                flush(false);
+                current = new ArrayList<>();
+                currentQuarters = 0;
+                overlapCount = 0;
+            }
+        }
+
+        private void dropOverlap() {
+            for (int k = 0; k < overlapCount; k++) {
+                currentQuarters -= current.get(0).quarters;
+                current.remove(0);
+            }
+            overlapCount = 0;
+        }
+
+        /**
+         * Attach trailing whitespace to the last segment of the open chunk, if it fits
+         */
+        private boolean extendLast(int end, long quarters) {
+            if (!hasFresh() || currentQuarters + quarters > maxQuarters) {
+                return false;
+            }
+            Segment last = current.get(current.size() - 1);
+            last.end = end;
+            last.quarters += quarters;
+            currentQuarters += quarters;
+            return true;
+        }
+
+        private void append(Segment segment) {
+            current.add(segment);
+            currentQuarters += segment.quarters;
+        }
+
+        private boolean hasFresh() {
+            return current.size() > overlapCount;
+        }
+
+        /**
+         * Cuts a segment longer than a whole chunk at whitespace into chunk-sized pieces.
+         * Fed up to where the segment has been scanned, then finished at its end.
+         */
+        private final class Cutter {
+            private final int start;
+            private final boolean paragraph;
+            // Next character to look at
+            private int pos;
+            private int pieceStart;
+            private long pieceQuarters;
+            private int lastBreak = -1;
+            private long quartersAtBreak;
+            private long budget;
+
+            Cutter(int start, boolean paragraph) {
+                flush(true);
+                dropOverlap();
+                this.start = start;
+                this.paragraph = paragraph;
+                this.pos = start;
+                this.pieceStart = start;
+                this.budget = maxQuarters - currentQuarters;
+            }
+
+            void advance(int end) {
+                for (; pos < end; pos++) {
+                    char c = text.charAt(pos);
+                    int q = Character.isLowSurrogate(c) ? 0 : TokenEstimator.quarterTokens(c);
+                    if (pieceQuarters + q > budget && pos > pieceStart && !Character.isLowSurrogate(c)) {
+                        int cut = lastBreak > pieceStart ? lastBreak : pos;
+                        long cutQuarters = lastBreak > pieceStart ? quartersAtBreak : pieceQuarters;
+                        append(new Segment(pieceStart, cut, cutQuarters, pieceStart == start && paragraph, false));
+                        flush(false);
+                        current = new ArrayList<>();
+                        currentQuarters = 0;
+                        overlapCount = 0;
+                        budget = maxQuarters;
+
+                        pieceQuarters -= cutQuarters;
+                        pieceStart = cut;
+                        lastBreak = -1;
+                    }
+                    pieceQuarters += q;
+                    if (Character.isWhitespace(c)) {
+                        lastBreak = pos + 1;
+                        quartersAtBreak = pieceQuarters;
+                    }
+                }
+            }
+
+            void finish(int end) {
+                advance(end);
+                if (pieceStart < end) {
+                    append(new Segment(pieceStart, end, pieceQuarters, false, false));
+                }
+            }
+        }
+
+        // ==================== Scanning ====================
+
+        private long quarters(int start, int end) {
+            long quarters = 0;
+            for (int i = start; i < end; i++) {
+                char c = text.charAt(i);
+                if (!Character.isLowSurrogate(c)) {
+                    quarters += TokenEstimator.quarterTokens(c);
+                }
+            }
+            return quarters;
+        }
+
+        /**
+         * End of a whitespace-only line starting at start (its line break, or the end of
+         * the text), or -1 when the line has text
+         */
+        private int blankLineEnd(int start) {
+            int i = start;
+            while (text.has(i)) {
+                char c = text.charAt(i);
+                if (c == '\n') {
+                    return i;
+                }
+                if (!Character.isWhitespace(c)) {
+                    return -1;
+                }
+                i++;
+            }
+            return i;
+        }
+
+        /**
+         * Markdown ATX heading: up to 3 spaces, 1-6 '#', then a space or the end of the line
+         */
+        private boolean isHeading(int start) {
+            int i = start;
+            while (text.has(i) && i - start < 3 && text.charAt(i) == ' ') {
+                i++;
+            }
+            int hashes = 0;
+            while (text.has(i) && hashes <= 6 && text.charAt(i) == '#') {
+                hashes++;
+                i++;
+            }
+            return hashes >= 1 && hashes <= 6 && (!text.has(i) || Character.isWhitespace(text.charAt(i)));
+        }
+    }
+
+    private static boolean isTerminal(char c) {
+        return c == '.' || c == '!' || c == '?' || isFullWidth(c);
+    }
+
+    // Ideographic full stop, full-width exclamation and question marks
+    private static boolean isFullWidth(char c) {
+        return c == '\u3002' || c == '\uFF01' || c == '\uFF1F';
+    }
+
+    // Quotes (including curly ones) and brackets that may follow a full stop
+    private static boolean isClosing(char c) {
+        return c == '"' || c == '\'' || c == ')' || c == ']' || c == '\u201D' || c == '\u2019';
+    }
+}
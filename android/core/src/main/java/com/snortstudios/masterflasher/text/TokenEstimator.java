@@ -0,0 +1,59 @@
+package com.snortstudios.masterflasher.text;
+
+/**
+ * Cheap token estimate for Gemini prompts without a tokenizer.
+ *
+ * Latin text averages about four characters per token. Other alphabets (Cyrillic,
+ * Greek, Arabic, ...) split into roughly two characters per token, and CJK, kana and
+ * Hangul into about one token per character. Weights are kept in quarter tokens so the
+ * estimate can be accumulated per character without floating point.
+ */
+public final class TokenEstimator {
+
+    private TokenEstimator() {
+    }
+
+    /**
+     * Estimated tokens for a piece of text
+     */
+    public static int estimate(CharSequence text) {
+        if (text == null) {
+            return 0;
+        }
+        return toTokens(quarterTokens(text, 0, text.length()));
+    }
+
+    /**
+     * Sum of quarterTokens(codePoint) over text[start, end)
+     */
+    public static long quarterTokens(CharSequence text, int start, int end) {
+        long quarters = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            // Low surrogates are counted with their high surrogate
+            if (!Character.isLowSurrogate(c)) {
+                quarters += quarterTokens(c);
+            }
+        }
+        return quarters;
+    }
+
+    /**
+     * Weight of one character in quarter tokens (supplementary characters are passed as their high surrogate)
+     */
+    public static int quarterTokens(char c) {
+        if (c < 0x0250) {
+            // ASCII and Latin extensions
+            return 1;
+        }
+        if (c >= 0x2E80 || Character.isHighSurrogate(c)) {
+            // CJK, kana, Hangul, emoji and the rest of the supplementary planes
+            return 4;
+        }
+        return 2;
+    }
+
+    public static int toTokens(long quarterTokens) {
+        return (int) Math.min(Integer.MAX_VALUE, (quarterTokens + 3) / 4);
+    }
+}
@@ -0,0 +1,54 @@
+package com.snortstudios.masterflasher.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * SHA-256 as lowercase hex, for cache keys, checkpoint keys and content-addressed file names.
+ */
+public final class Hashes {
+
+    private Hashes() {
+    }
+
+    /**
+     * SHA-256 of strings in UTF-8, each separated from the next by a 0 byte so that
+     * ("ab", "c") and ("a", "bc") hash differently
+     */
+    public static String sha256Hex(String... parts) {
+        MessageDigest digest = sha256();
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                digest.update((byte) 0);
+            }
+            digest.update(parts[i].getBytes(StandardCharsets.UTF_8));
+        }
+        return hex(digest.digest());
+    }
+
+    public static String sha256Hex(byte[] bytes) {
+        return hex(sha256().digest(bytes));
+    }
+
+    /**
+     * A new SHA-256 digest, for hashing data that arrives in pieces
+     */
+    public static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is guaranteed on every Java/Android runtime
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static String hex(byte[] hash) {
+        StringBuilder hex = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+            hex.append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
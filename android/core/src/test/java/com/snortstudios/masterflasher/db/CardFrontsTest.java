@@ -0,0 +1,18 @@
+package com.snortstudios.masterflasher.db;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class CardFrontsTest {
+
+    @Test
+    public void normalize_ignoresCaseMarkupWhitespaceAndTrailingPunctuation() {
+        assertEquals("what is atp", CardFronts.normalize("What is <b>ATP</b>?"));
+        assertEquals("what is atp", CardFronts.normalize("  what&nbsp;is\n ATP "));
+        assertEquals("what is atp", CardFronts.normalize("What is ATP\uff1f"));
+        assertEquals("line one line two", CardFronts.normalize("line one<br>line two"));
+        // Punctuation inside the question still matters
+        assertNotEquals(CardFronts.hash("What is 1.5?"), CardFronts.hash("What is 15?"));
+    }
+}
@@ -0,0 +1,54 @@
+package com.snortstudios.masterflasher.text;
+
+import static org.junit.Assert.*;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+public class ChunkSpoolTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsBackTheChunksAndDeletesItsFile() throws IOException {
+        String text = "Erste Zeile. \u00DCber \u6F22\u5B57 und \uD83D\uDE00.\n\n" + "More text here. ".repeat(200);
+        TextChunker chunker = new TextChunker(50, 5);
+        List<String> expected = chunker.chunk(text);
+        File dir = folder.newFolder();
+
+        try (ChunkSpool spool = ChunkSpool.write(chunker, new StringReader(text), dir)) {
+            assertEquals(expected, spool);
+            assertEquals(expected.get(3), spool.get(3));
+            assertEquals(1, dir.list().length);
+        }
+        assertEquals(0, dir.list().length);
+    }
+
+    @Test
+    public void digestFollowsTheChunks() throws IOException {
+        File dir = folder.newFolder();
+        TextChunker chunker = new TextChunker(20, 0);
+
+        try (ChunkSpool a = ChunkSpool.write(chunker, new StringReader("One. Two. Three."), dir);
+             ChunkSpool b = ChunkSpool.write(chunker, new StringReader("One. Two. Three."), dir);
+             ChunkSpool c = ChunkSpool.write(chunker, new StringReader("One. Two. Four."), dir)) {
+            assertEquals(a.digest(), b.digest());
+            assertNotEquals(a.digest(), c.digest());
+            assertEquals(64, a.digest().length());
+        }
+    }
+
+    @Test
+    public void blankTextHasNoChunks() throws IOException {
+        try (ChunkSpool spool = ChunkSpool.write(new TextChunker(), new StringReader(" \n "), folder.newFolder())) {
+            assertTrue(spool.isEmpty());
+        }
+    }
+}
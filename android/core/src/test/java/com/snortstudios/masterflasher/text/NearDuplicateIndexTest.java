@@ -0,0 +1,74 @@
+package com.snortstudios.masterflasher.text;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class NearDuplicateIndexTest {
+
+    @Test
+    public void add_clustersRewordedFacts() {
+        NearDuplicateIndex index = new NearDuplicateIndex();
+
+        assertEquals(0, index.add("Paris is the capital of France."));
+        assertEquals(1, index.add("Photosynthesis converts light energy into chemical energy."));
+        assertEquals(0, index.add("The capital of France is Paris"));
+        assertEquals(1, index.add("Photosynthesis converts light energy into chemical energy in plants."));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void add_keepsFactsWithDifferentNumbersApart() {
+        NearDuplicateIndex index = new NearDuplicateIndex();
+
+        assertEquals(0, index.add("Water boils at 100 degrees Celsius at sea level."));
+        assertEquals(1, index.add("Water boils at 90 degrees Celsius at sea level."));
+        assertEquals(2, index.add("The Treaty of Versailles was signed in 1919."));
+        assertEquals(3, index.add("The Treaty of Versailles was signed in 1920."));
+        assertEquals(2, index.add("The Treaty of Versailles was signed in 1919"));
+    }
+
+    @Test
+    public void add_keepsNegatedFactsApart() {
+        NearDuplicateIndex index = new NearDuplicateIndex();
+
+        assertEquals(0, index.add("Bats are blind."));
+        assertEquals(1, index.add("Bats are not blind."));
+        assertEquals(1, index.add("Bats aren't blind"));
+        assertEquals(1, index.add("Bats are never blind"));
+    }
+
+    @Test
+    public void add_comparesCjkByCharacterBigrams() {
+        NearDuplicateIndex index = new NearDuplicateIndex();
+
+        // "Tokyo is the capital of Japan", with and without the final particle
+        assertEquals(0, index.add("\u6771\u4eac\u306f\u65e5\u672c\u306e\u9996\u90fd\u3067\u3059\u3002"));
+        assertEquals(0, index.add("\u6771\u4eac\u306f\u65e5\u672c\u306e\u9996\u90fd\u3067\u3059\u306d"));
+        assertEquals(1, index.add("\u5927\u962a\u306f\u65e5\u672c\u306e\u90fd\u5e02\u3067\u3059\u3002"));
+    }
+
+    @Test
+    public void add_onlyMatchesStopWordTextsExactly() {
+        NearDuplicateIndex index = new NearDuplicateIndex();
+
+        assertEquals(0, index.add("It is what it is."));
+        assertEquals(1, index.add("It was."));
+        assertEquals(0, index.add("it is what it is."));
+    }
+
+    @Test
+    public void add_findsDuplicatesAmongManyFacts() {
+        NearDuplicateIndex index = new NearDuplicateIndex();
+        for (int i = 0; i < 2000; i++) {
+            index.add("Element number " + i + " has distinct property " + Integer.toString(i * 7919, 36));
+        }
+        assertEquals(2000, index.size());
+        assertEquals(1234, index.add("Element number 1234 has distinct property " + Integer.toString(1234 * 7919, 36) + "!"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsInvalidThreshold() {
+        new NearDuplicateIndex(0);
+    }
+}
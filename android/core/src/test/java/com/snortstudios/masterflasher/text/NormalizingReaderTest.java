@@ -0,0 +1,61 @@
+package com.snortstudios.masterflasher.text;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+public class NormalizingReaderTest {
+
+    @Test
+    public void collapsesSpacesAndBlankLines() throws IOException {
+        assertEquals("Page one text\n\nPage two",
+            normalize("  \n\nPage   one\ttext  \r\n\r\n\r\n\f  Page\u00A0\u00A0two \n\n"));
+    }
+
+    @Test
+    public void keepsSingleLineBreaks() throws IOException {
+        assertEquals("line one\nline two\n\nnext paragraph",
+            normalize("line one\rline two\u2029\u2028next paragraph"));
+    }
+
+    @Test
+    public void dropsControlCharactersAndByteOrderMarks() throws IOException {
+        assertEquals("ab c", normalize("\uFEFFa\u0000b \u0007c\u0003"));
+    }
+
+    @Test
+    public void blankTextIsEmpty() throws IOException {
+        assertEquals("", normalize(" \t\r\n\n \u00A0"));
+    }
+
+    @Test
+    public void crlfSplitAcrossBuffersIsOneBreak() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 8191; i++) {
+            text.append('x');
+        }
+        // The \r is the last char of the first 8K read, the \n the first of the next
+        text.append("\r\ny");
+
+        String normalized = normalize(text.toString());
+
+        assertEquals(8193, normalized.length());
+        assertTrue(normalized.endsWith("x\ny"));
+    }
+
+    private static String normalize(String text) throws IOException {
+        StringBuilder out = new StringBuilder();
+        try (Reader reader = new NormalizingReader(new StringReader(text))) {
+            char[] buffer = new char[7];
+            int read;
+            while ((read = reader.read(buffer)) > 0) {
+                out.append(buffer, 0, read);
+            }
+        }
+        return out.toString();
+    }
+}
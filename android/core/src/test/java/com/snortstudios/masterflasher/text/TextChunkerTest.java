@@ -0,0 +1,200 @@
+package com.snortstudios.masterflasher.text;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class TextChunkerTest {
+
+    @Test
+    public void shortTextIsOneChunk() {
+        List<String> chunks = new TextChunker().chunk("One sentence. Another one!");
+        assertEquals(1, chunks.size());
+        assertEquals("One sentence. Another one!", chunks.get(0));
+    }
+
+    @Test
+    public void blankTextHasNoChunks() {
+        assertTrue(new TextChunker().chunk(" \n\n \t").isEmpty());
+    }
+
+    @Test
+    public void chunksStayWithinTokenBudgetAndCoverTheText() {
+        String text = repeat("The quick brown fox jumps over the lazy dog. ", 2000);
+        TextChunker chunker = new TextChunker(100, 0);
+
+        List<String> chunks = chunker.chunk(text);
+
+        StringBuilder joined = new StringBuilder();
+        for (String chunk : chunks) {
+            assertTrue(TokenEstimator.estimate(chunk) <= 100);
+            // Only whole sentences
+            assertTrue(chunk.startsWith("The quick"));
+            assertTrue(chunk.endsWith("dog. "));
+            joined.append(chunk);
+        }
+        assertEquals(text, joined.toString());
+    }
+
+    @Test
+    public void prefersParagraphBreaksOnceMostlyFull() {
+        // 80 tokens, then a paragraph break, then 30 tokens: closing at 80% beats filling up to 100
+        String first = repeat("Aaaa bbbb ccc ddd eeee. ", 13);
+        String second = repeat("Ffff gggg hhh iii jjjj. ", 5);
+        List<String> chunks = new TextChunker(100, 0).chunk(first + "\n\n" + second);
+
+        assertEquals(2, chunks.size());
+        assertEquals(first + "\n\n", chunks.get(0));
+        assertEquals(second, chunks.get(1));
+    }
+
+    @Test
+    public void keepsHeadingWithItsSection() {
+        String intro = repeat("Intro text goes here. ", 10);
+        String body = repeat("Section body text here. ", 10);
+        List<String> chunks = new TextChunker(100, 0).chunk(intro + "\n## Section\n" + body);
+
+        assertEquals(2, chunks.size());
+        assertFalse(chunks.get(0).contains("## Section"));
+        assertTrue(chunks.get(1).startsWith("## Section\n"));
+    }
+
+    @Test
+    public void overlapRepeatsTrailingSentences() {
+        String text = repeat("Sentence number one is here. Sentence number two is here. ", 40);
+        List<String> chunks = new TextChunker(100, 20).chunk(text);
+
+        assertTrue(chunks.size() > 1);
+        for (int i = 1; i < chunks.size(); i++) {
+            String previous = chunks.get(i - 1);
+            String lastSentence = previous.substring(previous.lastIndexOf("Sentence"));
+            // Next chunk starts with whole trailing sentences, up to 20 tokens, including the last one
+            int overlap = chunks.get(i).indexOf(lastSentence);
+            assertTrue(overlap > 0);
+            assertTrue(previous.endsWith(chunks.get(i).substring(0, overlap + lastSentence.length())));
+            assertTrue(TokenEstimator.estimate(chunks.get(i).substring(0, overlap + lastSentence.length())) <= 20);
+            assertTrue(TokenEstimator.estimate(chunks.get(i)) <= 100);
+        }
+    }
+
+    @Test
+    public void splitsOversizedSentencesAtWhitespace() {
+        String text = repeat("word ", 1000);
+        List<String> chunks = new TextChunker(100, 0).chunk(text);
+
+        StringBuilder joined = new StringBuilder();
+        for (String chunk : chunks) {
+            assertTrue(TokenEstimator.estimate(chunk) <= 100);
+            assertTrue(chunk.endsWith(" "));
+            joined.append(chunk);
+        }
+        assertEquals(text, joined.toString());
+    }
+
+    @Test
+    public void doesNotSplitOnDecimalPoints() {
+        List<String> chunks = new TextChunker(6, 0).chunk("Pi is 3.14159 roughly. Yes.");
+        assertEquals("Pi is 3.14159 roughly. ", chunks.get(0));
+    }
+
+    @Test
+    public void estimatesWideScriptsAsMoreTokens() {
+        assertEquals(3, TokenEstimator.estimate("twelve chars"));
+        assertEquals(4, TokenEstimator.estimate("漢字かな"));
+        assertEquals(2, TokenEstimator.estimate("мир"));
+    }
+
+    @Test
+    public void readerGivesTheSameChunksAsText() throws IOException {
+        Random random = new Random(42);
+        String[] pieces = {"Word ", "Short sentence. ", "Why? ", "3.14 ", "\n", "\n\n", "## Heading\n",
+            "- item\n", "\u6f22\u5b57\u3002", "\ud83d\ude00 ", "longwordwithoutanybreaks", "  "};
+        for (int round = 0; round < 200; round++) {
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(3000);
+            while (text.length() < length) {
+                text.append(pieces[random.nextInt(pieces.length)]);
+            }
+            int maxTokens = 5 + random.nextInt(60);
+            TextChunker chunker = new TextChunker(maxTokens, random.nextInt(maxTokens / 2 + 1));
+
+            List<String> streamed = new ArrayList<>();
+            chunker.chunk(new TrickleReader(text.toString(), 1 + random.nextInt(50)), streamed::add);
+
+            assertEquals("round " + round, chunker.chunk(text.toString()), streamed);
+        }
+    }
+
+    @Test
+    public void readerWindowStaysBoundedForLongText() throws IOException {
+        // 4M chars with a single line of 1M chars in the middle
+        Reader text = new Reader() {
+            private long position;
+
+            @Override
+            public int read(char[] cbuf, int off, int len) {
+                if (position >= 4_000_000) {
+                    return -1;
+                }
+                for (int i = 0; i < len; i++, position++) {
+                    boolean longLine = position >= 1_000_000 && position < 2_000_000;
+                    cbuf[off + i] = position % 50 == 49 ? (longLine ? ' ' : '\n') : 'a';
+                }
+                return len;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        int[] chunks = new int[1];
+
+        int window = new TextChunker(200, 20).chunkWindowed(text, chunk -> chunks[0]++);
+
+        assertTrue(chunks[0] > 4_000_000 / 800);
+        assertTrue("window " + window, window <= 64 * 1024);
+    }
+
+    /**
+     * Hands out at most a few chars per read, like a slow stream
+     */
+    private static final class TrickleReader extends Reader {
+        private final String text;
+        private final int maxRead;
+        private int position;
+
+        TrickleReader(String text, int maxRead) {
+            this.text = text;
+            this.maxRead = maxRead;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (position == text.length()) {
+                return -1;
+            }
+            int n = Math.min(Math.min(len, maxRead), text.length() - position);
+            text.getChars(position, position + n, cbuf, off);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static String repeat(String s, int times) {
+        StringBuilder builder = new StringBuilder(s.length() * times);
+        for (int i = 0; i < times; i++) {
+            builder.append(s);
+        }
+        return builder.toString();
+    }
+}
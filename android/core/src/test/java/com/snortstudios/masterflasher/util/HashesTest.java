@@ -0,0 +1,24 @@
+package com.snortstudios.masterflasher.util;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+public class HashesTest {
+
+    @Test
+    public void sha256HexMatchesKnownDigest() {
+        String abc = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+        assertEquals(abc, Hashes.sha256Hex("abc"));
+        assertEquals(abc, Hashes.sha256Hex("abc".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(abc, Hashes.hex(Hashes.sha256().digest("abc".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    public void partsAreSeparated() {
+        assertNotEquals(Hashes.sha256Hex("ab", "c"), Hashes.sha256Hex("a", "bc"));
+        assertNotEquals(Hashes.sha256Hex("abc"), Hashes.sha256Hex("ab", "c"));
+    }
+}
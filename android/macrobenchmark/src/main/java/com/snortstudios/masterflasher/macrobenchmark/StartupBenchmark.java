@@ -0,0 +1,72 @@
+package com.snortstudios.masterflasher.macrobenchmark;
+
+import androidx.benchmark.macro.BaselineProfileMode;
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.StartupTimingMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.Until;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+
+import kotlin.Unit;
+
+/**
+ * Cold start up to the first rendered inbox.
+ *
+ * StartupTimingMetric reports timeToInitialDisplayMs (first frame, the splash screen)
+ * and timeToFullDisplayMs, which ends when the inbox list has rendered and the web layer
+ * calls Diagnostics.reportFirstRender (Activity.reportFullyDrawn). Comparing the two
+ * compilation modes shows what the baseline profile saves.
+ *
+ * Run on a fresh install: the benchmark waits for the empty inbox to render. The inbox
+ * load itself is the same query with or without entries.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StartupBenchmark {
+
+    private static final String PACKAGE_NAME = "com.snortstudios.masterflasher";
+    private static final int ITERATIONS = 10;
+    private static final long RENDER_TIMEOUT_MS = 15_000;
+
+    // Empty state heading of InboxScreen
+    private static final String EMPTY_INBOX = "Inbox Empty";
+
+    @Rule
+    public MacrobenchmarkRule benchmarkRule = new MacrobenchmarkRule();
+
+    @Test
+    public void startupWithoutCompilation() {
+        startup(new CompilationMode.None());
+    }
+
+    @Test
+    public void startupWithBaselineProfile() {
+        startup(new CompilationMode.Partial(BaselineProfileMode.Require));
+    }
+
+    private void startup(CompilationMode compilationMode) {
+        benchmarkRule.measureRepeated(
+            PACKAGE_NAME,
+            Collections.singletonList(new StartupTimingMetric()),
+            compilationMode,
+            StartupMode.COLD,
+            ITERATIONS,
+            scope -> {
+                scope.pressHome();
+                return Unit.INSTANCE;
+            },
+            scope -> {
+                scope.startActivityAndWait();
+                scope.getDevice().wait(Until.hasObject(By.text(EMPTY_INBOX)), RENDER_TIMEOUT_MS);
+                return Unit.INSTANCE;
+            }
+        );
+    }
+}
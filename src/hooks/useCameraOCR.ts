@@ -7,6 +7,8 @@ export interface UseCameraOCRReturn {
 	isAvailable: boolean;
 	isProcessing: boolean;
 	extractedText: string;
+	/** Stored crop of the last capture, to keep with the saved entry */
+	sourceImage: string | undefined;
 	error: string | null;
 	permissionStatus: PermissionStatus | null;
 	openCamera: () => Promise<void>;
@@ -19,6 +21,7 @@ export function useCameraOCR(): UseCameraOCRReturn {
 	const [isAvailable, setIsAvailable] = useState(false);
 	const [isProcessing, setIsProcessing] = useState(false);
 	const [extractedText, setExtractedText] = useState('');
+	const [sourceImage, setSourceImage] = useState<string | undefined>(undefined);
 	const [error, setError] = useState<string | null>(null);
 	const [permissionStatus, setPermissionStatus] = useState<PermissionStatus | null>(null);
 
@@ -63,6 +66,7 @@ export function useCameraOCR(): UseCameraOCRReturn {
 				// Let's keep previous text if any, or just don't set error.
 			} else if (result.text) {
 				setExtractedText(result.text);
+				setSourceImage(result.sourceImage);
 			} else {
 				// Empty text but not cancelled?
 				setError('No text detected');
@@ -84,6 +88,7 @@ export function useCameraOCR(): UseCameraOCRReturn {
 
 	const reset = useCallback(() => {
 		setExtractedText('');
+		setSourceImage(undefined);
 		setError(null);
 		setIsProcessing(false);
 	}, []);
@@ -92,6 +97,7 @@ export function useCameraOCR(): UseCameraOCRReturn {
 		isAvailable,
 		isProcessing,
 		extractedText,
+		sourceImage,
 		error,
 		permissionStatus,
 		openCamera,
@@ -24,10 +24,6 @@ export interface FactScore {
   score_total: number;     // 0-18 (centrality*2 + other dimensions)
 }
 
-export interface ScoredFact extends Fact {
-  score?: FactScore;
-}
-
 export interface Flashcard {
   type: 'basic';
   front: string;
@@ -0,0 +1,49 @@
+/**
+ * Background Generation
+ *
+ * Queues inbox entries for the native generation runner, which extracts facts,
+ * scores them, creates cards, saves them and locks the entry without the
+ * WebView having to stay open.
+ */
+
+import Generation from '../../plugins/Generation';
+import type { PipelinePrompts } from '../../plugins/Generation';
+import { ensureEngineConfigured } from './engine';
+import { getPrompts } from '../settings/promptConfig';
+import {
+	FACT_EXTRACTION_SYSTEM_CONSTRAINTS,
+	FLASHCARD_CREATION_SYSTEM_CONSTRAINTS,
+	FACT_SCORING_PROMPT,
+} from '../settings/defaultPrompts';
+
+/**
+ * Resolve the effective prompts for each stage
+ */
+export async function resolvePipelinePrompts(): Promise<PipelinePrompts> {
+	const prompts = await getPrompts();
+
+	return {
+		// System constraints are always appended, not user-editable
+		factExtraction: `${prompts.factExtraction}${FACT_EXTRACTION_SYSTEM_CONSTRAINTS}`,
+		factScoring: FACT_SCORING_PROMPT,
+		cardCreation: `${prompts.flashcardCreation}${FLASHCARD_CREATION_SYSTEM_CONSTRAINTS}`,
+	};
+}
+
+/**
+ * Queue entries for background card generation.
+ * Entries must already have their text (URL/PDF extraction is done in the foreground).
+ *
+ * @returns Number of entries newly queued
+ * @throws Error if no API key is configured
+ */
+export async function queueEntriesForGeneration(entryIds: string[]): Promise<number> {
+	if (entryIds.length === 0) return 0;
+
+	await ensureEngineConfigured();
+	const prompts = await resolvePipelinePrompts();
+	const { queued } = await Generation.enqueueEntries({ entryIds, prompts });
+
+	console.log(`[DEBUG] Queued ${queued}/${entryIds.length} entries for background generation`);
+	return queued;
+}
@@ -0,0 +1,56 @@
+/**
+ * Native Generation Engine Setup
+ *
+ * Pushes the current Gemini configuration to the native engine before a stage runs.
+ */
+
+import Generation from '../../plugins/Generation';
+import type { RateLimitConfig } from '../../plugins/Generation';
+import Settings, { SETTINGS_KEYS } from '../../plugins/Settings';
+import { getGeminiConfig, createMissingConfigError } from '../settings/geminiConfig';
+
+/**
+ * Parse an optional positive integer setting, undefined if unset or invalid
+ */
+function parseNumberSetting(value: string | null | undefined): number | undefined {
+	const parsed = value ? parseInt(value, 10) : NaN;
+	return parsed > 0 ? parsed : undefined;
+}
+
+/**
+ * Rate limits overridden in settings (e.g. for a paid tier); unset values keep the native defaults
+ */
+async function getRateLimitConfig(): Promise<RateLimitConfig | undefined> {
+	let values: Record<string, string | null>;
+	try {
+		({ values } = await Settings.getSettings({
+			keys: [SETTINGS_KEYS.GEMINI_REQUESTS_PER_MINUTE, SETTINGS_KEYS.GEMINI_TOKENS_PER_MINUTE],
+		}));
+	} catch (error) {
+		console.warn('Failed to read rate limit settings:', error);
+		return undefined;
+	}
+	const requestsPerMinute = parseNumberSetting(values[SETTINGS_KEYS.GEMINI_REQUESTS_PER_MINUTE]);
+	const tokensPerMinute = parseNumberSetting(values[SETTINGS_KEYS.GEMINI_TOKENS_PER_MINUTE]);
+	if (requestsPerMinute === undefined && tokensPerMinute === undefined) {
+		return undefined;
+	}
+	return { requestsPerMinute, tokensPerMinute };
+}
+
+/**
+ * Configure the native engine with the current API key, model and rate limits.
+ * @throws Error if no API key is configured
+ */
+export async function ensureEngineConfigured(): Promise<void> {
+	const config = await getGeminiConfig();
+	if (!config) {
+		throw createMissingConfigError();
+	}
+
+	await Generation.configure({
+		apiKey: config.apiKey,
+		model: config.modelName,
+		rateLimit: await getRateLimitConfig(),
+	});
+}
@@ -0,0 +1,31 @@
+/**
+ * Foreground Generation
+ *
+ * Runs the native pipeline for one entry while the entry screen waits. Fact
+ * extraction, scoring and card creation overlap, and cards are stored batch by
+ * batch, so the first cards can be reviewed before the whole document is done.
+ */
+
+import Generation from '../../plugins/Generation';
+import type { PipelineStats } from '../../plugins/Generation';
+import { ensureEngineConfigured } from './engine';
+import { resolvePipelinePrompts } from './backgroundGeneration';
+
+/**
+ * Generate and store cards for an entry, then lock it.
+ * Follow progress with the Generation `generationProgress`/`generationStats` events
+ * and new cards with the Inbox `cardsAppended` event.
+ *
+ * @throws Error with a user-facing message if a stage produced nothing
+ */
+export async function generateEntryCards(entryId: string): Promise<{ cardCount: number; stats: PipelineStats }> {
+	await ensureEngineConfigured();
+	const prompts = await resolvePipelinePrompts();
+	const result = await Generation.generateEntry({ entryId, prompts });
+
+	console.log(
+		`[DEBUG] Generated ${result.cardCount} cards in ${result.stats.elapsedMs}ms` +
+		(result.stats.timeToFirstCardMs !== undefined ? `, first after ${result.stats.timeToFirstCardMs}ms` : '')
+	);
+	return result;
+}
@@ -1,132 +1,9 @@
-import { GoogleGenerativeAI, SchemaType } from '@google/generative-ai';
-import type { Schema } from '@google/generative-ai';
 import type { FactsResponse, Fact } from '../anki/types';
-import { getGeminiConfig, createMissingConfigError } from '../settings/geminiConfig';
+import Generation from '../../plugins/Generation';
+import { ensureEngineConfigured } from './engine';
 import { getFactExtractionPrompt } from '../settings/promptConfig';
 import { FACT_EXTRACTION_SYSTEM_CONSTRAINTS } from '../settings/defaultPrompts';
 
-const schema: Schema = {
-	type: SchemaType.OBJECT,
-	properties: {
-		sourceTitle: { type: SchemaType.STRING },
-		facts: {
-			type: SchemaType.ARRAY,
-			items: {
-				type: SchemaType.OBJECT,
-				properties: {
-					fact: { type: SchemaType.STRING },
-				},
-				required: ['fact'],
-			},
-		},
-	},
-	required: ['facts'],
-};
-
-// Helper: Split text into chunks at sentence boundaries
-// 8000 chars balances API efficiency with context quality
-// Fact batching in flashcard generation handles output limits
-function chunkText(text: string, chunkSize = 8000): string[] {
-	if (text.length <= chunkSize) return [text];
-
-	const chunks: string[] = [];
-	let currentChunk = '';
-	const sentences = text.match(/[^.!?]+[.!?]+(\s|$)/g) || [text];
-
-	for (const sentence of sentences) {
-		if ((currentChunk + sentence).length > chunkSize) {
-			if (currentChunk) chunks.push(currentChunk);
-			currentChunk = sentence;
-		} else {
-			currentChunk += sentence;
-		}
-	}
-	if (currentChunk) chunks.push(currentChunk);
-
-	// Fallback for massive sentences or failures
-	if (chunks.length === 0 && text.length > 0) return [text];
-
-	return chunks;
-}
-
-// Generate unique ID (simple UUID v4)
-function generateId(): string {
-	return crypto.randomUUID();
-}
-
-/**
- * Build the complete prompt by combining:
- * 1. User's custom prompt (or default)
- * 2. System constraints (always appended, not user-editable)
- * 3. Dynamic content (title and text)
- */
-function buildFactExtractionPrompt(userPrompt: string, text: string, title?: string): string {
-	return `${userPrompt}${FACT_EXTRACTION_SYSTEM_CONSTRAINTS}
-
-Context/Title: ${title || 'Unknown'}
-Text:
-${text}`;
-}
-
-async function verifyAndGenerateFacts(text: string, title: string | undefined, userPrompt: string): Promise<Fact[]> {
-	// Get config from secure storage or env
-	const config = await getGeminiConfig();
-	if (!config) {
-		throw createMissingConfigError();
-	}
-
-	const genAI = new GoogleGenerativeAI(config.apiKey);
-	const model = genAI.getGenerativeModel({
-		model: config.modelName,
-		generationConfig: {
-			responseMimeType: 'application/json',
-			responseSchema: schema,
-			maxOutputTokens: 8192,
-		},
-	});
-
-	const prompt = buildFactExtractionPrompt(userPrompt, text, title);
-	console.log(`[DEBUG] Fact extraction - Prompt length: ${prompt.length} chars, Text chunk: ${text.length} chars`);
-
-	try {
-		const result = await model.generateContent(prompt);
-		const responseText = result.response.text();
-		
-		// DEBUG: Log the raw response for diagnosis
-		console.log(`[DEBUG] Gemini fact response length: ${responseText.length} chars`);
-		console.log(`[DEBUG] Gemini fact response preview: ${responseText.slice(0, 500)}...`);
-		
-		let json;
-		try {
-			json = JSON.parse(responseText);
-		} catch (parseError) {
-			// Log the full response when JSON parsing fails
-			console.error('[DEBUG] JSON PARSE ERROR - Full response:', responseText);
-			console.error('[DEBUG] Parse error:', parseError);
-			throw parseError;
-		}
-
-		// Validate structure locally since we removed strict schema for id/context
-		if (!json.facts || !Array.isArray(json.facts)) {
-			console.warn('[DEBUG] Invalid facts structure from chunk:', JSON.stringify(json).slice(0, 500));
-			return [];
-		}
-
-		console.log(`[DEBUG] Successfully parsed ${json.facts.length} facts from chunk`);
-
-		// Map to Fact objects, assigning IDs client-side
-		return json.facts.map((f: { fact: string }) => ({
-			id: generateId(),
-			fact: f.fact,
-			// context removed per user request
-		})).filter((f: { id: string; fact: string }) => f.fact && typeof f.fact === 'string');
-
-	} catch (e) {
-		console.error('[DEBUG] Gemini Facts Generation Failed for chunk:', e);
-		return []; // Return empty for this chunk rather than failing everything
-	}
-}
-
 export async function generateFacts(text: string, title?: string): Promise<FactsResponse> {
 	// DEBUG: Log input text size
 	console.log(`[DEBUG] generateFacts called - Input text size: ${text.length} chars, Title: ${title || 'none'}`);
@@ -134,36 +11,31 @@ export async function generateFacts(text: string, title?: string): Promise<Facts
 	// 1. Load the user's custom prompt (or default)
 	const userPrompt = await getFactExtractionPrompt();
 
-	// 2. Chunk the text into smaller pieces for natural content-based limiting
-	const chunks = chunkText(text);
-	console.log(`[DEBUG] Text split into ${chunks.length} chunks (avg ${Math.round(text.length / chunks.length)} chars each)`);
-	
-	// Warn about potentially problematic chunk counts
-	if (chunks.length > 20) {
-		console.warn(`[DEBUG] WARNING: High chunk count (${chunks.length}) - this will make ${chunks.length} concurrent API calls`);
-	}
-
-	// 3. Process chunks (concurrently for speed, Flash Lite has high TPM)
-	console.log(`[DEBUG] Starting ${chunks.length} concurrent fact extraction requests...`);
-	const results = await Promise.all(
-		chunks.map((chunk, index) => {
-			console.log(`[DEBUG] Processing chunk ${index + 1}/${chunks.length}...`);
-			return verifyAndGenerateFacts(chunk, title, userPrompt);
-		})
-	);
+	// 2. Chunk and process natively - the text is split by estimated tokens at sentence,
+	// paragraph and heading boundaries, and the engine bounds how many requests are in flight
+	await ensureEngineConfigured();
+	const { results } = await Generation.extractFacts({
+		text,
+		title,
+		// System constraints are always appended, not user-editable
+		prompt: `${userPrompt}${FACT_EXTRACTION_SYSTEM_CONSTRAINTS}`,
+	});
 
-	// 4. Merge results from all chunks
-	const allFacts = results.flat();
+	// 3. Merge results from all chunks, dropping near-duplicates from overlapping or repetitive chunks
+	const chunkCount = results.length;
+	const { facts: uniqueFacts, removed, tokensSaved } = await Generation.dedupeFacts({
+		facts: results.flatMap(r => r.facts),
+	});
+	const allFacts: Fact[] = uniqueFacts.map(f => ({ id: f.id, fact: f.fact }));
 	
 	// DEBUG: Log summary
-	console.log(`[DEBUG] Fact extraction complete - Total facts: ${allFacts.length} from ${chunks.length} chunks`);
-	const successfulChunks = results.filter(r => r.length > 0).length;
-	const failedChunks = chunks.length - successfulChunks;
-	if (failedChunks > 0) {
-		console.warn(`[DEBUG] WARNING: ${failedChunks}/${chunks.length} chunks failed to produce facts`);
+	console.log(`[DEBUG] Fact extraction complete - Total facts: ${allFacts.length} from ${chunkCount} chunks (${removed} near-duplicates removed, ~${tokensSaved} tokens saved)`);
+	const failedChunks = results.filter(r => r.error);
+	if (failedChunks.length > 0) {
+		console.warn(`[DEBUG] WARNING: ${failedChunks.length}/${chunkCount} chunks failed:`, failedChunks.map(r => r.error));
 	}
 
-	// 5. Return combined results
+	// 4. Return combined results
 	// Smaller chunks naturally limit facts per chunk, no arbitrary truncation needed
 
 	return {
@@ -42,6 +42,61 @@ function extractFilePath(capacitorUrl: string): string {
 	return capacitorUrl;
 }
 
+/**
+ * Read a PDF from app storage and open it with pdf.js
+ */
+async function loadPdfDocument(pdfUrl: string) {
+	// Extract the file path from the Capacitor URL
+	const filePath = extractFilePath(pdfUrl);
+
+	// Read the file using Capacitor Filesystem API
+	// Note: For files in the app's files directory, we use absolute path with URI
+	const result = await Filesystem.readFile({
+		path: filePath,
+	});
+
+	// Convert base64 data to Uint8Array for pdf.js
+	// result.data is base64-encoded on mobile
+	let pdfData: Uint8Array;
+	if (typeof result.data === 'string') {
+		pdfData = base64ToUint8Array(result.data);
+	} else {
+		// Blob type (web platform)
+		const arrayBuffer = await result.data.arrayBuffer();
+		pdfData = new Uint8Array(arrayBuffer);
+	}
+
+	// Load the PDF document from data
+	return pdfjsLib.getDocument({ data: pdfData }).promise;
+}
+
+/**
+ * Extract the raw text of a single page (filters out TextMarkedContent items)
+ */
+async function extractPageText(pdf: Awaited<ReturnType<typeof loadPdfDocument>>, pageNum: number): Promise<string> {
+	const page = await pdf.getPage(pageNum);
+	const textContent = await page.getTextContent();
+
+	return textContent.items
+		.filter(isTextItem)
+		.map((item) => item.str)
+		.join(' ');
+}
+
+/**
+ * Re-throw pdf.js errors with a user-facing message
+ */
+function toExtractionError(error: unknown): Error {
+	console.error('PDF extraction error:', error);
+	if (error instanceof Error) {
+		if (error.message.includes('password')) {
+			return new Error('This PDF is password-protected. Please use an unprotected PDF.');
+		}
+		return new Error(`Failed to extract PDF text: ${error.message}`);
+	}
+	return new Error('Failed to extract PDF text: Unknown error');
+}
+
 /**
  * Extract text content from a PDF file using pdf.js
  *
@@ -51,57 +106,58 @@ function extractFilePath(capacitorUrl: string): string {
  */
 export async function extractPdfText(pdfUrl: string): Promise<string> {
 	try {
-		// Extract the file path from the Capacitor URL
-		const filePath = extractFilePath(pdfUrl);
-		
-		// Read the file using Capacitor Filesystem API
-		// Note: For files in the app's files directory, we use absolute path with URI
-		const result = await Filesystem.readFile({
-			path: filePath,
-		});
-		
-		// Convert base64 data to Uint8Array for pdf.js
-		// result.data is base64-encoded on mobile
-		let pdfData: Uint8Array;
-		if (typeof result.data === 'string') {
-			pdfData = base64ToUint8Array(result.data);
-		} else {
-			// Blob type (web platform)
-			const arrayBuffer = await result.data.arrayBuffer();
-			pdfData = new Uint8Array(arrayBuffer);
-		}
-		
-		// Load the PDF document from data
-		const pdf = await pdfjsLib.getDocument({ data: pdfData }).promise;
+		const pdf = await loadPdfDocument(pdfUrl);
 		const textParts: string[] = [];
 
 		// Extract text from each page
 		for (let pageNum = 1; pageNum <= pdf.numPages; pageNum++) {
-			const page = await pdf.getPage(pageNum);
-			const textContent = await page.getTextContent();
-
-			// Join text items from the page (filter out TextMarkedContent items)
-			const pageText = textContent.items
-				.filter(isTextItem)
-				.map((item) => item.str)
-				.join(' ');
-
-			textParts.push(pageText);
+			textParts.push(await extractPageText(pdf, pageNum));
 		}
 
 		// Join all pages with double newlines and clean up
 		const rawText = textParts.join('\n\n');
 		return cleanExtractedText(rawText);
 	} catch (error) {
-		console.error('PDF extraction error:', error);
-		// Re-throw with more descriptive message
-		if (error instanceof Error) {
-			if (error.message.includes('password')) {
-				throw new Error('This PDF is password-protected. Please use an unprotected PDF.');
-			}
-			throw new Error(`Failed to extract PDF text: ${error.message}`);
+		throw toExtractionError(error);
+	}
+}
+
+export interface ExtractPdfPagesOptions {
+	/** First page to extract, 1-based inclusive (default: 1) */
+	startPage?: number;
+	/** Last page to extract, 1-based inclusive (default: last page) */
+	endPage?: number;
+	/** Pages that are already stored and should not be extracted again */
+	skipPages?: number[];
+	/** Called with the cleaned text of each page as soon as it is extracted */
+	onPage: (pageNo: number, text: string, pageCount: number) => Promise<void>;
+}
+
+/**
+ * Extract a page range of a PDF one page at a time.
+ *
+ * Unlike extractPdfText, nothing outside the range is read and each page is handed
+ * to onPage (which persists it) before the next one starts.
+ *
+ * @returns Total number of pages in the document
+ * @throws Error if PDF cannot be loaded or is password-protected
+ */
+export async function extractPdfPages(pdfUrl: string, options: ExtractPdfPagesOptions): Promise<number> {
+	try {
+		const pdf = await loadPdfDocument(pdfUrl);
+		const first = Math.max(1, options.startPage ?? 1);
+		const last = Math.min(pdf.numPages, options.endPage ?? pdf.numPages);
+		const skip = new Set(options.skipPages ?? []);
+
+		for (let pageNum = first; pageNum <= last; pageNum++) {
+			if (skip.has(pageNum)) continue;
+			const pageText = cleanExtractedText(await extractPageText(pdf, pageNum));
+			await options.onPage(pageNum, pageText, pdf.numPages);
 		}
-		throw new Error('Failed to extract PDF text: Unknown error');
+
+		return pdf.numPages;
+	} catch (error) {
+		throw toExtractionError(error);
 	}
 }
 
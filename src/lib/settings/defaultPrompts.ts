@@ -77,7 +77,7 @@ SYSTEM CONSTRAINTS (do not override):
 /**
  * Fact Scoring Prompt (fixed, not user-configurable)
  *
- * Used in: scoreFacts.ts
+ * Used in: backgroundGeneration.ts (native pipeline prompts)
  * This prompt scores extracted facts on learning-value dimensions
  * to filter for the most important, non-obvious, high-impact ideas.
  */
@@ -28,6 +28,27 @@ export async function getFactExtractionPrompt(): Promise<string> {
 	return DEFAULT_FACT_EXTRACTION_PROMPT;
 }
 
+/**
+ * Get both prompts with one settings read.
+ * Returns custom prompts where configured, otherwise defaults.
+ */
+export async function getPrompts(): Promise<{ factExtraction: string; flashcardCreation: string }> {
+	let values: Record<string, string | null> = {};
+	try {
+		({ values } = await Settings.getSettings({
+			keys: [SETTINGS_KEYS.FACT_EXTRACTION_PROMPT, SETTINGS_KEYS.FLASHCARD_CREATION_PROMPT],
+		}));
+	} catch (error) {
+		console.warn('Failed to get custom prompts, using defaults:', error);
+	}
+	const fact = values[SETTINGS_KEYS.FACT_EXTRACTION_PROMPT];
+	const card = values[SETTINGS_KEYS.FLASHCARD_CREATION_PROMPT];
+	return {
+		factExtraction: fact && fact.trim() ? fact : DEFAULT_FACT_EXTRACTION_PROMPT,
+		flashcardCreation: card && card.trim() ? card : DEFAULT_FLASHCARD_CREATION_PROMPT,
+	};
+}
+
 /**
  * Set a custom fact extraction prompt.
  * @param prompt - The custom prompt to save
@@ -1,4 +1,4 @@
-import React, { useEffect, useState, useCallback } from 'react';
+import React, { useEffect, useState, useCallback, useRef } from 'react';
 import { useParams, useHistory } from 'react-router-dom';
 import {
 	IonPage,
@@ -39,16 +39,18 @@ import {
 	createOutline,
 	closeOutline,
 	saveOutline,
+	hourglassOutline,
 } from 'ionicons/icons';
 import Inbox from '../plugins/Inbox';
 import type { InboxEntry, GeneratedCard } from '../plugins/Inbox';
 import WebClipper from '../plugins/WebClipper';
 import AnkiDroid from '../plugins/AnkiDroid';
-import { generateFacts } from '../lib/gemini/generateFacts';
-import { generateFlashcards } from '../lib/gemini/generateFlashcards';
-import { scoreFacts, filterScoredFacts } from '../lib/gemini/scoreFacts';
+import Generation from '../plugins/Generation';
+import type { PipelineStats, RunCheckpoint } from '../plugins/Generation';
+import { generateEntryCards } from '../lib/gemini/generateEntry';
+import { queueEntriesForGeneration } from '../lib/gemini/backgroundGeneration';
 import { hasValidConfig } from '../lib/settings/geminiConfig';
-import { extractPdfText } from '../lib/pdf/extractPdfText';
+import { extractPdfPages } from '../lib/pdf/extractPdfText';
 
 type UIState =
 	| 'LOADING'
@@ -58,26 +60,92 @@ type UIState =
 	| 'GENERATING_FACTS'
 	| 'SCORING_FACTS'
 	| 'GENERATING_CARDS'
+	| 'BACKGROUND'
 	| 'REVIEW_CARDS'
 	| 'ERROR';
 
+// Pipeline stages overlap, progress shows the furthest stage reached
+const STAGE_STATES: Record<'facts' | 'scoring' | 'cards', UIState> = {
+	facts: 'GENERATING_FACTS',
+	scoring: 'SCORING_FACTS',
+	cards: 'GENERATING_CARDS',
+};
+
 // Local type for UI state management
 type ReviewCard = GeneratedCard & {
-	uiStatus: 'idle' | 'adding' | 'added' | 'error';
+	uiStatus: 'idle' | 'adding' | 'queued' | 'added' | 'error';
+};
+
+const toUiStatus = (status: GeneratedCard['status']): ReviewCard['uiStatus'] =>
+	status === 'added' ? 'added' : status === 'queued' ? 'queued' : 'idle';
+
+// Entry fields the screen uses; the text itself is read in ranges with getEntryText
+const ENTRY_FIELDS = [
+	'id', 'contentType', 'preview', 'title', 'deckName', 'isLocked', 'createdAt',
+	'pageCount', 'pageRangeStart', 'pageRangeEnd', 'contentLength', 'extractedTextLength', 'sourceImage',
+] as const;
+
+// Characters of the entry text shown before generating
+const TEXT_PREVIEW_LENGTH = 500;
+
+type EntryDetails = Pick<InboxEntry, typeof ENTRY_FIELDS[number]> & {
+	/** URL or PDF file URL; empty for text entries, whose content is their text */
+	content: string;
+	/** Start of the text cards are generated from, empty until a URL or PDF is extracted */
+	textPreview: string;
+	textLength: number;
 };
 
+/**
+ * Load an entry without its full text: metadata, the start of its text and,
+ * for URLs and PDFs, where the text comes from
+ */
+async function fetchEntry(id: string, includeCards = true): Promise<{ entry: EntryDetails; cards: GeneratedCard[] }> {
+	const { entry, cards } = await Inbox.getEntry({ id, fields: ENTRY_FIELDS, includeCards });
+	const hasText = entry.contentType === 'text' || (entry.extractedTextLength ?? 0) > 0;
+	const [source, preview] = await Promise.all([
+		entry.contentType === 'text' ? null : Inbox.getEntryText({ id, field: 'content' }),
+		hasText ? Inbox.getEntryText({ id, length: TEXT_PREVIEW_LENGTH }) : null,
+	]);
+	return {
+		entry: {
+			...entry,
+			content: source?.text ?? '',
+			textPreview: preview?.text ?? '',
+			textLength: preview?.totalLength ?? 0,
+		},
+		cards,
+	};
+}
+
+/**
+ * Parse a page number input; empty or invalid input means "no bound"
+ */
+function parsePageNumber(value: string): number | undefined {
+	const page = parseInt(value, 10);
+	return Number.isFinite(page) && page > 0 ? page : undefined;
+}
+
 const EntryDetailScreen: React.FC = () => {
 	const { id } = useParams<{ id: string }>();
 	const history = useHistory();
 	
 	const [state, setState] = useState<UIState>('LOADING');
-	const [entry, setEntry] = useState<InboxEntry | null>(null);
+	const [entry, setEntry] = useState<EntryDetails | null>(null);
 	const [cards, setCards] = useState<ReviewCard[]>([]);
 	const [deckName, setDeckName] = useState('MasterFlasher');
 	const [log, setLog] = useState('Loading...');
 	const [errorMsg, setErrorMsg] = useState('');
 	const [showDeleteAlert, setShowDeleteAlert] = useState(false);
 	const [isAddingAll, setIsAddingAll] = useState(false);
+	// Card batches are arriving while later ones still generate
+	const [isStreamingCards, setIsStreamingCards] = useState(false);
+	const streamingRef = useRef(false);
+	// A pipeline run started from this screen is in progress
+	const foregroundRef = useRef(false);
+	const [pipelineStats, setPipelineStats] = useState<PipelineStats | null>(null);
+	// Progress of an interrupted run that the next run resumes
+	const [checkpoint, setCheckpoint] = useState<RunCheckpoint | null>(null);
 	
 	// Card editing state
 	const [editingCardIndex, setEditingCardIndex] = useState<number | null>(null);
@@ -89,6 +157,10 @@ const EntryDetailScreen: React.FC = () => {
 	const [isEditingDeckName, setIsEditingDeckName] = useState(false);
 	const [editedDeckName, setEditedDeckName] = useState('');
 	const [isSavingDeckName, setIsSavingDeckName] = useState(false);
+	
+	// PDF page range inputs (empty = whole document)
+	const [pageRangeStart, setPageRangeStart] = useState('');
+	const [pageRangeEnd, setPageRangeEnd] = useState('');
 
 	/**
 	 * Load entry and its cards from database
@@ -105,23 +177,52 @@ const EntryDetailScreen: React.FC = () => {
 				return;
 			}
 			
-			const result = await Inbox.getEntry({ id });
+			const result = await fetchEntry(id);
 			setEntry(result.entry);
 			setDeckName(result.entry.deckName || 'MasterFlasher');
+			setPageRangeStart(result.entry.pageRangeStart ? String(result.entry.pageRangeStart) : '');
+			setPageRangeEnd(result.entry.pageRangeEnd ? String(result.entry.pageRangeEnd) : '');
 			
 			if (result.entry.isLocked && result.cards.length > 0) {
 				// Entry already has cards generated
 				const reviewCards: ReviewCard[] = result.cards.map(c => ({
 					...c,
-					uiStatus: c.status === 'added' ? 'added' : 'idle'
+					uiStatus: toUiStatus(c.status)
 				}));
 				setCards(reviewCards);
 				setState('REVIEW_CARDS');
 				setLog(`${result.cards.length} cards ready for review`);
+				
+				// Flag pending cards that are already notes in AnkiDroid, one batched lookup for all of them
+				if (reviewCards.some(c => c.uiStatus === 'idle' && !c.duplicate)) {
+					void (async () => {
+						const perm = await AnkiDroid.hasPermission();
+						if (!perm.value) return;
+						const seeded = await AnkiDroid.seedDuplicateIndex({ modelKey: 'com.snortstudios.masterflasher' });
+						if (seeded.found === 0) return;
+						const refreshed = await Inbox.getEntry({ id, fields: ['id'] });
+						const flagged = new Map(refreshed.cards.map(c => [c.id, c]));
+						setCards(prev => prev.map(c => {
+							const card = flagged.get(c.id);
+							return card ? { ...c, duplicate: card.duplicate, duplicateNoteId: card.duplicateNoteId } : c;
+						}));
+					})().catch(e => console.warn('Duplicate check against AnkiDroid failed:', e));
+				}
 			} else {
-				// Entry needs processing
+				// Entry may already be queued or running in the background runner
+				const runner = await Generation.getRunnerStatus();
+				if (runner.running === id || runner.queued.includes(id)) {
+					setState('BACKGROUND');
+					setLog(runner.running === id ? 'Generating in background...' : 'Queued for background generation');
+					return;
+				}
+				// Entry needs processing, possibly continuing an interrupted run
+				const { checkpoint: stored } = await Generation.getCheckpoint({ entryId: id });
+				setCheckpoint(stored);
 				setState('READY');
-				setLog('Ready to generate cards');
+				setLog(stored
+					? `Interrupted run: ${stored.chunksDone} of ${stored.chunkCount} chunks and ${stored.cardsStored} cards done`
+					: 'Ready to generate cards');
 			}
 		} catch (e) {
 			console.error('Failed to load entry:', e);
@@ -134,6 +235,95 @@ const EntryDetailScreen: React.FC = () => {
 		loadEntry();
 	}, [loadEntry]);
 
+	/**
+	 * Finish a streamed run: pick up any batch whose event has not arrived yet,
+	 * keeping the review state of cards already on screen
+	 */
+	const finishStreaming = useCallback(async (stats: PipelineStats) => {
+		streamingRef.current = false;
+		setIsStreamingCards(false);
+		setPipelineStats(null);
+
+		const result = await fetchEntry(id);
+		setEntry(result.entry);
+		setCards(prev => {
+			const local = new Map(prev.map(c => [c.id, c]));
+			return result.cards.map(c => local.get(c.id) ?? {
+				...c,
+				uiStatus: toUiStatus(c.status)
+			});
+		});
+
+		const firstCards = stats.timeToFirstCardMs !== undefined
+			? ` First cards after ${(stats.timeToFirstCardMs / 1000).toFixed(1)}s.`
+			: '';
+		setLog(`Generated ${result.cards.length} cards from ${stats.factsPassed} of ${stats.factsExtracted} facts.${firstCards} Ready for review.`);
+		setState('REVIEW_CARDS');
+	}, [id]);
+
+	// Follow pipeline runs of this entry, started here or by the background runner
+	useEffect(() => {
+		const handles = [
+			Generation.addListener('generationProgress', (event) => {
+				if (event.entryId !== id) return;
+				setLog(event.message);
+				// Cards already on screen stay reviewable while later batches generate
+				if (streamingRef.current) return;
+				setState(foregroundRef.current ? STAGE_STATES[event.stage] : 'BACKGROUND');
+			}),
+			Generation.addListener('generationStats', (event) => {
+				if (event.entryId !== id) return;
+				setPipelineStats(event);
+			}),
+			Generation.addListener('generationCompleted', (event) => {
+				if (event.entryId !== id) return;
+				if (streamingRef.current) {
+					finishStreaming(event.stats);
+					return;
+				}
+				setPipelineStats(null);
+				loadEntry();
+			}),
+			Generation.addListener('generationFailed', (event) => {
+				// A cancel from this screen already reset the state
+				if (event.entryId !== id || event.error === 'Cancelled') return;
+				streamingRef.current = false;
+				setIsStreamingCards(false);
+				setPipelineStats(null);
+				setErrorMsg(event.error);
+				setState('ERROR');
+			}),
+			// Show card batches as they are stored, from this screen or the background runner
+			Inbox.addListener('cardsAppended', (event) => {
+				if (event.entryId !== id) return;
+				const appended: ReviewCard[] = event.cards.map(c => ({ ...c, uiStatus: 'idle' }));
+				streamingRef.current = true;
+				setIsStreamingCards(true);
+				setCards(prev => {
+					const known = new Set(prev.map(c => c.id));
+					const next = [...prev, ...appended.filter(c => !known.has(c.id))];
+					setLog(`${next.length} cards ready, more are still generating...`);
+					return next;
+				});
+				setState('REVIEW_CARDS');
+			}),
+			// Queued cards exported by the native outbox, possibly long after they were queued
+			AnkiDroid.addListener('outboxFlushed', (event) => {
+				const added = new Set(event.addedCardIds);
+				const gaveUp = new Set(event.gaveUpCardIds);
+				setCards(prev => prev.map(c =>
+					added.has(c.id) ? { ...c, status: 'added', uiStatus: 'added' } :
+					gaveUp.has(c.id) ? { ...c, status: 'error', uiStatus: 'error' } :
+					c
+				));
+			}),
+		];
+
+		return () => {
+			handles.forEach(handle => handle.then(h => h.remove()));
+		};
+	}, [id, loadEntry, finishStreaming]);
+
 	/**
 	 * Navigate to settings
 	 */
@@ -180,7 +370,9 @@ const EntryDetailScreen: React.FC = () => {
 			setEntry({
 				...entry,
 				title: result.title,
-				extractedText: result.text
+				extractedTextLength: result.text.length,
+				textPreview: result.text.slice(0, TEXT_PREVIEW_LENGTH),
+				textLength: result.text.length
 			});
 			
 			setLog(`Extracted: ${result.title || 'No Title'} (${result.text.length} chars)`);
@@ -194,19 +386,42 @@ const EntryDetailScreen: React.FC = () => {
 
 	/**
 	 * Handle PDF text extraction via pdf.js
+	 *
+	 * Only pages in the selected range are extracted, and pages already stored by an
+	 * earlier extraction are skipped. Each page is saved as soon as it is read.
 	 */
 	const handlePdfExtract = async () => {
 		if (!entry || entry.contentType !== 'pdf') return;
 
+		const startPage = parsePageNumber(pageRangeStart);
+		const endPage = parsePageNumber(pageRangeEnd);
+		if (startPage !== undefined && endPage !== undefined && startPage > endPage) {
+			setLog('The first page must not be after the last page');
+			return;
+		}
+
 		try {
 			setState('EXTRACTING');
 			setLog('Extracting text from PDF...');
 
+			const stats = await Inbox.getPdfPageStats({ entryId: entry.id });
+
 			// pdf.js loads the file directly via the Capacitor URL
-			const extractedText = await extractPdfText(entry.content);
+			const pageCount = await extractPdfPages(entry.content, {
+				startPage,
+				endPage,
+				skipPages: stats.pages.map(p => p.pageNo),
+				onPage: async (pageNo, text, numPages) => {
+					await Inbox.savePdfPage({ entryId: entry.id, pageNo, text, pageCount: numPages });
+					setLog(`Extracted page ${pageNo} of ${numPages}...`);
+				},
+			});
+
+			// Stream the stored pages in range into the entry's text file
+			const { charCount } = await Inbox.setPdfPageRange({ entryId: entry.id, startPage, endPage });
 
 			// Check if any text was extracted
-			if (!extractedText || extractedText.length < 10) {
+			if (charCount < 10) {
 				setErrorMsg(
 					'Very little text was extracted. This PDF may contain mostly images (scanned document). OCR is not currently supported.'
 				);
@@ -214,16 +429,10 @@ const EntryDetailScreen: React.FC = () => {
 				return;
 			}
 
-			// Save to database
-			await Inbox.updateExtractedContent({
-				entryId: entry.id,
-				title: entry.title || 'PDF Document',
-				extractedText,
-			});
-
 			// Update local state
-			setEntry({ ...entry, extractedText });
-			setLog(`Extracted ${extractedText.length} characters from PDF`);
+			const result = await fetchEntry(entry.id, false);
+			setEntry(result.entry);
+			setLog(`Extracted ${charCount} characters from pages ${startPage ?? 1}-${Math.min(endPage ?? pageCount, pageCount)}`);
 			setState('READY');
 		} catch (e) {
 			console.error('PDF extraction failed:', e);
@@ -235,15 +444,12 @@ const EntryDetailScreen: React.FC = () => {
 	};
 
 	/**
-	 * Generate flashcards from content
+	 * Generate flashcards from content.
+	 * Extraction and scoring overlap natively; cards appear as each batch is stored.
 	 */
 	const handleGenerate = async () => {
 		if (!entry) return;
 		
-		// Determine which text to use
-		const textToProcess = entry.extractedText || entry.content;
-		const title = entry.title || undefined;
-		
 		// Use default deck name if empty
 		const finalDeckName = deckName.trim() || 'MasterFlasher';
 		
@@ -251,95 +457,81 @@ const EntryDetailScreen: React.FC = () => {
 			// Save deck name first
 			await Inbox.updateDeckName({ entryId: entry.id, deckName: finalDeckName });
 			
-			// Step 1: Extract facts
 			setState('GENERATING_FACTS');
 			setLog('Extracting facts with Gemini...');
+			setCards([]);
+			foregroundRef.current = true;
 			
-			const factsResp = await generateFacts(textToProcess, title);
-			setLog(`Extracted ${factsResp.facts.length} facts`);
-			
-			// Check if no facts were extracted
-			if (factsResp.facts.length === 0) {
-				setErrorMsg(
-					'No key concepts could be extracted from this content. ' +
-					'This may happen with very short text, technical content, or documents that are mostly images. ' +
-					'Try a different source or check if the content is extractable.'
-				);
-				setState('ERROR');
-				return;
-			}
-			
-			// Step 2: Score facts for learning value
-			setState('SCORING_FACTS');
-			setLog(`Scoring ${factsResp.facts.length} facts for learning value...`);
-			
-			const scoredFacts = await scoreFacts(factsResp.facts);
-			
-			// Step 3: Filter to high-value facts
-			const filteredFacts = filterScoredFacts(scoredFacts);
-			setLog(`Selected ${filteredFacts.length} high-value facts from ${factsResp.facts.length} total`);
-			
-			// Check if no facts passed filtering
-			if (filteredFacts.length === 0) {
-				setErrorMsg(
-					'No high-value facts were found in this content. ' +
-					'The extracted concepts may be too generic or obvious. ' +
-					'Try a different source with more specific, non-obvious information.'
-				);
-				setState('ERROR');
-				return;
-			}
-			
-			// Step 4: Generate flashcards from filtered facts
-			setState('GENERATING_CARDS');
-			setLog(`Generating flashcards from ${filteredFacts.length} facts...`);
-			
-			const cardsResp = await generateFlashcards(filteredFacts);
-			
-			// Check if no cards were generated
-			if (cardsResp.cards.length === 0) {
-				setErrorMsg(
-					'No flashcards could be generated from the extracted concepts. ' +
-					'This may happen if the content is too abstract or lacks specific facts. ' +
-					'Try adjusting the source content or custom prompts in Settings.'
-				);
-				setState('ERROR');
-				return;
-			}
-			
-			// Create card objects with IDs
-			const newCards: Omit<GeneratedCard, 'entryId'>[] = cardsResp.cards.map((c, i) => ({
-				id: `${entry.id}-card-${i}-${Date.now()}`,
-				front: c.front,
-				back: c.back,
-				tags: c.tags || [],
-				status: 'pending' as const
-			}));
-			
-			// Save cards to database
-			await Inbox.saveCards({ entryId: entry.id, cards: newCards });
-			
-			// Lock the entry
-			await Inbox.lockEntry({ entryId: entry.id });
-			
-			// Update local state
-			const reviewCards: ReviewCard[] = newCards.map(c => ({
-				...c,
-				entryId: entry.id,
-				uiStatus: 'idle'
-			}));
-			setCards(reviewCards);
-			setEntry({ ...entry, isLocked: true, deckName: finalDeckName });
+			const { stats } = await generateEntryCards(entry.id);
+			foregroundRef.current = false;
 			
-			setLog(`Generated ${cardsResp.cards.length} cards. Ready for review.`);
-			setState('REVIEW_CARDS');
+			// The entry was locked natively once the last batch was stored
+			await finishStreaming(stats);
 		} catch (e) {
 			console.error('Generation failed:', e);
+			foregroundRef.current = false;
+			streamingRef.current = false;
+			setIsStreamingCards(false);
+			setPipelineStats(null);
 			setErrorMsg('Processing failed: ' + (e instanceof Error ? e.message : String(e)));
 			setState('ERROR');
 		}
 	};
 
+	/**
+	 * Queue this entry for the native background runner, so generation continues
+	 * after leaving the screen or backgrounding the app
+	 */
+	const handleGenerateInBackground = async () => {
+		if (!entry) return;
+
+		const finalDeckName = deckName.trim() || 'MasterFlasher';
+
+		try {
+			await Inbox.updateDeckName({ entryId: entry.id, deckName: finalDeckName });
+			await queueEntriesForGeneration([entry.id]);
+			setState('BACKGROUND');
+			setLog('Queued for background generation. You can leave this screen.');
+		} catch (e) {
+			console.error('Failed to queue generation:', e);
+			setErrorMsg('Failed to queue generation: ' + (e instanceof Error ? e.message : String(e)));
+			setState('ERROR');
+		}
+	};
+
+	/**
+	 * Stop a queued or running background generation
+	 */
+	const handleCancelBackground = async () => {
+		if (!entry) return;
+
+		try {
+			await Generation.cancelGeneration({ entryId: entry.id });
+			setState('READY');
+			setLog('Background generation cancelled');
+		} catch (e) {
+			console.error('Failed to cancel generation:', e);
+		}
+	};
+
+	/**
+	 * Hand cards to the native outbox, which adds them once AnkiDroid is reachable
+	 * @returns Whether any card was queued
+	 */
+	const queueCards = async (cardIds: string[]): Promise<boolean> => {
+		try {
+			const { queued } = await AnkiDroid.enqueueCards({
+				cardIds,
+				deckName: entry?.deckName || 'MasterFlasher',
+				modelKey: 'com.snortstudios.masterflasher',
+			});
+			return queued > 0;
+		} catch (e) {
+			console.error('Failed to queue cards:', e);
+			return false;
+		}
+	};
+
 	/**
 	 * Add a single card to AnkiDroid
 	 */
@@ -368,6 +560,7 @@ const EntryDetailScreen: React.FC = () => {
 				front: card.front,
 				back: card.back,
 				tags: card.tags || [],
+				sourceImage: card.sourceImage ?? entry?.sourceImage,
 			});
 			
 			// Update database
@@ -377,11 +570,16 @@ const EntryDetailScreen: React.FC = () => {
 				noteId: result.noteId
 			});
 			
-			// Update local state
+			// Update local state; a duplicate was skipped and keeps its badge
 			const successCards = [...cards];
 			successCards[index].uiStatus = 'added';
 			successCards[index].status = 'added';
+			successCards[index].duplicate = result.duplicate;
+			successCards[index].duplicateNoteId = result.duplicate ? result.noteId : undefined;
 			setCards(successCards);
+			if (result.duplicate) {
+				setLog('This card is already in Anki, skipped');
+			}
 			
 			// Check if all cards are added
 			const allAdded = successCards.every(c => c.status === 'added');
@@ -394,9 +592,13 @@ const EntryDetailScreen: React.FC = () => {
 			}
 		} catch (e) {
 			console.error('Failed to add card:', e);
+			const queued = await queueCards([card.id]);
 			const failCards = [...cards];
-			failCards[index].uiStatus = 'error';
+			failCards[index].uiStatus = queued ? 'queued' : 'error';
 			setCards(failCards);
+			if (queued) {
+				setLog('AnkiDroid not reachable, the card will be added automatically');
+			}
 		}
 	};
 
@@ -407,7 +609,7 @@ const EntryDetailScreen: React.FC = () => {
 		// Get indices of pending cards
 		const pendingIndices = cards
 			.map((card, index) => ({ card, index }))
-			.filter(({ card }) => card.uiStatus === 'idle')
+			.filter(({ card }) => card.uiStatus === 'idle' || card.uiStatus === 'queued')
 			.map(({ index }) => index);
 		
 		if (pendingIndices.length === 0) return;
@@ -427,6 +629,7 @@ const EntryDetailScreen: React.FC = () => {
 			
 			// Add each pending card
 			let addedCount = 0;
+			let duplicateCount = 0;
 			for (const index of pendingIndices) {
 				const card = cards[index];
 				
@@ -436,7 +639,7 @@ const EntryDetailScreen: React.FC = () => {
 					updated[index] = { ...updated[index], uiStatus: 'adding' };
 					return updated;
 				});
-				setLog(`Adding card ${addedCount + 1} of ${pendingIndices.length}...`);
+				setLog(`Adding card ${addedCount + duplicateCount + 1} of ${pendingIndices.length}...`);
 				
 				try {
 					const result = await AnkiDroid.addBasicCard({
@@ -445,6 +648,7 @@ const EntryDetailScreen: React.FC = () => {
 						front: card.front,
 						back: card.back,
 						tags: card.tags || [],
+						sourceImage: card.sourceImage ?? entry?.sourceImage,
 					});
 					
 					// Update database
@@ -457,21 +661,35 @@ const EntryDetailScreen: React.FC = () => {
 					// Update local state
 					setCards(prev => {
 						const updated = [...prev];
-						updated[index] = { ...updated[index], uiStatus: 'added', status: 'added' };
+						updated[index] = {
+							...updated[index],
+							uiStatus: 'added',
+							status: 'added',
+							duplicate: result.duplicate,
+							duplicateNoteId: result.duplicate ? result.noteId : undefined,
+						};
 						return updated;
 					});
-					addedCount++;
+					if (result.duplicate) {
+						duplicateCount++;
+					} else {
+						addedCount++;
+					}
 				} catch (cardError) {
 					console.error(`Failed to add card ${index}:`, cardError);
+					const queued = await queueCards([card.id]);
 					setCards(prev => {
 						const updated = [...prev];
-						updated[index] = { ...updated[index], uiStatus: 'error' };
+						updated[index] = { ...updated[index], uiStatus: queued ? 'queued' : 'error' };
 						return updated;
 					});
 				}
 			}
 			
-			setLog(`Added ${addedCount} of ${pendingIndices.length} cards`);
+			setLog(
+				`Added ${addedCount} of ${pendingIndices.length} cards` +
+					(duplicateCount > 0 ? `, ${duplicateCount} already in Anki skipped` : '')
+			);
 			
 			// Check if all cards are now added
 			const currentCards = cards.map((c, i) =>
@@ -489,7 +707,15 @@ const EntryDetailScreen: React.FC = () => {
 			}
 		} catch (e) {
 			console.error('Failed to add all cards:', e);
-			setLog('Failed to add cards: ' + (e instanceof Error ? e.message : String(e)));
+			// AnkiDroid missing or permission denied: queue everything, it is added once that changes
+			const pendingIds = pendingIndices.map(i => cards[i].id);
+			if (await queueCards(pendingIds)) {
+				const pending = new Set(pendingIds);
+				setCards(prev => prev.map(c => pending.has(c.id) ? { ...c, uiStatus: 'queued' } : c));
+				setLog(`AnkiDroid not reachable, ${pendingIds.length} cards queued and will be added automatically`);
+			} else {
+				setLog('Failed to add cards: ' + (e instanceof Error ? e.message : String(e)));
+			}
 		} finally {
 			setIsAddingAll(false);
 		}
@@ -617,12 +843,12 @@ const EntryDetailScreen: React.FC = () => {
 	/**
 	 * Check if URL needs extraction
 	 */
-	const needsExtraction = entry?.contentType === 'url' && !entry.extractedText;
+	const needsExtraction = entry?.contentType === 'url' && !entry.extractedTextLength;
 
 	/**
 	 * Check if PDF needs extraction
 	 */
-	const needsPdfExtraction = entry?.contentType === 'pdf' && !entry.extractedText;
+	const needsPdfExtraction = entry?.contentType === 'pdf' && !entry.extractedTextLength;
 
 	/**
 	 * Check if content needs any extraction (URL or PDF)
@@ -710,9 +936,18 @@ const EntryDetailScreen: React.FC = () => {
 					<IonText color="medium">
 						<p>{log}</p>
 					</IonText>
-					{(state === 'LOADING' || state === 'EXTRACTING' || state === 'GENERATING_FACTS' || state === 'SCORING_FACTS' || state === 'GENERATING_CARDS') && (
+					{(state === 'LOADING' || state === 'EXTRACTING' || state === 'GENERATING_FACTS' || state === 'SCORING_FACTS' || state === 'GENERATING_CARDS' || state === 'BACKGROUND' || isStreamingCards) && (
 						<IonProgressBar type="indeterminate" />
 					)}
+					{pipelineStats && (
+						<IonText color="medium">
+							<p style={{ fontSize: '0.85em' }}>
+								{pipelineStats.summary}
+								<br />
+								Waiting: {pipelineStats.queued.facts} chunks, {pipelineStats.queued.scoring} facts to score, {pipelineStats.queued.cards} facts for cards
+							</p>
+						</IonText>
+					)}
 				</div>
 
 				{/* Loading State */}
@@ -747,6 +982,25 @@ const EntryDetailScreen: React.FC = () => {
 					</IonCard>
 				)}
 
+				{/* Background Generation State */}
+				{state === 'BACKGROUND' && (
+					<IonCard>
+						<IonCardHeader>
+							<IonCardTitle>
+								<IonIcon icon={hourglassOutline} style={{ marginRight: 8, verticalAlign: 'middle' }} />
+								Generating in Background
+							</IonCardTitle>
+						</IonCardHeader>
+						<IonCardContent>
+							<p>Cards will be saved to this entry when generation finishes, even if you leave the app.</p>
+							<IonButton expand="block" fill="outline" color="medium" onClick={handleCancelBackground} style={{ marginTop: 16 }}>
+								<IonIcon slot="start" icon={closeOutline} />
+								Cancel
+							</IonButton>
+						</IonCardContent>
+					</IonCard>
+				)}
+
 				{/* Error State */}
 				{state === 'ERROR' && (
 					<IonCard color="danger">
@@ -783,21 +1037,8 @@ const EntryDetailScreen: React.FC = () => {
 										📄 {entry.title}
 									</p>
 								)}
-								{/* Show extracted text if available */}
-								{entry.extractedText ? (
-									<p
-										style={{
-											maxHeight: 150,
-											overflow: 'auto',
-											background: 'var(--ion-color-light)',
-											padding: 10,
-											borderRadius: 8,
-										}}
-									>
-										{entry.extractedText.slice(0, 500)}
-										{entry.extractedText.length > 500 && '...'}
-									</p>
-								) : entry.contentType === 'text' ? (
+								{/* Show the start of the text (extracted text, or the shared text itself) */}
+								{entry.textPreview ? (
 									<p
 										style={{
 											maxHeight: 150,
@@ -807,8 +1048,8 @@ const EntryDetailScreen: React.FC = () => {
 											borderRadius: 8,
 										}}
 									>
-										{entry.content.slice(0, 500)}
-										{entry.content.length > 500 && '...'}
+										{entry.textPreview}
+										{entry.textLength > TEXT_PREVIEW_LENGTH && '...'}
 									</p>
 								) : entry.contentType === 'pdf' ? (
 									<IonText color="medium">
@@ -832,18 +1073,41 @@ const EntryDetailScreen: React.FC = () => {
 							</IonCard>
 						)}
 
-						{/* PDF Extraction Button */}
-						{needsPdfExtraction && (
+						{/* PDF Page Range & Extraction */}
+						{entry.contentType === 'pdf' && (
 							<IonCard>
 								<IonCardContent>
-									<IonButton expand="block" onClick={handlePdfExtract}>
+									<IonList>
+										<IonItem>
+											<IonLabel position="stacked">From page</IonLabel>
+											<IonInput
+												type="number"
+												min="1"
+												value={pageRangeStart}
+												onIonInput={(e) => setPageRangeStart(e.detail.value ?? '')}
+												placeholder="1"
+											/>
+										</IonItem>
+										<IonItem>
+											<IonLabel position="stacked">To page</IonLabel>
+											<IonInput
+												type="number"
+												min="1"
+												value={pageRangeEnd}
+												onIonInput={(e) => setPageRangeEnd(e.detail.value ?? '')}
+												placeholder={entry.pageCount ? String(entry.pageCount) : 'Last'}
+											/>
+										</IonItem>
+									</IonList>
+									<IonButton expand="block" onClick={handlePdfExtract} style={{ marginTop: 16 }}>
 										<IonIcon slot="start" icon={documentTextOutline} />
-										Extract Text from PDF
+										{needsPdfExtraction ? 'Extract Text from PDF' : 'Apply Page Range'}
 									</IonButton>
 									<IonText color="medium">
 										<p style={{ fontSize: '0.85em', marginTop: 8 }}>
-											Extracts text content from the PDF. Note: Scanned/image PDFs may not extract
-											properly.
+											Only the selected pages are extracted and used for card generation.
+											Leave blank for the whole document. Note: Scanned/image PDFs may not
+											extract properly.
 										</p>
 									</IonText>
 								</IonCardContent>
@@ -876,7 +1140,16 @@ const EntryDetailScreen: React.FC = () => {
 									style={{ marginTop: 16 }}
 								>
 									<IonIcon slot="start" icon={flashOutline} />
-									Generate Cards
+									{checkpoint ? 'Resume Generation' : 'Generate Cards'}
+								</IonButton>
+								<IonButton
+									expand="block"
+									fill="outline"
+									onClick={handleGenerateInBackground}
+									disabled={needsAnyExtraction}
+								>
+									<IonIcon slot="start" icon={hourglassOutline} />
+									Generate in Background
 								</IonButton>
 								{needsAnyExtraction && (
 									<IonText color="medium">
@@ -1059,6 +1332,9 @@ const EntryDetailScreen: React.FC = () => {
 											<div style={{ flex: 1 }}>
 												<h3 style={{ margin: '0 0 4px 0', fontWeight: 600 }}>Q: {card.front}</h3>
 												<p style={{ margin: '0 0 8px 0', color: 'var(--ion-color-medium)' }}>A: {card.back}</p>
+												{card.duplicate && (
+													<IonChip color="warning" style={{ fontSize: 10 }}>Already in Anki</IonChip>
+												)}
 												{card.tags && card.tags.length > 0 && (
 													<div>
 														{card.tags.map(t => <IonChip key={t} style={{ fontSize: 10 }}>{t}</IonChip>)}
@@ -1086,6 +1362,7 @@ const EntryDetailScreen: React.FC = () => {
 													color={
 														card.uiStatus === 'error' ? 'danger' :
 														card.uiStatus === 'added' ? 'success' :
+														card.uiStatus === 'queued' ? 'medium' :
 														'primary'
 													}
 													disabled={card.uiStatus === 'adding' || card.uiStatus === 'added' || editingCardIndex !== null || isAddingAll}
@@ -1094,11 +1371,13 @@ const EntryDetailScreen: React.FC = () => {
 													{card.uiStatus === 'adding' && <IonSpinner name="crescent" style={{ width: 18, height: 18 }} />}
 													{card.uiStatus === 'added' && <IonIcon icon={checkmarkCircle} />}
 													{card.uiStatus === 'error' && <IonIcon icon={alertCircle} />}
+													{card.uiStatus === 'queued' && <IonIcon icon={hourglassOutline} />}
 													{card.uiStatus === 'idle' && <IonIcon icon={addCircleOutline} />}
 													<span style={{ marginLeft: 4 }}>
 														{card.uiStatus === 'adding' ? '' :
 														 card.uiStatus === 'added' ? 'Added' :
 														 card.uiStatus === 'error' ? 'Retry' :
+														 card.uiStatus === 'queued' ? 'Queued' :
 														 'Add'}
 													</span>
 												</IonButton>
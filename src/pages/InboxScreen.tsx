@@ -23,11 +23,9 @@ import {
 	IonFabButton,
 	IonModal,
 	IonTextarea,
-	useIonViewWillEnter,
 	useIonToast,
 } from '@ionic/react';
 import type { RefresherEventDetail } from '@ionic/react';
-import { App } from '@capacitor/app';
 import {
 	settingsOutline,
 	linkOutline,
@@ -41,9 +39,14 @@ import {
 	closeOutline,
 	checkmarkOutline,
 	cameraOutline,
+	flashOutline,
 } from 'ionicons/icons';
+import Diagnostics from '../plugins/Diagnostics';
 import Inbox from '../plugins/Inbox';
-import type { InboxEntry } from '../plugins/Inbox';
+import type { InboxEntry, EntryChangedEvent } from '../plugins/Inbox';
+import Generation from '../plugins/Generation';
+import type { RunnerStatus } from '../plugins/Generation';
+import { queueEntriesForGeneration } from '../lib/gemini/backgroundGeneration';
 import { useSpeechRecognition } from '../hooks/useSpeechRecognition';
 import { useCameraOCR } from '../hooks/useCameraOCR';
 
@@ -71,6 +74,17 @@ function formatRelativeTime(timestamp: number): string {
 	return 'Just now';
 }
 
+// Fields the list shows; entry text stays in the database
+const LIST_FIELDS = ['id', 'contentType', 'preview', 'title', 'isLocked', 'createdAt', 'extractedTextLength'] as const;
+type ListEntry = Pick<InboxEntry, typeof LIST_FIELDS[number]>;
+
+/**
+ * Whether an entry has text the background runner can process without user interaction
+ */
+function canGenerateInBackground(entry: ListEntry): boolean {
+	return !entry.isLocked && (entry.contentType === 'text' || (entry.extractedTextLength ?? 0) > 0);
+}
+
 /**
  * Generate a UUID v4
  */
@@ -84,9 +98,10 @@ function generateUUID(): string {
 
 const InboxScreen: React.FC = () => {
 	const history = useHistory();
-	const [entries, setEntries] = useState<InboxEntry[]>([]);
+	const [entries, setEntries] = useState<ListEntry[]>([]);
 	const [loading, setLoading] = useState(true);
 	const [error, setError] = useState<string | null>(null);
+	const [runner, setRunner] = useState<RunnerStatus>({ running: null, queued: [] });
 
 	// Speech recognition state
 	const [showSpeechModal, setShowSpeechModal] = useState(false);
@@ -109,6 +124,7 @@ const InboxScreen: React.FC = () => {
 		isAvailable: isCameraAvailable,
 		isProcessing: isCameraProcessing,
 		extractedText,
+		sourceImage: ocrSourceImage,
 		error: cameraError,
 		openCamera,
 		reset: resetCamera,
@@ -132,7 +148,7 @@ const InboxScreen: React.FC = () => {
 	const loadEntries = useCallback(async () => {
 		try {
 			setError(null);
-			const result = await Inbox.getAllEntries();
+			const result = await Inbox.getAllEntries({ fields: LIST_FIELDS });
 			setEntries(result.entries);
 		} catch (e) {
 			console.error('Failed to load entries:', e);
@@ -142,26 +158,106 @@ const InboxScreen: React.FC = () => {
 		}
 	}, []);
 
-	// Load entries when the view is about to enter (handles navigation back)
-	useIonViewWillEnter(() => {
+	// Load entries once; later changes arrive through the inbox change feed
+	useEffect(() => {
 		loadEntries();
-	});
+	}, [loadEntries]);
 
-	// Listen for app state changes to refresh when coming to foreground
+	// Report the first rendered inbox for startup measurements
 	useEffect(() => {
-		const listener = App.addListener('appStateChange', ({ isActive }) => {
-			if (isActive) {
-				// App came to foreground - refresh the inbox
-				console.log('App resumed, refreshing inbox...');
-				loadEntries();
+		if (!loading) {
+			Diagnostics.reportFirstRender().catch(() => undefined);
+		}
+	}, [loading]);
+
+	// Patch the list from the change feed instead of reloading every entry
+	useEffect(() => {
+		const upsertEntry = async ({ entryId }: EntryChangedEvent) => {
+			try {
+				const { entry } = await Inbox.getEntry({ id: entryId, fields: LIST_FIELDS, includeCards: false });
+				setEntries(prev => [entry, ...prev.filter(e => e.id !== entryId)]
+					.sort((a, b) => b.createdAt - a.createdAt));
+			} catch (e) {
+				// Removed again before it could be read, entryRemoved follows
+				console.warn('Failed to read changed entry:', e);
 			}
-		});
+		};
+
+		const handles = [
+			Inbox.addListener('entryAdded', upsertEntry),
+			Inbox.addListener('entryUpdated', upsertEntry),
+			Inbox.addListener('entryRemoved', ({ entryId }) => {
+				setEntries(prev => prev.filter(e => e.id !== entryId));
+			}),
+			Inbox.addListener('entriesRemoved', ({ entryIds }) => {
+				const removed = new Set(entryIds);
+				setEntries(prev => prev.filter(e => !removed.has(e.id)));
+			}),
+			// Bulk additions (imports) can be thousands of entries, one list read is cheaper
+			Inbox.addListener('entriesAdded', () => {
+				loadEntries();
+			}),
+		];
 
 		return () => {
-			listener.then(handle => handle.remove());
+			handles.forEach(handle => handle.then(h => h.remove()));
 		};
 	}, [loadEntries]);
 
+	// Track the background runner
+	useEffect(() => {
+		Generation.getRunnerStatus()
+			.then(setRunner)
+			.catch(e => console.warn('Failed to get runner status:', e));
+
+		const handles = [
+			Generation.addListener('generationQueueChanged', setRunner),
+			Generation.addListener('generationFailed', (event) => {
+				if (event.error === 'Cancelled') return;
+				presentToast({
+					message: `Generation failed: ${event.error}`,
+					duration: 3000,
+					color: 'danger',
+				});
+			}),
+		];
+
+		return () => {
+			handles.forEach(handle => handle.then(h => h.remove()));
+		};
+	}, [presentToast]);
+
+	/**
+	 * Queue entries for background card generation
+	 */
+	const generateInBackground = async (targets: ListEntry[]) => {
+		const eligible = targets.filter(canGenerateInBackground);
+		if (eligible.length === 0) {
+			presentToast({
+				message: 'No entries ready to generate. URLs and PDFs need their text extracted first.',
+				duration: 3000,
+				color: 'warning',
+			});
+			return;
+		}
+
+		try {
+			const queued = await queueEntriesForGeneration(eligible.map(e => e.id));
+			presentToast({
+				message: queued === 1 ? 'Queued 1 entry' : `Queued ${queued} entries`,
+				duration: 2000,
+				color: 'success',
+			});
+		} catch (e) {
+			console.error('Failed to queue entries:', e);
+			presentToast({
+				message: e instanceof Error ? e.message : 'Failed to queue entries',
+				duration: 3000,
+				color: 'danger',
+			});
+		}
+	};
+
 	// Update editable transcript when speech recognition updates
 	useEffect(() => {
 		if (transcript) {
@@ -180,14 +276,14 @@ const InboxScreen: React.FC = () => {
 	/**
 	 * Navigate to entry detail screen
 	 */
-	const openEntry = (entry: InboxEntry) => {
+	const openEntry = (entry: ListEntry) => {
 		history.push(`/entry/${entry.id}`);
 	};
 
 	/**
 	 * Delete an entry
 	 */
-	const deleteEntry = async (entry: InboxEntry) => {
+	const deleteEntry = async (entry: ListEntry) => {
 		try {
 			await Inbox.deleteEntry({ id: entry.id });
 			// Remove from local state
@@ -325,13 +421,13 @@ const InboxScreen: React.FC = () => {
 				preview: textToSave.length > 100 ? textToSave.substring(0, 100) + '...' : textToSave,
 				isLocked: false,
 				createdAt: Date.now(),
+				// Cards generated from camera text carry the photo into AnkiDroid
+				sourceImage: showOCRModal ? ocrSourceImage : undefined,
 			};
 
+			// The list picks the entry up from the entryAdded event
 			await Inbox.saveEntry({ entry: newEntry });
 
-			// Refresh entries
-			await loadEntries();
-
 			// Close modal
 			handleCloseModal();
 
@@ -367,6 +463,12 @@ const InboxScreen: React.FC = () => {
 				<IonToolbar>
 					<IonTitle>MasterFlasher</IonTitle>
 					<IonButtons slot="end">
+						<IonButton
+							onClick={() => generateInBackground(entries)}
+							disabled={!entries.some(canGenerateInBackground)}
+						>
+							<IonIcon slot="icon-only" icon={flashOutline} />
+						</IonButton>
 						<IonButton onClick={navigateToSettings}>
 							<IonIcon slot="icon-only" icon={settingsOutline} />
 						</IonButton>
@@ -456,11 +558,9 @@ const InboxScreen: React.FC = () => {
 												whiteSpace: 'nowrap',
 											}}
 										>
-											{entry.contentType === 'url'
-												? entry.content
-												: entry.contentType === 'pdf'
-													? entry.title || 'PDF Document'
-													: entry.preview}
+											{entry.contentType === 'pdf'
+												? entry.title || 'PDF Document'
+												: entry.preview}
 										</p>
 										<p style={{
 											display: 'flex',
@@ -478,7 +578,27 @@ const InboxScreen: React.FC = () => {
 											Cards Ready
 										</IonChip>
 									)}
+									{!entry.isLocked && runner.running === entry.id && (
+										<IonChip slot="end" color="primary" style={{ fontSize: 10 }}>
+											Generating
+										</IonChip>
+									)}
+									{!entry.isLocked && runner.queued.includes(entry.id) && (
+										<IonChip slot="end" color="medium" style={{ fontSize: 10 }}>
+											Queued
+										</IonChip>
+									)}
 								</IonItem>
+								{canGenerateInBackground(entry) && (
+									<IonItemOptions side="start">
+										<IonItemOption
+											color="primary"
+											onClick={() => generateInBackground([entry])}
+										>
+											<IonIcon slot="icon-only" icon={flashOutline} />
+										</IonItemOption>
+									</IonItemOptions>
+								)}
 								<IonItemOptions side="end">
 									<IonItemOption
 										color="danger"
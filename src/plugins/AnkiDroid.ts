@@ -1,16 +1,67 @@
 import { registerPlugin } from '@capacitor/core';
+import type { PluginListenerHandle } from '@capacitor/core';
+
+/**
+ * Emitted after the native outbox exported or retried queued cards
+ */
+export interface OutboxFlushedEvent {
+	/** New notes created */
+	added: number;
+	/** Cards whose front was already a note */
+	duplicates: number;
+	/** Cards that failed and will be retried with backoff */
+	failed: number;
+	/** Cards that failed too often; they are now status 'error' */
+	gaveUp: number;
+	/** Cards still waiting */
+	remaining: number;
+	/** Cards now status 'added', new notes and duplicates */
+	addedCardIds: string[];
+	gaveUpCardIds: string[];
+	nextAttemptAt?: number;
+	lastError?: string;
+	durationMs: number;
+}
 
 export interface AnkiDroidPlugin {
 	isAvailable(): Promise<{ value: boolean }>;
 	hasPermission(): Promise<{ value: boolean }>;
 	requestPermission(): Promise<{ value: boolean }>;
+	/**
+	 * Add a basic note. Fronts already in AnkiDroid are skipped unless allowDuplicate is set;
+	 * duplicate is then true and noteId is the existing note, when known.
+	 * A sourceImage is added to AnkiDroid's media (once per image) and shown below the back.
+	 */
 	addBasicCard(options: {
 		deckName: string;
 		modelKey: string;
 		front: string;
 		back: string;
 		tags: string[];
-	}): Promise<{ noteId?: number }>;
+		allowDuplicate?: boolean;
+		sourceImage?: string;
+	}): Promise<{ noteId?: number; duplicate: boolean }>;
+	/**
+	 * Check the fronts of all cards not yet added against AnkiDroid in one batched query
+	 * and record the existing ones in the local duplicate index.
+	 */
+	seedDuplicateIndex(options?: { modelKey?: string }): Promise<{ checked: number; found: number }>;
+	/**
+	 * Queue cards in the native outbox and mark them 'queued'. They are added in batches
+	 * as soon as AnkiDroid is installed and the permission granted, and retried with backoff
+	 * on failure. Cards already added are not queued.
+	 */
+	enqueueCards(options: { cardIds: string[]; deckName?: string; modelKey?: string }): Promise<{ queued: number }>;
+	/**
+	 * Export due queued cards now if AnkiDroid is ready; the outcome arrives as outboxFlushed
+	 */
+	flushOutbox(): Promise<void>;
+	getOutboxStatus(): Promise<{ pending: number; nextAttemptAt?: number }>;
+
+	addListener(
+		eventName: 'outboxFlushed',
+		listenerFunc: (event: OutboxFlushedEvent) => void
+	): Promise<PluginListenerHandle>;
 }
 
 const AnkiDroid = registerPlugin<AnkiDroidPlugin>('AnkiDroid');
@@ -0,0 +1,48 @@
+import { registerPlugin } from '@capacitor/core';
+
+/**
+ * Rows and files moved by one export or import, with its throughput
+ */
+export interface BackupStats {
+	entries: number;
+	cards: number;
+	pdfPages: number;
+	settings: number;
+	files: number;
+	/** Entries that already existed and were kept (import with onConflict 'skip') */
+	skippedEntries: number;
+	/** Size of the archive */
+	bytes: number;
+	durationMs: number;
+	megabytesPerSecond: number;
+}
+
+export interface ExportResult extends BackupStats {
+	path: string;
+	/** file:// URI of the archive, e.g. for sharing */
+	uri: string;
+}
+
+/**
+ * Capacitor plugin writing the whole inbox (entries, cards, PDF pages, settings and PDF files)
+ * into one zip archive and reading it back. Both directions stream, so memory use does not
+ * grow with the inbox.
+ */
+export interface BackupPlugin {
+	/**
+	 * Export the inbox
+	 * @param options.path - Target file, defaults to backups/masterflasher-<timestamp>.zip in app storage
+	 */
+	exportInbox(options?: { path?: string }): Promise<ExportResult>;
+
+	/**
+	 * Import an archive written by exportInbox. Emits Inbox 'entriesAdded' once with the entries written.
+	 * @param options.path - File path, file:// or content:// URI
+	 * @param options.onConflict - Keep ('skip', default) or overwrite ('replace') entries whose id exists
+	 */
+	importInbox(options: { path: string; onConflict?: 'skip' | 'replace' }): Promise<BackupStats>;
+}
+
+const Backup = registerPlugin<BackupPlugin>('Backup');
+
+export default Backup;
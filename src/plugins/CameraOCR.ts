@@ -4,6 +4,11 @@ import type { PermissionState } from '@capacitor/core';
 export interface CameraOCRResult {
 	text: string;
 	cancelled?: boolean;
+	/**
+	 * The cropped photo, re-encoded to a size-capped WebP and named by its content hash.
+	 * Unset when the image could not be stored; the text is still returned.
+	 */
+	sourceImage?: string;
 }
 
 export interface PermissionStatus {
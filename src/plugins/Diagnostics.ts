@@ -0,0 +1,70 @@
+import { registerPlugin } from '@capacitor/core';
+
+/**
+ * Latency of one native plugin method, e.g. "Inbox.getEntry"
+ */
+export interface MethodStats {
+	name: string;
+	count: number;
+	meanMs: number;
+	p50Ms: number;
+	p95Ms: number;
+	p99Ms: number;
+	maxMs: number;
+}
+
+/**
+ * A plugin call slower than slowCallThresholdMs, with the SQL it ran
+ */
+export interface SlowCall {
+	method: string;
+	durationMs: number;
+	finishedAt: number;
+	queryCount: number;
+	/** First statements of the call, bind arguments omitted */
+	queries: string[];
+}
+
+export interface QueryStats {
+	sql: string;
+	count: number;
+}
+
+export interface DiagnosticsStats {
+	/** Sorted by p99, slowest first */
+	methods: MethodStats[];
+	/** Latest first */
+	slowCalls: SlowCall[];
+	/** Most frequent statements first */
+	queries: QueryStats[];
+	slowCallThresholdMs: number;
+	/** Process start to first rendered inbox, absent until reportFirstRender was called */
+	firstRenderMs?: number;
+}
+
+/**
+ * Capacitor plugin exposing native latency counters, to profile plugin calls and SQL
+ * on real devices. Percentiles are approximate (within 12.5%).
+ */
+export interface DiagnosticsPlugin {
+	/**
+	 * Get latency percentiles per plugin method, recent slow calls and frequent statements
+	 * @param options.queryLimit - Maximum statements to return (default 50)
+	 */
+	getStats(options?: { queryLimit?: number }): Promise<DiagnosticsStats>;
+
+	/**
+	 * Clear all counters
+	 */
+	reset(): Promise<void>;
+
+	/**
+	 * Report that the inbox list rendered for the first time. Records the time since
+	 * process start and marks the activity fully drawn for startup traces. Only the first call counts.
+	 */
+	reportFirstRender(): Promise<void>;
+}
+
+const Diagnostics = registerPlugin<DiagnosticsPlugin>('Diagnostics');
+
+export default Diagnostics;
@@ -0,0 +1,334 @@
+import { registerPlugin } from '@capacitor/core';
+import type { PluginListenerHandle } from '@capacitor/core';
+import type { FactScore } from '../lib/anki/types';
+
+/**
+ * Fact as exchanged with the native engine
+ */
+export interface EngineFact {
+	id: string;
+	fact: string;
+	/** Index of the chunk the fact was extracted from */
+	chunkIndex?: number;
+}
+
+/**
+ * Facts extracted from one chunk; error is set when the chunk failed
+ */
+export interface ChunkFactsResult {
+	chunkIndex: number;
+	facts: EngineFact[];
+	error?: string;
+}
+
+/**
+ * Maximum in-flight Gemini requests per stage
+ */
+export interface StageConcurrency {
+	facts?: number;
+	scoring?: number;
+	cards?: number;
+}
+
+/**
+ * Per-model request and token budgets enforced before each Gemini call
+ */
+export interface RateLimitConfig {
+	requestsPerMinute?: number;
+	tokensPerMinute?: number;
+}
+
+/**
+ * Rate limiter state for one model
+ */
+export interface ModelQueueStatus {
+	model: string;
+	/** Calls waiting for budget */
+	queued: number;
+	availableRequests: number;
+	availableTokens: number;
+	/** Remaining pause after a 429, 0 when not paused */
+	pausedForMs: number;
+}
+
+/**
+ * Work waiting on the rate limiter and on each stage's concurrency slots
+ */
+export interface QueueStatus {
+	queued: number;
+	stages: Required<StageConcurrency>;
+	models: ModelQueueStatus[];
+	limits: Required<RateLimitConfig>;
+}
+
+/**
+ * Response cache counters (hits/misses since app start) and storage usage
+ */
+export interface CacheStats {
+	hits: number;
+	misses: number;
+	hitRate: number;
+	entries: number;
+	sizeBytes: number;
+	maxBytes: number;
+}
+
+/**
+ * Totals of recorded Gemini requests for one group. latencyMs includes waitMs
+ * (rate limiter and retry backoff); cache hits and failed calls bill no tokens.
+ */
+export interface UsageTotals {
+	/** Stage, model, prompt hash, entry id or content type; absent for the overall totals */
+	key?: string;
+	/** Entry title (byEntry) or the prompt's stage (byPrompt) */
+	label?: string;
+	calls: number;
+	promptTokens: number;
+	outputTokens: number;
+	latencyMs: number;
+	waitMs: number;
+	retries: number;
+	cacheHits: number;
+	failures: number;
+}
+
+/**
+ * Request usage overall and per group, most expensive groups first
+ */
+export interface UsageStats {
+	totals: UsageTotals;
+	byStage: UsageTotals[];
+	byModel: UsageTotals[];
+	byPrompt: UsageTotals[];
+	byEntry: UsageTotals[];
+	bySource: UsageTotals[];
+}
+
+/**
+ * Effective stage instructions (user prompt + system constraints) for background runs
+ */
+export interface PipelinePrompts {
+	factExtraction: string;
+	factScoring: string;
+	cardCreation: string;
+}
+
+/**
+ * Background runner state: the entry being processed and the entries waiting
+ */
+export interface RunnerStatus {
+	running: string | null;
+	queued: string[];
+	/** Stats of the running entry, once its first request has completed */
+	stats?: PipelineStats;
+}
+
+/**
+ * Stored progress of an unfinished run. 'running' means the app was killed during the run.
+ */
+export interface RunCheckpoint {
+	state: 'running' | 'failed' | 'cancelled';
+	chunkCount: number;
+	chunksDone: number;
+	facts: number;
+	cardsStored: number;
+	error?: string;
+	updatedAt: number;
+}
+
+/**
+ * Per-stage counts of an overlapped pipeline run
+ */
+export interface StageCounts {
+	facts: number;
+	scoring: number;
+	cards: number;
+}
+
+/**
+ * Snapshot of a pipeline run. queued is work waiting for a stage slot (chunks, facts
+ * awaiting scoring, selected facts awaiting a card batch); inFlight is running requests.
+ */
+export interface PipelineStats {
+	chunksTotal: number;
+	chunksDone: number;
+	factsExtracted: number;
+	/** Extracted facts dropped as near-duplicates before scoring */
+	factsDuplicate: number;
+	/** Estimated tokens of the dropped duplicates */
+	tokensSaved: number;
+	factsScored: number;
+	factsPassed: number;
+	cardsStored: number;
+	queued: StageCounts;
+	inFlight: StageCounts;
+	elapsedMs: number;
+	/** Unset until the first card batch is stored */
+	timeToFirstCardMs?: number;
+	/** One-line human-readable summary */
+	summary: string;
+}
+
+export interface GenerationProgressEvent {
+	entryId: string;
+	stage: 'facts' | 'scoring' | 'cards';
+	message: string;
+}
+
+export interface GenerationStatsEvent extends PipelineStats {
+	entryId: string;
+}
+
+export interface GenerationCompletedEvent {
+	entryId: string;
+	cardCount: number;
+	stats: PipelineStats;
+}
+
+export interface GenerationFailedEvent {
+	entryId: string;
+	error: string;
+}
+
+/**
+ * Capacitor plugin interface for the native Gemini generation engine.
+ *
+ * Requests run on native threads with a shared, connection-reusing HTTP client
+ * and a bounded number of concurrent calls per stage. Calls are rate limited per
+ * model and retried with backoff on 429s and transient errors. Successful responses
+ * are cached on disk, so repeating identical work costs no API tokens.
+ */
+export interface GenerationPlugin {
+	/**
+	 * Set API key, model and optional per-stage concurrency and rate limits.
+	 * baseUrl overrides the Gemini endpoint (e.g. a local mock server).
+	 * maxAttempts caps tries per request, including the first one.
+	 */
+	configure(options: {
+		apiKey: string;
+		model: string;
+		baseUrl?: string;
+		concurrency?: StageConcurrency;
+		rateLimit?: RateLimitConfig;
+		maxAttempts?: number;
+	}): Promise<void>;
+
+	/**
+	 * Extract facts from pre-split chunks, or from whole text chunked natively by estimated tokens
+	 * (maxTokens defaults to 2000, overlapTokens to 0). prompt is the full instruction (user prompt + system constraints).
+	 */
+	extractFacts(options: {
+		chunks?: string[];
+		text?: string;
+		title?: string;
+		prompt: string;
+		maxTokens?: number;
+		overlapTokens?: number;
+	}): Promise<{ results: ChunkFactsResult[] }>;
+
+	/**
+	 * Drop near-duplicate facts, keeping the most detailed fact of each cluster in first-seen order.
+	 */
+	dedupeFacts(options: { facts: EngineFact[] }): Promise<{ facts: EngineFact[]; removed: number; tokensSaved: number }>;
+
+	/**
+	 * Score facts for learning value
+	 */
+	scoreFacts(options: { facts: EngineFact[]; prompt: string; batchSize?: number }): Promise<{ scores: FactScore[] }>;
+
+	/**
+	 * Generate basic flashcards from facts
+	 */
+	generateCards(options: {
+		facts: EngineFact[];
+		prompt: string;
+		batchSize?: number;
+	}): Promise<{ cards: { front: string; back: string; tags: string[] }[] }>;
+
+	/**
+	 * Run the whole pipeline for an entry while the caller waits. Facts are scored as soon as
+	 * they arrive; the 40 best of the whole document go to card creation once scoring is done,
+	 * and cards are stored batch by batch (Inbox `cardsAppended`). Emits generationProgress and generationStats; locks the entry at the end.
+	 */
+	generateEntry(options: { entryId: string; prompts: PipelinePrompts }): Promise<{ cardCount: number; stats: PipelineStats }>;
+
+	/**
+	 * Get rate limiter and stage queue depths
+	 */
+	getQueueStatus(): Promise<QueueStatus>;
+
+	/**
+	 * Get response cache hit rate and size
+	 */
+	getCacheStats(): Promise<CacheStats>;
+
+	/**
+	 * Delete all cached responses
+	 */
+	clearCache(): Promise<void>;
+
+	/**
+	 * Get token, latency and retry totals of recorded requests
+	 * @param entryId Only requests made for this entry
+	 * @param since Only requests recorded at or after this time (Unix ms)
+	 * @param limit Maximum entries in byEntry (default 20)
+	 */
+	getUsageStats(options?: { entryId?: string; since?: number; limit?: number }): Promise<UsageStats>;
+
+	/**
+	 * Delete all recorded request metrics
+	 */
+	clearUsageStats(): Promise<void>;
+
+	/**
+	 * Queue entries for unattended generation in a native foreground service.
+	 * Cards are saved and the entry locked when a run completes. The engine must be configured first.
+	 * On Android 13+ the first call asks for the notification permission; entries are queued either way.
+	 * @returns Number of entries added (already queued, running or locked entries are skipped)
+	 */
+	enqueueEntries(options: { entryIds: string[]; prompts: PipelinePrompts }): Promise<{ queued: number }>;
+
+	/**
+	 * Remove an entry from the queue, or stop it if it is running
+	 */
+	cancelGeneration(options: { entryId: string }): Promise<{ cancelled: boolean }>;
+
+	/**
+	 * Get the entry being processed and the queued entries
+	 */
+	getRunnerStatus(): Promise<RunnerStatus>;
+
+	/**
+	 * Stored progress of the entry's unfinished run; the next run resumes from it when the text and prompts are unchanged
+	 */
+	getCheckpoint(options: { entryId: string }): Promise<{ checkpoint: RunCheckpoint | null }>;
+
+	addListener(
+		eventName: 'generationProgress',
+		listenerFunc: (event: GenerationProgressEvent) => void
+	): Promise<PluginListenerHandle>;
+
+	addListener(
+		eventName: 'generationStats',
+		listenerFunc: (event: GenerationStatsEvent) => void
+	): Promise<PluginListenerHandle>;
+
+	addListener(
+		eventName: 'generationCompleted',
+		listenerFunc: (event: GenerationCompletedEvent) => void
+	): Promise<PluginListenerHandle>;
+
+	addListener(
+		eventName: 'generationFailed',
+		listenerFunc: (event: GenerationFailedEvent) => void
+	): Promise<PluginListenerHandle>;
+
+	addListener(
+		eventName: 'generationQueueChanged',
+		listenerFunc: (event: RunnerStatus) => void
+	): Promise<PluginListenerHandle>;
+}
+
+const Generation = registerPlugin<GenerationPlugin>('Generation');
+
+export default Generation;
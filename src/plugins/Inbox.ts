@@ -1,4 +1,5 @@
 import { registerPlugin } from '@capacitor/core';
+import type { PluginListenerHandle } from '@capacitor/core';
 
 /**
  * Inbox entry representing shared content
@@ -21,11 +22,53 @@ export interface InboxEntry {
 	preview: string;
 	/** Title from WebClipper (URLs) or original filename (PDFs) */
 	title?: string;
-	/** Extracted text content (from WebClipper for URLs, pdf.js for PDFs) */
+	/**
+	 * Extracted text content (from WebClipper for URLs, pdf.js for PDFs). Unset for PDF
+	 * text, which is kept in a file on the device: read it in ranges with getEntryText.
+	 */
 	extractedText?: string;
 	deckName?: string;
 	isLocked: boolean;
 	createdAt: number;
+	/** Total PDF pages (0 until pdf.js has opened the document) */
+	pageCount?: number;
+	/** First selected PDF page, 1-based inclusive (unset = first page) */
+	pageRangeStart?: number;
+	/** Last selected PDF page, 1-based inclusive (unset = last page) */
+	pageRangeEnd?: number;
+	/** Length of content in characters (code points) */
+	contentLength?: number;
+	/** Length of extractedText in characters (code points), 0 when none */
+	extractedTextLength?: number;
+	/** Camera OCR crop the text was read from, a stored WebP file name (see CameraOCRResult) */
+	sourceImage?: string;
+}
+
+/**
+ * Entry field names accepted by getAllEntries/getEntry `fields`
+ */
+export type InboxEntryField = keyof InboxEntry;
+
+/**
+ * A range of an entry's text
+ */
+export interface EntryTextRange {
+	text: string;
+	field: 'content' | 'extractedText';
+	offset: number;
+	/** Length of the whole field in characters (code points) */
+	totalLength: number;
+}
+
+/**
+ * Extraction stats for a PDF entry, one item per extracted page
+ */
+export interface PdfPageStats {
+	pageCount: number;
+	pageRangeStart?: number;
+	pageRangeEnd?: number;
+	totalChars: number;
+	pages: { pageNo: number; charCount: number }[];
 }
 
 /**
@@ -37,8 +80,62 @@ export interface GeneratedCard {
 	front: string;
 	back: string;
 	tags: string[];
-	status: 'pending' | 'added' | 'error';
+	/** 'queued' cards wait in the native AnkiDroid outbox (see AnkiDroid.enqueueCards) */
+	status: 'pending' | 'queued' | 'added' | 'error';
 	noteId?: number;
+	/** Set on cards not yet added whose front is already a note in AnkiDroid */
+	duplicate?: boolean;
+	duplicateNoteId?: number;
+	/** Source image exported with the card, inherited from its entry when the card is saved */
+	sourceImage?: string;
+}
+
+/**
+ * Emitted when a batch of generated cards was stored natively, while later batches may still be generating
+ */
+export interface CardsAppendedEvent {
+	entryId: string;
+	cards: GeneratedCard[];
+}
+
+/**
+ * Emitted after an entry was added, updated or removed, from any writer (UI, share sheet, background runner)
+ */
+export interface EntryChangedEvent {
+	entryId: string;
+}
+
+/**
+ * Emitted once after deleteEntries or deleteWhere removed several entries
+ */
+export interface EntriesRemovedEvent {
+	entryIds: string[];
+}
+
+/**
+ * Emitted once after an import added or replaced several entries
+ */
+export interface EntriesAddedEvent {
+	entryIds: string[];
+}
+
+/**
+ * Criteria of deleteWhere; omitted criteria match any entry
+ */
+export interface EntryFilter {
+	contentType?: 'text' | 'url' | 'pdf';
+	isLocked?: boolean;
+	/** Only entries created before this time (ms since epoch, exclusive) */
+	createdBefore?: number;
+}
+
+/**
+ * Emitted after cards of an entry were added, edited or deleted
+ */
+export interface CardsChangedEvent {
+	entryId: string;
+	/** Changed cards, empty when any card of the entry may have changed */
+	cardIds: string[];
 }
 
 /**
@@ -46,14 +143,34 @@ export interface GeneratedCard {
  */
 export interface InboxPlugin {
 	/**
-	 * Get all inbox entries, sorted by creation date (newest first)
+	 * Get all inbox entries, sorted by creation date (newest first).
+	 * Pass `fields` to receive only those fields (plus id); without content and
+	 * extractedText the text is not even read from the database.
 	 */
-	getAllEntries(): Promise<{ entries: InboxEntry[] }>;
+	getAllEntries<K extends InboxEntryField = InboxEntryField>(options?: {
+		fields?: readonly K[];
+	}): Promise<{ entries: Pick<InboxEntry, K | 'id'>[] }>;
 
 	/**
-	 * Get a single entry by ID with its cards
+	 * Get a single entry by ID with its cards (empty when includeCards is false)
 	 */
-	getEntry(options: { id: string }): Promise<{ entry: InboxEntry; cards: GeneratedCard[] }>;
+	getEntry<K extends InboxEntryField = InboxEntryField>(options: {
+		id: string;
+		fields?: readonly K[];
+		includeCards?: boolean;
+	}): Promise<{ entry: Pick<InboxEntry, K | 'id'>; cards: GeneratedCard[] }>;
+
+	/**
+	 * Read part of an entry's text. Offsets count code points.
+	 * @param field Defaults to extractedText when the entry has any, otherwise content
+	 * @param length Defaults to the rest of the text
+	 */
+	getEntryText(options: {
+		id: string;
+		field?: 'content' | 'extractedText';
+		offset?: number;
+		length?: number;
+	}): Promise<EntryTextRange>;
 
 	/**
 	 * Save (insert or update) an entry
@@ -65,6 +182,17 @@ export interface InboxPlugin {
 	 */
 	deleteEntry(options: { id: string }): Promise<void>;
 
+	/**
+	 * Delete several entries in one transaction (cascade deletes their cards).
+	 * PDF files are removed in the background afterwards.
+	 */
+	deleteEntries(options: { ids: string[] }): Promise<{ removed: number }>;
+
+	/**
+	 * Delete all entries matching a filter in one transaction; an empty filter clears the inbox
+	 */
+	deleteWhere(options: { filter: EntryFilter }): Promise<{ removed: number }>;
+
 	/**
 	 * Save generated cards for an entry
 	 */
@@ -80,6 +208,11 @@ export interface InboxPlugin {
 	 */
 	updateCardContent(options: { cardId: string; front: string; back: string }): Promise<void>;
 
+	/**
+	 * Get the cards carrying a tag, across all entries
+	 */
+	getCardsByTag(options: { tag: string }): Promise<{ cards: GeneratedCard[] }>;
+
 	/**
 	 * Check if all cards for an entry have been added, and if so, auto-remove the entry
 	 */
@@ -99,6 +232,53 @@ export interface InboxPlugin {
 	 * Update entry's deck name
 	 */
 	updateDeckName(options: { entryId: string; deckName: string }): Promise<void>;
+
+	/**
+	 * Store the extracted text of a single PDF page
+	 */
+	savePdfPage(options: { entryId: string; pageNo: number; text: string; pageCount?: number }): Promise<void>;
+
+	/**
+	 * Get per-page extraction stats for a PDF entry (no page text)
+	 */
+	getPdfPageStats(options: { entryId: string }): Promise<PdfPageStats>;
+
+	/**
+	 * Select the PDF page range used for generation and rebuild extractedText from it.
+	 * The pages are streamed into the entry's text file, with whitespace normalized.
+	 * Returns the pages in range that still need extraction and the length of the text
+	 * in characters (code points).
+	 */
+	setPdfPageRange(options: {
+		entryId: string;
+		startPage?: number;
+		endPage?: number;
+	}): Promise<{ missingPages: number[]; charCount: number }>;
+
+	addListener(
+		eventName: 'cardsAppended',
+		listenerFunc: (event: CardsAppendedEvent) => void
+	): Promise<PluginListenerHandle>;
+
+	addListener(
+		eventName: 'entryAdded' | 'entryUpdated' | 'entryRemoved',
+		listenerFunc: (event: EntryChangedEvent) => void
+	): Promise<PluginListenerHandle>;
+
+	addListener(
+		eventName: 'entriesRemoved',
+		listenerFunc: (event: EntriesRemovedEvent) => void
+	): Promise<PluginListenerHandle>;
+
+	addListener(
+		eventName: 'entriesAdded',
+		listenerFunc: (event: EntriesAddedEvent) => void
+	): Promise<PluginListenerHandle>;
+
+	addListener(
+		eventName: 'cardsChanged',
+		listenerFunc: (event: CardsChangedEvent) => void
+	): Promise<PluginListenerHandle>;
 }
 
 const Inbox = registerPlugin<InboxPlugin>('Inbox');
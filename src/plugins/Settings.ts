@@ -6,6 +6,8 @@ import { registerPlugin } from '@capacitor/core';
 export const SETTINGS_KEYS = {
 	FACT_EXTRACTION_PROMPT: 'fact_extraction_prompt',
 	FLASHCARD_CREATION_PROMPT: 'flashcard_creation_prompt',
+	GEMINI_REQUESTS_PER_MINUTE: 'gemini_requests_per_minute',
+	GEMINI_TOKENS_PER_MINUTE: 'gemini_tokens_per_minute',
 } as const;
 
 export type SettingsKey = typeof SETTINGS_KEYS[keyof typeof SETTINGS_KEYS];
@@ -14,7 +16,8 @@ export type SettingsKey = typeof SETTINGS_KEYS[keyof typeof SETTINGS_KEYS];
  * Capacitor plugin interface for app settings storage.
  * 
  * Provides key-value storage for non-sensitive settings like custom prompts.
- * Uses Room database on Android for persistence.
+ * Uses Room database on Android for persistence, with all settings cached in memory,
+ * so reads cost no I/O. Prefer getSettings to read several keys in one bridge call.
  */
 export interface SettingsPlugin {
 	/**
@@ -24,6 +27,18 @@ export interface SettingsPlugin {
 	 */
 	getSetting(options: { key: string }): Promise<{ value: string | null }>;
 
+	/**
+	 * Get several settings in one call
+	 * @param options.keys - The setting keys to retrieve
+	 * @returns Every requested key, mapped to null if not found
+	 */
+	getSettings(options: { keys: string[] }): Promise<{ values: Record<string, string | null> }>;
+
+	/**
+	 * Get every stored setting
+	 */
+	getAllSettings(): Promise<{ values: Record<string, string | null> }>;
+
 	/**
 	 * Set a setting value
 	 * @param options.key - The setting key to set